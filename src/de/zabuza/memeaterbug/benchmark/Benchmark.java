@@ -0,0 +1,29 @@
+package de.zabuza.memeaterbug.benchmark;
+
+/**
+ * Benchmark that gets measured by a {@link BenchmarkRunner}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface Benchmark {
+	/**
+	 * Gets the name of the benchmark, which identifies it in the results.
+	 * 
+	 * @return The name of the benchmark
+	 */
+	public String getName();
+
+	/**
+	 * Executes the measured operation the given amount of times.
+	 * 
+	 * @param operations
+	 *            Amount of times to execute the operation
+	 * @return A value derived from the results of the operations, which gets
+	 *         consumed by the runner such that the operations can not be
+	 *         eliminated as dead code
+	 * @throws Exception
+	 *             If an operation failed, which aborts the benchmark
+	 */
+	public long operate(final int operations) throws Exception;
+}
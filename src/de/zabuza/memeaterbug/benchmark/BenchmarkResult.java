@@ -0,0 +1,138 @@
+package de.zabuza.memeaterbug.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Result of a {@link Benchmark}, holding the average time of one operation
+ * for each measured iteration.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BenchmarkResult {
+	/**
+	 * Name of the benchmark.
+	 */
+	private final String mName;
+	/**
+	 * Total amount of measured operations.
+	 */
+	private final long mOperations;
+	/**
+	 * Average time of one operation for each iteration, in nanoseconds.
+	 */
+	private final double[] mScores;
+
+	/**
+	 * Creates a new result.
+	 * 
+	 * @param name
+	 *            Name of the benchmark
+	 * @param operations
+	 *            Total amount of measured operations
+	 * @param scores
+	 *            Average time of one operation for each iteration, in
+	 *            nanoseconds
+	 */
+	public BenchmarkResult(final String name, final long operations, final double[] scores) {
+		this.mName = name;
+		this.mOperations = operations;
+		this.mScores = Arrays.copyOf(scores, scores.length);
+	}
+
+	/**
+	 * Gets the standard deviation of the iterations.
+	 * 
+	 * @return The standard deviation, in nanoseconds per operation
+	 */
+	public double getDeviation() {
+		if (this.mScores.length < 2) {
+			return 0;
+		}
+		final double mean = getScore();
+		double sum = 0;
+		for (final double score : this.mScores) {
+			sum += (score - mean) * (score - mean);
+		}
+		return Math.sqrt(sum / (this.mScores.length - 1));
+	}
+
+	/**
+	 * Gets the slowest iteration.
+	 * 
+	 * @return The average time of one operation in the slowest iteration, in
+	 *         nanoseconds
+	 */
+	public double getMax() {
+		double max = 0;
+		for (final double score : this.mScores) {
+			max = Math.max(max, score);
+		}
+		return max;
+	}
+
+	/**
+	 * Gets the fastest iteration.
+	 * 
+	 * @return The average time of one operation in the fastest iteration, in
+	 *         nanoseconds
+	 */
+	public double getMin() {
+		double min = Double.MAX_VALUE;
+		for (final double score : this.mScores) {
+			min = Math.min(min, score);
+		}
+		return min;
+	}
+
+	/**
+	 * Gets the name of the benchmark.
+	 * 
+	 * @return The name of the benchmark
+	 */
+	public String getName() {
+		return this.mName;
+	}
+
+	/**
+	 * Gets the total amount of measured operations.
+	 * 
+	 * @return The total amount of measured operations
+	 */
+	public long getOperations() {
+		return this.mOperations;
+	}
+
+	/**
+	 * Gets the average time of one operation over all iterations.
+	 * 
+	 * @return The average time of one operation, in nanoseconds
+	 */
+	public double getScore() {
+		double sum = 0;
+		for (final double score : this.mScores) {
+			sum += score;
+		}
+		return sum / this.mScores.length;
+	}
+
+	/**
+	 * Gets the average time of one operation for each iteration.
+	 * 
+	 * @return The average time of one operation for each iteration, in
+	 *         nanoseconds
+	 */
+	public double[] getScores() {
+		return Arrays.copyOf(this.mScores, this.mScores.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("%-40s %14.1f ns/op +- %.1f", this.mName, getScore(), getDeviation());
+	}
+}
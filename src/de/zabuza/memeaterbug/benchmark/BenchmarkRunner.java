@@ -0,0 +1,264 @@
+package de.zabuza.memeaterbug.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runner that measures {@link Benchmark benchmarks}. Each benchmark is first
+ * executed for some warmup iterations, such that the JIT compiler can settle,
+ * then for some measured iterations. Every iteration executes the operation
+ * in batches for a fixed duration and yields the average time of one
+ * operation.<br/>
+ * <br/>
+ * Results can be written as CSV or JSON for regression tracking.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BenchmarkRunner {
+	/**
+	 * Default duration of one iteration, in milliseconds.
+	 */
+	public static final long DEFAULT_ITERATION_DURATION = 1_000;
+	/**
+	 * Default amount of measured iterations.
+	 */
+	public static final int DEFAULT_MEASUREMENT_ITERATIONS = 5;
+	/**
+	 * Default amount of warmup iterations.
+	 */
+	public static final int DEFAULT_WARMUP_ITERATIONS = 3;
+	/**
+	 * Amount of batches an iteration is aimed to consist of. The size of a
+	 * batch is calibrated accordingly, such that reading the clock does not
+	 * distort fast operations.
+	 */
+	private static final int TARGET_BATCHES = 100;
+
+	/**
+	 * Writes the given results as CSV, one benchmark per line.
+	 * 
+	 * @param results
+	 *            The results to write
+	 * @param writer
+	 *            Writer to write the results to
+	 * @throws IOException
+	 *             If the results could not be written
+	 */
+	public static void writeCsv(final List<BenchmarkResult> results, final Writer writer) throws IOException {
+		writer.write("benchmark,operations,score,deviation,min,max,unit\n");
+		for (final BenchmarkResult result : results) {
+			writer.write(String.format(Locale.ROOT, "\"%s\",%d,%.3f,%.3f,%.3f,%.3f,ns/op%n", result.getName(),
+					Long.valueOf(result.getOperations()), Double.valueOf(result.getScore()),
+					Double.valueOf(result.getDeviation()), Double.valueOf(result.getMin()),
+					Double.valueOf(result.getMax())));
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Writes the given results as JSON array, one object per benchmark.
+	 * 
+	 * @param results
+	 *            The results to write
+	 * @param writer
+	 *            Writer to write the results to
+	 * @throws IOException
+	 *             If the results could not be written
+	 */
+	public static void writeJson(final List<BenchmarkResult> results, final Writer writer) throws IOException {
+		writer.write("[\n");
+		for (int i = 0; i < results.size(); i++) {
+			final BenchmarkResult result = results.get(i);
+			final StringBuilder scores = new StringBuilder();
+			for (final double score : result.getScores()) {
+				if (scores.length() > 0) {
+					scores.append(", ");
+				}
+				scores.append(String.format(Locale.ROOT, "%.3f", Double.valueOf(score)));
+			}
+			writer.write(String.format(Locale.ROOT,
+					"  {\"benchmark\": \"%s\", \"operations\": %d, \"score\": %.3f, \"deviation\": %.3f, "
+							+ "\"unit\": \"ns/op\", \"scores\": [%s]}%s%n",
+					result.getName(), Long.valueOf(result.getOperations()), Double.valueOf(result.getScore()),
+					Double.valueOf(result.getDeviation()), scores, i == results.size() - 1 ? "" : ","));
+		}
+		writer.write("]\n");
+		writer.flush();
+	}
+
+	/**
+	 * Duration of one iteration, in nanoseconds.
+	 */
+	private final long mIterationDuration;
+	/**
+	 * Stream to report progress to, <tt>null</tt> if progress is not reported.
+	 */
+	private final PrintStream mLog;
+	/**
+	 * Amount of measured iterations.
+	 */
+	private final int mMeasurementIterations;
+	/**
+	 * Consumes the values returned by the benchmarks, such that their
+	 * operations can not be eliminated as dead code.
+	 */
+	private volatile long mSink;
+	/**
+	 * Amount of warmup iterations.
+	 */
+	private final int mWarmupIterations;
+
+	/**
+	 * Creates a new runner with the default settings that reports progress to
+	 * the given stream.
+	 * 
+	 * @param log
+	 *            Stream to report progress to, <tt>null</tt> if progress
+	 *            should not be reported
+	 */
+	public BenchmarkRunner(final PrintStream log) {
+		this(DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASUREMENT_ITERATIONS, DEFAULT_ITERATION_DURATION, log);
+	}
+
+	/**
+	 * Creates a new runner.
+	 * 
+	 * @param warmupIterations
+	 *            Amount of warmup iterations, may be zero
+	 * @param measurementIterations
+	 *            Amount of measured iterations, must be greater than zero
+	 * @param iterationDuration
+	 *            Duration of one iteration, in milliseconds. Must be greater
+	 *            than zero.
+	 * @param log
+	 *            Stream to report progress to, <tt>null</tt> if progress
+	 *            should not be reported
+	 */
+	public BenchmarkRunner(final int warmupIterations, final int measurementIterations,
+			final long iterationDuration, final PrintStream log) {
+		if (warmupIterations < 0 || measurementIterations <= 0 || iterationDuration <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.mWarmupIterations = warmupIterations;
+		this.mMeasurementIterations = measurementIterations;
+		this.mIterationDuration = TimeUnit.MILLISECONDS.toNanos(iterationDuration);
+		this.mLog = log;
+	}
+
+	/**
+	 * Measures the given benchmark.
+	 * 
+	 * @param benchmark
+	 *            The benchmark to measure
+	 * @return The result of the benchmark
+	 * @throws Exception
+	 *             If an operation of the benchmark failed
+	 */
+	public BenchmarkResult run(final Benchmark benchmark) throws Exception {
+		// Calibrate again after the warmup, the first calibration is distorted
+		// by class initialization and interpreted code
+		int batchSize = calibrate(benchmark);
+		for (int i = 0; i < this.mWarmupIterations; i++) {
+			iterate(benchmark, batchSize, null);
+		}
+		batchSize = calibrate(benchmark);
+
+		final double[] scores = new double[this.mMeasurementIterations];
+		final long[] operations = new long[1];
+		long totalOperations = 0;
+		for (int i = 0; i < this.mMeasurementIterations; i++) {
+			scores[i] = iterate(benchmark, batchSize, operations);
+			totalOperations += operations[0];
+		}
+
+		final BenchmarkResult result = new BenchmarkResult(benchmark.getName(), totalOperations, scores);
+		if (this.mLog != null) {
+			this.mLog.println(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Measures all given benchmarks, one after another. Benchmarks that fail
+	 * are reported and skipped.
+	 * 
+	 * @param benchmarks
+	 *            The benchmarks to measure
+	 * @return The results of all benchmarks that did not fail, in the given
+	 *         order
+	 */
+	public List<BenchmarkResult> runAll(final List<Benchmark> benchmarks) {
+		final List<BenchmarkResult> results = new ArrayList<>(benchmarks.size());
+		for (final Benchmark benchmark : benchmarks) {
+			try {
+				results.add(run(benchmark));
+			} catch (final Exception e) {
+				if (this.mLog != null) {
+					this.mLog.println(benchmark.getName() + " failed: " + e);
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Determines the size of a batch, such that an iteration consists of
+	 * roughly {@link #TARGET_BATCHES} batches.
+	 * 
+	 * @param benchmark
+	 *            The benchmark to calibrate for
+	 * @return The size of a batch
+	 * @throws Exception
+	 *             If an operation of the benchmark failed
+	 */
+	private int calibrate(final Benchmark benchmark) throws Exception {
+		final long targetDuration = this.mIterationDuration / TARGET_BATCHES;
+		int batchSize = 1;
+		while (true) {
+			final long start = System.nanoTime();
+			this.mSink += benchmark.operate(batchSize);
+			final long duration = System.nanoTime() - start;
+			if (duration >= targetDuration || batchSize >= Integer.MAX_VALUE / 2) {
+				return batchSize;
+			}
+			batchSize *= 2;
+		}
+	}
+
+	/**
+	 * Executes one iteration of the given benchmark.
+	 * 
+	 * @param benchmark
+	 *            The benchmark to execute
+	 * @param batchSize
+	 *            Amount of operations per batch
+	 * @param operations
+	 *            Array that receives the amount of executed operations at
+	 *            index zero, <tt>null</tt> if not of interest
+	 * @return The average time of one operation, in nanoseconds
+	 * @throws Exception
+	 *             If an operation of the benchmark failed
+	 */
+	private double iterate(final Benchmark benchmark, final int batchSize, final long[] operations)
+			throws Exception {
+		long executed = 0;
+		final long start = System.nanoTime();
+		final long deadline = start + this.mIterationDuration;
+		long now = start;
+		while (now < deadline) {
+			this.mSink += benchmark.operate(batchSize);
+			executed += batchSize;
+			now = System.nanoTime();
+		}
+		if (operations != null) {
+			operations[0] = executed;
+		}
+		return (double) (now - start) / executed;
+	}
+}
@@ -0,0 +1,126 @@
+package de.zabuza.memeaterbug.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.jna.platform.win32.WinNT.HANDLE;
+
+import de.zabuza.memeaterbug.memory.MemManipulator;
+import de.zabuza.memeaterbug.process.ModuleSource;
+import de.zabuza.memeaterbug.process.ProcessRegistry;
+import de.zabuza.memeaterbug.process.ProcfsModuleSource;
+import de.zabuza.memeaterbug.process.PsapiModuleSource;
+import de.zabuza.memeaterbug.simulation.SimulatedProcess;
+import de.zabuza.memeaterbug.simulation.SimulatedRegion;
+import de.zabuza.memeaterbug.util.Masks;
+import de.zabuza.memeaterbug.util.SystemProperties;
+import de.zabuza.memeaterbug.winapi.jna.util.Kernel32Util;
+
+/**
+ * Suite that measures all benchmarks of the Mem-Eater-Bug against a child JVM
+ * running a {@link BenchmarkTarget}. Lookups of processes and modules are
+ * measured on every supported system, as well as the overhead of the
+ * {@link de.zabuza.memeaterbug.metrics.Metrics Metrics}. The memory access is
+ * measured with the {@link MemManipulator} on Windows and against a
+ * {@link SimulatedProcess} elsewhere, whose scratch region lies below
+ * <tt>2 GB</tt> such that pointer chains are covered as well.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BenchmarkSuite {
+	/**
+	 * Address of the scratch region of the simulated process.
+	 */
+	private static final long SIMULATED_SCRATCH_ADDRESS = 0x10000000L;
+
+	/**
+	 * Runs the suite and prints the results.
+	 * 
+	 * @param args
+	 *            Optionally the file to write the results to. Files ending
+	 *            with <tt>.csv</tt> get CSV, all others JSON. Optionally
+	 *            followed by <tt>quick</tt> to use one short iteration per
+	 *            benchmark, for smoke runs.
+	 * @throws IOException
+	 *             If the target could not be launched or the results not be
+	 *             written
+	 */
+	public static void main(final String[] args) throws IOException {
+		final boolean quick = args.length > 1 && args[1].equals("quick");
+		final BenchmarkRunner runner;
+		if (quick) {
+			runner = new BenchmarkRunner(0, 1, 100, System.out);
+		} else {
+			runner = new BenchmarkRunner(System.out);
+		}
+
+		final String javaExecutable = System.getProperty("java.home") + File.separator + "bin" + File.separator
+				+ "java";
+		final Process target = new ProcessBuilder(javaExecutable, "-cp", System.getProperty("java.class.path"),
+				BenchmarkTarget.class.getName()).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		final List<BenchmarkResult> results;
+		try {
+			final BufferedReader targetOutput = new BufferedReader(new InputStreamReader(target.getInputStream()));
+			final String[] report = targetOutput.readLine().split(" ");
+			final int pid = Integer.parseInt(report[0]);
+			final long scratchAddress = Long.parseLong(report[1]);
+			final int scratchSize = Integer.parseInt(report[2]);
+
+			final String osName = System.getProperty(SystemProperties.OS_NAME);
+			final boolean isWindows = osName != null && osName.toLowerCase().contains(Masks.OS_NAME_WINDOWS);
+			final List<Benchmark> benchmarks = new ArrayList<>();
+			final HANDLE handle;
+			final ModuleSource moduleSource;
+			if (isWindows) {
+				handle = Kernel32Util.openProcess(Kernel32Util.PROCESS_ALL_ACCESS, false, pid);
+				moduleSource = new PsapiModuleSource(handle);
+				benchmarks.addAll(MemoryBenchmarks.create(new MemManipulator(pid, handle), scratchAddress,
+						scratchSize));
+			} else {
+				handle = null;
+				moduleSource = new ProcfsModuleSource(pid);
+				final SimulatedProcess simulatedProcess = new SimulatedProcess();
+				simulatedProcess.map(SIMULATED_SCRATCH_ADDRESS, scratchSize,
+						SimulatedRegion.PROTECTION_READ | SimulatedRegion.PROTECTION_WRITE);
+				benchmarks.addAll(MemoryBenchmarks.create(simulatedProcess, SIMULATED_SCRATCH_ADDRESS, scratchSize));
+			}
+			benchmarks.addAll(LookupBenchmarks.create(new ProcessRegistry(), moduleSource, pid));
+			benchmarks.addAll(MetricsBenchmarks.create());
+
+			try {
+				results = runner.runAll(benchmarks);
+			} finally {
+				if (handle != null) {
+					Kernel32Util.closeHandle(handle);
+				}
+			}
+		} finally {
+			target.getOutputStream().close();
+			target.destroy();
+		}
+
+		if (args.length > 0) {
+			try (final Writer writer = new FileWriter(args[0])) {
+				if (args[0].endsWith(".csv")) {
+					BenchmarkRunner.writeCsv(results, writer);
+				} else {
+					BenchmarkRunner.writeJson(results, writer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private BenchmarkSuite() {
+
+	}
+}
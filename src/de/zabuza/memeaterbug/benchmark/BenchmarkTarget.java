@@ -0,0 +1,61 @@
+package de.zabuza.memeaterbug.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+/**
+ * Target process for benchmarks, launched as child JVM by the
+ * {@link BenchmarkSuite}. It allocates a native scratch region, reports its
+ * process id, the address and size of the region as one line
+ * <tt>pid address size</tt> to the standard output and then idles until its
+ * standard input gets closed.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BenchmarkTarget {
+	/**
+	 * Default size of the scratch region, in bytes.
+	 */
+	public static final int DEFAULT_SCRATCH_SIZE = 1024 * 1024;
+
+	/**
+	 * Launches the target.
+	 * 
+	 * @param args
+	 *            Optionally the size of the scratch region, in bytes
+	 * @throws IOException
+	 *             If the standard input could not be read
+	 */
+	public static void main(final String[] args) throws IOException {
+		final int size;
+		if (args.length > 0) {
+			size = Integer.parseInt(args[0]);
+		} else {
+			size = DEFAULT_SCRATCH_SIZE;
+		}
+		final Memory scratch = new Memory(size);
+		scratch.clear();
+
+		// The name of the runtime is formatted as pid@host
+		final String runtimeName = ManagementFactory.getRuntimeMXBean().getName();
+		final String pid = runtimeName.substring(0, runtimeName.indexOf('@'));
+		System.out.println(pid + " " + Pointer.nativeValue(scratch) + " " + size);
+		System.out.flush();
+
+		while (System.in.read() != -1) {
+			// Idle until the suite closes the stream
+		}
+		scratch.clear();
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private BenchmarkTarget() {
+
+	}
+}
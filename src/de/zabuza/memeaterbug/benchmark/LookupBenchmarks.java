@@ -0,0 +1,148 @@
+package de.zabuza.memeaterbug.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.zabuza.memeaterbug.process.ModuleSource;
+import de.zabuza.memeaterbug.process.ModuleTable;
+import de.zabuza.memeaterbug.process.ProcessInfo;
+import de.zabuza.memeaterbug.process.ProcessRegistry;
+
+/**
+ * Utility class that creates the benchmarks of the lookups of processes and
+ * modules, like {@link ProcessRegistry} queries and {@link ModuleTable}
+ * searches.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class LookupBenchmarks {
+	/**
+	 * Creates the benchmarks of the lookups of the given target process.
+	 * 
+	 * @param registry
+	 *            Registry to look the process up in, gets refreshed
+	 * @param moduleSource
+	 *            Source of the modules of the target process
+	 * @param pid
+	 *            Id of the target process
+	 * @return The benchmarks, ready to be measured
+	 */
+	public static List<Benchmark> create(final ProcessRegistry registry, final ModuleSource moduleSource,
+			final int pid) {
+		final List<Benchmark> benchmarks = new ArrayList<>();
+		registry.refresh();
+		final ProcessInfo info = registry.get(pid);
+		final String exeName = info == null ? "" : info.getExeName();
+
+		benchmarks.add(new Benchmark() {
+			@Override
+			public String getName() {
+				return "process.refresh";
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long changes = 0;
+				for (int i = 0; i < operations; i++) {
+					changes += registry.refresh();
+				}
+				return changes;
+			}
+		});
+		benchmarks.add(new Benchmark() {
+			@Override
+			public String getName() {
+				return "process.getById";
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long found = 0;
+				for (int i = 0; i < operations; i++) {
+					if (registry.get(pid) != null) {
+						found++;
+					}
+				}
+				return found;
+			}
+		});
+		benchmarks.add(new Benchmark() {
+			@Override
+			public String getName() {
+				return "process.getPidByExeName";
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					sum += registry.getPidByExeName(exeName);
+				}
+				return sum;
+			}
+		});
+
+		benchmarks.add(new Benchmark() {
+			@Override
+			public String getName() {
+				return "module.readModules";
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					sum += moduleSource.readModules().getAmount();
+				}
+				return sum;
+			}
+		});
+
+		final ModuleTable modules = moduleSource.readModules();
+		if (modules.getAmount() == 0) {
+			return benchmarks;
+		}
+		final int lastModule = modules.getAmount() - 1;
+		final long address = modules.getBase(lastModule) + modules.getSize(lastModule) / 2;
+		final String moduleName = modules.getName(lastModule);
+		benchmarks.add(new Benchmark() {
+			@Override
+			public String getName() {
+				return "module.indexOfAddress";
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					sum += modules.indexOf(address);
+				}
+				return sum;
+			}
+		});
+		benchmarks.add(new Benchmark() {
+			@Override
+			public String getName() {
+				return "module.indexOfName";
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					sum += modules.indexOfName(moduleName);
+				}
+				return sum;
+			}
+		});
+		return benchmarks;
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private LookupBenchmarks() {
+
+	}
+}
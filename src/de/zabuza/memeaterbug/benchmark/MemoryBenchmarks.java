@@ -0,0 +1,222 @@
+package de.zabuza.memeaterbug.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.jna.Memory;
+
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.ReadBatch;
+
+/**
+ * Utility class that creates the benchmarks of the memory access of a
+ * {@link MemAccess}, like reads of varied sizes, writes, pointer chains and
+ * scans. All benchmarks operate on a scratch region of the target process
+ * that must be readable and writable, like a buffer allocated by a
+ * {@link BenchmarkTarget}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class MemoryBenchmarks {
+	/**
+	 * Sizes of the benchmarked bulk reads, in bytes.
+	 */
+	private static final int[] BULK_READ_SIZES = { 8, 64, 512, 4 * 1024, 64 * 1024 };
+	/**
+	 * Maximal depth of the benchmarked pointer chains.
+	 */
+	private static final int MAX_CHAIN_DEPTH = 8;
+	/**
+	 * Value that gets scanned for.
+	 */
+	private static final int SCAN_PATTERN = 0x5EED5EED;
+
+	/**
+	 * Creates the benchmarks for the given manipulator. The scratch region
+	 * gets prepared by writing to it, its previous content is lost.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the target process
+	 * @param scratchAddress
+	 *            Address of the scratch region in the target process
+	 * @param scratchSize
+	 *            Size of the scratch region, in bytes. Must be at least
+	 *            <tt>16</tt>, bulk reads and scans larger than the region are
+	 *            omitted.
+	 * @return The benchmarks, ready to be measured
+	 */
+	public static List<Benchmark> create(final MemAccess memManipulator, final long scratchAddress,
+			final int scratchSize) {
+		if (scratchSize < 16) {
+			throw new IllegalArgumentException();
+		}
+		final List<Benchmark> benchmarks = new ArrayList<>();
+
+		benchmarks.add(new Benchmark() {
+			@Override
+			public String getName() {
+				return "memory.readInt";
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					sum += memManipulator.readInt(scratchAddress);
+				}
+				return sum;
+			}
+		});
+
+		for (final int size : BULK_READ_SIZES) {
+			if (size > scratchSize) {
+				break;
+			}
+			final byte[] buffer = new byte[size];
+			benchmarks.add(new Benchmark() {
+				@Override
+				public String getName() {
+					return "memory.readMemory." + size;
+				}
+
+				@Override
+				public long operate(final int operations) {
+					long sum = 0;
+					for (int i = 0; i < operations; i++) {
+						memManipulator.readMemory(scratchAddress, buffer, 0, size);
+						sum += buffer[size - 1];
+					}
+					return sum;
+				}
+			});
+		}
+
+		final ReadBatch batch = new ReadBatch();
+		for (int offset = 0; offset + 4 <= Math.min(scratchSize, 4 * 1024); offset += 64) {
+			batch.add(scratchAddress + offset, 4);
+		}
+		benchmarks.add(new Benchmark() {
+			@Override
+			public String getName() {
+				return "memory.readBatch." + batch.getEntryAmount();
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					sum += batch.execute(memManipulator);
+					sum += batch.getInt(0);
+				}
+				return sum;
+			}
+		});
+
+		final long writeAddress = scratchAddress + 8;
+		benchmarks.add(new Benchmark() {
+			@Override
+			public String getName() {
+				return "memory.writeInt";
+			}
+
+			@Override
+			public long operate(final int operations) {
+				for (int i = 0; i < operations; i++) {
+					memManipulator.writeInt(writeAddress, i);
+				}
+				return operations;
+			}
+		});
+
+		// Pointers are followed as 32-bit values, a chain can only be built if
+		// the scratch region is addressable that way
+		if (scratchAddress == (scratchAddress & 0x7FFFFFFFL)) {
+			memManipulator.writeInt(scratchAddress, (int) scratchAddress);
+			for (int depth = 1; depth <= MAX_CHAIN_DEPTH; depth++) {
+				benchmarks.add(createChainBenchmark(memManipulator, scratchAddress, depth));
+			}
+		}
+
+		benchmarks.add(createScanBenchmark(memManipulator, scratchAddress, scratchSize));
+		return benchmarks;
+	}
+
+	/**
+	 * Creates a benchmark of {@link MemAccess#findDynAddress(int[], long)}
+	 * with a chain of the given depth. The chain follows a pointer at the
+	 * starting address that points to itself.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the target process
+	 * @param selfPointerAddress
+	 *            Address of a pointer that points to itself
+	 * @param depth
+	 *            Depth of the chain
+	 * @return The benchmark
+	 */
+	private static Benchmark createChainBenchmark(final MemAccess memManipulator,
+			final long selfPointerAddress, final int depth) {
+		final int[] offsets = new int[depth];
+		return new Benchmark() {
+			@Override
+			public String getName() {
+				return "memory.findDynAddress.depth" + depth;
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					sum += memManipulator.findDynAddress(offsets, selfPointerAddress);
+				}
+				return sum;
+			}
+		};
+	}
+
+	/**
+	 * Creates a benchmark that scans the scratch region for a value, by
+	 * reading it in one call and comparing every aligned integer.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the target process
+	 * @param scratchAddress
+	 *            Address of the scratch region in the target process
+	 * @param scratchSize
+	 *            Size of the scratch region, in bytes
+	 * @return The benchmark
+	 */
+	private static Benchmark createScanBenchmark(final MemAccess memManipulator, final long scratchAddress,
+			final int scratchSize) {
+		final int scanSize = scratchSize & ~3;
+		memManipulator.writeInt(scratchAddress + scanSize - 4, SCAN_PATTERN);
+		return new Benchmark() {
+			@Override
+			public String getName() {
+				return "memory.scan." + scanSize;
+			}
+
+			@Override
+			public long operate(final int operations) {
+				long hits = 0;
+				for (int i = 0; i < operations; i++) {
+					final Memory region = memManipulator.readMemory(scratchAddress, scanSize);
+					for (long offset = 0; offset < scanSize; offset += 4) {
+						if (region.getInt(offset) == SCAN_PATTERN) {
+							hits++;
+						}
+					}
+				}
+				return hits;
+			}
+		};
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private MemoryBenchmarks() {
+
+	}
+}
@@ -0,0 +1,75 @@
+package de.zabuza.memeaterbug.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.zabuza.memeaterbug.metrics.Metrics;
+import de.zabuza.memeaterbug.metrics.Operation;
+
+/**
+ * Utility class that creates the benchmarks of the overhead of the
+ * {@link Metrics}, that is the cost of measuring and recording one operation
+ * with metrics enabled and disabled. Relating it to the cost of the
+ * instrumented operations, like a read, yields the relative overhead.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class MetricsBenchmarks {
+	/**
+	 * Creates the benchmarks of the overhead of the metrics.
+	 * 
+	 * @return The benchmarks, ready to be measured
+	 */
+	public static List<Benchmark> create() {
+		final List<Benchmark> benchmarks = new ArrayList<>();
+		benchmarks.add(createRecordBenchmark(false));
+		benchmarks.add(createRecordBenchmark(true));
+		return benchmarks;
+	}
+
+	/**
+	 * Creates a benchmark that measures and records an empty operation. The
+	 * metrics are enabled or disabled while the benchmark operates and
+	 * restored afterwards.
+	 * 
+	 * @param enabled
+	 *            Whether the metrics should be enabled
+	 * @return The benchmark
+	 */
+	private static Benchmark createRecordBenchmark(final boolean enabled) {
+		return new Benchmark() {
+			@Override
+			public String getName() {
+				if (enabled) {
+					return "metrics.record.enabled";
+				}
+				return "metrics.record.disabled";
+			}
+
+			@Override
+			public long operate(final int operations) {
+				final boolean wasEnabled = Metrics.isEnabled();
+				Metrics.setEnabled(enabled);
+				try {
+					long sum = 0;
+					for (int i = 0; i < operations; i++) {
+						final long start = Metrics.start();
+						sum += start;
+						Metrics.record(Operation.READ, start, 4, true);
+					}
+					return sum;
+				} finally {
+					Metrics.setEnabled(wasEnabled);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private MetricsBenchmarks() {
+
+	}
+}
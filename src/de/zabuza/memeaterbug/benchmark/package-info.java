@@ -0,0 +1,6 @@
+/**
+ * This package contains a self-contained micro-benchmark harness and the
+ * benchmarks of the hot paths of the Mem-Eater-Bug, like reads, writes,
+ * pointer chains, scans and lookups of processes and modules.
+ */
+package de.zabuza.memeaterbug.benchmark;
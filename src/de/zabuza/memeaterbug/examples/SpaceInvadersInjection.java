@@ -4,13 +4,15 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Frame;
 import java.awt.Graphics;
-import java.lang.reflect.Field;
 
 import javax.swing.JFrame;
 import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
 import javax.swing.JRootPane;
 
+import de.zabuza.memeaterbug.injection.access.AccessorRegistry;
+import de.zabuza.memeaterbug.injection.access.FieldAccessor;
+
 /**
  * Hack for the popular game Space Invaders that displays various information on
  * the game screen by jar-injection.<br/>
@@ -140,9 +142,9 @@ public final class SpaceInvadersInjection extends Thread {
 		GameOverlayPanel overlay = null;
 		Component gameComponent = null;
 
+		final ClassLoader classLoader = SpaceInvadersInjection.class.getClassLoader();
 		Class<?> gameClass = null;
 		try {
-			final ClassLoader classLoader = SpaceInvadersInjection.class.getClassLoader();
 			if (classLoader == null) {
 				throw new IllegalStateException("Can not find ClassLoader.");
 			}
@@ -209,23 +211,42 @@ public final class SpaceInvadersInjection extends Thread {
 			gameFrame.pack();
 		}
 
+		// Resolve classes by the loader of the game, the system class loader
+		// may not see them
+		final ClassLoader gameClassLoader;
+		if (gameClass != null) {
+			gameClassLoader = gameClass.getClassLoader();
+		} else {
+			gameClassLoader = classLoader;
+		}
+		final AccessorRegistry registry = new AccessorRegistry(null, gameClassLoader);
+		FieldAccessor remainingAliensAccessor = null;
+
 		// Logic loop
 		while (true) {
+			// Resolve the private field of the game object once, reading it is
+			// then as cheap as a direct field access
+			if (remainingAliensAccessor == null) {
+				try {
+					remainingAliensAccessor = registry
+							.get(GAME_CLASS_NAME + AccessorRegistry.PATH_SEPARATOR + GAME_REMAINING_ALIEN_FIELD);
+				} catch (final ReflectiveOperationException e) {
+					// The game may not be loaded yet, retry in the next
+					// iteration
+				}
+			}
+
 			// Update the value and pass it to the overlay
 			try {
-				// Access the private field of the game object
-				if (gameClass != null) {
-					final Field field = gameClass.getDeclaredField(GAME_REMAINING_ALIEN_FIELD);
-					field.setAccessible(true);
-					final int remainingAliens = field.getInt(gameComponent);
+				if (remainingAliensAccessor != null && gameComponent != null) {
+					final int remainingAliens = remainingAliensAccessor.getInt(gameComponent);
 					if (overlay != null) {
 						overlay.updateRemainingAliens(remainingAliens);
 					}
 				}
 
 				sleep(TIMEOUT);
-			} catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException
-					| InterruptedException e) {
+			} catch (final InterruptedException e) {
 				e.printStackTrace();
 			}
 		}
@@ -0,0 +1,35 @@
+package de.zabuza.memeaterbug.exceptions;
+
+/**
+ * Thrown when a command that was sent to a
+ * {@link de.zabuza.memeaterbug.injection.ResidentAgent ResidentAgent} failed
+ * in the target process.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class AgentCommandException extends RuntimeException {
+
+	/**
+	 * Serial UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new exception without a detailed description.
+	 */
+	public AgentCommandException() {
+		super();
+	}
+
+	/**
+	 * Creates a new exception with a given description.
+	 * 
+	 * @param description
+	 *            Description of the exception
+	 */
+	public AgentCommandException(final String description) {
+		super(description);
+	}
+
+}
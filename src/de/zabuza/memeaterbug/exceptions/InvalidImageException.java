@@ -0,0 +1,46 @@
+package de.zabuza.memeaterbug.exceptions;
+
+/**
+ * Thrown when a file could not be parsed as executable image since its format
+ * is unknown or its content is malformed.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class InvalidImageException extends RuntimeException {
+
+	/**
+	 * Serial UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new exception without a detailed description.
+	 */
+	public InvalidImageException() {
+		super();
+	}
+
+	/**
+	 * Creates a new exception with a given description.
+	 * 
+	 * @param description
+	 *            Description of the exception
+	 */
+	public InvalidImageException(final String description) {
+		super(description);
+	}
+
+	/**
+	 * Creates a new exception with a given description and cause.
+	 * 
+	 * @param description
+	 *            Description of the exception
+	 * @param cause
+	 *            Cause of the exception
+	 */
+	public InvalidImageException(final String description, final Throwable cause) {
+		super(description, cause);
+	}
+
+}
@@ -0,0 +1,35 @@
+package de.zabuza.memeaterbug.exceptions;
+
+/**
+ * Thrown when memory could not be accessed by a
+ * {@link de.zabuza.memeaterbug.memory.MemAccess MemAccess} that does not
+ * operate on a real process, for example since the address is not mapped.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class MemAccessException extends RuntimeException {
+
+	/**
+	 * Serial UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new exception without a detailed description.
+	 */
+	public MemAccessException() {
+		super();
+	}
+
+	/**
+	 * Creates a new exception with a given description.
+	 * 
+	 * @param description
+	 *            Description of the exception
+	 */
+	public MemAccessException(final String description) {
+		super(description);
+	}
+
+}
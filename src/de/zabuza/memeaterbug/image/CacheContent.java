@@ -0,0 +1,24 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Content of a file of a cache, like a {@link SymbolIndex} or
+ * {@link ModuleResults}, that gets persisted by
+ * {@link CacheFiles#store(java.io.File, java.io.File, CacheContent)}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+interface CacheContent {
+	/**
+	 * Writes the content to the given stream.
+	 * 
+	 * @param output
+	 *            Stream to write the content to
+	 * @throws IOException
+	 *             If the stream could not be written
+	 */
+	public void write(final DataOutputStream output) throws IOException;
+}
@@ -0,0 +1,58 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Utility class that persists the files of caches, like the
+ * {@link SymbolIndexCache} and the {@link ResultCache}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class CacheFiles {
+	/**
+	 * Persists the given content to the given file. The content is first
+	 * written to a temporary file in the same directory which then atomically
+	 * replaces the target, such that concurrent readers never see partially
+	 * written content.
+	 * 
+	 * @param directory
+	 *            Directory of the cache, gets created if it does not exist
+	 * @param file
+	 *            File in the directory to persist the content in
+	 * @param content
+	 *            The content to persist
+	 * @throws IOException
+	 *             If the content could not be written
+	 */
+	public static void store(final File directory, final File file, final CacheContent content)
+			throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException(directory.getPath());
+		}
+		final File temporaryFile = File.createTempFile(file.getName(), null, directory);
+		try {
+			try (final DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+				content.write(output);
+			}
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile.toPath());
+		}
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private CacheFiles() {
+
+	}
+}
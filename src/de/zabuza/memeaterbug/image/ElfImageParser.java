@@ -0,0 +1,359 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parser for images in the Executable and Linkable Format.
+ * 
+ * @see <a href="http://refspecs.linuxbase.org/elf/gabi4+/contents.html">
+ *      System V Application Binary Interface</a>
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class ElfImageParser {
+	/**
+	 * Value of the class identification byte for 64-bit images.
+	 */
+	private static final int ELFCLASS64 = 2;
+	/**
+	 * Value of the data encoding byte for big-endian images.
+	 */
+	private static final int ELFDATA2MSB = 2;
+	/**
+	 * Offset of the class identification byte.
+	 */
+	private static final int EI_CLASS = 4;
+	/**
+	 * Offset of the data encoding byte.
+	 */
+	private static final int EI_DATA = 5;
+	/**
+	 * Mask of the page offset, mappings of segments start at page boundaries.
+	 */
+	private static final long PAGE_MASK = 0xFFFL;
+	/**
+	 * Type of loadable program segments.
+	 */
+	private static final int PT_LOAD = 1;
+	/**
+	 * Section flag of sections that occupy memory during execution.
+	 */
+	private static final long SHF_ALLOC = 0x2;
+	/**
+	 * Section flag of sections that contain executable instructions.
+	 */
+	private static final long SHF_EXECINSTR = 0x4;
+	/**
+	 * Section flag of writable sections.
+	 */
+	private static final long SHF_WRITE = 0x1;
+	/**
+	 * Section index of undefined symbols.
+	 */
+	private static final int SHN_UNDEF = 0;
+	/**
+	 * Section index that indicates that the real index is stored elsewhere.
+	 */
+	private static final int SHN_XINDEX = 0xFFFF;
+	/**
+	 * Type of the dynamic linking symbol table section.
+	 */
+	private static final int SHT_DYNSYM = 11;
+	/**
+	 * Type of sections that occupy no space in the file.
+	 */
+	private static final int SHT_NOBITS = 8;
+	/**
+	 * Type of the full symbol table section.
+	 */
+	private static final int SHT_SYMTAB = 2;
+	/**
+	 * Binding of global symbols.
+	 */
+	private static final int STB_GLOBAL = 1;
+	/**
+	 * Binding of weak symbols.
+	 */
+	private static final int STB_WEAK = 2;
+	/**
+	 * Type of symbols that name a file.
+	 */
+	private static final int STT_FILE = 4;
+	/**
+	 * Type of symbols that name a section.
+	 */
+	private static final int STT_SECTION = 3;
+
+	/**
+	 * Parses the given image.
+	 * 
+	 * @param file
+	 *            The file of the image
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @return The parsed image
+	 */
+	public static ExecutableImage parse(final File file, final ImageReader reader) {
+		final boolean is64Bit = reader.readByte(EI_CLASS) == ELFCLASS64;
+		if (reader.readByte(EI_DATA) == ELFDATA2MSB) {
+			reader.setOrder(ByteOrder.BIG_ENDIAN);
+		} else {
+			reader.setOrder(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		final long entry = reader.readWord(24, is64Bit);
+		final long programHeaderOffset = reader.readWord(is64Bit ? 32 : 28, is64Bit);
+		final long sectionHeaderOffset = reader.readWord(is64Bit ? 40 : 32, is64Bit);
+		final int programHeaderSize = reader.readShort(is64Bit ? 54 : 42);
+		final int programHeaderAmount = reader.readShort(is64Bit ? 56 : 44);
+		final int sectionHeaderSize = reader.readShort(is64Bit ? 58 : 46);
+		int sectionHeaderAmount = reader.readShort(is64Bit ? 60 : 48);
+		int sectionNameIndex = reader.readShort(is64Bit ? 62 : 50);
+
+		// Loadable segments define the mapping between memory and file
+		final List<long[]> segments = new ArrayList<>();
+		long imageBase = Long.MAX_VALUE;
+		for (int i = 0; i < programHeaderAmount; i++) {
+			final long header = programHeaderOffset + (long) i * programHeaderSize;
+			if (reader.readInt(header) != PT_LOAD) {
+				continue;
+			}
+			final long offset = reader.readWord(header + (is64Bit ? 8 : 4), is64Bit);
+			final long virtualAddress = reader.readWord(header + (is64Bit ? 16 : 8), is64Bit);
+			final long fileSize = reader.readWord(header + (is64Bit ? 32 : 16), is64Bit);
+			segments.add(new long[] { virtualAddress, offset, fileSize });
+			imageBase = Math.min(imageBase, virtualAddress & ~PAGE_MASK);
+		}
+		if (segments.isEmpty()) {
+			imageBase = 0;
+		}
+		final long[] mappingRelativeAddresses = new long[segments.size()];
+		final long[] mappingFileOffsets = new long[segments.size()];
+		final long[] mappingFileSizes = new long[segments.size()];
+		for (int i = 0; i < segments.size(); i++) {
+			final long[] segment = segments.get(i);
+			mappingRelativeAddresses[i] = segment[0] - imageBase;
+			mappingFileOffsets[i] = segment[1];
+			mappingFileSizes[i] = segment[2];
+		}
+
+		// Large amounts of sections are stored in the first section header
+		if (sectionHeaderOffset != 0 && sectionHeaderAmount == 0) {
+			sectionHeaderAmount = (int) reader.readWord(sectionHeaderOffset + (is64Bit ? 32 : 20), is64Bit);
+		}
+		if (sectionHeaderOffset != 0 && sectionNameIndex == SHN_XINDEX) {
+			sectionNameIndex = reader.readInt(sectionHeaderOffset + (is64Bit ? 40 : 24));
+		}
+
+		final List<ImageSection> sections = new ArrayList<>();
+		final List<ImageSymbol> exports = new ArrayList<>();
+		final List<ImageSymbol> imports = new ArrayList<>();
+		if (sectionHeaderOffset != 0 && sectionHeaderAmount > 0) {
+			final long nameTableOffset = readSectionOffset(reader, sectionHeaderOffset, sectionHeaderSize,
+					sectionNameIndex, is64Bit);
+			for (int i = 0; i < sectionHeaderAmount; i++) {
+				final long header = sectionHeaderOffset + (long) i * sectionHeaderSize;
+				final long flags = reader.readWord(header + 8, is64Bit);
+				if ((flags & SHF_ALLOC) == 0) {
+					continue;
+				}
+				final String name = reader.readString(nameTableOffset + reader.readUnsignedInt(header));
+				final int type = reader.readInt(header + 4);
+				final long address = reader.readWord(header + (is64Bit ? 16 : 12), is64Bit);
+				final long offset = reader.readWord(header + (is64Bit ? 24 : 16), is64Bit);
+				final long size = reader.readWord(header + (is64Bit ? 32 : 20), is64Bit);
+				final long fileSize;
+				if (type == SHT_NOBITS) {
+					fileSize = 0;
+				} else {
+					fileSize = size;
+				}
+				sections.add(new ImageSection(name, address - imageBase, size, offset, fileSize,
+						(flags & SHF_EXECINSTR) != 0, (flags & SHF_WRITE) != 0));
+			}
+
+			final long[] dynamicSymbols = findSection(reader, sectionHeaderOffset, sectionHeaderSize,
+					sectionHeaderAmount, SHT_DYNSYM, is64Bit);
+			if (dynamicSymbols != null) {
+				readDynamicSymbols(reader, dynamicSymbols, imageBase, is64Bit, exports, imports);
+			}
+		}
+
+		long entryPoint = 0;
+		if (entry != 0) {
+			entryPoint = entry - imageBase;
+		}
+		return new ExecutableImage(file, reader, ImageFormat.ELF, is64Bit, imageBase, entryPoint, sections,
+				mappingRelativeAddresses, mappingFileOffsets, mappingFileSizes, exports, imports);
+	}
+
+	/**
+	 * Reads all defined symbols of the image. Uses the full symbol table and
+	 * the dynamic symbol table, symbols contained in both are only read once.
+	 * 
+	 * @param image
+	 *            The image to read the symbols of
+	 * @return All defined symbols of the image, in no particular order
+	 */
+	static List<ImageSymbol> readDefinedSymbols(final ExecutableImage image) {
+		final ImageReader reader = image.getReader();
+		final boolean is64Bit = image.is64Bit();
+		final long sectionHeaderOffset = reader.readWord(is64Bit ? 40 : 32, is64Bit);
+		final int sectionHeaderSize = reader.readShort(is64Bit ? 58 : 46);
+		int sectionHeaderAmount = reader.readShort(is64Bit ? 60 : 48);
+		if (sectionHeaderOffset != 0 && sectionHeaderAmount == 0) {
+			sectionHeaderAmount = (int) reader.readWord(sectionHeaderOffset + (is64Bit ? 32 : 20), is64Bit);
+		}
+
+		final List<ImageSymbol> symbols = new ArrayList<>();
+		if (sectionHeaderOffset == 0) {
+			return symbols;
+		}
+		final Set<String> names = new HashSet<>();
+		for (final int tableType : new int[] { SHT_SYMTAB, SHT_DYNSYM }) {
+			final long[] table = findSection(reader, sectionHeaderOffset, sectionHeaderSize, sectionHeaderAmount,
+					tableType, is64Bit);
+			if (table == null) {
+				continue;
+			}
+			final long stringTableOffset = readSectionOffset(reader, sectionHeaderOffset, sectionHeaderSize,
+					(int) table[3], is64Bit);
+			final int entrySize = is64Bit ? 24 : 16;
+			final long amount = table[1] / entrySize;
+			// The first entry is reserved
+			for (long i = 1; i < amount; i++) {
+				final long entry = table[0] + i * entrySize;
+				final int type = reader.readByte(entry + (is64Bit ? 4 : 12)) & 0xF;
+				final int sectionIndex = reader.readShort(entry + (is64Bit ? 6 : 14));
+				if (sectionIndex == SHN_UNDEF || type == STT_SECTION || type == STT_FILE) {
+					continue;
+				}
+				final String name = reader.readString(stringTableOffset + reader.readUnsignedInt(entry));
+				if (name.isEmpty() || !names.add(name)) {
+					continue;
+				}
+				final long value = reader.readWord(entry + (is64Bit ? 8 : 4), is64Bit);
+				final long size = reader.readWord(entry + (is64Bit ? 16 : 8), is64Bit);
+				symbols.add(new ImageSymbol(name, value - image.getImageBase(), size, null));
+			}
+		}
+		return symbols;
+	}
+
+	/**
+	 * Finds the first section of the given type.
+	 * 
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @param sectionHeaderOffset
+	 *            Offset of the section headers
+	 * @param sectionHeaderSize
+	 *            Size of one section header
+	 * @param sectionHeaderAmount
+	 *            Amount of section headers
+	 * @param type
+	 *            Type of the section to find
+	 * @param is64Bit
+	 *            Whether the image is a 64-bit image
+	 * @return The offset, size, entry size and linked section index of the
+	 *         section or <tt>null</tt> if there is no such section
+	 */
+	private static long[] findSection(final ImageReader reader, final long sectionHeaderOffset,
+			final int sectionHeaderSize, final int sectionHeaderAmount, final int type, final boolean is64Bit) {
+		for (int i = 0; i < sectionHeaderAmount; i++) {
+			final long header = sectionHeaderOffset + (long) i * sectionHeaderSize;
+			if (reader.readInt(header + 4) == type) {
+				final long offset = reader.readWord(header + (is64Bit ? 24 : 16), is64Bit);
+				final long size = reader.readWord(header + (is64Bit ? 32 : 20), is64Bit);
+				final long entrySize = reader.readWord(header + (is64Bit ? 56 : 36), is64Bit);
+				final long link = reader.readUnsignedInt(header + (is64Bit ? 40 : 24));
+				return new long[] { offset, size, entrySize, link };
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the exported and imported symbols from the dynamic symbol table.
+	 * 
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @param table
+	 *            Offset, size, entry size and linked string table of the
+	 *            dynamic symbol table
+	 * @param imageBase
+	 *            Preferred address of the start of the image
+	 * @param is64Bit
+	 *            Whether the image is a 64-bit image
+	 * @param exports
+	 *            List to add the exported symbols to
+	 * @param imports
+	 *            List to add the imported symbols to
+	 */
+	private static void readDynamicSymbols(final ImageReader reader, final long[] table, final long imageBase,
+			final boolean is64Bit, final List<ImageSymbol> exports, final List<ImageSymbol> imports) {
+		final long sectionHeaderOffset = reader.readWord(is64Bit ? 40 : 32, is64Bit);
+		final int sectionHeaderSize = reader.readShort(is64Bit ? 58 : 46);
+		final long stringTableOffset = readSectionOffset(reader, sectionHeaderOffset, sectionHeaderSize,
+				(int) table[3], is64Bit);
+		final int entrySize = is64Bit ? 24 : 16;
+		final long amount = table[1] / entrySize;
+		// The first entry is reserved
+		for (long i = 1; i < amount; i++) {
+			final long entry = table[0] + i * entrySize;
+			final int info = reader.readByte(entry + (is64Bit ? 4 : 12));
+			final int binding = info >>> 4;
+			final int type = info & 0xF;
+			if ((binding != STB_GLOBAL && binding != STB_WEAK) || type == STT_SECTION || type == STT_FILE) {
+				continue;
+			}
+			final String name = reader.readString(stringTableOffset + reader.readUnsignedInt(entry));
+			if (name.isEmpty()) {
+				continue;
+			}
+			final int sectionIndex = reader.readShort(entry + (is64Bit ? 6 : 14));
+			if (sectionIndex == SHN_UNDEF) {
+				// The library is resolved by the dynamic linker and unknown
+				imports.add(new ImageSymbol(name, 0, 0, null));
+			} else {
+				final long value = reader.readWord(entry + (is64Bit ? 8 : 4), is64Bit);
+				final long size = reader.readWord(entry + (is64Bit ? 16 : 8), is64Bit);
+				exports.add(new ImageSymbol(name, value - imageBase, size, null));
+			}
+		}
+	}
+
+	/**
+	 * Reads the offset in the file of the given section.
+	 * 
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @param sectionHeaderOffset
+	 *            Offset of the section headers
+	 * @param sectionHeaderSize
+	 *            Size of one section header
+	 * @param index
+	 *            Index of the section
+	 * @param is64Bit
+	 *            Whether the image is a 64-bit image
+	 * @return The offset of the section in the file
+	 */
+	private static long readSectionOffset(final ImageReader reader, final long sectionHeaderOffset,
+			final int sectionHeaderSize, final int index, final boolean is64Bit) {
+		final long header = sectionHeaderOffset + (long) index * sectionHeaderSize;
+		return reader.readWord(header + (is64Bit ? 24 : 16), is64Bit);
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private ElfImageParser() {
+
+	}
+}
@@ -0,0 +1,340 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An executable image, like an ELF or PE file, that is mapped into memory.
+ * Sections, exports and imports are read directly from the mapped file, the
+ * content of sections is provided as views of the mapping without copying.
+ * <br/>
+ * <br/>
+ * All addresses are relative to the start of the image in memory. They can
+ * be translated to addresses in a process by adding the base address of the
+ * module, and to offsets in the file by {@link #toFileOffset(long)}. Scans can
+ * be restricted to the relevant parts of a module by using
+ * {@link #getCodeSections()} or {@link #getDataSections()}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ExecutableImage {
+	/**
+	 * Address of the entry point relative to the start of the image, zero if
+	 * the image has none.
+	 */
+	private final long mEntryPoint;
+	/**
+	 * Symbols exported by the image.
+	 */
+	private final List<ImageSymbol> mExports;
+	/**
+	 * The file of the image.
+	 */
+	private final File mFile;
+	/**
+	 * Format of the image.
+	 */
+	private final ImageFormat mFormat;
+	/**
+	 * Preferred address of the start of the image in memory, as stated in the
+	 * file.
+	 */
+	private final long mImageBase;
+	/**
+	 * Symbols imported by the image.
+	 */
+	private final List<ImageSymbol> mImports;
+	/**
+	 * Whether the image is a 64-bit image.
+	 */
+	private final boolean mIs64Bit;
+	/**
+	 * Offsets in the file of the parts of the image that are mapped into
+	 * memory.
+	 */
+	private final long[] mMappingFileOffsets;
+	/**
+	 * Sizes of the parts of the image that are mapped into memory, as stored
+	 * in the file.
+	 */
+	private final long[] mMappingFileSizes;
+	/**
+	 * Relative addresses of the parts of the image that are mapped into
+	 * memory.
+	 */
+	private final long[] mMappingRelativeAddresses;
+	/**
+	 * Reader of the mapped file.
+	 */
+	private final ImageReader mReader;
+	/**
+	 * Sections of the image, in the order of the file.
+	 */
+	private final List<ImageSection> mSections;
+
+	/**
+	 * Creates a new executable image. Used by the parsers of the different
+	 * formats.
+	 * 
+	 * @param file
+	 *            The file of the image
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @param format
+	 *            Format of the image
+	 * @param is64Bit
+	 *            Whether the image is a 64-bit image
+	 * @param imageBase
+	 *            Preferred address of the start of the image in memory
+	 * @param entryPoint
+	 *            Relative address of the entry point, zero if none
+	 * @param sections
+	 *            Sections of the image, in the order of the file
+	 * @param mappingRelativeAddresses
+	 *            Relative addresses of the parts of the image that are mapped
+	 *            into memory
+	 * @param mappingFileOffsets
+	 *            Offsets in the file of the mapped parts
+	 * @param mappingFileSizes
+	 *            Sizes of the mapped parts, as stored in the file
+	 * @param exports
+	 *            Symbols exported by the image
+	 * @param imports
+	 *            Symbols imported by the image
+	 */
+	ExecutableImage(final File file, final ImageReader reader, final ImageFormat format, final boolean is64Bit,
+			final long imageBase, final long entryPoint, final List<ImageSection> sections,
+			final long[] mappingRelativeAddresses, final long[] mappingFileOffsets, final long[] mappingFileSizes,
+			final List<ImageSymbol> exports, final List<ImageSymbol> imports) {
+		this.mFile = file;
+		this.mReader = reader;
+		this.mFormat = format;
+		this.mIs64Bit = is64Bit;
+		this.mImageBase = imageBase;
+		this.mEntryPoint = entryPoint;
+		this.mSections = Collections.unmodifiableList(sections);
+		this.mMappingRelativeAddresses = mappingRelativeAddresses;
+		this.mMappingFileOffsets = mappingFileOffsets;
+		this.mMappingFileSizes = mappingFileSizes;
+		this.mExports = Collections.unmodifiableList(exports);
+		this.mImports = Collections.unmodifiableList(imports);
+	}
+
+	/**
+	 * Gets all sections that contain executable code, like <tt>.text</tt>.
+	 * Signature scans can be restricted to them.
+	 * 
+	 * @return All executable sections
+	 */
+	public List<ImageSection> getCodeSections() {
+		final List<ImageSection> sections = new ArrayList<>();
+		for (final ImageSection section : this.mSections) {
+			if (section.isExecutable()) {
+				sections.add(section);
+			}
+		}
+		return sections;
+	}
+
+	/**
+	 * Gets all sections that contain writable data, like <tt>.data</tt> or
+	 * <tt>.bss</tt>. Value scans can be restricted to them.
+	 * 
+	 * @return All writable sections that are not executable
+	 */
+	public List<ImageSection> getDataSections() {
+		final List<ImageSection> sections = new ArrayList<>();
+		for (final ImageSection section : this.mSections) {
+			if (section.isWritable() && !section.isExecutable()) {
+				sections.add(section);
+			}
+		}
+		return sections;
+	}
+
+	/**
+	 * Gets the address of the entry point relative to the start of the image.
+	 * 
+	 * @return The relative address of the entry point, zero if the image has
+	 *         none
+	 */
+	public long getEntryPoint() {
+		return this.mEntryPoint;
+	}
+
+	/**
+	 * Gets the symbols exported by the image.
+	 * 
+	 * @return An unmodifiable list of the exported symbols
+	 */
+	public List<ImageSymbol> getExports() {
+		return this.mExports;
+	}
+
+	/**
+	 * Gets the file of the image.
+	 * 
+	 * @return The file of the image
+	 */
+	public File getFile() {
+		return this.mFile;
+	}
+
+	/**
+	 * Gets the format of the image.
+	 * 
+	 * @return The format of the image
+	 */
+	public ImageFormat getFormat() {
+		return this.mFormat;
+	}
+
+	/**
+	 * Gets the preferred address of the start of the image in memory, as
+	 * stated in the file.
+	 * 
+	 * @return The preferred address of the image
+	 */
+	public long getImageBase() {
+		return this.mImageBase;
+	}
+
+	/**
+	 * Gets the symbols imported by the image.
+	 * 
+	 * @return An unmodifiable list of the imported symbols
+	 */
+	public List<ImageSymbol> getImports() {
+		return this.mImports;
+	}
+
+	/**
+	 * Gets the first section with the given name.
+	 * 
+	 * @param name
+	 *            Name of the section, like <tt>.text</tt>
+	 * @return The section or <tt>null</tt> if the image has no such section
+	 */
+	public ImageSection getSection(final String name) {
+		for (final ImageSection section : this.mSections) {
+			if (section.getName().equals(name)) {
+				return section;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the section that contains the given address.
+	 * 
+	 * @param relativeAddress
+	 *            The address in question, relative to the start of the image
+	 * @return The section or <tt>null</tt> if no section contains the address
+	 */
+	public ImageSection getSectionAt(final long relativeAddress) {
+		for (final ImageSection section : this.mSections) {
+			if (section.contains(relativeAddress)) {
+				return section;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the content of the given section as stored in the file. The
+	 * content is a view of the mapped file and not copied.
+	 * 
+	 * @param section
+	 *            A section of this image
+	 * @return A read-only view of the content of the section, empty for
+	 *         sections that are not stored in the file
+	 */
+	public ByteBuffer getSectionData(final ImageSection section) {
+		return this.mReader.slice(section.getFileOffset(), section.getFileSize()).asReadOnlyBuffer()
+				.order(this.mReader.getBuffer().order());
+	}
+
+	/**
+	 * Gets all sections of the image.
+	 * 
+	 * @return An unmodifiable list of all sections, in the order of the file
+	 */
+	public List<ImageSection> getSections() {
+		return this.mSections;
+	}
+
+	/**
+	 * Whether the image is a 64-bit image or not.
+	 * 
+	 * @return <tt>True</tt> if the image is a 64-bit image, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean is64Bit() {
+		return this.mIs64Bit;
+	}
+
+	/**
+	 * Reads all symbols defined by the image. For ELF images these are the
+	 * symbols of the full symbol table, if not stripped, and of the dynamic
+	 * symbol table. For PE images these are the exported symbols.
+	 * 
+	 * @return All defined symbols, in no particular order
+	 */
+	public List<ImageSymbol> readSymbols() {
+		if (this.mFormat == ImageFormat.ELF) {
+			return ElfImageParser.readDefinedSymbols(this);
+		}
+		return new ArrayList<>(this.mExports);
+	}
+
+	/**
+	 * Translates the given address, relative to the start of the image in
+	 * memory, to an offset in the file.
+	 * 
+	 * @param relativeAddress
+	 *            The address to translate, relative to the start of the image
+	 * @return The offset in the file or <tt>-1</tt> if the address is not
+	 *         backed by the file
+	 */
+	public long toFileOffset(final long relativeAddress) {
+		for (int i = 0; i < this.mMappingRelativeAddresses.length; i++) {
+			final long delta = relativeAddress - this.mMappingRelativeAddresses[i];
+			if (delta >= 0 && delta < this.mMappingFileSizes[i]) {
+				return this.mMappingFileOffsets[i] + delta;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Translates the given offset in the file to an address relative to the
+	 * start of the image in memory.
+	 * 
+	 * @param fileOffset
+	 *            The offset to translate
+	 * @return The relative address or <tt>-1</tt> if the offset is not mapped
+	 *         into memory
+	 */
+	public long toRelativeAddress(final long fileOffset) {
+		for (int i = 0; i < this.mMappingFileOffsets.length; i++) {
+			final long delta = fileOffset - this.mMappingFileOffsets[i];
+			if (delta >= 0 && delta < this.mMappingFileSizes[i]) {
+				return this.mMappingRelativeAddresses[i] + delta;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the reader of the mapped file.
+	 * 
+	 * @return The reader of the mapped file
+	 */
+	ImageReader getReader() {
+		return this.mReader;
+	}
+}
@@ -0,0 +1,18 @@
+package de.zabuza.memeaterbug.image;
+
+/**
+ * Formats of executable images.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public enum ImageFormat {
+	/**
+	 * Executable and Linkable Format, used by Linux systems.
+	 */
+	ELF,
+	/**
+	 * Portable Executable format, used by Windows systems.
+	 */
+	PE
+}
@@ -0,0 +1,92 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Utility class that fingerprints executable images by a hash of their
+ * content. Artifacts derived from an image can be cached under its hash and
+ * stay valid as long as the content of the image does not change.<br/>
+ * <br/>
+ * Hashes are remembered by path, size and modification time of the file, such
+ * that an image is only hashed once per run.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ImageHash {
+	/**
+	 * Algorithm used for hashing.
+	 */
+	private static final String ALGORITHM = "SHA-256";
+	/**
+	 * Size of the chunks in which the image is mapped for hashing, in bytes.
+	 */
+	private static final long CHUNK_SIZE = 64L * 1024 * 1024;
+	/**
+	 * Characters of hexadecimal numbers.
+	 */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	/**
+	 * Remembered hashes by path, size and modification time of the file.
+	 */
+	private static final Map<String, String> KNOWN_HASHES = new ConcurrentHashMap<>();
+
+	/**
+	 * Computes the hash of the content of the given file.
+	 * 
+	 * @param file
+	 *            The file to hash
+	 * @return The hash as lowercase hexadecimal string
+	 * @throws IOException
+	 *             If the file could not be read
+	 */
+	public static String of(final File file) throws IOException {
+		final String key = file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+		final String knownHash = KNOWN_HASHES.get(key);
+		if (knownHash != null) {
+			return knownHash;
+		}
+
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(ALGORITHM);
+		} catch (final NoSuchAlgorithmException e) {
+			// Every platform is required to support the algorithm
+			throw new IllegalStateException(e);
+		}
+		try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final long size = channel.size();
+			for (long position = 0; position < size; position += CHUNK_SIZE) {
+				final MappedByteBuffer chunk = channel.map(MapMode.READ_ONLY, position,
+						Math.min(CHUNK_SIZE, size - position));
+				digest.update(chunk);
+			}
+		}
+
+		final byte[] hashBytes = digest.digest();
+		final char[] hash = new char[hashBytes.length * 2];
+		for (int i = 0; i < hashBytes.length; i++) {
+			hash[i * 2] = HEX_DIGITS[(hashBytes[i] >>> 4) & 0xF];
+			hash[i * 2 + 1] = HEX_DIGITS[hashBytes[i] & 0xF];
+		}
+		final String result = new String(hash);
+		KNOWN_HASHES.put(key, result);
+		return result;
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private ImageHash() {
+
+	}
+}
@@ -0,0 +1,94 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import de.zabuza.memeaterbug.exceptions.InvalidImageException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+
+/**
+ * Utility class that parses executable images. The file is mapped into memory
+ * read-only and parsed directly from the mapping, without reading it into the
+ * heap. The format is detected by the magic number of the file.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ImageParser {
+	/**
+	 * Magic number of ELF files, <tt>\x7FELF</tt> read as big-endian integer.
+	 */
+	private static final int ELF_MAGIC = 0x7F454C46;
+	/**
+	 * Magic number of PE files, <tt>MZ</tt> read as big-endian short.
+	 */
+	private static final int PE_MAGIC = 0x4D5A;
+
+	/**
+	 * Parses the given executable image, like the file of a module as given by
+	 * {@link de.zabuza.memeaterbug.winapi.Module#getFileName()} or
+	 * {@link de.zabuza.memeaterbug.process.ModuleTable#getPath(int)}.
+	 * 
+	 * @param file
+	 *            The file of the image
+	 * @return The parsed image
+	 * @throws IOException
+	 *             If the file could not be mapped
+	 * @throws InvalidImageException
+	 *             If the file is neither an ELF nor a PE image or is malformed
+	 */
+	public static ExecutableImage parse(final File file) throws IOException, InvalidImageException {
+		final MappedByteBuffer buffer;
+		try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new InvalidImageException(ErrorMessages.IMAGE_TOO_LARGE + file);
+			}
+			// The mapping stays valid after the channel is closed
+			buffer = channel.map(MapMode.READ_ONLY, 0, size);
+		}
+		return parse(file, buffer);
+	}
+
+	/**
+	 * Parses the executable image contained in the given buffer.
+	 * 
+	 * @param file
+	 *            The file of the image, used for reference only
+	 * @param buffer
+	 *            Buffer that contains the image, starting at index zero. It is
+	 *            not modified.
+	 * @return The parsed image
+	 * @throws InvalidImageException
+	 *             If the buffer contains neither an ELF nor a PE image or the
+	 *             image is malformed
+	 */
+	public static ExecutableImage parse(final File file, final ByteBuffer buffer) throws InvalidImageException {
+		final ImageReader reader = new ImageReader(buffer, file.toString());
+		try {
+			reader.setOrder(ByteOrder.BIG_ENDIAN);
+			if (reader.getSize() >= 4 && reader.readInt(0) == ELF_MAGIC) {
+				return ElfImageParser.parse(file, reader);
+			}
+			if (reader.getSize() >= 2 && reader.readShort(0) == PE_MAGIC) {
+				return PeImageParser.parse(file, reader);
+			}
+		} catch (final IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new InvalidImageException(ErrorMessages.IMAGE_MALFORMED + file, e);
+		}
+		throw new InvalidImageException(ErrorMessages.IMAGE_FORMAT_UNKNOWN + file);
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private ImageParser() {
+
+	}
+}
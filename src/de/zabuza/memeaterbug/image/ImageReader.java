@@ -0,0 +1,208 @@
+package de.zabuza.memeaterbug.image;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import de.zabuza.memeaterbug.exceptions.InvalidImageException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+
+/**
+ * Reads values at absolute offsets of a mapped executable image. All reads are
+ * bounds checked and throw an {@link InvalidImageException} for offsets
+ * outside of the image, instead of letting a malformed file cause arbitrary
+ * exceptions.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class ImageReader {
+	/**
+	 * The mapped image.
+	 */
+	private final ByteBuffer mBuffer;
+	/**
+	 * Name of the image, used for error messages.
+	 */
+	private final String mName;
+
+	/**
+	 * Creates a new reader for the given image.
+	 * 
+	 * @param buffer
+	 *            The mapped image, is not modified
+	 * @param name
+	 *            Name of the image, used for error messages
+	 */
+	public ImageReader(final ByteBuffer buffer, final String name) {
+		this.mBuffer = buffer.duplicate();
+		this.mBuffer.order(buffer.order());
+		this.mName = name;
+	}
+
+	/**
+	 * Gets the buffer of the image.
+	 * 
+	 * @return The buffer of the image
+	 */
+	public ByteBuffer getBuffer() {
+		return this.mBuffer;
+	}
+
+	/**
+	 * Gets the size of the image.
+	 * 
+	 * @return The size of the image, in bytes
+	 */
+	public int getSize() {
+		return this.mBuffer.capacity();
+	}
+
+	/**
+	 * Creates an exception for a malformed image.
+	 * 
+	 * @return The exception to throw
+	 */
+	public InvalidImageException malformed() {
+		return new InvalidImageException(ErrorMessages.IMAGE_MALFORMED + this.mName);
+	}
+
+	/**
+	 * Reads an unsigned byte.
+	 * 
+	 * @param offset
+	 *            Offset of the value in the image
+	 * @return The value
+	 */
+	public int readByte(final long offset) {
+		return this.mBuffer.get(checkRange(offset, 1)) & 0xFF;
+	}
+
+	/**
+	 * Reads a signed 32-bit integer.
+	 * 
+	 * @param offset
+	 *            Offset of the value in the image
+	 * @return The value
+	 */
+	public int readInt(final long offset) {
+		return this.mBuffer.getInt(checkRange(offset, 4));
+	}
+
+	/**
+	 * Reads a signed 64-bit integer.
+	 * 
+	 * @param offset
+	 *            Offset of the value in the image
+	 * @return The value
+	 */
+	public long readLong(final long offset) {
+		return this.mBuffer.getLong(checkRange(offset, 8));
+	}
+
+	/**
+	 * Reads an unsigned 16-bit integer.
+	 * 
+	 * @param offset
+	 *            Offset of the value in the image
+	 * @return The value
+	 */
+	public int readShort(final long offset) {
+		return this.mBuffer.getShort(checkRange(offset, 2)) & 0xFFFF;
+	}
+
+	/**
+	 * Reads a zero-terminated string.
+	 * 
+	 * @param offset
+	 *            Offset of the first character in the image
+	 * @return The string, decoded as UTF-8
+	 */
+	public String readString(final long offset) {
+		final int start = checkRange(offset, 0);
+		int end = start;
+		final int limit = this.mBuffer.capacity();
+		while (end < limit && this.mBuffer.get(end) != 0) {
+			end++;
+		}
+		final byte[] characters = new byte[end - start];
+		for (int i = 0; i < characters.length; i++) {
+			characters[i] = this.mBuffer.get(start + i);
+		}
+		return new String(characters, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads an unsigned 32-bit integer.
+	 * 
+	 * @param offset
+	 *            Offset of the value in the image
+	 * @return The value
+	 */
+	public long readUnsignedInt(final long offset) {
+		return readInt(offset) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Reads an unsigned word, which is 64-bit or 32-bit wide.
+	 * 
+	 * @param offset
+	 *            Offset of the value in the image
+	 * @param is64Bit
+	 *            Whether the word is 64-bit wide
+	 * @return The value
+	 */
+	public long readWord(final long offset, final boolean is64Bit) {
+		if (is64Bit) {
+			return readLong(offset);
+		}
+		return readUnsignedInt(offset);
+	}
+
+	/**
+	 * Creates a view of the given range of the image, without copying it.
+	 * 
+	 * @param offset
+	 *            Offset of the range in the image
+	 * @param length
+	 *            Length of the range, in bytes
+	 * @return A view of the range, with the byte order of the image
+	 */
+	public ByteBuffer slice(final long offset, final long length) {
+		final int start = checkRange(offset, length);
+		final ByteBuffer view = this.mBuffer.duplicate();
+		view.position(start);
+		view.limit(start + (int) length);
+		final ByteBuffer slice = view.slice();
+		slice.order(this.mBuffer.order());
+		return slice;
+	}
+
+	/**
+	 * Sets the byte order of the image.
+	 * 
+	 * @param order
+	 *            The byte order of the image
+	 */
+	public void setOrder(final ByteOrder order) {
+		this.mBuffer.order(order);
+	}
+
+	/**
+	 * Ensures that the given range lies in the image.
+	 * 
+	 * @param offset
+	 *            Offset of the range
+	 * @param length
+	 *            Length of the range, in bytes
+	 * @return The offset as index into the buffer
+	 * @throws InvalidImageException
+	 *             If the range does not lie in the image
+	 */
+	private int checkRange(final long offset, final long length) throws InvalidImageException {
+		if (offset < 0 || length < 0 || offset > this.mBuffer.capacity() - length) {
+			throw malformed();
+		}
+		return (int) offset;
+	}
+}
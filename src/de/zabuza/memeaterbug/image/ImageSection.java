@@ -0,0 +1,175 @@
+package de.zabuza.memeaterbug.image;
+
+/**
+ * A section of an executable image. Addresses are relative to the start of
+ * the image in memory, such that the address of the section in a process is
+ * the base address of the module plus its relative address.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ImageSection {
+	/**
+	 * Whether the section contains executable code.
+	 */
+	private final boolean mExecutable;
+	/**
+	 * Offset of the content of the section in the file.
+	 */
+	private final long mFileOffset;
+	/**
+	 * Size of the content of the section in the file, in bytes. Zero for
+	 * sections that are not stored in the file, like <tt>.bss</tt>.
+	 */
+	private final long mFileSize;
+	/**
+	 * Name of the section.
+	 */
+	private final String mName;
+	/**
+	 * Address of the section relative to the start of the image in memory.
+	 */
+	private final long mRelativeAddress;
+	/**
+	 * Size of the section in memory, in bytes.
+	 */
+	private final long mVirtualSize;
+	/**
+	 * Whether the section is writable.
+	 */
+	private final boolean mWritable;
+
+	/**
+	 * Creates a new section.
+	 * 
+	 * @param name
+	 *            Name of the section
+	 * @param relativeAddress
+	 *            Address of the section relative to the start of the image in
+	 *            memory
+	 * @param virtualSize
+	 *            Size of the section in memory, in bytes
+	 * @param fileOffset
+	 *            Offset of the content of the section in the file
+	 * @param fileSize
+	 *            Size of the content of the section in the file, in bytes
+	 * @param executable
+	 *            Whether the section contains executable code
+	 * @param writable
+	 *            Whether the section is writable
+	 */
+	public ImageSection(final String name, final long relativeAddress, final long virtualSize, final long fileOffset,
+			final long fileSize, final boolean executable, final boolean writable) {
+		this.mName = name;
+		this.mRelativeAddress = relativeAddress;
+		this.mVirtualSize = virtualSize;
+		this.mFileOffset = fileOffset;
+		this.mFileSize = fileSize;
+		this.mExecutable = executable;
+		this.mWritable = writable;
+	}
+
+	/**
+	 * Whether the given address, relative to the start of the image, lies in
+	 * this section.
+	 * 
+	 * @param relativeAddress
+	 *            The address in question, relative to the start of the image
+	 * @return <tt>True</tt> if the address lies in this section,
+	 *         <tt>false</tt> otherwise
+	 */
+	public boolean contains(final long relativeAddress) {
+		return relativeAddress >= this.mRelativeAddress
+				&& relativeAddress - this.mRelativeAddress < this.mVirtualSize;
+	}
+
+	/**
+	 * Gets the offset of the content of the section in the file.
+	 * 
+	 * @return The offset of the content in the file
+	 */
+	public long getFileOffset() {
+		return this.mFileOffset;
+	}
+
+	/**
+	 * Gets the size of the content of the section in the file.
+	 * 
+	 * @return The size of the content in the file, in bytes. Zero for sections
+	 *         that are not stored in the file.
+	 */
+	public long getFileSize() {
+		return this.mFileSize;
+	}
+
+	/**
+	 * Gets the name of the section.
+	 * 
+	 * @return The name of the section
+	 */
+	public String getName() {
+		return this.mName;
+	}
+
+	/**
+	 * Gets the address of the section relative to the start of the image in
+	 * memory.
+	 * 
+	 * @return The relative address of the section
+	 */
+	public long getRelativeAddress() {
+		return this.mRelativeAddress;
+	}
+
+	/**
+	 * Gets the size of the section in memory.
+	 * 
+	 * @return The size of the section in memory, in bytes
+	 */
+	public long getVirtualSize() {
+		return this.mVirtualSize;
+	}
+
+	/**
+	 * Whether the section contains executable code.
+	 * 
+	 * @return <tt>True</tt> if the section is executable, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isExecutable() {
+		return this.mExecutable;
+	}
+
+	/**
+	 * Whether the section is writable.
+	 * 
+	 * @return <tt>True</tt> if the section is writable, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isWritable() {
+		return this.mWritable;
+	}
+
+	/**
+	 * Gets the address of the section in a process, given the base address the
+	 * module was loaded at.
+	 * 
+	 * @param moduleBase
+	 *            Base address of the module in the process
+	 * @return The address of the section in the process
+	 */
+	public long toAddress(final long moduleBase) {
+		return moduleBase + this.mRelativeAddress;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.mName + " [address=" + Long.toHexString(this.mRelativeAddress) + ", size="
+				+ Long.toHexString(this.mVirtualSize) + "]";
+	}
+}
@@ -0,0 +1,103 @@
+package de.zabuza.memeaterbug.image;
+
+/**
+ * A named symbol of an executable image, like an exported function or an
+ * imported function.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ImageSymbol {
+	/**
+	 * Name of the library the symbol is imported from, if known and imported,
+	 * <tt>null</tt> else.
+	 */
+	private final String mLibrary;
+	/**
+	 * Name of the symbol.
+	 */
+	private final String mName;
+	/**
+	 * Address of the symbol relative to the start of the image in memory. For
+	 * imports of PE images, it is the address of the slot in the import
+	 * address table. Zero if not known.
+	 */
+	private final long mRelativeAddress;
+	/**
+	 * Size of the symbol, in bytes, zero if not known.
+	 */
+	private final long mSize;
+
+	/**
+	 * Creates a new symbol.
+	 * 
+	 * @param name
+	 *            Name of the symbol
+	 * @param relativeAddress
+	 *            Address of the symbol relative to the start of the image in
+	 *            memory, zero if not known
+	 * @param size
+	 *            Size of the symbol, in bytes, zero if not known
+	 * @param library
+	 *            Name of the library the symbol is imported from or
+	 *            <tt>null</tt>
+	 */
+	public ImageSymbol(final String name, final long relativeAddress, final long size, final String library) {
+		this.mName = name;
+		this.mRelativeAddress = relativeAddress;
+		this.mSize = size;
+		this.mLibrary = library;
+	}
+
+	/**
+	 * Gets the name of the library the symbol is imported from.
+	 * 
+	 * @return The name of the library or <tt>null</tt> if not known or not
+	 *         imported
+	 */
+	public String getLibrary() {
+		return this.mLibrary;
+	}
+
+	/**
+	 * Gets the name of the symbol.
+	 * 
+	 * @return The name of the symbol
+	 */
+	public String getName() {
+		return this.mName;
+	}
+
+	/**
+	 * Gets the address of the symbol relative to the start of the image in
+	 * memory. For imports of PE images, it is the address of the slot in the
+	 * import address table.
+	 * 
+	 * @return The relative address of the symbol, zero if not known
+	 */
+	public long getRelativeAddress() {
+		return this.mRelativeAddress;
+	}
+
+	/**
+	 * Gets the size of the symbol.
+	 * 
+	 * @return The size of the symbol, in bytes, zero if not known
+	 */
+	public long getSize() {
+		return this.mSize;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		if (this.mLibrary != null) {
+			return this.mLibrary + "!" + this.mName;
+		}
+		return this.mName + " [address=" + Long.toHexString(this.mRelativeAddress) + "]";
+	}
+}
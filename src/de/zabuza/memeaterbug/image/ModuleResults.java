@@ -0,0 +1,269 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.zabuza.memeaterbug.exceptions.InvalidImageException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+
+/**
+ * Results that were derived from the image of a module, like resolved
+ * offsets, hits of signatures or the offsets of pointer chains. Every result
+ * is a sequence of numbers stored under a key chosen by the caller, for
+ * example <tt>signature:health</tt>.<br/>
+ * <br/>
+ * Results are bound to the {@link ImageHash hash} of the image and can thus
+ * be reused by every process that loads an unchanged image, see
+ * {@link ResultCache}. The results are thread safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ModuleResults {
+	/**
+	 * Size of the header of stored results, in bytes.
+	 */
+	private static final int HEADER_SIZE = 12;
+	/**
+	 * Magic number at the start of stored results.
+	 */
+	private static final int MAGIC = 0x4D454252;
+	/**
+	 * Minimal size of a stored result, in bytes. Consists of the length of the
+	 * key and the amount of values.
+	 */
+	private static final int MIN_RESULT_SIZE = 6;
+	/**
+	 * Version of the format of stored results.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Reads results that were written by {@link #write(DataOutputStream)}.
+	 * 
+	 * @param hash
+	 *            Hash of the image the results belong to
+	 * @param input
+	 *            Stream to read the results from
+	 * @param length
+	 *            Amount of bytes the stream holds, used to reject stored
+	 *            amounts that can not fit into the stream
+	 * @return The read results
+	 * @throws IOException
+	 *             If the stream could not be read
+	 * @throws InvalidImageException
+	 *             If the stream does not contain valid stored results
+	 */
+	static ModuleResults read(final String hash, final DataInputStream input, final long length)
+			throws IOException, InvalidImageException {
+		if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+			throw new InvalidImageException(ErrorMessages.RESULTS_INVALID);
+		}
+		final ModuleResults results = new ModuleResults(hash);
+		final int amount = input.readInt();
+		// Upper bound of the bytes that were not read yet, every character of
+		// a key takes at least one byte
+		long remaining = length - HEADER_SIZE;
+		if (amount < 0 || amount > remaining / MIN_RESULT_SIZE) {
+			throw new InvalidImageException(ErrorMessages.RESULTS_INVALID);
+		}
+		for (int i = 0; i < amount; i++) {
+			final String key = input.readUTF();
+			final int valueAmount = input.readInt();
+			remaining -= MIN_RESULT_SIZE + key.length();
+			if (valueAmount < 0 || valueAmount > remaining / Long.BYTES) {
+				throw new InvalidImageException(ErrorMessages.RESULTS_INVALID);
+			}
+			remaining -= valueAmount * (long) Long.BYTES;
+			final long[] values = new long[valueAmount];
+			for (int j = 0; j < values.length; j++) {
+				values[j] = input.readLong();
+			}
+			results.mResults.put(key, values);
+		}
+		return results;
+	}
+
+	/**
+	 * Whether the results were changed since they were last stored.
+	 */
+	private boolean mDirty;
+	/**
+	 * Hash of the image the results belong to.
+	 */
+	private final String mHash;
+	/**
+	 * The results by their key.
+	 */
+	private final Map<String, long[]> mResults;
+
+	/**
+	 * Creates new empty results for the image with the given hash.
+	 * 
+	 * @param hash
+	 *            Hash of the image the results belong to
+	 */
+	ModuleResults(final String hash) {
+		this.mHash = hash;
+		this.mResults = new HashMap<>();
+		this.mDirty = false;
+	}
+
+	/**
+	 * Whether a result is stored under the given key.
+	 * 
+	 * @param key
+	 *            Key of the result
+	 * @return <tt>True</tt> if a result is stored under the key,
+	 *         <tt>false</tt> otherwise
+	 */
+	public synchronized boolean contains(final String key) {
+		return this.mResults.containsKey(key);
+	}
+
+	/**
+	 * Gets the result stored under the given key.
+	 * 
+	 * @param key
+	 *            Key of the result
+	 * @return A copy of the result or <tt>null</tt> if no result is stored
+	 *         under the key
+	 */
+	public synchronized long[] get(final String key) {
+		final long[] values = this.mResults.get(key);
+		if (values == null) {
+			return null;
+		}
+		return Arrays.copyOf(values, values.length);
+	}
+
+	/**
+	 * Gets the hash of the image the results belong to.
+	 * 
+	 * @return The hash of the image
+	 */
+	public String getHash() {
+		return this.mHash;
+	}
+
+	/**
+	 * Gets the keys of all stored results.
+	 * 
+	 * @return The keys of all stored results, sorted
+	 */
+	public synchronized Set<String> getKeys() {
+		return new TreeSet<>(this.mResults.keySet());
+	}
+
+	/**
+	 * Gets the single value stored under the given key, like a resolved
+	 * offset.
+	 * 
+	 * @param key
+	 *            Key of the result
+	 * @param defaultValue
+	 *            Value to return if no result is stored under the key
+	 * @return The first value of the result or the default value if no result
+	 *         is stored under the key or it is empty
+	 */
+	public synchronized long getValue(final String key, final long defaultValue) {
+		final long[] values = this.mResults.get(key);
+		if (values == null || values.length == 0) {
+			return defaultValue;
+		}
+		return values[0];
+	}
+
+	/**
+	 * Whether the results were changed since they were last stored.
+	 * 
+	 * @return <tt>True</tt> if the results were changed, <tt>false</tt>
+	 *         otherwise
+	 */
+	public synchronized boolean isDirty() {
+		return this.mDirty;
+	}
+
+	/**
+	 * Whether no result is stored, which is the case if the image was not
+	 * seen before or it changed since.
+	 * 
+	 * @return <tt>True</tt> if no result is stored, <tt>false</tt> otherwise
+	 */
+	public synchronized boolean isEmpty() {
+		return this.mResults.isEmpty();
+	}
+
+	/**
+	 * Stores the given result under the given key, replacing a previously
+	 * stored result.
+	 * 
+	 * @param key
+	 *            Key of the result
+	 * @param values
+	 *            The result, gets copied
+	 */
+	public synchronized void put(final String key, final long[] values) {
+		final long[] previousValues = this.mResults.put(key, Arrays.copyOf(values, values.length));
+		if (previousValues == null || !Arrays.equals(previousValues, values)) {
+			this.mDirty = true;
+		}
+	}
+
+	/**
+	 * Stores the given single value, like a resolved offset, under the given
+	 * key, replacing a previously stored result.
+	 * 
+	 * @param key
+	 *            Key of the result
+	 * @param value
+	 *            The value to store
+	 */
+	public void putValue(final String key, final long value) {
+		put(key, new long[] { value });
+	}
+
+	/**
+	 * Removes the result stored under the given key.
+	 * 
+	 * @param key
+	 *            Key of the result
+	 */
+	public synchronized void remove(final String key) {
+		if (this.mResults.remove(key) != null) {
+			this.mDirty = true;
+		}
+	}
+
+	/**
+	 * Writes the results to the given stream, such that they can be read by
+	 * {@link #read(String, DataInputStream)}. Afterwards the results are no
+	 * longer dirty.
+	 * 
+	 * @param output
+	 *            Stream to write the results to
+	 * @throws IOException
+	 *             If the stream could not be written
+	 */
+	synchronized void write(final DataOutputStream output) throws IOException {
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeInt(this.mResults.size());
+		for (final Entry<String, long[]> result : this.mResults.entrySet()) {
+			output.writeUTF(result.getKey());
+			final long[] values = result.getValue();
+			output.writeInt(values.length);
+			for (final long value : values) {
+				output.writeLong(value);
+			}
+		}
+		this.mDirty = false;
+	}
+}
@@ -0,0 +1,285 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for images in the Portable Executable format.
+ * 
+ * @see <a href=
+ *      "https://msdn.microsoft.com/en-us/library/ms680547(v=vs.85).aspx"> MSDN
+ *      webpage#PE Format</a>
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class PeImageParser {
+	/**
+	 * Index of the export table in the data directories.
+	 */
+	private static final int DIRECTORY_EXPORT = 0;
+	/**
+	 * Index of the import table in the data directories.
+	 */
+	private static final int DIRECTORY_IMPORT = 1;
+	/**
+	 * Offset of the offset of the PE signature in the DOS header.
+	 */
+	private static final int E_LFANEW = 0x3C;
+	/**
+	 * Section characteristic of sections that contain executable code.
+	 */
+	private static final long IMAGE_SCN_CNT_CODE = 0x00000020L;
+	/**
+	 * Section characteristic of executable sections.
+	 */
+	private static final long IMAGE_SCN_MEM_EXECUTE = 0x20000000L;
+	/**
+	 * Section characteristic of writable sections.
+	 */
+	private static final long IMAGE_SCN_MEM_WRITE = 0x80000000L;
+	/**
+	 * Size of an import descriptor, in bytes.
+	 */
+	private static final int IMPORT_DESCRIPTOR_SIZE = 20;
+	/**
+	 * Maximal length of a section name.
+	 */
+	private static final int SECTION_NAME_LENGTH = 8;
+	/**
+	 * Size of a section header, in bytes.
+	 */
+	private static final int SECTION_HEADER_SIZE = 40;
+	/**
+	 * Magic number of the optional header of 64-bit images.
+	 */
+	private static final int PE32_PLUS_MAGIC = 0x20B;
+	/**
+	 * The PE signature, <tt>PE\0\0</tt> read as little-endian integer.
+	 */
+	private static final int PE_SIGNATURE = 0x00004550;
+
+	/**
+	 * Parses the given image.
+	 * 
+	 * @param file
+	 *            The file of the image
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @return The parsed image
+	 */
+	public static ExecutableImage parse(final File file, final ImageReader reader) {
+		reader.setOrder(ByteOrder.LITTLE_ENDIAN);
+		final long peHeader = reader.readUnsignedInt(E_LFANEW);
+		if (reader.readInt(peHeader) != PE_SIGNATURE) {
+			throw reader.malformed();
+		}
+
+		final long coffHeader = peHeader + 4;
+		final int sectionAmount = reader.readShort(coffHeader + 2);
+		final int optionalHeaderSize = reader.readShort(coffHeader + 16);
+		final long optionalHeader = coffHeader + 20;
+		final boolean is64Bit = reader.readShort(optionalHeader) == PE32_PLUS_MAGIC;
+		final long entryPoint = reader.readUnsignedInt(optionalHeader + 16);
+		final long imageBase;
+		if (is64Bit) {
+			imageBase = reader.readLong(optionalHeader + 24);
+		} else {
+			imageBase = reader.readUnsignedInt(optionalHeader + 28);
+		}
+		final long directoryAmount = reader.readUnsignedInt(optionalHeader + (is64Bit ? 108 : 92));
+		final long directories = optionalHeader + (is64Bit ? 112 : 96);
+		final long headersSize = reader.readUnsignedInt(optionalHeader + 60);
+
+		// The headers are mapped as well, followed by all sections
+		final List<ImageSection> sections = new ArrayList<>(sectionAmount);
+		final long[] mappingRelativeAddresses = new long[sectionAmount + 1];
+		final long[] mappingFileOffsets = new long[sectionAmount + 1];
+		final long[] mappingFileSizes = new long[sectionAmount + 1];
+		mappingFileSizes[0] = headersSize;
+
+		final long sectionHeaders = optionalHeader + optionalHeaderSize;
+		for (int i = 0; i < sectionAmount; i++) {
+			final long header = sectionHeaders + (long) i * SECTION_HEADER_SIZE;
+			final long virtualSize = reader.readUnsignedInt(header + 8);
+			final long virtualAddress = reader.readUnsignedInt(header + 12);
+			final long rawSize = reader.readUnsignedInt(header + 16);
+			final long rawOffset = reader.readUnsignedInt(header + 20);
+			final long characteristics = reader.readUnsignedInt(header + 36);
+
+			final long size = Math.max(virtualSize, rawSize);
+			final long fileSize = Math.min(rawSize, size);
+			sections.add(new ImageSection(readSectionName(reader, header), virtualAddress, size, rawOffset, fileSize,
+					(characteristics & (IMAGE_SCN_MEM_EXECUTE | IMAGE_SCN_CNT_CODE)) != 0,
+					(characteristics & IMAGE_SCN_MEM_WRITE) != 0));
+			mappingRelativeAddresses[i + 1] = virtualAddress;
+			mappingFileOffsets[i + 1] = rawOffset;
+			mappingFileSizes[i + 1] = fileSize;
+		}
+
+		final ExecutableImage headersOnly = new ExecutableImage(file, reader, ImageFormat.PE, is64Bit, imageBase,
+				entryPoint, sections, mappingRelativeAddresses, mappingFileOffsets, mappingFileSizes,
+				new ArrayList<ImageSymbol>(), new ArrayList<ImageSymbol>());
+
+		final List<ImageSymbol> exports = new ArrayList<>();
+		if (directoryAmount > DIRECTORY_EXPORT) {
+			final long exportDirectory = reader.readUnsignedInt(directories + DIRECTORY_EXPORT * 8);
+			final long exportSize = reader.readUnsignedInt(directories + DIRECTORY_EXPORT * 8 + 4);
+			if (exportDirectory != 0) {
+				readExports(reader, headersOnly, exportDirectory, exportSize, exports);
+			}
+		}
+		final List<ImageSymbol> imports = new ArrayList<>();
+		if (directoryAmount > DIRECTORY_IMPORT) {
+			final long importDirectory = reader.readUnsignedInt(directories + DIRECTORY_IMPORT * 8);
+			if (importDirectory != 0) {
+				readImports(reader, headersOnly, importDirectory, is64Bit, imports);
+			}
+		}
+
+		return new ExecutableImage(file, reader, ImageFormat.PE, is64Bit, imageBase, entryPoint, sections,
+				mappingRelativeAddresses, mappingFileOffsets, mappingFileSizes, exports, imports);
+	}
+
+	/**
+	 * Reads the symbols exported by name from the export directory. Forwarded
+	 * exports, which refer to a symbol of another library, are skipped.
+	 * 
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @param image
+	 *            The image, used to translate addresses
+	 * @param exportDirectory
+	 *            Relative address of the export directory
+	 * @param exportSize
+	 *            Size of the export directory
+	 * @param exports
+	 *            List to add the exported symbols to
+	 */
+	private static void readExports(final ImageReader reader, final ExecutableImage image,
+			final long exportDirectory, final long exportSize, final List<ImageSymbol> exports) {
+		final long directory = toFileOffset(reader, image, exportDirectory);
+		final long nameAmount = reader.readUnsignedInt(directory + 24);
+		final long functions = toFileOffset(reader, image, reader.readUnsignedInt(directory + 28));
+		final long names = toFileOffset(reader, image, reader.readUnsignedInt(directory + 32));
+		final long ordinals = toFileOffset(reader, image, reader.readUnsignedInt(directory + 36));
+
+		for (long i = 0; i < nameAmount; i++) {
+			final int ordinal = reader.readShort(ordinals + i * 2);
+			final long address = reader.readUnsignedInt(functions + ordinal * 4L);
+			if (address >= exportDirectory && address - exportDirectory < exportSize) {
+				continue;
+			}
+			final String name = reader.readString(toFileOffset(reader, image, reader.readUnsignedInt(names + i * 4)));
+			exports.add(new ImageSymbol(name, address, 0, null));
+		}
+	}
+
+	/**
+	 * Reads the imported symbols from the import directory. The address of an
+	 * imported symbol is the address of its slot in the import address table.
+	 * 
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @param image
+	 *            The image, used to translate addresses
+	 * @param importDirectory
+	 *            Relative address of the import directory
+	 * @param is64Bit
+	 *            Whether the image is a 64-bit image
+	 * @param imports
+	 *            List to add the imported symbols to
+	 */
+	private static void readImports(final ImageReader reader, final ExecutableImage image,
+			final long importDirectory, final boolean is64Bit, final List<ImageSymbol> imports) {
+		final int thunkSize = is64Bit ? 8 : 4;
+		final long ordinalFlag = is64Bit ? Long.MIN_VALUE : 0x80000000L;
+		long descriptor = toFileOffset(reader, image, importDirectory);
+		while (true) {
+			final long lookupTable = reader.readUnsignedInt(descriptor);
+			final long nameAddress = reader.readUnsignedInt(descriptor + 12);
+			final long addressTable = reader.readUnsignedInt(descriptor + 16);
+			if (nameAddress == 0 && addressTable == 0) {
+				break;
+			}
+			final String library = reader.readString(toFileOffset(reader, image, nameAddress));
+
+			// The lookup table may be missing, the address table is still
+			// unbound in the file then
+			long thunk;
+			if (lookupTable != 0) {
+				thunk = toFileOffset(reader, image, lookupTable);
+			} else {
+				thunk = toFileOffset(reader, image, addressTable);
+			}
+			long slot = addressTable;
+			long value = reader.readWord(thunk, is64Bit);
+			while (value != 0) {
+				final String name;
+				if ((value & ordinalFlag) != 0) {
+					name = "#" + (value & 0xFFFF);
+				} else {
+					name = reader.readString(toFileOffset(reader, image, value & 0x7FFFFFFFL) + 2);
+				}
+				imports.add(new ImageSymbol(name, slot, thunkSize, library));
+
+				thunk += thunkSize;
+				slot += thunkSize;
+				value = reader.readWord(thunk, is64Bit);
+			}
+			descriptor += IMPORT_DESCRIPTOR_SIZE;
+		}
+	}
+
+	/**
+	 * Reads the name of the given section.
+	 * 
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @param header
+	 *            Offset of the section header
+	 * @return The name of the section
+	 */
+	private static String readSectionName(final ImageReader reader, final long header) {
+		final StringBuilder name = new StringBuilder(SECTION_NAME_LENGTH);
+		for (int i = 0; i < SECTION_NAME_LENGTH; i++) {
+			final int character = reader.readByte(header + i);
+			if (character == 0) {
+				break;
+			}
+			name.append((char) character);
+		}
+		return name.toString();
+	}
+
+	/**
+	 * Translates the given relative address to an offset in the file.
+	 * 
+	 * @param reader
+	 *            Reader of the mapped file
+	 * @param image
+	 *            The image, used to translate addresses
+	 * @param relativeAddress
+	 *            The address to translate
+	 * @return The offset in the file
+	 * @throws de.zabuza.memeaterbug.exceptions.InvalidImageException
+	 *             If the address is not backed by the file
+	 */
+	private static long toFileOffset(final ImageReader reader, final ExecutableImage image,
+			final long relativeAddress) {
+		final long offset = image.toFileOffset(relativeAddress);
+		if (offset < 0) {
+			throw reader.malformed();
+		}
+		return offset;
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private PeImageParser() {
+
+	}
+}
@@ -0,0 +1,167 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.zabuza.memeaterbug.process.ModuleTable;
+
+/**
+ * Cache of {@link ModuleResults results} derived from the images of modules,
+ * keyed by the {@link ImageHash hash} of the image. Results are persisted to
+ * a directory in a compact binary format, such that resolved offsets,
+ * signature hits and similar artifacts are available immediately after
+ * hooking, also across runs. Only modules whose image changed need to be
+ * scanned again, their results are {@link ModuleResults#isEmpty() empty}.<br/>
+ * <br/>
+ * Changed results are written by {@link #flush()}. The cache is thread safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ResultCache {
+	/**
+	 * File extension of persisted results.
+	 */
+	private static final String EXTENSION = ".results";
+
+	/**
+	 * Directory to persist results to.
+	 */
+	private final File mDirectory;
+	/**
+	 * Results that are cached in memory, by the hash of their image.
+	 */
+	private final Map<String, ModuleResults> mResults;
+
+	/**
+	 * Creates a new cache that persists results to the given directory.
+	 * 
+	 * @param directory
+	 *            Directory to persist results to, gets created if it does not
+	 *            exist. May be shared with a {@link SymbolIndexCache}.
+	 */
+	public ResultCache(final File directory) {
+		this.mDirectory = directory;
+		this.mResults = new HashMap<>();
+	}
+
+	/**
+	 * Writes all results that were changed since they were last written.
+	 * 
+	 * @return The amount of written results
+	 * @throws IOException
+	 *             If results could not be written
+	 */
+	public synchronized int flush() throws IOException {
+		int written = 0;
+		for (final ModuleResults results : this.mResults.values()) {
+			if (results.isDirty()) {
+				store(results);
+				written++;
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Gets the results derived from the given image. If there are no results
+	 * for the current content of the image, empty results are created.
+	 * 
+	 * @param imageFile
+	 *            File of the image
+	 * @return The results of the image
+	 * @throws IOException
+	 *             If the image could not be read
+	 */
+	public synchronized ModuleResults get(final File imageFile) throws IOException {
+		final String hash = ImageHash.of(imageFile);
+		ModuleResults results = this.mResults.get(hash);
+		if (results != null) {
+			return results;
+		}
+
+		results = load(hash);
+		if (results == null) {
+			results = new ModuleResults(hash);
+		}
+		this.mResults.put(hash, results);
+		return results;
+	}
+
+	/**
+	 * Gets the results of all given modules, for example right after hooking
+	 * to a process. Modules whose image could not be read get empty results
+	 * that are not bound to a hash and never persisted.
+	 * 
+	 * @param modules
+	 *            The modules to get results for
+	 * @return The results of each module, by its index in the table
+	 */
+	public ModuleResults[] getAll(final ModuleTable modules) {
+		final ModuleResults[] allResults = new ModuleResults[modules.getAmount()];
+		for (int i = 0; i < allResults.length; i++) {
+			try {
+				allResults[i] = get(new File(modules.getPath(i)));
+			} catch (final IOException e) {
+				allResults[i] = new ModuleResults(null);
+			}
+		}
+		return allResults;
+	}
+
+	/**
+	 * Removes all results from the memory of the cache, without writing
+	 * changed results. Persisted results are kept.
+	 */
+	public synchronized void invalidate() {
+		this.mResults.clear();
+	}
+
+	/**
+	 * Loads the results persisted for the image with the given hash.
+	 * 
+	 * @param hash
+	 *            Hash of the image
+	 * @return The loaded results or <tt>null</tt> if there are no valid
+	 *         results persisted for the image
+	 */
+	private ModuleResults load(final String hash) {
+		final File file = new File(this.mDirectory, hash + EXTENSION);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (final DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)))) {
+			return ModuleResults.read(hash, input, file.length());
+		} catch (final IOException | RuntimeException e) {
+			// Corrupt or outdated results, they get derived again. Any decoding
+			// failure counts as a miss, the cache must never fail the lookup.
+			return null;
+		}
+	}
+
+	/**
+	 * Persists the given results, see
+	 * {@link CacheFiles#store(File, File, CacheContent)}.
+	 * 
+	 * @param results
+	 *            The results to persist
+	 * @throws IOException
+	 *             If the results could not be written
+	 */
+	private void store(final ModuleResults results) throws IOException {
+		final File file = new File(this.mDirectory, results.getHash() + EXTENSION);
+		CacheFiles.store(this.mDirectory, file, new CacheContent() {
+			@Override
+			public void write(final DataOutputStream output) throws IOException {
+				results.write(output);
+			}
+		});
+	}
+}
@@ -0,0 +1,297 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import de.zabuza.memeaterbug.exceptions.InvalidImageException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.util.IndexSort;
+
+/**
+ * Index of the symbols defined by an executable image. The symbols are stored
+ * as primitive arrays sorted by their address, such that the symbol at an
+ * address is found by binary search. Names are additionally indexed by an
+ * open addressing hash table, for constant time lookups of addresses by name.
+ * <br/>
+ * <br/>
+ * All addresses are relative to the start of the image in memory. An index
+ * can be written to and read from a stream, see {@link SymbolIndexCache}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SymbolIndex {
+	/**
+	 * Size of the header of a stored index, in bytes.
+	 */
+	private static final int HEADER_SIZE = 12;
+	/**
+	 * Magic number at the start of a stored index.
+	 */
+	private static final int MAGIC = 0x4D454253;
+	/**
+	 * Minimal size of a stored symbol, in bytes. Consists of the address, the
+	 * size and the length of the name.
+	 */
+	private static final int MIN_SYMBOL_SIZE = 18;
+	/**
+	 * Version of the format of a stored index.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Builds the index of the symbols defined by the given image.
+	 * 
+	 * @param image
+	 *            The image to index
+	 * @return The index of the symbols of the image
+	 */
+	public static SymbolIndex build(final ExecutableImage image) {
+		final List<ImageSymbol> symbols = image.readSymbols();
+		final int amount = symbols.size();
+		final long[] addresses = new long[amount];
+		final long[] sizes = new long[amount];
+		final String[] names = new String[amount];
+		for (int i = 0; i < amount; i++) {
+			final ImageSymbol symbol = symbols.get(i);
+			addresses[i] = symbol.getRelativeAddress();
+			sizes[i] = symbol.getSize();
+			names[i] = symbol.getName();
+		}
+		return new SymbolIndex(addresses, sizes, names);
+	}
+
+	/**
+	 * Reads an index that was written by {@link #write(DataOutputStream)}.
+	 * 
+	 * @param input
+	 *            Stream to read the index from
+	 * @param length
+	 *            Amount of bytes the stream holds, used to reject stored
+	 *            amounts of symbols that can not fit into the stream
+	 * @return The read index
+	 * @throws IOException
+	 *             If the stream could not be read
+	 * @throws InvalidImageException
+	 *             If the stream does not contain a valid stored index
+	 */
+	public static SymbolIndex read(final DataInputStream input, final long length)
+			throws IOException, InvalidImageException {
+		if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+			throw new InvalidImageException(ErrorMessages.SYMBOL_INDEX_INVALID);
+		}
+		final int amount = input.readInt();
+		if (amount < 0 || amount > (length - HEADER_SIZE) / MIN_SYMBOL_SIZE) {
+			throw new InvalidImageException(ErrorMessages.SYMBOL_INDEX_INVALID);
+		}
+		final long[] addresses = new long[amount];
+		final long[] sizes = new long[amount];
+		final String[] names = new String[amount];
+		for (int i = 0; i < amount; i++) {
+			addresses[i] = input.readLong();
+			sizes[i] = input.readLong();
+			names[i] = input.readUTF();
+		}
+		return new SymbolIndex(addresses, sizes, names);
+	}
+
+	/**
+	 * Addresses of the symbols, sorted ascending.
+	 */
+	private final long[] mAddresses;
+	/**
+	 * Hash table of the names, holding the index of a symbol plus one or zero
+	 * for empty slots.
+	 */
+	private final int[] mNameTable;
+	/**
+	 * Names of the symbols, in the order of their addresses.
+	 */
+	private final String[] mNames;
+	/**
+	 * Sizes of the symbols, in the order of their addresses.
+	 */
+	private final long[] mSizes;
+
+	/**
+	 * Creates a new index of the given symbols. The symbols are sorted by
+	 * their address, the given arrays are not modified.
+	 * 
+	 * @param addresses
+	 *            Addresses of the symbols
+	 * @param sizes
+	 *            Sizes of the symbols
+	 * @param names
+	 *            Names of the symbols
+	 */
+	private SymbolIndex(final long[] addresses, final long[] sizes, final String[] names) {
+		final int amount = addresses.length;
+		final int[] order = new int[amount];
+		for (int i = 0; i < amount; i++) {
+			order[i] = i;
+		}
+		if (amount > 1) {
+			IndexSort.sortByKey(order, addresses, 0, amount - 1);
+		}
+		this.mAddresses = new long[amount];
+		this.mSizes = new long[amount];
+		this.mNames = new String[amount];
+		for (int i = 0; i < amount; i++) {
+			this.mAddresses[i] = addresses[order[i]];
+			this.mSizes[i] = sizes[order[i]];
+			this.mNames[i] = names[order[i]];
+		}
+
+		int capacity = 2;
+		while (capacity < amount * 2) {
+			capacity <<= 1;
+		}
+		this.mNameTable = new int[capacity];
+		final int mask = capacity - 1;
+		for (int i = 0; i < amount; i++) {
+			int slot = this.mNames[i].hashCode() & mask;
+			while (this.mNameTable[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			this.mNameTable[slot] = i + 1;
+		}
+	}
+
+	/**
+	 * Gets the address of the given symbol.
+	 * 
+	 * @param index
+	 *            Index of the symbol
+	 * @return The address of the symbol, relative to the start of the image
+	 */
+	public long getAddress(final int index) {
+		return this.mAddresses[index];
+	}
+
+	/**
+	 * Gets the amount of indexed symbols.
+	 * 
+	 * @return The amount of indexed symbols
+	 */
+	public int getAmount() {
+		return this.mAddresses.length;
+	}
+
+	/**
+	 * Gets the name of the given symbol.
+	 * 
+	 * @param index
+	 *            Index of the symbol
+	 * @return The name of the symbol
+	 */
+	public String getName(final int index) {
+		return this.mNames[index];
+	}
+
+	/**
+	 * Gets the size of the given symbol.
+	 * 
+	 * @param index
+	 *            Index of the symbol
+	 * @return The size of the symbol, in bytes, zero if not known
+	 */
+	public long getSize(final int index) {
+		return this.mSizes[index];
+	}
+
+	/**
+	 * Gets the index of the symbol that contains the given address. If no
+	 * symbol contains it, the closest symbol before the address is used.
+	 * 
+	 * @param relativeAddress
+	 *            The address in question, relative to the start of the image
+	 * @return The index of the symbol or <tt>-1</tt> if no symbol starts at or
+	 *         before the address
+	 */
+	public int indexAt(final long relativeAddress) {
+		int low = 0;
+		int high = this.mAddresses.length - 1;
+		int candidate = -1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			if (this.mAddresses[middle] <= relativeAddress) {
+				candidate = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		// Prefer a preceding symbol that actually contains the address
+		for (int i = candidate; i >= 0 && this.mAddresses[i] == this.mAddresses[candidate]; i--) {
+			if (relativeAddress - this.mAddresses[i] < this.mSizes[i]) {
+				return i;
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * Gets the index of the symbol with the given name.
+	 * 
+	 * @param name
+	 *            The name of the symbol
+	 * @return The index of the symbol or <tt>-1</tt> if there is no such
+	 *         symbol
+	 */
+	public int indexOf(final String name) {
+		final int mask = this.mNameTable.length - 1;
+		int slot = name.hashCode() & mask;
+		int entry = this.mNameTable[slot];
+		while (entry != 0) {
+			if (this.mNames[entry - 1].equals(name)) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+			entry = this.mNameTable[slot];
+		}
+		return -1;
+	}
+
+	/**
+	 * Describes the given address by the closest symbol, like
+	 * <tt>CreatePlayer+0x1a</tt>.
+	 * 
+	 * @param relativeAddress
+	 *            The address to describe, relative to the start of the image
+	 * @return The description or <tt>null</tt> if no symbol starts at or
+	 *         before the address
+	 */
+	public String symbolize(final long relativeAddress) {
+		final int index = indexAt(relativeAddress);
+		if (index == -1) {
+			return null;
+		}
+		final long offset = relativeAddress - this.mAddresses[index];
+		if (offset == 0) {
+			return this.mNames[index];
+		}
+		return this.mNames[index] + "+0x" + Long.toHexString(offset);
+	}
+
+	/**
+	 * Writes the index to the given stream, such that it can be read by
+	 * {@link #read(DataInputStream)}.
+	 * 
+	 * @param output
+	 *            Stream to write the index to
+	 * @throws IOException
+	 *             If the stream could not be written
+	 */
+	public void write(final DataOutputStream output) throws IOException {
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeInt(this.mAddresses.length);
+		for (int i = 0; i < this.mAddresses.length; i++) {
+			output.writeLong(this.mAddresses[i]);
+			output.writeLong(this.mSizes[i]);
+			output.writeUTF(this.mNames[i]);
+		}
+	}
+}
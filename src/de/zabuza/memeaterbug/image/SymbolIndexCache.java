@@ -0,0 +1,146 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.zabuza.memeaterbug.exceptions.InvalidImageException;
+
+/**
+ * Cache of {@link SymbolIndex symbol indices}, keyed by the
+ * {@link ImageHash hash} of the image they were built from. Indices are kept
+ * in memory and persisted to a directory, such that an image only needs to be
+ * parsed once, also across runs.<br/>
+ * <br/>
+ * The cache is thread safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SymbolIndexCache {
+	/**
+	 * File extension of persisted indices.
+	 */
+	private static final String EXTENSION = ".symbols";
+
+	/**
+	 * Directory to persist indices to, <tt>null</tt> if indices are only
+	 * cached in memory.
+	 */
+	private final File mDirectory;
+	/**
+	 * Indices that are cached in memory, by the hash of their image.
+	 */
+	private final Map<String, SymbolIndex> mIndices;
+
+	/**
+	 * Creates a new cache that only keeps indices in memory.
+	 */
+	public SymbolIndexCache() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new cache that persists indices to the given directory.
+	 * 
+	 * @param directory
+	 *            Directory to persist indices to, gets created if it does not
+	 *            exist. Use <tt>null</tt> to only cache indices in memory.
+	 */
+	public SymbolIndexCache(final File directory) {
+		this.mDirectory = directory;
+		this.mIndices = new HashMap<>();
+	}
+
+	/**
+	 * Gets the index of the symbols defined by the given image. The index is
+	 * built and cached if it is not cached yet.
+	 * 
+	 * @param imageFile
+	 *            File of the image
+	 * @return The index of the symbols of the image
+	 * @throws IOException
+	 *             If the image could not be read
+	 * @throws InvalidImageException
+	 *             If the image could not be parsed
+	 */
+	public synchronized SymbolIndex get(final File imageFile) throws IOException, InvalidImageException {
+		final String hash = ImageHash.of(imageFile);
+		SymbolIndex index = this.mIndices.get(hash);
+		if (index != null) {
+			return index;
+		}
+
+		final File storedIndex;
+		if (this.mDirectory != null) {
+			storedIndex = new File(this.mDirectory, hash + EXTENSION);
+			index = load(storedIndex);
+		} else {
+			storedIndex = null;
+		}
+		if (index == null) {
+			index = SymbolIndex.build(ImageParser.parse(imageFile));
+			if (storedIndex != null) {
+				store(index, storedIndex);
+			}
+		}
+
+		this.mIndices.put(hash, index);
+		return index;
+	}
+
+	/**
+	 * Removes all indices from the memory of the cache. Persisted indices are
+	 * kept.
+	 */
+	public synchronized void invalidate() {
+		this.mIndices.clear();
+	}
+
+	/**
+	 * Loads the index persisted in the given file.
+	 * 
+	 * @param file
+	 *            File the index is persisted in
+	 * @return The loaded index or <tt>null</tt> if there is no valid index
+	 *         persisted in the file
+	 */
+	private SymbolIndex load(final File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (final DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)))) {
+			return SymbolIndex.read(input, file.length());
+		} catch (final IOException | RuntimeException e) {
+			// Corrupt or outdated index, it gets rebuilt. Any decoding failure
+			// counts as a miss, the cache must never fail the lookup.
+			return null;
+		}
+	}
+
+	/**
+	 * Persists the given index to the given file, see
+	 * {@link CacheFiles#store(File, File, CacheContent)}.
+	 * 
+	 * @param index
+	 *            The index to persist
+	 * @param file
+	 *            File to persist the index in
+	 * @throws IOException
+	 *             If the index could not be written
+	 */
+	private void store(final SymbolIndex index, final File file) throws IOException {
+		CacheFiles.store(this.mDirectory, file, new CacheContent() {
+			@Override
+			public void write(final DataOutputStream output) throws IOException {
+				index.write(output);
+			}
+		});
+	}
+}
@@ -0,0 +1,109 @@
+package de.zabuza.memeaterbug.image;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.zabuza.memeaterbug.exceptions.InvalidImageException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.process.ModuleTable;
+
+/**
+ * Resolves symbols to addresses in the memory of a process and vice versa,
+ * using the modules loaded by the process and the {@link SymbolIndex symbol
+ * indices} of their images. Symbols are referred to as
+ * <tt>module!symbol</tt>, like <tt>kernel32.dll!CreateFileW</tt>.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SymbolResolver {
+	/**
+	 * Separator between the name of a module and a symbol.
+	 */
+	public static final char MODULE_SEPARATOR = '!';
+
+	/**
+	 * Cache of the indices of the images.
+	 */
+	private final SymbolIndexCache mCache;
+	/**
+	 * Modules loaded by the process.
+	 */
+	private final ModuleTable mModules;
+
+	/**
+	 * Creates a new resolver for the given modules.
+	 * 
+	 * @param modules
+	 *            Modules loaded by the process
+	 * @param cache
+	 *            Cache of the indices of the images, may be shared between
+	 *            resolvers
+	 */
+	public SymbolResolver(final ModuleTable modules, final SymbolIndexCache cache) {
+		this.mModules = modules;
+		this.mCache = cache;
+	}
+
+	/**
+	 * Resolves the given symbol to its address in the memory of the process.
+	 * 
+	 * @param qualifiedSymbol
+	 *            The symbol to resolve, as <tt>module!symbol</tt>. The name of
+	 *            the module is case insensitive.
+	 * @return The address of the symbol
+	 * @throws IllegalArgumentException
+	 *             If the symbol is not qualified by a module, the module is
+	 *             not loaded or does not define the symbol
+	 * @throws IOException
+	 *             If the image of the module could not be read
+	 * @throws InvalidImageException
+	 *             If the image of the module could not be parsed
+	 */
+	public long resolve(final String qualifiedSymbol)
+			throws IllegalArgumentException, IOException, InvalidImageException {
+		final int separator = qualifiedSymbol.indexOf(MODULE_SEPARATOR);
+		if (separator == -1) {
+			throw new IllegalArgumentException(ErrorMessages.SYMBOL_NOT_FOUND + qualifiedSymbol);
+		}
+		final String moduleName = qualifiedSymbol.substring(0, separator);
+		final int module = this.mModules.indexOfName(moduleName);
+		if (module == -1) {
+			throw new IllegalArgumentException(ErrorMessages.MODULE_NOT_FOUND + moduleName);
+		}
+
+		final SymbolIndex index = this.mCache.get(new File(this.mModules.getPath(module)));
+		final int symbol = index.indexOf(qualifiedSymbol.substring(separator + 1));
+		if (symbol == -1) {
+			throw new IllegalArgumentException(ErrorMessages.SYMBOL_NOT_FOUND + qualifiedSymbol);
+		}
+		return this.mModules.getBase(module) + index.getAddress(symbol);
+	}
+
+	/**
+	 * Describes the given address by the module containing it and the closest
+	 * symbol of that module, like <tt>kernel32.dll!CreateFileW+0x1a</tt>.
+	 * 
+	 * @param address
+	 *            The address to describe
+	 * @return The description or <tt>null</tt> if no module contains the
+	 *         address. If the module defines no symbol before the address,
+	 *         only the offset into the module is given.
+	 * @throws IOException
+	 *             If the image of the module could not be read
+	 * @throws InvalidImageException
+	 *             If the image of the module could not be parsed
+	 */
+	public String symbolize(final long address) throws IOException, InvalidImageException {
+		final int module = this.mModules.indexOf(address);
+		if (module == -1) {
+			return null;
+		}
+		final long relativeAddress = address - this.mModules.getBase(module);
+		final String symbol = this.mCache.get(new File(this.mModules.getPath(module))).symbolize(relativeAddress);
+		if (symbol == null) {
+			return this.mModules.getName(module) + "+0x" + Long.toHexString(relativeAddress);
+		}
+		return this.mModules.getName(module) + MODULE_SEPARATOR + symbol;
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains classes for parsing executable images, like ELF and
+ * PE files, that are mapped into memory.
+ */
+package de.zabuza.memeaterbug.image;
@@ -0,0 +1,647 @@
+package de.zabuza.memeaterbug.injection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import de.zabuza.memeaterbug.exceptions.AgentCommandException;
+import de.zabuza.memeaterbug.injection.layout.ClassLayout;
+import de.zabuza.memeaterbug.injection.profile.ProfileSnapshot;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+
+/**
+ * Connection to a {@link ResidentAgent} in a target process, over which
+ * commands of the {@link AgentProtocol} are sent. A connection is usually
+ * obtained by {@link Injector#injectResidentAgent(String)}.<br/>
+ * <br/>
+ * Commands are sent one after another, the client may be used by many threads
+ * at once. Threads that need to send commands concurrently should open
+ * connections of their own.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class AgentClient implements Closeable {
+	/**
+	 * Connects to the agent that listens on the given socket.
+	 * 
+	 * @param socketPath
+	 *            Path of the socket the agent listens on
+	 * @return The connection to the agent
+	 * @throws IOException
+	 *             If no agent listens on the socket
+	 */
+	public static AgentClient connect(final Path socketPath) throws IOException {
+		final SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+		try {
+			channel.connect(UnixDomainSocketAddress.of(socketPath));
+		} catch (final IOException e) {
+			channel.close();
+			throw e;
+		}
+		return new AgentClient(socketPath, channel);
+	}
+
+	/**
+	 * Reads a string from the payload of a response.
+	 * 
+	 * @param response
+	 *            The payload of the response
+	 * @return The read string
+	 * @throws IOException
+	 *             If the payload holds no string
+	 */
+	private static String readString(final byte[] response) throws IOException {
+		return new DataInputStream(new ByteArrayInputStream(response)).readUTF();
+	}
+
+	/**
+	 * Writes a list of string arguments, prefixed by their amount.
+	 * 
+	 * @param output
+	 *            Stream to write to
+	 * @param args
+	 *            The arguments to write
+	 * @throws IOException
+	 *             If the stream could not be written
+	 */
+	private static void writeArguments(final DataOutputStream output, final String[] args) throws IOException {
+		output.writeInt(args.length);
+		for (final String arg : args) {
+			output.writeUTF(arg);
+		}
+	}
+
+	/**
+	 * Channel of the connection.
+	 */
+	private final SocketChannel mChannel;
+	/**
+	 * Stream the responses are read from.
+	 */
+	private final DataInputStream mInput;
+	/**
+	 * Id of the next request.
+	 */
+	private int mNextRequestId;
+	/**
+	 * Stream the requests are written to.
+	 */
+	private final DataOutputStream mOutput;
+	/**
+	 * Path of the socket the agent listens on.
+	 */
+	private final Path mSocketPath;
+
+	/**
+	 * Creates a new client that uses the given connected channel.
+	 * 
+	 * @param socketPath
+	 *            Path of the socket the agent listens on
+	 * @param channel
+	 *            The connected channel
+	 */
+	private AgentClient(final Path socketPath, final SocketChannel channel) {
+		this.mSocketPath = socketPath;
+		this.mChannel = channel;
+		this.mInput = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		this.mOutput = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+		this.mNextRequestId = 0;
+	}
+
+	/**
+	 * Sends a command to the agent and waits for its response.
+	 * 
+	 * @param command
+	 *            The byte that identifies the command
+	 * @param payload
+	 *            The payload of the request
+	 * @return The payload of the response
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If the command failed in the target process
+	 */
+	public synchronized byte[] call(final byte command, final byte[] payload)
+			throws IOException, AgentCommandException {
+		final int requestId = this.mNextRequestId;
+		this.mNextRequestId++;
+		this.mOutput.writeInt(AgentProtocol.HEADER_SIZE + payload.length);
+		this.mOutput.writeInt(requestId);
+		this.mOutput.writeByte(command);
+		this.mOutput.write(payload);
+		this.mOutput.flush();
+
+		final int length = this.mInput.readInt();
+		if (length < AgentProtocol.HEADER_SIZE || length > AgentProtocol.MAX_FRAME_LENGTH) {
+			throw new IOException(ErrorMessages.AGENT_RESPONSE_INVALID + length);
+		}
+		final int responseId = this.mInput.readInt();
+		final byte status = this.mInput.readByte();
+		final byte[] response = new byte[length - AgentProtocol.HEADER_SIZE];
+		this.mInput.readFully(response);
+		if (responseId != requestId) {
+			throw new IOException(ErrorMessages.AGENT_RESPONSE_INVALID + responseId);
+		}
+		if (status != AgentProtocol.STATUS_OK) {
+			throw new AgentCommandException(readString(response));
+		}
+		return response;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.mChannel.close();
+	}
+
+	/**
+	 * Gets the path of the socket the agent listens on.
+	 * 
+	 * @return The path of the socket
+	 */
+	public Path getSocketPath() {
+		return this.mSocketPath;
+	}
+
+	/**
+	 * Hooks fields in the target process, such that every write to them is
+	 * sent as sample to a ring. Unlike
+	 * {@link #startSampling(Path, long, TimeUnit, String...)} this neither
+	 * misses changes between two samples nor costs anything while the fields
+	 * do not change. The ring must have been created by
+	 * {@link de.zabuza.memeaterbug.injection.ring.SampleRing#create(Path, int)
+	 * SampleRing.create(Path, int)} before. Hooks that already write to the
+	 * ring get replaced.<br/>
+	 * <br/>
+	 * The agent jar must set <tt>Can-Retransform-Classes</tt> in its manifest.
+	 * 
+	 * @param ringPath
+	 *            Path of the file holding the ring
+	 * @param fieldPaths
+	 *            Paths of the fields to hook, like <tt>Game.alienCount</tt>.
+	 *            Every write to the last field of a path is sent, regardless
+	 *            of the object holding it. The fields are identified in the
+	 *            samples by their index.
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If the ring could not be opened or a field could not be
+	 *             found or hooked
+	 */
+	public void hookFields(final Path ringPath, final String... fieldPaths)
+			throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(payload);
+		output.writeUTF(ringPath.toAbsolutePath().toString());
+		writeArguments(output, fieldPaths);
+		call(AgentProtocol.COMMAND_HOOK_FIELDS, payload.toByteArray());
+	}
+
+	/**
+	 * Invokes a static method with string parameters in the target process.
+	 * 
+	 * @param className
+	 *            The full name of the class that declares the method
+	 * @param methodName
+	 *            The name of the method
+	 * @param args
+	 *            Arguments to pass to the method, the method must have exactly
+	 *            as many parameters of type String
+	 * @return The string representation of the returned value
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If the method could not be found or threw an exception
+	 */
+	public String invokeMethod(final String className, final String methodName, final String... args)
+			throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(payload);
+		output.writeUTF(className);
+		output.writeUTF(methodName);
+		writeArguments(output, args);
+		return readString(call(AgentProtocol.COMMAND_INVOKE_METHOD, payload.toByteArray()));
+	}
+
+	/**
+	 * Whether the connection is open or not.
+	 * 
+	 * @return <tt>True</tt> if the connection is open, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isOpen() {
+		return this.mChannel.isOpen();
+	}
+
+	/**
+	 * Computes the current addresses of objects that were pinned by
+	 * {@link #pinObjects(Path, String...)}, usually after the ring reported a
+	 * garbage collection.
+	 * 
+	 * @param ringPath
+	 *            Path of the file holding the ring the objects were pinned
+	 *            with
+	 * @return The current addresses, in the order the objects were pinned
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If no objects are pinned with the ring or an address could
+	 *             not be computed
+	 */
+	public long[] locateObjects(final Path ringPath) throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		new DataOutputStream(payload).writeUTF(ringPath.toAbsolutePath().toString());
+		final byte[] response = call(AgentProtocol.COMMAND_LOCATE_OBJECTS, payload.toByteArray());
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(response));
+		final long[] addresses = new long[response.length / Long.BYTES];
+		for (int i = 0; i < addresses.length; i++) {
+			addresses[i] = input.readLong();
+		}
+		return addresses;
+	}
+
+	/**
+	 * Sends a command that does nothing to the agent and measures the time
+	 * until the response arrives.
+	 * 
+	 * @return The round trip time, in nanoseconds
+	 * @throws IOException
+	 *             If the connection failed
+	 */
+	public long ping() throws IOException {
+		final long start = System.nanoTime();
+		call(AgentProtocol.COMMAND_PING, new byte[0]);
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Pins objects in the target process, such that their fields can be read
+	 * directly from its memory, without running any code in the target per
+	 * read. The agent holds the objects and reports every garbage collection,
+	 * which may move them, as sample to a ring. The ring must have been
+	 * created by
+	 * {@link de.zabuza.memeaterbug.injection.ring.SampleRing#create(Path, int)
+	 * SampleRing.create(Path, int)} before. Objects that are already pinned
+	 * with the ring get released. Usually used through a
+	 * {@link RawObjectReader}.
+	 * 
+	 * @param ringPath
+	 *            Path of the file holding the ring
+	 * @param objectPaths
+	 *            Paths of the fields that hold the objects to pin, each
+	 *            starting at a static field, like <tt>Game.player</tt>
+	 * @return The pinned objects, in the order of their paths
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If the ring could not be opened, a field could not be found
+	 *             or does not hold an object, or the memory layout of the
+	 *             target is not supported
+	 */
+	public List<PinnedObject> pinObjects(final Path ringPath, final String... objectPaths)
+			throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(payload);
+		output.writeUTF(ringPath.toAbsolutePath().toString());
+		writeArguments(output, objectPaths);
+		final DataInputStream input = new DataInputStream(
+				new ByteArrayInputStream(call(AgentProtocol.COMMAND_PIN_OBJECTS, payload.toByteArray())));
+
+		final List<PinnedObject> objects = new ArrayList<>(objectPaths.length);
+		for (final String objectPath : objectPaths) {
+			final long address = input.readLong();
+			objects.add(new PinnedObject(objectPath, address, ClassLayout.read(input)));
+		}
+		return objects;
+	}
+
+	/**
+	 * Takes the events the profiler of the target aggregated since the last
+	 * poll. Polling periodically streams the profile in batches.
+	 * 
+	 * @param limit
+	 *            Maximal amount of entries per table, the entries of the
+	 *            highest weight are kept
+	 * @return The aggregated events
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If no profiler is running
+	 */
+	public ProfileSnapshot pollProfile(final int limit) throws IOException, AgentCommandException {
+		return profileCall(AgentProtocol.COMMAND_POLL_PROFILE, limit);
+	}
+
+	/**
+	 * Reads the value of a static field in the target process.
+	 * 
+	 * @param className
+	 *            The full or simple name of the class that declares the
+	 *            field
+	 * @param fieldName
+	 *            The name of the field, or a path of fields separated by dots
+	 *            that starts at a static field
+	 * @return The string representation of the value of the field
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If the field could not be found or read
+	 */
+	public String readField(final String className, final String fieldName)
+			throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(payload);
+		output.writeUTF(className);
+		output.writeUTF(fieldName);
+		return readString(call(AgentProtocol.COMMAND_READ_FIELD, payload.toByteArray()));
+	}
+
+	/**
+	 * Stops the agent in the target process and closes the connection. The
+	 * agent must be injected again before it can be used anew.
+	 * 
+	 * @throws IOException
+	 *             If the connection failed
+	 */
+	public void shutdown() throws IOException {
+		try {
+			call(AgentProtocol.COMMAND_SHUTDOWN, new byte[0]);
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Starts a profiler inside the target process, which records CPU samples,
+	 * allocations and contended locks on a flight recorder stream and
+	 * aggregates them until they are polled by {@link #pollProfile(int)}. No
+	 * recording files are written to the working directory of the target. A
+	 * profiler that is already running gets replaced.
+	 * 
+	 * @param samplingPeriod
+	 *            Time between two CPU samples of a thread
+	 * @param lockThreshold
+	 *            Minimal time a thread must be blocked on a lock for the lock
+	 *            to be recorded
+	 * @param unit
+	 *            Unit of the times
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If the flight recorder is not available in the target
+	 */
+	public void startProfiling(final long samplingPeriod, final long lockThreshold, final TimeUnit unit)
+			throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(payload);
+		output.writeLong(unit.toNanos(samplingPeriod));
+		output.writeLong(unit.toNanos(lockThreshold));
+		call(AgentProtocol.COMMAND_START_PROFILING, payload.toByteArray());
+	}
+
+	/**
+	 * Starts sampling static fields in the target process into a ring. The
+	 * ring must have been created by
+	 * {@link de.zabuza.memeaterbug.injection.ring.SampleRing#create(Path, int)
+	 * SampleRing.create(Path, int)} before, the host then reads the samples by
+	 * a {@link de.zabuza.memeaterbug.injection.ring.SampleReader SampleReader}
+	 * without any further round trip. Sampling that already writes to the ring
+	 * gets replaced.
+	 * 
+	 * @param ringPath
+	 *            Path of the file holding the ring
+	 * @param interval
+	 *            Time between two samples of the fields, <tt>0</tt> samples as
+	 *            often as possible
+	 * @param unit
+	 *            Unit of the interval
+	 * @param fieldPaths
+	 *            Paths of the fields to sample, like <tt>Game.alienCount</tt>,
+	 *            each starting at a static field. The fields are identified in
+	 *            the samples by their index.
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If the ring could not be opened or a field could not be
+	 *             found or sampled
+	 */
+	public void startSampling(final Path ringPath, final long interval, final TimeUnit unit,
+			final String... fieldPaths) throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(payload);
+		output.writeUTF(ringPath.toAbsolutePath().toString());
+		output.writeLong(unit.toNanos(interval));
+		writeArguments(output, fieldPaths);
+		call(AgentProtocol.COMMAND_START_SAMPLING, payload.toByteArray());
+	}
+
+	/**
+	 * Starts a custom {@link Thread} object in the target process, like the
+	 * {@link Injection} agent does. It receives its class name and the process
+	 * id in front of the given arguments if it has a constructor that accepts
+	 * a String-array, else the default constructor gets called.
+	 * 
+	 * @param threadClassName
+	 *            The full class name of the thread to start
+	 * @param args
+	 *            Additional arguments to pass to the thread
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If the thread could not be started
+	 */
+	public void startThread(final String threadClassName, final String... args)
+			throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(payload);
+		output.writeUTF(threadClassName);
+		writeArguments(output, args);
+		call(AgentProtocol.COMMAND_START_THREAD, payload.toByteArray());
+	}
+
+	/**
+	 * Stops the profiler of the target process.
+	 * 
+	 * @param limit
+	 *            Maximal amount of entries per table, the entries of the
+	 *            highest weight are kept
+	 * @return The events aggregated since the last poll
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If no profiler is running
+	 */
+	public ProfileSnapshot stopProfiling(final int limit) throws IOException, AgentCommandException {
+		return profileCall(AgentProtocol.COMMAND_STOP_PROFILING, limit);
+	}
+
+	/**
+	 * Stops sampling fields in the target process into a ring.
+	 * 
+	 * @param ringPath
+	 *            Path of the file holding the ring
+	 * @return The amount of samples that were dropped since the ring was full
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If no fields are sampled into the ring
+	 */
+	public long stopSampling(final Path ringPath) throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		new DataOutputStream(payload).writeUTF(ringPath.toAbsolutePath().toString());
+		return new DataInputStream(new ByteArrayInputStream(call(AgentProtocol.COMMAND_STOP_SAMPLING,
+				payload.toByteArray()))).readLong();
+	}
+
+	/**
+	 * Takes the failures the agent recorded outside of commands since the
+	 * last call, like connections that broke. They are not printed to the
+	 * output of the target.
+	 * 
+	 * @return The descriptions of the failures, oldest first
+	 * @throws IOException
+	 *             If the connection failed
+	 */
+	public List<String> takeFailures() throws IOException {
+		final DataInputStream input = new DataInputStream(
+				new ByteArrayInputStream(call(AgentProtocol.COMMAND_TAKE_FAILURES, new byte[0])));
+		final int amount = input.readInt();
+		final List<String> failures = new ArrayList<>(amount);
+		for (int i = 0; i < amount; i++) {
+			failures.add(input.readUTF());
+		}
+		return failures;
+	}
+
+	/**
+	 * Removes the hooks of fields in the target process that write to a ring.
+	 * 
+	 * @param ringPath
+	 *            Path of the file holding the ring
+	 * @return The amount of samples that were dropped since the ring was full
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If no fields are hooked into the ring
+	 */
+	public long unhookFields(final Path ringPath) throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		new DataOutputStream(payload).writeUTF(ringPath.toAbsolutePath().toString());
+		return new DataInputStream(new ByteArrayInputStream(call(AgentProtocol.COMMAND_UNHOOK_FIELDS,
+				payload.toByteArray()))).readLong();
+	}
+
+	/**
+	 * Releases objects in the target process that were pinned by
+	 * {@link #pinObjects(Path, String...)}.
+	 * 
+	 * @param ringPath
+	 *            Path of the file holding the ring the objects were pinned
+	 *            with
+	 * @return The amount of samples that were dropped since the ring was full
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If no objects are pinned with the ring
+	 */
+	public long unpinObjects(final Path ringPath) throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		new DataOutputStream(payload).writeUTF(ringPath.toAbsolutePath().toString());
+		return new DataInputStream(new ByteArrayInputStream(call(AgentProtocol.COMMAND_UNPIN_OBJECTS,
+				payload.toByteArray()))).readLong();
+	}
+
+	/**
+	 * Walks the object graph of the target process and counts the reachable
+	 * instances of the given classes. The walk starts at the static fields of
+	 * the initialized classes, the threads and the open AWT frames and is run
+	 * in parallel inside the target, thus only the summary is transferred.
+	 * 
+	 * @param maxDepth
+	 *            Maximal depth of visited objects, roots have the depth
+	 *            <tt>0</tt>
+	 * @param timeBudget
+	 *            Maximal duration of the walk
+	 * @param unit
+	 *            Unit of the time budget
+	 * @param histogramLimit
+	 *            Maximal amount of entries of the class histogram
+	 * @param classNames
+	 *            Full or simple names of the classes whose instances to count
+	 * @return Summary of the walk
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If a class is not loaded in the target
+	 */
+	public HeapSummary walkHeap(final int maxDepth, final long timeBudget, final TimeUnit unit,
+			final int histogramLimit, final String... classNames) throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(payload);
+		output.writeInt(maxDepth);
+		output.writeLong(unit.toNanos(timeBudget));
+		output.writeInt(histogramLimit);
+		writeArguments(output, classNames);
+		final DataInputStream input = new DataInputStream(
+				new ByteArrayInputStream(call(AgentProtocol.COMMAND_WALK_HEAP, payload.toByteArray())));
+
+		final boolean timedOut = input.readBoolean();
+		final boolean depthExceeded = input.readBoolean();
+		final boolean rootsIncomplete = input.readBoolean();
+		final long visitedAmount = input.readLong();
+		final long duration = input.readLong();
+		final Map<String, Integer> instanceAmounts = new LinkedHashMap<>();
+		for (final String className : classNames) {
+			instanceAmounts.put(className, Integer.valueOf(input.readInt()));
+		}
+		final int entryAmount = input.readInt();
+		final Map<String, Long> histogram = new LinkedHashMap<>();
+		for (int i = 0; i < entryAmount; i++) {
+			histogram.put(input.readUTF(), Long.valueOf(input.readLong()));
+		}
+		return new HeapSummary(instanceAmounts, histogram, visitedAmount, duration, timedOut, depthExceeded,
+				rootsIncomplete);
+	}
+
+	/**
+	 * Sends a command whose payload is a limit of entries and whose response
+	 * is a profile snapshot.
+	 * 
+	 * @param command
+	 *            The command to send
+	 * @param limit
+	 *            Maximal amount of entries per table
+	 * @return The received snapshot
+	 * @throws IOException
+	 *             If the connection failed
+	 * @throws AgentCommandException
+	 *             If the agent answered with an error
+	 */
+	private ProfileSnapshot profileCall(final byte command, final int limit)
+			throws IOException, AgentCommandException {
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		new DataOutputStream(payload).writeInt(limit);
+		return ProfileSnapshot
+				.read(new DataInputStream(new ByteArrayInputStream(call(command, payload.toByteArray()))));
+	}
+}
@@ -0,0 +1,292 @@
+package de.zabuza.memeaterbug.injection;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+
+/**
+ * Constants of the binary protocol spoken between an {@link AgentClient} and
+ * a {@link ResidentAgent} over a Unix domain socket.<br/>
+ * <br/>
+ * Every message is a frame that starts with its length in bytes, excluding
+ * the length itself, as integer. A request continues with the id of the
+ * request as integer, the command as byte and the payload of the command. A
+ * response continues with the id of the request it answers as integer, the
+ * status as byte and the payload of the response. All values are encoded as
+ * by {@link java.io.DataOutputStream DataOutputStream}. If the status is
+ * {@link #STATUS_ERROR}, the payload is a description of the error.<br/>
+ * <br/>
+ * Remark: This class must not depend on other classes of the API, such that
+ * it can be packaged into an independent agent jar.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class AgentProtocol {
+	/**
+	 * Hooks fields such that every write to them is sent as sample to a
+	 * {@link de.zabuza.memeaterbug.injection.ring.SampleRing SampleRing},
+	 * instead of sampling them periodically. The payload is the path of the
+	 * file holding the ring, the amount of fields as integer and the paths of
+	 * the fields. The fields are identified in the samples by their index in
+	 * the payload. The response is empty. Hooks that already write to the same
+	 * ring get replaced.
+	 */
+	public static final byte COMMAND_HOOK_FIELDS = 7;
+	/**
+	 * Invokes a static method with string parameters. The payload is the full
+	 * name of the class, the name of the method, the amount of arguments as
+	 * integer and the arguments. The response is the string representation of
+	 * the returned value.
+	 */
+	public static final byte COMMAND_INVOKE_METHOD = 3;
+	/**
+	 * Computes the current addresses of pinned objects, usually after the
+	 * garbage collector moved them. The payload is the path of the file
+	 * holding the ring the objects were pinned with. The response is the
+	 * address of each object as long, in the order they were pinned.
+	 */
+	public static final byte COMMAND_LOCATE_OBJECTS = 14;
+	/**
+	 * Does nothing. Has no payload and an empty response.
+	 */
+	public static final byte COMMAND_PING = 0;
+	/**
+	 * Pins objects such that the host can read their fields directly from the
+	 * memory of the target. The payload is the path of the file holding a
+	 * {@link de.zabuza.memeaterbug.injection.ring.SampleRing SampleRing},
+	 * which receives every garbage collection as sample, the amount of
+	 * objects as integer and the paths of the fields holding the objects,
+	 * each starting at a static field. The response is, for each object in
+	 * the order of the request, its current address as long followed by the
+	 * {@link de.zabuza.memeaterbug.injection.layout.ClassLayout ClassLayout}
+	 * of its class. Objects that are already pinned with the same ring get
+	 * released.
+	 */
+	public static final byte COMMAND_PIN_OBJECTS = 13;
+	/**
+	 * Takes the events the profiler aggregated since the last poll. The
+	 * payload is the maximal amount of entries per table as integer. The
+	 * response is a
+	 * {@link de.zabuza.memeaterbug.injection.profile.ProfileSnapshot
+	 * ProfileSnapshot}, limited to the entries of the highest weight.
+	 */
+	public static final byte COMMAND_POLL_PROFILE = 11;
+	/**
+	 * Reads the value of a static field. The payload is the full or simple
+	 * name of the class and the name of the field, or a path of fields
+	 * separated by dots that starts at a static field. The response is the
+	 * string representation of the value.
+	 */
+	public static final byte COMMAND_READ_FIELD = 2;
+	/**
+	 * Stops the agent after the response was sent. Has no payload and an empty
+	 * response.
+	 */
+	public static final byte COMMAND_SHUTDOWN = 4;
+	/**
+	 * Starts a profiler on a flight recorder stream inside the target, which
+	 * aggregates CPU samples, allocations and contended locks. The payload is
+	 * the time between two CPU samples and the minimal blocked time of
+	 * recorded locks, in nanoseconds as longs. The response is empty. A
+	 * profiler that is already running gets replaced.
+	 */
+	public static final byte COMMAND_START_PROFILING = 10;
+	/**
+	 * Starts sampling static fields into a
+	 * {@link de.zabuza.memeaterbug.injection.ring.SampleRing SampleRing}. The
+	 * payload is the path of the file holding the ring, the time between two
+	 * samples in nanoseconds as long, the amount of fields as integer and the
+	 * paths of the fields, each starting at a static field. The fields are
+	 * identified in the samples by their index in the payload. The response is
+	 * empty. A sampling that already writes to the same ring gets replaced.
+	 */
+	public static final byte COMMAND_START_SAMPLING = 5;
+	/**
+	 * Starts a {@link Thread}, like the {@link Injection} agent does. The
+	 * payload is the full name of the thread class, the amount of arguments as
+	 * integer and the arguments. The response is empty.
+	 */
+	public static final byte COMMAND_START_THREAD = 1;
+	/**
+	 * Stops the profiler. The payload is the maximal amount of entries per
+	 * table as integer. The response holds the events aggregated since the
+	 * last poll, like {@link #COMMAND_POLL_PROFILE}.
+	 */
+	public static final byte COMMAND_STOP_PROFILING = 12;
+	/**
+	 * Stops sampling fields into a ring. The payload is the path of the file
+	 * holding the ring. The response is the amount of samples that were
+	 * dropped since the ring was full, as long.
+	 */
+	public static final byte COMMAND_STOP_SAMPLING = 6;
+	/**
+	 * Takes the failures the agent recorded outside of commands since the
+	 * last call, like connections that broke or sent malformed frames. Has no
+	 * payload. The response is the amount of failures as integer and the
+	 * description of each failure, oldest first. If more failures occurred
+	 * than the agent keeps, the oldest ones are dropped.
+	 */
+	public static final byte COMMAND_TAKE_FAILURES = 16;
+	/**
+	 * Removes the hooks that write to a ring. The payload is the path of the
+	 * file holding the ring. The response is the amount of samples that were
+	 * dropped since the ring was full, as long.
+	 */
+	public static final byte COMMAND_UNHOOK_FIELDS = 8;
+	/**
+	 * Releases pinned objects and stops reporting garbage collections. The
+	 * payload is the path of the file holding the ring the objects were
+	 * pinned with. The response is the amount of samples that were dropped
+	 * since the ring was full, as long.
+	 */
+	public static final byte COMMAND_UNPIN_OBJECTS = 15;
+	/**
+	 * Walks the object graph of the target, starting at static fields,
+	 * threads and open AWT frames, and counts the reachable instances. The
+	 * payload is the maximal depth as integer, the time budget in nanoseconds
+	 * as long, the maximal amount of histogram entries as integer, the amount
+	 * of classes as integer and the full or simple names of the classes whose
+	 * instances to count. The response is whether the walk timed out, whether
+	 * it exceeded the maximal depth and whether it skipped roots since the
+	 * initialization state of classes is unknown as booleans, the amount of
+	 * visited objects and the duration in nanoseconds as longs, the amount of
+	 * instances of each requested class as integers, in the order of the
+	 * request, the amount of histogram entries as integer and the entries,
+	 * each the full name of a class and the amount of its visited instances
+	 * as long, ordered by the amount, descending.
+	 */
+	public static final byte COMMAND_WALK_HEAP = 9;
+	/**
+	 * Size of the header of a frame after its length, in bytes.
+	 */
+	public static final int HEADER_SIZE = 5;
+	/**
+	 * Maximal length of a frame, in bytes.
+	 */
+	public static final int MAX_FRAME_LENGTH = 1 << 24;
+	/**
+	 * Status of a response to a command that failed.
+	 */
+	public static final byte STATUS_ERROR = 1;
+	/**
+	 * Status of a response to a command that succeeded.
+	 */
+	public static final byte STATUS_OK = 0;
+	/**
+	 * Thrown when the socket directory is not a directory that only its owner
+	 * can access.
+	 */
+	private static final String ERROR_SOCKET_DIRECTORY_INSECURE = "The socket directory must be a directory that "
+			+ "is owned by the current user and only accessible by it: ";
+	/**
+	 * Suffix of the name of the file the agent writes its failure to.
+	 */
+	private static final String FAILURE_SUFFIX = ".failure";
+	/**
+	 * Permissions of the socket directory, which grant access only to its
+	 * owner.
+	 */
+	private static final String OWNER_ONLY_PERMISSIONS = "rwx------";
+	/**
+	 * Name of the file attribute view of POSIX file systems.
+	 */
+	private static final String POSIX_VIEW = "posix";
+	/**
+	 * Prefix of the name of the default socket file and the socket directory.
+	 */
+	private static final String SOCKET_PREFIX = "memeaterbug-";
+	/**
+	 * Suffix of the name of the default socket file.
+	 */
+	private static final String SOCKET_SUFFIX = ".sock";
+
+	/**
+	 * Creates the given socket directory, such that only the current user can
+	 * access it, or verifies an existing one. Other users must neither be able
+	 * to connect to a socket in the directory nor to replace it by their own.
+	 * On file systems without POSIX permissions the directory is only
+	 * created.
+	 * 
+	 * @param directory
+	 *            The directory to create
+	 * @throws IOException
+	 *             If the directory could not be created or exists but is not
+	 *             owned by the current user or accessible by others
+	 */
+	public static void createSocketDirectory(final Path directory) throws IOException {
+		if (!directory.getFileSystem().supportedFileAttributeViews().contains(POSIX_VIEW)) {
+			Files.createDirectories(directory);
+			return;
+		}
+		final Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString(OWNER_ONLY_PERMISSIONS);
+		try {
+			Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(ownerOnly));
+			// The umask may have removed permissions of the owner
+			Files.setPosixFilePermissions(directory, ownerOnly);
+		} catch (final FileAlreadyExistsException e) {
+			// Created before, it gets verified
+		}
+
+		final PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS);
+		final UserPrincipal currentUser = directory.getFileSystem().getUserPrincipalLookupService()
+				.lookupPrincipalByName(System.getProperty("user.name"));
+		if (!attributes.isDirectory() || !attributes.permissions().equals(ownerOnly)
+				|| !attributes.owner().equals(currentUser)) {
+			throw new IOException(ERROR_SOCKET_DIRECTORY_INSECURE + directory);
+		}
+	}
+
+	/**
+	 * Gets the default path of the socket the agent of the given process
+	 * listens on. It is located in the {@link #getSocketDirectory() socket
+	 * directory}.
+	 * 
+	 * @param processId
+	 *            Id of the process the agent is loaded into
+	 * @return The default path of the socket
+	 */
+	public static Path getDefaultSocketPath(final long processId) {
+		return getSocketDirectory().resolve(SOCKET_PREFIX + processId + SOCKET_SUFFIX);
+	}
+
+	/**
+	 * Gets the path of the file the agent writes its failure to if it could
+	 * not start listening on the given socket or stopped listening
+	 * unexpectedly. The file holds the description of the failure.
+	 * 
+	 * @param socketPath
+	 *            Path of the socket the agent should listen on
+	 * @return The path of the failure file
+	 */
+	public static Path getFailurePath(final Path socketPath) {
+		return socketPath.resolveSibling(socketPath.getFileName() + FAILURE_SUFFIX);
+	}
+
+	/**
+	 * Gets the directory that holds the default sockets of the current user.
+	 * It is located in the temporary directory and must be created by
+	 * {@link #createSocketDirectory(Path)} before it is used.
+	 * 
+	 * @return The socket directory of the current user
+	 */
+	public static Path getSocketDirectory() {
+		return Paths.get(System.getProperty("java.io.tmpdir"), SOCKET_PREFIX + System.getProperty("user.name"));
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private AgentProtocol() {
+
+	}
+}
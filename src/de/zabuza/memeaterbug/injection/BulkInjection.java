@@ -0,0 +1,339 @@
+package de.zabuza.memeaterbug.injection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Injection of an agent into many processes, started by
+ * {@link BulkInjector#injectAll(int[], String, long, java.util.concurrent.TimeUnit, String...)}.
+ * The outcome of every target is decided exactly once, by whatever happens
+ * first out of the injection finishing, its timeout expiring or
+ * {@link #cancel()}.<br/>
+ * <br/>
+ * Attaching to a virtual machine and loading an agent can not always be
+ * interrupted. A target that timed out or was cancelled while attaching is
+ * abandoned, it releases its permit to attach right away and does not get
+ * the agent loaded once the attach finishes. A target that times out or gets
+ * cancelled while its agent is being loaded is abandoned as well, its
+ * outcome is {@link InjectionStatus#TIMED_OUT_LOADING} or
+ * {@link InjectionStatus#CANCELLED_LOADING} then, since the agent may still
+ * get loaded in the background. Thus the injection always completes once its
+ * timeout expired, and a loaded agent is never reported as plainly timed out
+ * or cancelled.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BulkInjection {
+	/**
+	 * State of a target whose outcome is decided.
+	 */
+	private static final int STATE_DECIDED = 2;
+	/**
+	 * State of a target whose agent is being loaded, only its injection
+	 * decides its outcome.
+	 */
+	private static final int STATE_LOADING = 1;
+	/**
+	 * State of a target without outcome that is not loading the agent yet.
+	 */
+	private static final int STATE_PENDING = 0;
+	/**
+	 * Future that completes with the results once all targets have an
+	 * outcome.
+	 */
+	private final CompletableFuture<List<InjectionResult>> mCompletion;
+	/**
+	 * Permits bounding the amount of concurrent attaches, shared by all
+	 * injections of the injector.
+	 */
+	private final Semaphore mPermits;
+	/**
+	 * Whether the task of a target holds a permit, <tt>1</tt> if so and
+	 * <tt>0</tt> otherwise, by the index of the target.
+	 */
+	private final AtomicIntegerArray mPermitsHeld;
+	/**
+	 * Ids of the target processes.
+	 */
+	private final int[] mProcessIds;
+	/**
+	 * Amount of targets without an outcome.
+	 */
+	private final AtomicInteger mRemaining;
+	/**
+	 * Results by the index of their target, <tt>null</tt> while the target
+	 * has no outcome.
+	 */
+	private final AtomicReferenceArray<InjectionResult> mResults;
+	/**
+	 * Times the injections of the targets started, as values of
+	 * {@link System#nanoTime()}, by the index of their target.
+	 */
+	private final AtomicLongArray mStarts;
+	/**
+	 * States of the targets, by their index.
+	 */
+	private final AtomicIntegerArray mStates;
+	/**
+	 * Tasks injecting the targets, by the index of their target.
+	 */
+	private final AtomicReferenceArray<Future<?>> mTasks;
+
+	/**
+	 * Creates a new injection whose targets have no outcome yet.
+	 * 
+	 * @param processIds
+	 *            Ids of the target processes
+	 * @param permits
+	 *            Permits bounding the amount of concurrent attaches
+	 */
+	BulkInjection(final int[] processIds, final Semaphore permits) {
+		this.mProcessIds = processIds.clone();
+		this.mPermits = permits;
+		this.mPermitsHeld = new AtomicIntegerArray(processIds.length);
+		this.mStates = new AtomicIntegerArray(processIds.length);
+		this.mResults = new AtomicReferenceArray<>(processIds.length);
+		this.mTasks = new AtomicReferenceArray<>(processIds.length);
+		this.mRemaining = new AtomicInteger(processIds.length);
+		this.mCompletion = new CompletableFuture<>();
+		this.mStarts = new AtomicLongArray(processIds.length);
+		final long now = System.nanoTime();
+		for (int i = 0; i < processIds.length; i++) {
+			this.mStarts.set(i, now);
+		}
+		if (processIds.length == 0) {
+			this.mCompletion.complete(new ArrayList<InjectionResult>());
+		}
+	}
+
+	/**
+	 * Cancels the injection of all targets that have no outcome yet. Their
+	 * tasks get interrupted and release their permits. Targets that are
+	 * loading the agent are reported as
+	 * {@link InjectionStatus#CANCELLED_LOADING}.
+	 */
+	public void cancel() {
+		decideRemaining(InjectionStatus.CANCELLED, InjectionStatus.CANCELLED_LOADING);
+	}
+
+	/**
+	 * Gets the results of all targets, once every target has an outcome.
+	 * 
+	 * @return Future that completes with the results, in the order of the
+	 *         targets. It never completes exceptionally.
+	 */
+	public CompletableFuture<List<InjectionResult>> getResults() {
+		return this.mCompletion;
+	}
+
+	/**
+	 * Whether every target has an outcome.
+	 * 
+	 * @return <tt>True</tt> if the injection is done, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isDone() {
+		return this.mCompletion.isDone();
+	}
+
+	/**
+	 * Acquires a permit to attach to a target. The permit is released by
+	 * {@link #releasePermit(int)} or once the target gets an outcome by its
+	 * timeout or by cancelling.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 * @return <tt>True</tt> if the permit was acquired, <tt>false</tt> if the
+	 *         target got an outcome meanwhile, then the permit was released
+	 *         again
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting for a permit
+	 */
+	boolean acquirePermit(final int index) throws InterruptedException {
+		this.mPermits.acquire();
+		this.mPermitsHeld.set(index, 1);
+		if (isDecided(index)) {
+			releasePermit(index);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Claims a target for loading the agent, unless it already has an
+	 * outcome. Afterwards its outcome is decided by
+	 * {@link #decideClaimed(int, InjectionStatus, String)}, the timeout and
+	 * cancelling only abandon the loading.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 * @return <tt>True</tt> if the target was claimed, <tt>false</tt> if it
+	 *         already has an outcome
+	 */
+	boolean claim(final int index) {
+		return this.mStates.compareAndSet(index, STATE_PENDING, STATE_LOADING);
+	}
+
+	/**
+	 * Decides the outcome of a target that was not claimed for loading the
+	 * agent, unless it already has an outcome.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 * @param status
+	 *            Outcome of the target
+	 * @param failure
+	 *            Description of the error if the injection failed,
+	 *            <tt>null</tt> otherwise
+	 * @return <tt>True</tt> if the outcome was decided by this call,
+	 *         <tt>false</tt> if the target already had an outcome or was
+	 *         claimed
+	 */
+	boolean decide(final int index, final InjectionStatus status, final String failure) {
+		if (!this.mStates.compareAndSet(index, STATE_PENDING, STATE_DECIDED)) {
+			return false;
+		}
+		complete(index, status, failure);
+		return true;
+	}
+
+	/**
+	 * Decides the outcome of a target that was claimed for loading the agent,
+	 * unless it already has an outcome.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 * @param status
+	 *            Outcome of the target
+	 * @param failure
+	 *            Description of the error if the injection failed,
+	 *            <tt>null</tt> otherwise
+	 * @return <tt>True</tt> if the outcome was decided by this call,
+	 *         <tt>false</tt> if the target already had an outcome
+	 */
+	boolean decideClaimed(final int index, final InjectionStatus status, final String failure) {
+		if (!this.mStates.compareAndSet(index, STATE_LOADING, STATE_DECIDED)) {
+			return false;
+		}
+		complete(index, status, failure);
+		return true;
+	}
+
+	/**
+	 * Decides the outcome of all targets that have none yet. Their tasks get
+	 * interrupted and their permits released, such that attaches and loads
+	 * which can not be interrupted do not block other targets.
+	 * 
+	 * @param status
+	 *            Outcome of the targets that are not loading the agent
+	 * @param loadingStatus
+	 *            Outcome of the targets that are loading the agent
+	 */
+	void decideRemaining(final InjectionStatus status, final InjectionStatus loadingStatus) {
+		for (int i = 0; i < this.mResults.length(); i++) {
+			// A target may get claimed between both attempts, but not after
+			if (decide(i, status, null) || decideClaimed(i, loadingStatus, null)) {
+				final Future<?> task = this.mTasks.get(i);
+				if (task != null) {
+					task.cancel(true);
+				}
+				releasePermit(i);
+			}
+		}
+	}
+
+	/**
+	 * Gets the id of the process of a target.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 * @return The id of the target process
+	 */
+	int getProcessId(final int index) {
+		return this.mProcessIds[index];
+	}
+
+	/**
+	 * Whether a target already has an outcome, thus its injection should not
+	 * proceed.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 * @return <tt>True</tt> if the target has an outcome, <tt>false</tt>
+	 *         otherwise
+	 */
+	boolean isDecided(final int index) {
+		return this.mStates.get(index) == STATE_DECIDED;
+	}
+
+	/**
+	 * Marks the start of the injection of a target, from which its latency is
+	 * measured.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 */
+	void markStart(final int index) {
+		this.mStarts.set(index, System.nanoTime());
+	}
+
+	/**
+	 * Releases the permit of a target, unless it was released already.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 */
+	void releasePermit(final int index) {
+		if (this.mPermitsHeld.compareAndSet(index, 1, 0)) {
+			this.mPermits.release();
+		}
+	}
+
+	/**
+	 * Sets the task that injects a target, such that it can be interrupted.
+	 * If the target already has an outcome, the task gets cancelled.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 * @param task
+	 *            The task injecting the target
+	 */
+	void setTask(final int index, final Future<?> task) {
+		this.mTasks.set(index, task);
+		if (isDecided(index)) {
+			task.cancel(true);
+		}
+	}
+
+	/**
+	 * Stores the result of a target whose outcome was just decided and
+	 * completes the injection once every target has an outcome.
+	 * 
+	 * @param index
+	 *            Index of the target
+	 * @param status
+	 *            Outcome of the target
+	 * @param failure
+	 *            Description of the error if the injection failed,
+	 *            <tt>null</tt> otherwise
+	 */
+	private void complete(final int index, final InjectionStatus status, final String failure) {
+		this.mResults.set(index, new InjectionResult(this.mProcessIds[index], status,
+				System.nanoTime() - this.mStarts.get(index), failure));
+		if (this.mRemaining.decrementAndGet() == 0) {
+			final List<InjectionResult> results = new ArrayList<>(this.mResults.length());
+			for (int i = 0; i < this.mResults.length(); i++) {
+				results.add(this.mResults.get(i));
+			}
+			this.mCompletion.complete(results);
+		}
+	}
+}
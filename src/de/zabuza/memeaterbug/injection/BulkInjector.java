@@ -0,0 +1,252 @@
+package de.zabuza.memeaterbug.injection;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.tools.attach.AgentInitializationException;
+import com.sun.tools.attach.AgentLoadException;
+import com.sun.tools.attach.AttachNotSupportedException;
+import com.sun.tools.attach.VirtualMachine;
+
+import de.zabuza.memeaterbug.jfr.Events;
+import de.zabuza.memeaterbug.jfr.InjectionEvent;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.metrics.Metrics;
+import de.zabuza.memeaterbug.metrics.Operation;
+
+/**
+ * Injects an agent into many virtual machines concurrently. Unlike an
+ * {@link Injector}, it neither needs a handle nor a snapshot of the target
+ * processes, the targets are only given by their ids and attached to by the
+ * attach provider of the <tt>jdk.attach</tt> module. The native attach
+ * library is set up once for all injections.<br/>
+ * <br/>
+ * Every target is injected by its own task, on a virtual thread if the
+ * runtime supports them, else on a pool of daemon threads. Since every
+ * attach opens a connection to its target, the amount of concurrent attaches
+ * is bounded by a semaphore. Each injection has a timeout and can be
+ * cancelled, the outcome and latency of every target is reported by the
+ * returned {@link BulkInjection}. A target that times out while attaching or
+ * loading the agent releases its permit right away, even if the attach or
+ * load ignores the interrupt and only finishes later in the background.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BulkInjector {
+	/**
+	 * Default maximal amount of concurrent attaches.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_ATTACHES = 32;
+	/**
+	 * Name of the thread that expires the timeouts of injections.
+	 */
+	private static final String TIMER_THREAD_NAME = "MemEaterBug-BulkInjector-Timer";
+	/**
+	 * Name of the factory method for executors that start a new virtual thread
+	 * for each task.
+	 */
+	private static final String VIRTUAL_THREAD_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+	/**
+	 * Prefix of the names of the worker threads, if virtual threads are not
+	 * supported.
+	 */
+	private static final String WORKER_THREAD_NAME = "MemEaterBug-BulkInjector-Worker-";
+
+	/**
+	 * Creates the executor for the injections. Uses virtual threads if the
+	 * runtime supports them, else a cached pool of daemon threads.
+	 * 
+	 * @return The executor for the injections
+	 */
+	private static ExecutorService createExecutor() {
+		try {
+			final Method factory = Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY);
+			return (ExecutorService) factory.invoke(null);
+		} catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			// Virtual threads are not supported by the runtime
+			final AtomicInteger threadCounter = new AtomicInteger();
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, WORKER_THREAD_NAME + threadCounter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Executor of the injections.
+	 */
+	private final ExecutorService mExecutor;
+	/**
+	 * Permits bounding the amount of concurrent attaches.
+	 */
+	private final Semaphore mPermits;
+	/**
+	 * Executor that expires the timeouts of injections.
+	 */
+	private final ScheduledExecutorService mTimer;
+
+	/**
+	 * Creates a new injector that attaches to at most
+	 * {@link #DEFAULT_MAX_CONCURRENT_ATTACHES} targets concurrently.
+	 */
+	public BulkInjector() {
+		this(DEFAULT_MAX_CONCURRENT_ATTACHES);
+	}
+
+	/**
+	 * Creates a new injector.
+	 * 
+	 * @param maxConcurrentAttaches
+	 *            Maximal amount of concurrent attaches. Must be greater than
+	 *            zero.
+	 */
+	public BulkInjector(final int maxConcurrentAttaches) {
+		if (maxConcurrentAttaches <= 0) {
+			throw new IllegalArgumentException(ErrorMessages.CONCURRENT_CALLS_INVALID + maxConcurrentAttaches);
+		}
+		Injector.loadAttachLibrary();
+		this.mPermits = new Semaphore(maxConcurrentAttaches);
+		this.mExecutor = createExecutor();
+		this.mTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, TIMER_THREAD_NAME);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Injects a given agent jar-file into all given processes concurrently.
+	 * The agent receives the id of its process, followed by the additional
+	 * arguments, separated by {@link Injector#ARG_SEPARATOR}. The method
+	 * returns immediately.
+	 * 
+	 * @param processIds
+	 *            Ids of the processes to inject into
+	 * @param pathToAgentJar
+	 *            Path to the agent jar-file to inject. The agent jar-file needs
+	 *            to specify an agentmain-method and must have the Agent-Class
+	 *            key accordingly.
+	 * @param timeout
+	 *            Maximal time the injections may take, measured from this call
+	 *            on, thus including the time waiting for a permit to attach.
+	 *            Targets that are loading the agent when it expires are
+	 *            reported as {@link InjectionStatus#TIMED_OUT_LOADING}.
+	 * @param unit
+	 *            Unit of the timeout
+	 * @param additionalArgs
+	 *            Additional arguments to pass to the agents
+	 * @return The started injection, reporting the outcome of every target
+	 */
+	public BulkInjection injectAll(final int[] processIds, final String pathToAgentJar, final long timeout,
+			final TimeUnit unit, final String... additionalArgs) {
+		final BulkInjection injection = new BulkInjection(processIds, this.mPermits);
+		for (int i = 0; i < processIds.length; i++) {
+			final int index = i;
+			final String args = Injector.joinArguments(null, processIds[i], additionalArgs);
+			injection.setTask(index, this.mExecutor.submit(new Runnable() {
+				@Override
+				public void run() {
+					inject(injection, index, pathToAgentJar, args);
+				}
+			}));
+		}
+		this.mTimer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				injection.decideRemaining(InjectionStatus.TIMED_OUT, InjectionStatus.TIMED_OUT_LOADING);
+			}
+		}, timeout, unit);
+		return injection;
+	}
+
+	/**
+	 * Stops the injector. Running injections are cancelled.
+	 */
+	public void shutdown() {
+		this.mTimer.shutdownNow();
+		this.mExecutor.shutdownNow();
+	}
+
+	/**
+	 * Injects the agent into a target of an injection, unless the target
+	 * already has an outcome. The target is claimed right before the agent
+	 * gets loaded, such that a loaded agent is never reported as plainly timed
+	 * out or cancelled.
+	 * 
+	 * @param injection
+	 *            The injection the target belongs to
+	 * @param index
+	 *            Index of the target
+	 * @param pathToAgentJar
+	 *            Path to the agent jar-file to inject
+	 * @param args
+	 *            Joined arguments to pass to the agent
+	 */
+	private void inject(final BulkInjection injection, final int index, final String pathToAgentJar,
+			final String args) {
+		try {
+			if (!injection.acquirePermit(index)) {
+				return;
+			}
+		} catch (final InterruptedException e) {
+			injection.decide(index, InjectionStatus.CANCELLED, null);
+			return;
+		}
+		try {
+			injection.markStart(index);
+			final int processId = injection.getProcessId(index);
+			InjectionEvent event = null;
+			if (Events.isEnabled()) {
+				event = new InjectionEvent();
+				event.begin();
+			}
+			final long start = Metrics.start();
+			boolean claimed = false;
+			boolean success = false;
+			try {
+				final VirtualMachine vm = VirtualMachine.attach(String.valueOf(processId));
+				try {
+					// The target may have timed out or been cancelled while
+					// attaching, else it only gets abandoned from now on
+					claimed = injection.claim(index);
+					if (claimed) {
+						vm.loadAgent(pathToAgentJar, args);
+						success = injection.decideClaimed(index, InjectionStatus.SUCCEEDED, null);
+					}
+				} finally {
+					vm.detach();
+				}
+			} catch (AttachNotSupportedException | AgentLoadException | AgentInitializationException | IOException
+					| RuntimeException e) {
+				if (claimed) {
+					injection.decideClaimed(index, InjectionStatus.FAILED, String.valueOf(e));
+				} else {
+					injection.decide(index, InjectionStatus.FAILED, String.valueOf(e));
+				}
+			} finally {
+				Metrics.record(Operation.INJECTION, start, 0, success);
+				if (event != null) {
+					event.finish(processId, pathToAgentJar, success);
+				}
+			}
+		} finally {
+			injection.releasePermit(index);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package de.zabuza.memeaterbug.injection;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Handler of a command that is sent to a {@link ResidentAgent}. Handlers are
+ * registered at the agent by the byte that identifies their command.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface CommandHandler {
+	/**
+	 * Handles a command. Gets called on the thread that serves the connection
+	 * the command was received on, thus commands of the same connection are
+	 * handled one after another.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws Exception
+	 *             If the command failed. The agent answers with
+	 *             {@link AgentProtocol#STATUS_ERROR} and the description of
+	 *             the exception.
+	 */
+	public void handle(final DataInputStream request, final DataOutputStream response) throws Exception;
+}
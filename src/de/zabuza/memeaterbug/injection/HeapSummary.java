@@ -0,0 +1,177 @@
+package de.zabuza.memeaterbug.injection;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Summary of a walk over the object graph of a target process, as returned
+ * by {@link AgentClient#walkHeap(int, long, java.util.concurrent.TimeUnit, int, String...)}.
+ * Holds the amount of found instances of the requested classes and the
+ * classes with the most visited instances.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class HeapSummary {
+	/**
+	 * Whether objects at the maximal depth referred to further objects.
+	 */
+	private final boolean mDepthExceeded;
+	/**
+	 * Duration of the walk, in nanoseconds.
+	 */
+	private final long mDuration;
+	/**
+	 * Amount of visited objects by the full name of their class, sorted
+	 * descending by the amount.
+	 */
+	private final Map<String, Long> mHistogram;
+	/**
+	 * Amount of found instances by the name of the requested class.
+	 */
+	private final Map<String, Integer> mInstanceAmounts;
+	/**
+	 * Whether static fields or AWT frames were skipped as roots since the
+	 * initialization state of classes could not be determined.
+	 */
+	private final boolean mRootsIncomplete;
+	/**
+	 * Whether the walk was stopped since it exceeded its time budget.
+	 */
+	private final boolean mTimedOut;
+	/**
+	 * Amount of visited objects.
+	 */
+	private final long mVisitedAmount;
+
+	/**
+	 * Creates a new summary.
+	 * 
+	 * @param instanceAmounts
+	 *            Amount of found instances by the name of the requested class
+	 * @param histogram
+	 *            Amount of visited objects by the full name of their class,
+	 *            sorted descending by the amount
+	 * @param visitedAmount
+	 *            Amount of visited objects
+	 * @param duration
+	 *            Duration of the walk, in nanoseconds
+	 * @param timedOut
+	 *            Whether the walk was stopped since it exceeded its time
+	 *            budget
+	 * @param depthExceeded
+	 *            Whether objects at the maximal depth referred to further
+	 *            objects
+	 * @param rootsIncomplete
+	 *            Whether static fields or AWT frames were skipped as roots
+	 *            since the initialization state of classes could not be
+	 *            determined
+	 */
+	HeapSummary(final Map<String, Integer> instanceAmounts, final Map<String, Long> histogram,
+			final long visitedAmount, final long duration, final boolean timedOut, final boolean depthExceeded,
+			final boolean rootsIncomplete) {
+		this.mInstanceAmounts = instanceAmounts;
+		this.mHistogram = histogram;
+		this.mVisitedAmount = visitedAmount;
+		this.mDuration = duration;
+		this.mTimedOut = timedOut;
+		this.mDepthExceeded = depthExceeded;
+		this.mRootsIncomplete = rootsIncomplete;
+	}
+
+	/**
+	 * Gets the duration of the walk.
+	 * 
+	 * @return The duration of the walk, in nanoseconds
+	 */
+	public long getDuration() {
+		return this.mDuration;
+	}
+
+	/**
+	 * Gets the classes with the most visited instances.
+	 * 
+	 * @return Amount of visited objects by the full name of their class,
+	 *         sorted descending by the amount
+	 */
+	public Map<String, Long> getHistogram() {
+		return Collections.unmodifiableMap(this.mHistogram);
+	}
+
+	/**
+	 * Gets the amount of found instances of the given requested class.
+	 * 
+	 * @param className
+	 *            The name of the class, as passed to the walk
+	 * @return The amount of found instances, <tt>0</tt> if the class was not
+	 *         requested
+	 */
+	public int getInstanceAmount(final String className) {
+		final Integer amount = this.mInstanceAmounts.get(className);
+		if (amount == null) {
+			return 0;
+		}
+		return amount.intValue();
+	}
+
+	/**
+	 * Gets the amount of visited objects.
+	 * 
+	 * @return The amount of visited objects
+	 */
+	public long getVisitedAmount() {
+		return this.mVisitedAmount;
+	}
+
+	/**
+	 * Whether the walk visited all reachable objects, thus neither exceeded
+	 * its time budget nor its maximal depth and did not skip roots.
+	 * 
+	 * @return <tt>True</tt> if the walk is complete, <tt>false</tt> otherwise
+	 */
+	public boolean isComplete() {
+		return !this.mTimedOut && !this.mDepthExceeded && !this.mRootsIncomplete;
+	}
+
+	/**
+	 * Whether objects at the maximal depth referred to further objects, which
+	 * were not visited.
+	 * 
+	 * @return <tt>True</tt> if the maximal depth was exceeded, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isDepthExceeded() {
+		return this.mDepthExceeded;
+	}
+
+	/**
+	 * Whether static fields or AWT frames were skipped as roots since the
+	 * initialization state of classes could not be determined. Instances
+	 * that are only reachable from them were not visited.
+	 * 
+	 * @return <tt>True</tt> if roots were skipped, <tt>false</tt> otherwise
+	 */
+	public boolean isRootsIncomplete() {
+		return this.mRootsIncomplete;
+	}
+
+	/**
+	 * Whether the walk was stopped since it exceeded its time budget.
+	 * 
+	 * @return <tt>True</tt> if the walk timed out, <tt>false</tt> otherwise
+	 */
+	public boolean isTimedOut() {
+		return this.mTimedOut;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "visited=" + this.mVisitedAmount + ", instances=" + this.mInstanceAmounts + ", complete="
+				+ isComplete() + ", duration=" + this.mDuration + "ns";
+	}
+}
@@ -2,6 +2,7 @@ package de.zabuza.memeaterbug.injection;
 
 import java.lang.instrument.Instrumentation;
 import java.lang.reflect.Constructor;
+import java.util.Arrays;
 
 /**
  * Injection agent that gets dynamically loaded by an Injector into the JVM of a
@@ -27,6 +28,12 @@ public final class Injection {
 	 * Thrown when the given class object is no subtype of Thread.
 	 */
 	private static final String ERROR_NO_THREAD = "The class object, given by name, must be a subtype of Thread.";
+	/**
+	 * Prefix of the argument that refers to a payload file, duplicated from
+	 * {@link de.zabuza.memeaterbug.injection.payload.Payload#ARGUMENT_PREFIX
+	 * Payload}.
+	 */
+	private static final String PAYLOAD_ARGUMENT_PREFIX = "@payload:";
 
 	/**
 	 * JVM hook to dynamically load this agent at runtime. It starts a custom
@@ -43,7 +50,9 @@ public final class Injection {
 	 *            caller of the injection-method. If the passed Thread object
 	 *            has a constructor that accepts a String array, String[], then
 	 *            the arguments are passed to it, else the default constructor
-	 *            gets called.
+	 *            gets called. The last argument may refer to a payload file,
+	 *            it is kept as one argument even if it contains the
+	 *            separator.
 	 * @param inst
 	 *            Object used for ByteCode manipulation
 	 */
@@ -52,35 +61,12 @@ public final class Injection {
 			if (args == null || args.length() <= 0) {
 				throw new IllegalArgumentException(ERROR_ARG_LENGTH);
 			}
-			final String[] argsArray = args.split(ARG_SEPARATOR);
+			final String[] argsArray = splitArguments(args);
 			if (argsArray.length < 2) {
 				throw new IllegalArgumentException(ERROR_ARG_LENGTH);
 			}
 
-			final String threadClassName = argsArray[0];
-			final Class<?> threadClass = Class.forName(threadClassName);
-			if (threadClass.isAssignableFrom(Thread.class)) {
-				throw new IllegalArgumentException(ERROR_NO_THREAD);
-			}
-
-			boolean useDefaultConstructor = false;
-			Constructor<?> threadConstructor = null;
-			try {
-				threadConstructor = threadClass.getConstructor(String[].class);
-			} catch (final NoSuchMethodException e) {
-				threadConstructor = threadClass.getConstructor();
-				useDefaultConstructor = true;
-			}
-
-			Object threadObject = null;
-			if (useDefaultConstructor) {
-				threadObject = threadConstructor.newInstance();
-			} else {
-				threadObject = threadConstructor.newInstance(new Object[] { argsArray });
-			}
-
-			final Thread thread = (Thread) threadObject;
-			thread.start();
+			startThread(argsArray[0], argsArray);
 		} catch (final Exception e) {
 			// Catch and print every exception as they would otherwise be
 			// ignored in an agentmain method
@@ -88,6 +74,69 @@ public final class Injection {
 		}
 	}
 
+	/**
+	 * Splits the arguments passed to an agent at {@link #ARG_SEPARATOR}. An
+	 * argument that refers to a payload file must be the last one and is not
+	 * split, since its path may contain the separator.
+	 * 
+	 * @param args
+	 *            The arguments passed to an agent
+	 * @return The split arguments
+	 */
+	public static String[] splitArguments(final String args) {
+		final int payloadStart = args.indexOf(ARG_SEPARATOR + PAYLOAD_ARGUMENT_PREFIX);
+		if (payloadStart == -1) {
+			return args.split(ARG_SEPARATOR);
+		}
+		final String[] leadingArgs = args.substring(0, payloadStart).split(ARG_SEPARATOR);
+		final String[] argsArray = Arrays.copyOf(leadingArgs, leadingArgs.length + 1);
+		argsArray[leadingArgs.length] = args.substring(payloadStart + ARG_SEPARATOR.length());
+		return argsArray;
+	}
+
+	/**
+	 * Creates and starts a custom {@link Thread} object. The given arguments
+	 * are passed to the thread if it specifies a constructor that accepts a
+	 * String-array, else the default constructor gets called.
+	 * 
+	 * @param threadClassName
+	 *            The full class name of the {@link Thread} object to start
+	 * @param args
+	 *            Arguments to pass to the constructor of the thread
+	 * @return The started thread
+	 * @throws ReflectiveOperationException
+	 *             If the thread class could not be found or instantiated
+	 * @throws IllegalArgumentException
+	 *             If the given class is no subtype of Thread
+	 */
+	public static Thread startThread(final String threadClassName, final String[] args)
+			throws ReflectiveOperationException, IllegalArgumentException {
+		final Class<?> threadClass = Class.forName(threadClassName);
+		if (threadClass.isAssignableFrom(Thread.class)) {
+			throw new IllegalArgumentException(ERROR_NO_THREAD);
+		}
+
+		boolean useDefaultConstructor = false;
+		Constructor<?> threadConstructor = null;
+		try {
+			threadConstructor = threadClass.getConstructor(String[].class);
+		} catch (final NoSuchMethodException e) {
+			threadConstructor = threadClass.getConstructor();
+			useDefaultConstructor = true;
+		}
+
+		Object threadObject = null;
+		if (useDefaultConstructor) {
+			threadObject = threadConstructor.newInstance();
+		} else {
+			threadObject = threadConstructor.newInstance(new Object[] { args });
+		}
+
+		final Thread thread = (Thread) threadObject;
+		thread.start();
+		return thread;
+	}
+
 	/**
 	 * Utility class. No implementation.
 	 */
@@ -0,0 +1,114 @@
+package de.zabuza.memeaterbug.injection;
+
+/**
+ * Result of the injection of an agent into one target of a
+ * {@link BulkInjection}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class InjectionResult {
+	/**
+	 * Description of the error if the injection failed, <tt>null</tt>
+	 * otherwise.
+	 */
+	private final String mFailure;
+	/**
+	 * Time from the start of the injection until its outcome was known, in
+	 * nanoseconds.
+	 */
+	private final long mLatency;
+	/**
+	 * Id of the target process.
+	 */
+	private final int mProcessId;
+	/**
+	 * Outcome of the injection.
+	 */
+	private final InjectionStatus mStatus;
+
+	/**
+	 * Creates a new result.
+	 * 
+	 * @param processId
+	 *            Id of the target process
+	 * @param status
+	 *            Outcome of the injection
+	 * @param latency
+	 *            Time from the start of the injection until its outcome was
+	 *            known, in nanoseconds
+	 * @param failure
+	 *            Description of the error if the injection failed,
+	 *            <tt>null</tt> otherwise
+	 */
+	InjectionResult(final int processId, final InjectionStatus status, final long latency, final String failure) {
+		this.mProcessId = processId;
+		this.mStatus = status;
+		this.mLatency = latency;
+		this.mFailure = failure;
+	}
+
+	/**
+	 * Gets the description of the error if the injection failed.
+	 * 
+	 * @return The description of the error or <tt>null</tt> if the injection
+	 *         did not fail
+	 */
+	public String getFailure() {
+		return this.mFailure;
+	}
+
+	/**
+	 * Gets the time from the start of the injection, which is when a permit
+	 * to attach was acquired, until its outcome was known.
+	 * 
+	 * @return The latency of the injection, in nanoseconds
+	 */
+	public long getLatency() {
+		return this.mLatency;
+	}
+
+	/**
+	 * Gets the id of the target process.
+	 * 
+	 * @return The id of the target process
+	 */
+	public int getProcessId() {
+		return this.mProcessId;
+	}
+
+	/**
+	 * Gets the outcome of the injection.
+	 * 
+	 * @return The outcome of the injection
+	 */
+	public InjectionStatus getStatus() {
+		return this.mStatus;
+	}
+
+	/**
+	 * Whether the agent was injected.
+	 * 
+	 * @return <tt>True</tt> if the injection succeeded, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isSuccess() {
+		return this.mStatus == InjectionStatus.SUCCEEDED;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append(this.mProcessId).append(": ").append(this.mStatus).append(" after ").append(this.mLatency)
+				.append("ns");
+		if (this.mFailure != null) {
+			builder.append(" (").append(this.mFailure).append(')');
+		}
+		return builder.toString();
+	}
+}
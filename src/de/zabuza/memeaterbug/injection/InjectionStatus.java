@@ -0,0 +1,37 @@
+package de.zabuza.memeaterbug.injection;
+
+/**
+ * Outcome of the injection of an agent into one target of a
+ * {@link BulkInjection}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public enum InjectionStatus {
+	/**
+	 * The injection was cancelled before it finished.
+	 */
+	CANCELLED,
+	/**
+	 * The injection was cancelled while the agent was being loaded. Whether
+	 * the agent got loaded is unknown.
+	 */
+	CANCELLED_LOADING,
+	/**
+	 * Attaching to the target or loading the agent failed.
+	 */
+	FAILED,
+	/**
+	 * The agent was loaded and its agentmain-method finished.
+	 */
+	SUCCEEDED,
+	/**
+	 * The injection did not finish within its timeout.
+	 */
+	TIMED_OUT,
+	/**
+	 * The agent was being loaded when the timeout expired. Whether the agent
+	 * got loaded is unknown.
+	 */
+	TIMED_OUT_LOADING;
+}
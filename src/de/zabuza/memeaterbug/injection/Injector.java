@@ -1,6 +1,10 @@
 package de.zabuza.memeaterbug.injection;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 import com.sun.jna.platform.win32.WinNT.HANDLE;
 import com.sun.tools.attach.AgentInitializationException;
@@ -8,9 +12,18 @@ import com.sun.tools.attach.AgentLoadException;
 import com.sun.tools.attach.AttachNotSupportedException;
 import com.sun.tools.attach.VirtualMachine;
 
+import de.zabuza.memeaterbug.exceptions.AgentCommandException;
+import de.zabuza.memeaterbug.exceptions.NotHookedException;
 import de.zabuza.memeaterbug.exceptions.UnableToInjectException;
+import de.zabuza.memeaterbug.injection.payload.Payload;
+import de.zabuza.memeaterbug.injection.payload.PayloadWriter;
+import de.zabuza.memeaterbug.jfr.Events;
+import de.zabuza.memeaterbug.jfr.InjectionEvent;
 import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.metrics.Metrics;
+import de.zabuza.memeaterbug.metrics.Operation;
 import de.zabuza.memeaterbug.winapi.Process;
+import de.zabuza.memeaterbug.winapi.SharedHandle;
 import de.zabuza.memeaterbug.winapi.jna.util.PsapiUtil;
 
 /**
@@ -26,24 +39,111 @@ public final class Injector {
 	 */
 	public static final String ARG_SEPARATOR = ",";
 
+	/**
+	 * Interval in which connecting to a freshly injected resident agent is
+	 * retried, in milliseconds.
+	 */
+	private static final long AGENT_CONNECT_INTERVAL = 10;
+	/**
+	 * Time a freshly injected resident agent has to accept connections, in
+	 * milliseconds.
+	 */
+	private static final long AGENT_CONNECT_TIMEOUT = 5_000;
 	/**
 	 * Name of the attach library that is used for attaching to a virtual
 	 * machine.
 	 */
 	private static final String ATTACH_LIBRARY_NAME = "attach";
+	/**
+	 * Prefix of the names of staged payload files.
+	 */
+	private static final String PAYLOAD_FILE_PREFIX = "memeaterbug-payload-";
+	/**
+	 * Suffix of the names of staged payload files.
+	 */
+	private static final String PAYLOAD_FILE_SUFFIX = ".bin";
+
+	/**
+	 * Whether the native attach library was already loaded. Guarded by the
+	 * class object of the injector.
+	 */
+	private static boolean sAttachLibraryLoaded = false;
+
+	/**
+	 * Joins the arguments passed to an agent, separated by
+	 * {@link #ARG_SEPARATOR}.
+	 * 
+	 * @param threadClassName
+	 *            The full class name of the thread object to start, or
+	 *            <tt>null</tt> if the agent does not start a thread
+	 * @param processId
+	 *            Id of the process the agent is injected into
+	 * @param additionalArgs
+	 *            Additional arguments, may be <tt>null</tt>
+	 * @return The joined arguments
+	 */
+	static String joinArguments(final String threadClassName, final int processId,
+			final String[] additionalArgs) {
+		final StringBuilder argsToPass = new StringBuilder();
+		if (threadClassName != null && threadClassName.length() > 0) {
+			argsToPass.append(threadClassName).append(ARG_SEPARATOR);
+		}
+		argsToPass.append(processId);
+		if (additionalArgs != null && additionalArgs.length > 0) {
+			for (final String addtionalArg : additionalArgs) {
+				argsToPass.append(ARG_SEPARATOR).append(addtionalArg);
+			}
+		}
+		return argsToPass.toString();
+	}
+
+	/**
+	 * Loads the native attach library into the built path, unless it was
+	 * already loaded. It is used for attaching to a virtual machine.
+	 */
+	static synchronized void loadAttachLibrary() {
+		if (sAttachLibraryLoaded) {
+			return;
+		}
+		try {
+			System.loadLibrary(ATTACH_LIBRARY_NAME);
+		} catch (final UnsatisfiedLinkError e) {
+			// The attach provider of the jdk.attach module loads its library
+			// itself, thus it is only needed in the library path for older
+			// runtimes
+		}
+		sAttachLibraryLoaded = true;
+	}
 
 	/**
-	 * Loads the native attach library into the built path. It is used for
-	 * attaching to a virtual machine.
+	 * Takes the failure a resident agent reported since it could not start
+	 * listening. The failure file gets removed.
+	 * 
+	 * @param failurePath
+	 *            Path of the failure file of the agent
+	 * @return The description of the failure or <tt>null</tt> if the agent
+	 *         did not report one
 	 */
-	private static void loadAttachLibrary() {
-		System.loadLibrary(ATTACH_LIBRARY_NAME);
+	private static String takeAgentFailure(final Path failurePath) {
+		try {
+			final String failure = new String(Files.readAllBytes(failurePath), StandardCharsets.UTF_8);
+			Files.deleteIfExists(failurePath);
+			return failure;
+		} catch (final IOException e) {
+			// The agent did not report a failure (yet)
+			return null;
+		}
 	}
 
 	/**
 	 * The process this object belongs to.
 	 */
 	private final Process mProcess;
+	/**
+	 * Shared handle that is held while injecting, if given, <tt>null</tt>
+	 * else.
+	 */
+	private final SharedHandle mSharedHandle;
 
 	/**
 	 * Creates a new object that is able to inject code into the given process.
@@ -52,7 +152,7 @@ public final class Injector {
 	 *            Id of the process to inject into
 	 */
 	public Injector(final int processId) {
-		this(processId, null);
+		this(processId, (HANDLE) null);
 	}
 
 	/**
@@ -71,6 +171,27 @@ public final class Injector {
 		if (processHandle != null) {
 			this.mProcess.setHandle(processHandle);
 		}
+		this.mSharedHandle = null;
+		loadAttachLibrary();
+	}
+
+	/**
+	 * Creates a new object that is able to inject code into the given
+	 * process, using a shared handle. The handle is held while attaching to
+	 * the process, such that it is not closed under an injection that is in
+	 * flight.
+	 * 
+	 * @param processId
+	 *            Id of the process to inject into
+	 * @param sharedHandle
+	 *            Shared handle that must correspond to the same process that
+	 *            is specified by processId. It is acquired for every injection
+	 *            and not closed by this object.
+	 */
+	public Injector(final int processId, final SharedHandle sharedHandle) {
+		this.mProcess = PsapiUtil.getProcessById(processId);
+		this.mProcess.setHandle(sharedHandle.getHandle());
+		this.mSharedHandle = sharedHandle;
 		loadAttachLibrary();
 	}
 
@@ -128,27 +249,33 @@ public final class Injector {
 	 * @throws UnableToInjectException
 	 *             If the operation was unable to inject the agent jar-file into
 	 *             the target jar-file
+	 * @throws NotHookedException
+	 *             If the shared handle of the injector was closed
 	 */
 	public void injectJarIntoJar(final String pathToAgentJar, final String threadClassName,
-			final String[] additionalArgs) throws UnableToInjectException {
+			final String[] additionalArgs) throws UnableToInjectException, NotHookedException {
+		acquireHandle();
+		InjectionEvent event = null;
+		if (Events.isEnabled()) {
+			event = new InjectionEvent();
+			event.begin();
+		}
+		final long start = Metrics.start();
+		boolean success = false;
 		try {
-			final StringBuilder argsToPass = new StringBuilder();
-			if (threadClassName != null && threadClassName.length() > 0) {
-				argsToPass.append(threadClassName).append(ARG_SEPARATOR);
-			}
-			final String processIdAsString = String.valueOf(this.mProcess.getPid());
-			argsToPass.append(processIdAsString);
-			if (additionalArgs != null && additionalArgs.length > 0) {
-				for (final String addtionalArg : additionalArgs) {
-					argsToPass.append(ARG_SEPARATOR).append(addtionalArg);
-				}
-			}
-
-			final VirtualMachine vm = VirtualMachine.attach(processIdAsString);
-			vm.loadAgent(pathToAgentJar, argsToPass.toString());
+			final String argsToPass = joinArguments(threadClassName, this.mProcess.getPid(), additionalArgs);
+			final VirtualMachine vm = VirtualMachine.attach(String.valueOf(this.mProcess.getPid()));
+			vm.loadAgent(pathToAgentJar, argsToPass);
 			vm.detach();
+			success = true;
 		} catch (AttachNotSupportedException | AgentLoadException | AgentInitializationException | IOException e) {
 			throw new UnableToInjectException(ErrorMessages.UNABLE_TO_INJECT_JAR_INTO_JAR);
+		} finally {
+			Metrics.record(Operation.INJECTION, start, 0, success);
+			if (event != null) {
+				event.finish(this.mProcess.getPid(), pathToAgentJar, success);
+			}
+			releaseHandle();
 		}
 	}
 
@@ -173,6 +300,158 @@ public final class Injector {
 		injectJarIntoJar(pathToAgentJar, null, additionalArgs);
 	}
 
+	/**
+	 * Injects a given agent jar-file into the hooked process and passes a
+	 * structured payload to it. The payload is staged in a temporary file,
+	 * only its path and version are passed, as last argument after the
+	 * process id. The agent maps it read-only by
+	 * {@link Payload#open(String)}, the {@link Injection} agent passes the
+	 * argument on to the started thread, which finds it by
+	 * {@link Payload#findArgument(String[])}. Thus large tables and values
+	 * containing the {@link #ARG_SEPARATOR} can be passed.
+	 * 
+	 * @param pathToAgentJar
+	 *            Path to the agent jar-file to inject. The agent jar-file needs
+	 *            to specify an agentmain-method and must have the Agent-Class
+	 *            key accordingly.
+	 * @param threadClassName
+	 *            The full class name of the thread object that gets
+	 *            automatically started by the injection agent, assuming
+	 *            {@link Injection} gets used, or <tt>null</tt> for other
+	 *            agents
+	 * @param payload
+	 *            The payload to pass
+	 * @return The staged payload file. It may be deleted once the agent
+	 *         mapped it, else it is deleted when this virtual machine exits.
+	 * @throws UnableToInjectException
+	 *             If the payload could not be staged or the operation was
+	 *             unable to inject the agent jar-file into the target jar-file
+	 */
+	public Path injectJarWithPayload(final String pathToAgentJar, final String threadClassName,
+			final PayloadWriter payload) throws UnableToInjectException {
+		final Path payloadFile;
+		try {
+			payloadFile = Files.createTempFile(PAYLOAD_FILE_PREFIX, PAYLOAD_FILE_SUFFIX);
+			payloadFile.toFile().deleteOnExit();
+			payload.write(payloadFile);
+		} catch (final IOException e) {
+			throw new UnableToInjectException(ErrorMessages.UNABLE_TO_STAGE_PAYLOAD + e.getMessage());
+		}
+		injectJarIntoJar(pathToAgentJar, threadClassName,
+				new String[] { Payload.toArgument(payloadFile, payload.getVersion()) });
+		return payloadFile;
+	}
+
+	/**
+	 * Injects the {@link ResidentAgent} into the hooked process, if it is not
+	 * running yet, and starts its profiler. The profiler records CPU samples,
+	 * allocations and contended locks on a flight recorder stream inside the
+	 * target, thus the target does not need to be started with any flags.
+	 * The aggregated events are streamed back in batches by
+	 * {@link AgentClient#pollProfile(int)}.
+	 * 
+	 * @param pathToAgentJar
+	 *            Path to the agent jar-file to inject. Its Agent-Class key must
+	 *            refer to the {@link ResidentAgent}.
+	 * @param samplingPeriod
+	 *            Time between two CPU samples of a thread
+	 * @param lockThreshold
+	 *            Minimal time a thread must be blocked on a lock for the lock
+	 *            to be recorded
+	 * @param unit
+	 *            Unit of the times
+	 * @return A new connection to the profiling agent, which should be closed
+	 *         once it is not needed anymore
+	 * @throws UnableToInjectException
+	 *             If the operation was unable to inject the agent or to start
+	 *             its profiler
+	 */
+	public AgentClient injectProfiler(final String pathToAgentJar, final long samplingPeriod,
+			final long lockThreshold, final TimeUnit unit) throws UnableToInjectException {
+		final AgentClient client = injectResidentAgent(pathToAgentJar);
+		try {
+			client.startProfiling(samplingPeriod, lockThreshold, unit);
+			return client;
+		} catch (final IOException | AgentCommandException e) {
+			try {
+				client.close();
+			} catch (final IOException e1) {
+				// Closing is best effort
+			}
+			throw new UnableToInjectException(ErrorMessages.UNABLE_TO_START_PROFILER + e.getMessage());
+		}
+	}
+
+	/**
+	 * Connects to the {@link ResidentAgent} of the hooked process. If no agent
+	 * is listening yet, the given agent jar-file gets injected first, which
+	 * starts the agent. Thus only the first call pays for attaching to the
+	 * virtual machine, all further calls and commands only use the socket of
+	 * the agent.
+	 * 
+	 * @param pathToAgentJar
+	 *            Path to the agent jar-file to inject. Its Agent-Class key must
+	 *            refer to the {@link ResidentAgent}.
+	 * @return A new connection to the agent, which should be closed once it
+	 *         is not needed anymore
+	 * @throws UnableToInjectException
+	 *             If the operation was unable to inject the agent jar-file into
+	 *             the target jar-file or to connect to the agent afterwards
+	 */
+	public AgentClient injectResidentAgent(final String pathToAgentJar) throws UnableToInjectException {
+		final Path socketPath = AgentProtocol.getDefaultSocketPath(this.mProcess.getPid());
+		try {
+			// Other users must not be able to replace the socket by their own
+			AgentProtocol.createSocketDirectory(socketPath.getParent());
+		} catch (final IOException e) {
+			throw new UnableToInjectException(ErrorMessages.UNABLE_TO_CREATE_SOCKET_DIRECTORY + e.getMessage());
+		}
+		try {
+			final AgentClient client = AgentClient.connect(socketPath);
+			try {
+				client.ping();
+			} catch (final IOException | RuntimeException e) {
+				try {
+					client.close();
+				} catch (final IOException e1) {
+					// Closing is best effort
+				}
+				throw e;
+			}
+			return client;
+		} catch (final IOException e) {
+			// No agent is listening yet, inject it
+		}
+
+		final Path failurePath = AgentProtocol.getFailurePath(socketPath);
+		try {
+			Files.deleteIfExists(failurePath);
+		} catch (final IOException e) {
+			// Removing is best effort, the agent replaces the file
+		}
+		injectJarIntoJar(pathToAgentJar, new String[] { socketPath.toString() });
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AGENT_CONNECT_TIMEOUT);
+		while (true) {
+			try {
+				return AgentClient.connect(socketPath);
+			} catch (final IOException e) {
+				final String failure = takeAgentFailure(failurePath);
+				if (failure != null) {
+					throw new UnableToInjectException(ErrorMessages.UNABLE_TO_START_AGENT + failure);
+				}
+				if (System.nanoTime() - deadline >= 0) {
+					throw new UnableToInjectException(ErrorMessages.UNABLE_TO_CONNECT_TO_AGENT + socketPath);
+				}
+			}
+			try {
+				TimeUnit.MILLISECONDS.sleep(AGENT_CONNECT_INTERVAL);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new UnableToInjectException(ErrorMessages.UNABLE_TO_CONNECT_TO_AGENT + socketPath);
+			}
+		}
+	}
+
 	/**
 	 * Injects a given agent library into the hooked process. The hooked process
 	 * needs to be a jar-file.
@@ -184,15 +463,56 @@ public final class Injector {
 	 * @throws UnableToInjectException
 	 *             If the operation was unable to inject the agent library into
 	 *             the target jar-file
+	 * @throws NotHookedException
+	 *             If the shared handle of the injector was closed
 	 */
-	public void injectLibraryIntoJar(final String pathToAgentLibrary) throws UnableToInjectException {
+	public void injectLibraryIntoJar(final String pathToAgentLibrary)
+			throws UnableToInjectException, NotHookedException {
+		acquireHandle();
+		InjectionEvent event = null;
+		if (Events.isEnabled()) {
+			event = new InjectionEvent();
+			event.begin();
+		}
+		final long start = Metrics.start();
+		boolean success = false;
 		try {
 			final String processIdAsString = String.valueOf(this.mProcess.getPid());
 			final VirtualMachine vm = VirtualMachine.attach(processIdAsString);
 			vm.loadAgentLibrary(pathToAgentLibrary);
 			vm.detach();
+			success = true;
 		} catch (AttachNotSupportedException | AgentLoadException | AgentInitializationException | IOException e) {
 			throw new UnableToInjectException(ErrorMessages.UNABLE_TO_INJECT_LIBRARY_INTO_JAR);
+		} finally {
+			Metrics.record(Operation.INJECTION, start, 0, success);
+			if (event != null) {
+				event.finish(this.mProcess.getPid(), pathToAgentLibrary, success);
+			}
+			releaseHandle();
+		}
+	}
+
+	/**
+	 * Acquires the shared handle for an injection, if the injector uses one.
+	 * It must be released by {@link #releaseHandle()} afterwards.
+	 * 
+	 * @throws NotHookedException
+	 *             If the shared handle was closed
+	 */
+	private void acquireHandle() throws NotHookedException {
+		if (this.mSharedHandle != null && !this.mSharedHandle.acquire()) {
+			throw new NotHookedException(ErrorMessages.UNABLE_SINCE_NOT_HOOKED);
+		}
+	}
+
+	/**
+	 * Releases the shared handle after an injection that was started by
+	 * {@link #acquireHandle()}.
+	 */
+	private void releaseHandle() {
+		if (this.mSharedHandle != null) {
+			this.mSharedHandle.release();
 		}
 	}
 }
@@ -0,0 +1,82 @@
+package de.zabuza.memeaterbug.injection;
+
+import de.zabuza.memeaterbug.injection.layout.ClassLayout;
+
+/**
+ * Object of a target process that was pinned by a {@link ResidentAgent}, as
+ * returned by {@link AgentClient#pinObjects(java.nio.file.Path, String...)}.
+ * It holds the address of the object at the time it was pinned and the
+ * layout of its class, such that its fields can be read directly from the
+ * memory of the target.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class PinnedObject {
+	/**
+	 * Address of the object at the time it was pinned.
+	 */
+	private final long mAddress;
+	/**
+	 * Layout of the class of the object.
+	 */
+	private final ClassLayout mLayout;
+	/**
+	 * Path of the field that holds the object.
+	 */
+	private final String mPath;
+
+	/**
+	 * Creates a new pinned object.
+	 * 
+	 * @param path
+	 *            Path of the field that holds the object
+	 * @param address
+	 *            Address of the object at the time it was pinned
+	 * @param layout
+	 *            Layout of the class of the object
+	 */
+	PinnedObject(final String path, final long address, final ClassLayout layout) {
+		this.mPath = path;
+		this.mAddress = address;
+		this.mLayout = layout;
+	}
+
+	/**
+	 * Gets the address of the object at the time it was pinned. The garbage
+	 * collector may have moved the object since.
+	 * 
+	 * @return The address of the object at the time it was pinned
+	 */
+	public long getAddress() {
+		return this.mAddress;
+	}
+
+	/**
+	 * Gets the layout of the class of the object.
+	 * 
+	 * @return The layout of the class of the object
+	 */
+	public ClassLayout getLayout() {
+		return this.mLayout;
+	}
+
+	/**
+	 * Gets the path of the field that holds the object.
+	 * 
+	 * @return The path of the field, like <tt>Game.player</tt>
+	 */
+	public String getPath() {
+		return this.mPath;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.mPath + "@0x" + Long.toHexString(this.mAddress) + " : " + this.mLayout.getClassName();
+	}
+}
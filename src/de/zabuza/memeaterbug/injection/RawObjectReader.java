@@ -0,0 +1,551 @@
+package de.zabuza.memeaterbug.injection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import de.zabuza.memeaterbug.exceptions.AgentCommandException;
+import de.zabuza.memeaterbug.injection.layout.ClassLayout;
+import de.zabuza.memeaterbug.injection.ring.SampleHandler;
+import de.zabuza.memeaterbug.injection.ring.SampleReader;
+import de.zabuza.memeaterbug.injection.ring.SampleRing;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.ReadBatch;
+
+/**
+ * Reader of fields of Java objects directly from the memory of a target
+ * process. A {@link ResidentAgent} pins the objects and exports their
+ * addresses and the layouts of their classes once, afterwards every
+ * {@link #read()} is a single {@link ReadBatch} execution and runs no code in
+ * the target at all. Thus reads neither perturb the target like reflection
+ * inside it, nor need knowledge of the object layout like plain raw reads.<br/>
+ * <br/>
+ * The garbage collector may move the objects at any time. The agent reports
+ * every collection to a {@link SampleRing} and every read also fetches the
+ * class word of each object and compares it with its layout. If a collection
+ * was reported or a class word does not match, the addresses are requested
+ * again and the read is repeated, at most {@link #MAX_READ_ATTEMPTS}
+ * times.<br/>
+ * <br/>
+ * The virtual machine offers no way to learn about a collection
+ * synchronously, its notifications are delivered by a service thread
+ * shortly after the collection finished. Hence there is a small window in
+ * which a read returns stale values: if the objects were moved during the
+ * read, the notification arrives only after the read finished and the old
+ * addresses still hold objects of the same classes, for example since the
+ * collector did not reuse the memory yet. The next read then notices the
+ * collection and requests the new addresses. Callers that must not act on
+ * stale values can {@link #refresh()} and read again.<br/>
+ * <br/>
+ * The reader owns the ring file, it gets deleted once the reader is closed.
+ * The class is not thread-safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class RawObjectReader implements Closeable {
+	/**
+	 * Maximal amount of attempts of a read, each after the addresses were
+	 * requested again.
+	 */
+	public static final int MAX_READ_ATTEMPTS = 3;
+	/**
+	 * Capacity of the ring that receives the garbage collections.
+	 */
+	public static final int RING_CAPACITY = 64;
+	/**
+	 * Initial capacity of the field arrays.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+	/**
+	 * Whether the native byte order of the platform is little endian.
+	 */
+	private static final boolean IS_LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+	/**
+	 * Current addresses of the objects, by their index.
+	 */
+	private long[] mAddresses;
+	/**
+	 * Batch that reads the class words and the fields.
+	 */
+	private final ReadBatch mBatch;
+	/**
+	 * Client of the agent that pinned the objects.
+	 */
+	private final AgentClient mClient;
+	/**
+	 * Whether the reader was closed.
+	 */
+	private boolean mClosed;
+	/**
+	 * Handler that ignores the reported collections, only their amount is of
+	 * interest.
+	 */
+	private final SampleHandler mCollectionHandler;
+	/**
+	 * Reader of the ring that receives the garbage collections.
+	 */
+	private final SampleReader mCollectionReader;
+	/**
+	 * Amount of dropped samples of the ring at the last poll.
+	 */
+	private long mDroppedAmount;
+	/**
+	 * Amount of added fields.
+	 */
+	private int mFieldAmount;
+	/**
+	 * Entries of the fields in the batch, by their index.
+	 */
+	private int[] mFieldEntries;
+	/**
+	 * Indices of the fields in the layouts of their objects, by their index.
+	 */
+	private int[] mFieldIndices;
+	/**
+	 * Indices of the objects holding the fields, by their index.
+	 */
+	private int[] mFieldObjects;
+	/**
+	 * Entries of the class words in the batch, by the index of their object.
+	 */
+	private final int[] mKlassEntries;
+	/**
+	 * Manipulator of the target process.
+	 */
+	private final MemAccess mMemManipulator;
+	/**
+	 * Whether the batch needs to be rebuilt before the next read.
+	 */
+	private boolean mNeedsBatch;
+	/**
+	 * The pinned objects.
+	 */
+	private final List<PinnedObject> mObjects;
+	/**
+	 * Amount of times the addresses were requested again.
+	 */
+	private int mRefreshAmount;
+	/**
+	 * Ring that receives the garbage collections.
+	 */
+	private final SampleRing mRing;
+
+	/**
+	 * Creates a new reader that pins the given objects in the target process.
+	 * 
+	 * @param client
+	 *            Client of the agent in the target process
+	 * @param memManipulator
+	 *            Manipulator of the target process, used for the reads
+	 * @param ringPath
+	 *            Path of the file that holds the ring receiving the garbage
+	 *            collections. An existing file at the path gets replaced and
+	 *            the file gets deleted once the reader is closed or could not
+	 *            be created.
+	 * @param objectPaths
+	 *            Paths of the fields that hold the objects to read, each
+	 *            starting at a static field, like <tt>Game.player</tt>
+	 * @throws IOException
+	 *             If the ring could not be created or the connection failed
+	 * @throws AgentCommandException
+	 *             If the objects could not be pinned
+	 */
+	public RawObjectReader(final AgentClient client, final MemAccess memManipulator, final Path ringPath,
+			final String... objectPaths) throws IOException, AgentCommandException {
+		this.mClient = client;
+		this.mMemManipulator = memManipulator;
+		this.mRing = SampleRing.create(ringPath, RING_CAPACITY);
+		this.mCollectionReader = this.mRing.newReader();
+		this.mCollectionHandler = new SampleHandler() {
+			@Override
+			public void onSample(final int id, final long timestamp, final long value) {
+				// Only the amount of collections is of interest
+			}
+		};
+		try {
+			this.mObjects = client.pinObjects(ringPath, objectPaths);
+		} catch (final IOException | RuntimeException e) {
+			try {
+				deleteRing();
+			} catch (final IOException deleteException) {
+				e.addSuppressed(deleteException);
+			}
+			throw e;
+		}
+		this.mAddresses = new long[this.mObjects.size()];
+		for (int i = 0; i < this.mAddresses.length; i++) {
+			this.mAddresses[i] = this.mObjects.get(i).getAddress();
+		}
+		this.mDroppedAmount = this.mRing.getDroppedAmount();
+
+		this.mBatch = new ReadBatch();
+		this.mKlassEntries = new int[this.mAddresses.length];
+		this.mFieldEntries = new int[INITIAL_CAPACITY];
+		this.mFieldIndices = new int[INITIAL_CAPACITY];
+		this.mFieldObjects = new int[INITIAL_CAPACITY];
+		this.mFieldAmount = 0;
+		this.mNeedsBatch = true;
+		this.mRefreshAmount = 0;
+		this.mClosed = false;
+	}
+
+	/**
+	 * Adds a field of an object to the fields that get read.
+	 * 
+	 * @param object
+	 *            Index of the object, in the order of the paths it was pinned
+	 *            by
+	 * @param fieldName
+	 *            The name of an instance field of the object, also fields of
+	 *            super classes are allowed
+	 * @return The index of the field, used to access its value after a read
+	 * @throws IllegalArgumentException
+	 *             If the object has no instance field of the given name
+	 */
+	public int addField(final int object, final String fieldName) throws IllegalArgumentException {
+		final ClassLayout layout = this.mObjects.get(object).getLayout();
+		final int fieldIndex = layout.indexOf(fieldName);
+		if (fieldIndex == -1) {
+			throw new IllegalArgumentException(
+					ErrorMessages.FIELD_NOT_IN_LAYOUT + layout.getClassName() + "." + fieldName);
+		}
+		if (this.mFieldAmount == this.mFieldIndices.length) {
+			final int capacity = this.mFieldIndices.length * 2;
+			this.mFieldEntries = Arrays.copyOf(this.mFieldEntries, capacity);
+			this.mFieldIndices = Arrays.copyOf(this.mFieldIndices, capacity);
+			this.mFieldObjects = Arrays.copyOf(this.mFieldObjects, capacity);
+		}
+		final int field = this.mFieldAmount;
+		this.mFieldIndices[field] = fieldIndex;
+		this.mFieldObjects[field] = object;
+		this.mFieldAmount++;
+		this.mNeedsBatch = true;
+		return field;
+	}
+
+	/**
+	 * Releases the objects in the target process, closes the ring and deletes
+	 * its file. The ring is also deleted if the objects could not be
+	 * released. Has no effect if the reader is already closed.
+	 * 
+	 * @throws IOException
+	 *             If the connection failed, the agent could not release the
+	 *             objects or the ring file could not be deleted
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.mClosed) {
+			return;
+		}
+		this.mClosed = true;
+		try {
+			this.mClient.unpinObjects(this.mRing.getFile());
+		} catch (final IOException | AgentCommandException e) {
+			try {
+				deleteRing();
+			} catch (final IOException deleteException) {
+				e.addSuppressed(deleteException);
+			}
+			if (e instanceof IOException) {
+				throw (IOException) e;
+			}
+			throw new IOException(e);
+		}
+		deleteRing();
+	}
+
+	/**
+	 * Gets the current address of the given object, as known by the reader.
+	 * 
+	 * @param object
+	 *            Index of the object
+	 * @return The current address of the object
+	 */
+	public long getAddress(final int object) {
+		return this.mAddresses[object];
+	}
+
+	/**
+	 * Interprets the value of the given field of the last read as
+	 * <tt>boolean</tt>.
+	 * 
+	 * @param field
+	 *            Index of the field
+	 * @return The value of the field
+	 */
+	public boolean getBoolean(final int field) {
+		return getValue(this.mFieldEntries[field]) != 0;
+	}
+
+	/**
+	 * Interprets the value of the given field of the last read as
+	 * <tt>byte</tt>.
+	 * 
+	 * @param field
+	 *            Index of the field
+	 * @return The value of the field
+	 */
+	public byte getByte(final int field) {
+		return (byte) getValue(this.mFieldEntries[field]);
+	}
+
+	/**
+	 * Interprets the value of the given field of the last read as
+	 * <tt>char</tt>.
+	 * 
+	 * @param field
+	 *            Index of the field
+	 * @return The value of the field
+	 */
+	public char getChar(final int field) {
+		return (char) getValue(this.mFieldEntries[field]);
+	}
+
+	/**
+	 * Interprets the value of the given field of the last read as
+	 * <tt>double</tt>.
+	 * 
+	 * @param field
+	 *            Index of the field
+	 * @return The value of the field
+	 */
+	public double getDouble(final int field) {
+		return Double.longBitsToDouble(getValue(this.mFieldEntries[field]));
+	}
+
+	/**
+	 * Interprets the value of the given field of the last read as
+	 * <tt>float</tt>.
+	 * 
+	 * @param field
+	 *            Index of the field
+	 * @return The value of the field
+	 */
+	public float getFloat(final int field) {
+		return Float.intBitsToFloat((int) getValue(this.mFieldEntries[field]));
+	}
+
+	/**
+	 * Interprets the value of the given field of the last read as
+	 * <tt>int</tt>.
+	 * 
+	 * @param field
+	 *            Index of the field
+	 * @return The value of the field
+	 */
+	public int getInt(final int field) {
+		return (int) getValue(this.mFieldEntries[field]);
+	}
+
+	/**
+	 * Gets the layout of the class of the given object.
+	 * 
+	 * @param object
+	 *            Index of the object
+	 * @return The layout of the class of the object
+	 */
+	public ClassLayout getLayout(final int object) {
+		return this.mObjects.get(object).getLayout();
+	}
+
+	/**
+	 * Interprets the value of the given field of the last read as
+	 * <tt>long</tt>. For reference fields it is the reference as stored by
+	 * the target, which is compressed if the
+	 * {@link ClassLayout#getReferenceSize() size of references} is four
+	 * bytes.
+	 * 
+	 * @param field
+	 *            Index of the field
+	 * @return The value of the field, zero extended if the field is smaller
+	 *         than a long
+	 */
+	public long getLong(final int field) {
+		return getValue(this.mFieldEntries[field]);
+	}
+
+	/**
+	 * Gets the amount of pinned objects.
+	 * 
+	 * @return The amount of pinned objects
+	 */
+	public int getObjectAmount() {
+		return this.mObjects.size();
+	}
+
+	/**
+	 * Gets the amount of times the addresses were requested again from the
+	 * agent, since the garbage collector may have moved the objects.
+	 * 
+	 * @return The amount of times the addresses were requested again
+	 */
+	public int getRefreshAmount() {
+		return this.mRefreshAmount;
+	}
+
+	/**
+	 * Interprets the value of the given field of the last read as
+	 * <tt>short</tt>.
+	 * 
+	 * @param field
+	 *            Index of the field
+	 * @return The value of the field
+	 */
+	public short getShort(final int field) {
+		return (short) getValue(this.mFieldEntries[field]);
+	}
+
+	/**
+	 * Reads all added fields from the memory of the target. If the objects
+	 * may have been moved by the garbage collector meanwhile, their addresses
+	 * are requested again from the agent and the read is repeated. Otherwise
+	 * no code runs in the target.
+	 * 
+	 * @return <tt>True</tt> if all fields were read from the current
+	 *         addresses of their objects, as far as known by the reader,
+	 *         <tt>false</tt> if the read still failed after
+	 *         {@link #MAX_READ_ATTEMPTS} attempts
+	 * @throws IOException
+	 *             If the connection to the agent failed
+	 * @throws AgentCommandException
+	 *             If the agent could not compute the addresses
+	 * @throws IllegalStateException
+	 *             If the reader is closed
+	 */
+	public boolean read() throws IOException, AgentCommandException, IllegalStateException {
+		for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+			if (pollCollections()) {
+				refresh();
+			}
+			if (this.mNeedsBatch) {
+				buildBatch();
+			}
+			final int failures = this.mBatch.execute(this.mMemManipulator);
+			// A collection during the read may have moved objects, even if
+			// their class words still match. Collections whose notification
+			// is not delivered yet remain unnoticed until the next read.
+			if (!pollCollections() && failures == 0 && areKlassWordsValid()) {
+				return true;
+			}
+			refresh();
+		}
+		return false;
+	}
+
+	/**
+	 * Requests the current addresses of the objects from the agent. Reported
+	 * collections are discarded before, since the new addresses are valid
+	 * after them.
+	 * 
+	 * @throws IOException
+	 *             If the connection to the agent failed
+	 * @throws AgentCommandException
+	 *             If the agent could not compute the addresses
+	 * @throws IllegalStateException
+	 *             If the reader is closed
+	 */
+	public void refresh() throws IOException, AgentCommandException, IllegalStateException {
+		pollCollections();
+		this.mAddresses = this.mClient.locateObjects(this.mRing.getFile());
+		this.mRefreshAmount++;
+		this.mNeedsBatch = true;
+	}
+
+	/**
+	 * Whether the class words of the last read match the layouts of the
+	 * objects.
+	 * 
+	 * @return <tt>True</tt> if all class words match, <tt>false</tt> otherwise
+	 */
+	private boolean areKlassWordsValid() {
+		for (int i = 0; i < this.mKlassEntries.length; i++) {
+			if (getValue(this.mKlassEntries[i]) != this.mObjects.get(i).getLayout().getKlassWord()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Rebuilds the batch from the current addresses of the objects.
+	 */
+	private void buildBatch() {
+		this.mBatch.clear();
+		for (int i = 0; i < this.mKlassEntries.length; i++) {
+			final ClassLayout layout = this.mObjects.get(i).getLayout();
+			this.mKlassEntries[i] = this.mBatch.add(this.mAddresses[i] + layout.getKlassOffset(),
+					layout.getKlassSize());
+		}
+		for (int i = 0; i < this.mFieldAmount; i++) {
+			final int object = this.mFieldObjects[i];
+			final ClassLayout layout = this.mObjects.get(object).getLayout();
+			final int fieldIndex = this.mFieldIndices[i];
+			this.mFieldEntries[i] = this.mBatch.add(this.mAddresses[object] + layout.getFieldOffset(fieldIndex),
+					layout.getFieldSize(fieldIndex));
+		}
+		this.mNeedsBatch = false;
+	}
+
+	/**
+	 * Closes the ring and deletes its file.
+	 * 
+	 * @throws IOException
+	 *             If the file could not be deleted
+	 */
+	private void deleteRing() throws IOException {
+		this.mRing.close();
+		Files.deleteIfExists(this.mRing.getFile());
+	}
+
+	/**
+	 * Interprets the result of the given entry of the last read as unsigned
+	 * value in the native byte order.
+	 * 
+	 * @param entry
+	 *            Index of the entry in the batch, must not be bigger than a
+	 *            long
+	 * @return The value of the entry, zero extended
+	 */
+	private long getValue(final int entry) {
+		final byte[] buffer = this.mBatch.getBuffer();
+		final int offset = this.mBatch.getOffset(entry);
+		final int size = this.mBatch.getSize(entry);
+		long value = 0;
+		for (int i = 0; i < size; i++) {
+			final int shift;
+			if (IS_LITTLE_ENDIAN) {
+				shift = 8 * i;
+			} else {
+				shift = 8 * (size - 1 - i);
+			}
+			value |= (buffer[offset + i] & 0xFFL) << shift;
+		}
+		return value;
+	}
+
+	/**
+	 * Takes the collections the agent reported since the last poll.
+	 * 
+	 * @return <tt>True</tt> if a collection was reported or dropped since the
+	 *         last poll, <tt>false</tt> otherwise
+	 * @throws IllegalStateException
+	 *             If the reader is closed, the ring is not mapped anymore
+	 */
+	private boolean pollCollections() throws IllegalStateException {
+		if (this.mClosed) {
+			throw new IllegalStateException(ErrorMessages.READER_CLOSED);
+		}
+		final int amount = this.mCollectionReader.poll(this.mCollectionHandler);
+		final long droppedAmount = this.mRing.getDroppedAmount();
+		final boolean collected = amount > 0 || droppedAmount != this.mDroppedAmount;
+		this.mDroppedAmount = droppedAmount;
+		return collected;
+	}
+}
@@ -0,0 +1,1091 @@
+package de.zabuza.memeaterbug.injection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.zabuza.memeaterbug.injection.access.AccessorRegistry;
+import de.zabuza.memeaterbug.injection.access.FieldAccessor;
+import de.zabuza.memeaterbug.injection.heap.HeapWalkResult;
+import de.zabuza.memeaterbug.injection.heap.HeapWalker;
+import de.zabuza.memeaterbug.injection.hook.FieldHook;
+import de.zabuza.memeaterbug.injection.hook.FieldHooks;
+import de.zabuza.memeaterbug.injection.hook.SampleRingListener;
+import de.zabuza.memeaterbug.injection.layout.ObjectLocator;
+import de.zabuza.memeaterbug.injection.layout.PinnedObjects;
+import de.zabuza.memeaterbug.injection.profile.StreamingProfiler;
+import de.zabuza.memeaterbug.injection.ring.FieldSampler;
+import de.zabuza.memeaterbug.injection.ring.SampleRing;
+
+/**
+ * Injection agent that stays resident in the JVM of a target application
+ * after it got loaded once. It listens on a Unix domain socket for commands
+ * of an {@link AgentClient}, spoken in the {@link AgentProtocol}. Thus, after
+ * the first injection, tasks like starting threads, reading fields or
+ * invoking methods only cost a round trip over the socket instead of an
+ * attach to the virtual machine.<br/>
+ * <br/>
+ * Loading the agent again while it is running has no effect. Further
+ * commands can be added by {@link #registerHandler(byte, CommandHandler)}.
+ * Failures that occur outside of commands are reported to the host instead
+ * of the output of the target. If the agent can not start or stops listening
+ * unexpectedly, it writes the failure to the
+ * {@link AgentProtocol#getFailurePath(Path) failure file}, other failures
+ * are kept for {@link AgentProtocol#COMMAND_TAKE_FAILURES}.
+ * Every connection is served by its own daemon thread.<br/>
+ * <br/>
+ * Remark: This class only depends on the {@link AgentProtocol}, the
+ * {@link CommandHandler}, the {@link Injection} agent and the
+ * {@link de.zabuza.memeaterbug.injection.access access},
+ * {@link de.zabuza.memeaterbug.injection.heap heap},
+ * {@link de.zabuza.memeaterbug.injection.hook hook},
+ * {@link de.zabuza.memeaterbug.injection.layout layout},
+ * {@link de.zabuza.memeaterbug.injection.profile profile} and
+ * {@link de.zabuza.memeaterbug.injection.ring ring} packages, to easily
+ * create an independent agent jar.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ResidentAgent {
+	/**
+	 * Amount of different commands.
+	 */
+	private static final int COMMAND_AMOUNT = 256;
+	/**
+	 * Thrown when a frame has an invalid length.
+	 */
+	private static final String ERROR_FRAME_LENGTH = "Received a frame with an invalid length: ";
+	/**
+	 * Thrown when fields should be hooked without an instrumentation object.
+	 */
+	private static final String ERROR_NO_INSTRUMENTATION = "Hooking fields requires the agent to be loaded by the "
+			+ "virtual machine";
+	/**
+	 * Thrown when no hooks write to a ring.
+	 */
+	private static final String ERROR_NOT_HOOKED = "No fields are hooked into the ring: ";
+	/**
+	 * Thrown when a field does not hold an object.
+	 */
+	private static final String ERROR_NOT_OBJECT = "The field must hold an object: ";
+	/**
+	 * Thrown when no objects are pinned with a ring.
+	 */
+	private static final String ERROR_NOT_PINNED = "No objects are pinned with the ring: ";
+	/**
+	 * Thrown when no profiler is running.
+	 */
+	private static final String ERROR_NOT_PROFILING = "No profiler is running";
+	/**
+	 * Thrown when a field or method is not static.
+	 */
+	private static final String ERROR_NOT_STATIC = "The member must be static: ";
+	/**
+	 * Thrown when no sampling writes to a ring.
+	 */
+	private static final String ERROR_NOT_SAMPLING = "No fields are sampled into the ring: ";
+	/**
+	 * Thrown when a command has no registered handler.
+	 */
+	private static final String ERROR_UNKNOWN_COMMAND = "Unknown command: ";
+	/**
+	 * Maximal amount of failures that are kept until the host takes them.
+	 */
+	private static final int MAX_FAILURES = 64;
+	/**
+	 * The running agent or <tt>null</tt> if there is none. Guarded by the class
+	 * object of the agent.
+	 */
+	private static ResidentAgent sAgent = null;
+
+	/**
+	 * JVM hook to dynamically load this agent at runtime. It starts the agent,
+	 * unless it is already running.
+	 * 
+	 * @param args
+	 *            Passed arguments, separated by {@link Injection#ARG_SEPARATOR}.
+	 *            The first argument is assumed to be the process id of the
+	 *            injected virtual machine. The optional second argument is the
+	 *            path of the socket to listen on, else the
+	 *            {@link AgentProtocol#getDefaultSocketPath(long) default path}
+	 *            is used.
+	 * @param inst
+	 *            Object used for ByteCode manipulation, it is offered to
+	 *            command handlers by {@link #getInstrumentation()}
+	 */
+	public static void agentmain(final String args, final Instrumentation inst) {
+		final String[] argsArray = args == null ? new String[0] : Injection.splitArguments(args);
+		final Path socketPath;
+		if (argsArray.length >= 2 && argsArray[1].length() > 0) {
+			socketPath = Paths.get(argsArray[1]);
+		} else {
+			socketPath = AgentProtocol.getDefaultSocketPath(ProcessHandle.current().pid());
+		}
+		try {
+			AgentProtocol.createSocketDirectory(socketPath.toAbsolutePath().getParent());
+			start(socketPath, inst);
+		} catch (final Exception e) {
+			// Exceptions would otherwise be ignored in an agentmain method, the
+			// host reads the failure once it can not connect
+			writeFailure(socketPath, e);
+		}
+	}
+
+	/**
+	 * Gets the running agent.
+	 * 
+	 * @return The running agent or <tt>null</tt> if there is none
+	 */
+	public static synchronized ResidentAgent getAgent() {
+		return sAgent;
+	}
+
+	/**
+	 * Starts the agent on the given socket, unless it is already running.
+	 * 
+	 * @param socketPath
+	 *            Path of the socket to listen on. An existing file at the path
+	 *            gets replaced.
+	 * @param inst
+	 *            Object used for ByteCode manipulation, may be <tt>null</tt>
+	 *            if no handler needs it
+	 * @return The running agent
+	 * @throws IOException
+	 *             If the socket could not be bound
+	 */
+	public static synchronized ResidentAgent start(final Path socketPath, final Instrumentation inst)
+			throws IOException {
+		if (sAgent == null) {
+			sAgent = new ResidentAgent(socketPath, inst);
+		}
+		return sAgent;
+	}
+
+	/**
+	 * Invokes a static method with string parameters, as requested by
+	 * {@link AgentProtocol#COMMAND_INVOKE_METHOD}.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws Exception
+	 *             If the method could not be found or invoked
+	 */
+	private static void invokeMethod(final DataInputStream request, final DataOutputStream response)
+			throws Exception {
+		final Class<?> targetClass = Class.forName(request.readUTF());
+		final String methodName = request.readUTF();
+		final String[] arguments = readArguments(request);
+		final Class<?>[] parameterTypes = new Class<?>[arguments.length];
+		Arrays.fill(parameterTypes, String.class);
+
+		final Method method = targetClass.getDeclaredMethod(methodName, parameterTypes);
+		if (!Modifier.isStatic(method.getModifiers())) {
+			throw new IllegalArgumentException(ERROR_NOT_STATIC + method);
+		}
+		method.setAccessible(true);
+		final Object result;
+		try {
+			result = method.invoke(null, (Object[]) arguments);
+		} catch (final InvocationTargetException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+		response.writeUTF(String.valueOf(result));
+	}
+
+	/**
+	 * Reads a list of string arguments, prefixed by their amount.
+	 * 
+	 * @param request
+	 *            Stream to read from
+	 * @return The read arguments
+	 * @throws IOException
+	 *             If the stream could not be read
+	 */
+	private static String[] readArguments(final DataInputStream request) throws IOException {
+		final int amount = request.readInt();
+		if (amount < 0) {
+			throw new IOException(ERROR_FRAME_LENGTH + amount);
+		}
+		final String[] arguments = new String[amount];
+		for (int i = 0; i < amount; i++) {
+			arguments[i] = request.readUTF();
+		}
+		return arguments;
+	}
+
+	/**
+	 * Starts a thread, as requested by
+	 * {@link AgentProtocol#COMMAND_START_THREAD}. Like the {@link Injection}
+	 * agent does, the thread receives its class name and the process id in
+	 * front of the given arguments.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @throws Exception
+	 *             If the thread could not be started
+	 */
+	private static void startThread(final DataInputStream request) throws Exception {
+		final String threadClassName = request.readUTF();
+		final String[] arguments = readArguments(request);
+		final String[] threadArguments = new String[arguments.length + 2];
+		threadArguments[0] = threadClassName;
+		threadArguments[1] = String.valueOf(ProcessHandle.current().pid());
+		System.arraycopy(arguments, 0, threadArguments, 2, arguments.length);
+		Injection.startThread(threadClassName, threadArguments);
+	}
+
+	/**
+	 * Writes the given failure to the failure file of the given socket, such
+	 * that the host can read it. Writing is best effort.
+	 * 
+	 * @param socketPath
+	 *            Path of the socket the agent should listen on
+	 * @param failure
+	 *            The failure to write
+	 */
+	private static void writeFailure(final Path socketPath, final Exception failure) {
+		try {
+			Files.write(AgentProtocol.getFailurePath(socketPath),
+					String.valueOf(failure).getBytes(StandardCharsets.UTF_8));
+		} catch (final IOException e) {
+			// Writing is best effort, the host then only runs into its timeout
+		}
+	}
+
+	/**
+	 * Registry of the accessors used to read fields.
+	 */
+	private final AccessorRegistry mAccessors;
+	/**
+	 * Channel that accepts connections.
+	 */
+	private final ServerSocketChannel mChannel;
+	/**
+	 * Connections that are currently served.
+	 */
+	private final Set<SocketChannel> mConnections;
+	/**
+	 * Failures that occurred outside of commands and were not taken by the
+	 * host yet, oldest first. Guarded by itself.
+	 */
+	private final Deque<String> mFailures;
+	/**
+	 * Handlers of the commands, accessed by the unsigned value of their
+	 * command.
+	 */
+	private final AtomicReferenceArray<CommandHandler> mHandlers;
+	/**
+	 * Walker used to discover instances in the heap.
+	 */
+	private final HeapWalker mHeapWalker;
+	/**
+	 * Hooks that are installed, by the path of the ring they write to.
+	 */
+	private final Map<Path, List<FieldHook>> mHooks;
+	/**
+	 * Listeners of the installed hooks, by the path of the ring they write
+	 * to.
+	 */
+	private final Map<Path, SampleRingListener> mHookListeners;
+	/**
+	 * Object used for ByteCode manipulation, may be <tt>null</tt>.
+	 */
+	private final Instrumentation mInstrumentation;
+	/**
+	 * Locator used to compute the addresses of pinned objects, created on
+	 * the first pin. Guarded by the agent.
+	 */
+	private ObjectLocator mLocator;
+	/**
+	 * Objects that are pinned, by the path of the ring that receives the
+	 * garbage collections.
+	 */
+	private final Map<Path, PinnedObjects> mPins;
+	/**
+	 * The running profiler, <tt>null</tt> if there is none.
+	 */
+	private final AtomicReference<StreamingProfiler> mProfiler;
+	/**
+	 * Whether the agent is running.
+	 */
+	private volatile boolean mRunning;
+	/**
+	 * Samplers that are running, by the path of the ring they write to.
+	 */
+	private final Map<Path, FieldSampler> mSamplers;
+	/**
+	 * Path of the socket the agent listens on.
+	 */
+	private final Path mSocketPath;
+
+	/**
+	 * Creates and starts a new agent that listens on the given socket.
+	 * 
+	 * @param socketPath
+	 *            Path of the socket to listen on. An existing file at the path
+	 *            gets replaced.
+	 * @param inst
+	 *            Object used for ByteCode manipulation, may be <tt>null</tt>
+	 * @throws IOException
+	 *             If the socket could not be bound
+	 */
+	private ResidentAgent(final Path socketPath, final Instrumentation inst) throws IOException {
+		this.mSocketPath = socketPath;
+		this.mInstrumentation = inst;
+		this.mAccessors = new AccessorRegistry(inst);
+		this.mConnections = ConcurrentHashMap.newKeySet();
+		this.mFailures = new ArrayDeque<>();
+		this.mSamplers = new ConcurrentHashMap<>();
+		this.mHooks = new ConcurrentHashMap<>();
+		this.mHookListeners = new ConcurrentHashMap<>();
+		this.mProfiler = new AtomicReference<>();
+		this.mPins = new ConcurrentHashMap<>();
+		this.mLocator = null;
+		this.mHeapWalker = new HeapWalker(this.mAccessors, inst, Runtime.getRuntime().availableProcessors());
+		this.mHandlers = new AtomicReferenceArray<>(COMMAND_AMOUNT);
+
+		registerHandler(AgentProtocol.COMMAND_PING, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) {
+				// Nothing to do, the empty response is the answer
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_START_THREAD, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				startThread(request);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_READ_FIELD, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				readField(request, response);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_INVOKE_METHOD, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				invokeMethod(request, response);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_SHUTDOWN, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) {
+				// The agent is shut down once the response was sent
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_START_SAMPLING, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				startSampling(request);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_STOP_SAMPLING, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				stopSampling(request, response);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_HOOK_FIELDS, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				hookFields(request);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_UNHOOK_FIELDS, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				unhookFields(request, response);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_WALK_HEAP, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				walkHeap(request, response);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_START_PROFILING, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				startProfiling(request);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_POLL_PROFILE, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				pollProfile(request, response, false);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_STOP_PROFILING, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				pollProfile(request, response, true);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_PIN_OBJECTS, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				pinObjects(request, response);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_LOCATE_OBJECTS, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				locateObjects(request, response);
+			}
+		});
+		registerHandler(AgentProtocol.COMMAND_UNPIN_OBJECTS, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				unpinObjects(request, response);
+			}
+		});
+
+		registerHandler(AgentProtocol.COMMAND_TAKE_FAILURES, new CommandHandler() {
+			@Override
+			public void handle(final DataInputStream request, final DataOutputStream response) throws Exception {
+				takeFailures(response);
+			}
+		});
+
+		// Remove the socket and failure file that were left by a previous agent
+		Files.deleteIfExists(socketPath);
+		Files.deleteIfExists(AgentProtocol.getFailurePath(socketPath));
+		this.mChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		this.mChannel.bind(UnixDomainSocketAddress.of(socketPath));
+
+		this.mRunning = true;
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "Mem-Eater-Bug agent");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Gets the registry of the accessors the agent uses to read fields. Command
+	 * handlers should use it too, such that resolved accessors are shared.
+	 * 
+	 * @return The registry of the accessors
+	 */
+	public AccessorRegistry getAccessors() {
+		return this.mAccessors;
+	}
+
+	/**
+	 * Gets the object used for ByteCode manipulation that was passed to the
+	 * agent.
+	 * 
+	 * @return The object used for ByteCode manipulation or <tt>null</tt> if
+	 *         the agent was not loaded by the virtual machine
+	 */
+	public Instrumentation getInstrumentation() {
+		return this.mInstrumentation;
+	}
+
+	/**
+	 * Gets the path of the socket the agent listens on.
+	 * 
+	 * @return The path of the socket
+	 */
+	public Path getSocketPath() {
+		return this.mSocketPath;
+	}
+
+	/**
+	 * Whether the agent is running or not.
+	 * 
+	 * @return <tt>True</tt> if the agent is running, <tt>false</tt> otherwise
+	 */
+	public boolean isRunning() {
+		return this.mRunning;
+	}
+
+	/**
+	 * Registers the handler of the given command. Replaces the handler that
+	 * was registered for the command before, if any.
+	 * 
+	 * @param command
+	 *            The byte that identifies the command
+	 * @param handler
+	 *            The handler of the command or <tt>null</tt> to remove the
+	 *            handler
+	 */
+	public void registerHandler(final byte command, final CommandHandler handler) {
+		this.mHandlers.set(command & 0xFF, handler);
+	}
+
+	/**
+	 * Stops the agent. Stops all samplers, removes all hooks, releases all
+	 * pinned objects, closes the socket and all connections and removes the
+	 * socket file. Has no effect if the
+	 * agent is not running.
+	 */
+	public void shutdown() {
+		synchronized (ResidentAgent.class) {
+			if (!this.mRunning) {
+				return;
+			}
+			this.mRunning = false;
+			if (sAgent == this) {
+				sAgent = null;
+			}
+		}
+		for (final FieldSampler sampler : this.mSamplers.values()) {
+			sampler.shutdown();
+		}
+		this.mSamplers.clear();
+		for (final List<FieldHook> hooks : this.mHooks.values()) {
+			try {
+				FieldHooks.get(this.mInstrumentation).remove(hooks);
+			} catch (final UnmodifiableClassException e) {
+				// Removing is best effort, the hooks are inactive anyway
+			}
+		}
+		this.mHooks.clear();
+		this.mHookListeners.clear();
+		for (final PinnedObjects pins : this.mPins.values()) {
+			pins.release();
+		}
+		this.mPins.clear();
+		final StreamingProfiler profiler = this.mProfiler.getAndSet(null);
+		if (profiler != null) {
+			profiler.close();
+		}
+		try {
+			this.mChannel.close();
+		} catch (final IOException e) {
+			// Closing is best effort
+		}
+		for (final SocketChannel connection : this.mConnections) {
+			try {
+				connection.close();
+			} catch (final IOException e) {
+				// Closing is best effort
+			}
+		}
+		try {
+			Files.deleteIfExists(this.mSocketPath);
+		} catch (final IOException e) {
+			// Removing is best effort, the next agent replaces the file
+		}
+	}
+
+	/**
+	 * Accepts connections and serves each by a new daemon thread until the
+	 * agent gets shut down.
+	 */
+	private void accept() {
+		while (this.mRunning) {
+			final SocketChannel connection;
+			try {
+				connection = this.mChannel.accept();
+			} catch (final IOException e) {
+				if (this.mRunning) {
+					// Report to the host why the agent stopped listening
+					writeFailure(this.mSocketPath, e);
+					shutdown();
+				}
+				return;
+			}
+			this.mConnections.add(connection);
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					serve(connection);
+				}
+			}, "Mem-Eater-Bug agent connection");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Gets the locator used to compute the addresses of pinned objects. It is
+	 * created on the first call.
+	 * 
+	 * @return The locator
+	 * @throws UnsupportedOperationException
+	 *             If the memory layout of the virtual machine is not supported
+	 */
+	private synchronized ObjectLocator getLocator() throws UnsupportedOperationException {
+		if (this.mLocator == null) {
+			this.mLocator = new ObjectLocator();
+		}
+		return this.mLocator;
+	}
+
+	/**
+	 * Hooks fields such that their writes are sent to a ring, as requested by
+	 * {@link AgentProtocol#COMMAND_HOOK_FIELDS}. Hooks that already write to
+	 * the ring get removed first.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @throws Exception
+	 *             If the ring could not be opened or a field could not be
+	 *             found or hooked
+	 */
+	private void hookFields(final DataInputStream request) throws Exception {
+		if (this.mInstrumentation == null) {
+			throw new IllegalStateException(ERROR_NO_INSTRUMENTATION);
+		}
+		final Path ringPath = Paths.get(request.readUTF());
+		final String[] fieldPaths = readArguments(request);
+		final List<Field> fields = new ArrayList<>(fieldPaths.length);
+		for (final String fieldPath : fieldPaths) {
+			fields.add(this.mAccessors.get(fieldPath).getField());
+		}
+
+		final FieldHooks fieldHooks = FieldHooks.get(this.mInstrumentation);
+		final List<FieldHook> previousHooks = this.mHooks.remove(ringPath);
+		if (previousHooks != null) {
+			this.mHookListeners.remove(ringPath);
+			fieldHooks.remove(previousHooks);
+		}
+		final SampleRingListener listener = new SampleRingListener(SampleRing.open(ringPath).newWriter());
+		this.mHooks.put(ringPath, fieldHooks.add(fields, listener));
+		this.mHookListeners.put(ringPath, listener);
+	}
+
+	/**
+	 * Computes the current addresses of pinned objects, as requested by
+	 * {@link AgentProtocol#COMMAND_LOCATE_OBJECTS}.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws Exception
+	 *             If no objects are pinned with the ring or an address could
+	 *             not be computed
+	 */
+	private void locateObjects(final DataInputStream request, final DataOutputStream response) throws Exception {
+		final Path ringPath = Paths.get(request.readUTF());
+		final PinnedObjects pins = this.mPins.get(ringPath);
+		if (pins == null) {
+			throw new IllegalArgumentException(ERROR_NOT_PINNED + ringPath);
+		}
+		for (final long address : pins.locate()) {
+			response.writeLong(address);
+		}
+	}
+
+	/**
+	 * Pins objects such that the host can read them from memory, as requested
+	 * by {@link AgentProtocol#COMMAND_PIN_OBJECTS}. Objects that are already
+	 * pinned with the ring get released first.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws Exception
+	 *             If the ring could not be opened, a field could not be found
+	 *             or does not hold an object, or the memory layout of the
+	 *             virtual machine is not supported
+	 */
+	private void pinObjects(final DataInputStream request, final DataOutputStream response) throws Exception {
+		final Path ringPath = Paths.get(request.readUTF());
+		final String[] objectPaths = readArguments(request);
+		final Object[] objects = new Object[objectPaths.length];
+		for (int i = 0; i < objectPaths.length; i++) {
+			final FieldAccessor accessor = this.mAccessors.get(objectPaths[i]);
+			if (!accessor.isStaticRoot()) {
+				throw new IllegalArgumentException(ERROR_NOT_STATIC + accessor);
+			}
+			if (!accessor.getType().isPrimitive()) {
+				objects[i] = accessor.get(null);
+			}
+			if (objects[i] == null) {
+				throw new IllegalArgumentException(ERROR_NOT_OBJECT + accessor);
+			}
+		}
+
+		final ObjectLocator locator = getLocator();
+		final PinnedObjects previousPins = this.mPins.remove(ringPath);
+		if (previousPins != null) {
+			previousPins.release();
+		}
+		final PinnedObjects pins = new PinnedObjects(locator, objects, SampleRing.open(ringPath));
+		try {
+			final long[] addresses = pins.locate();
+			for (int i = 0; i < addresses.length; i++) {
+				response.writeLong(addresses[i]);
+				pins.getLayout(i).write(response);
+			}
+		} catch (final Exception e) {
+			pins.release();
+			throw e;
+		}
+		this.mPins.put(ringPath, pins);
+	}
+
+	/**
+	 * Sends the events the profiler aggregated since the last poll, as
+	 * requested by {@link AgentProtocol#COMMAND_POLL_PROFILE} and
+	 * {@link AgentProtocol#COMMAND_STOP_PROFILING}.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @param stop
+	 *            Whether to stop the profiler before its last events are
+	 *            sent
+	 * @throws Exception
+	 *             If no profiler is running
+	 */
+	private void pollProfile(final DataInputStream request, final DataOutputStream response, final boolean stop)
+			throws Exception {
+		final int limit = request.readInt();
+		final StreamingProfiler profiler;
+		if (stop) {
+			profiler = this.mProfiler.getAndSet(null);
+		} else {
+			profiler = this.mProfiler.get();
+		}
+		if (profiler == null) {
+			throw new IllegalStateException(ERROR_NOT_PROFILING);
+		}
+		if (stop) {
+			profiler.close();
+		}
+		profiler.drain().write(response, limit);
+	}
+
+	/**
+	 * Reads the value of a static field, as requested by
+	 * {@link AgentProtocol#COMMAND_READ_FIELD}. The field is accessed by a
+	 * cached accessor of the registry.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws Exception
+	 *             If the field could not be found or read
+	 */
+	private void readField(final DataInputStream request, final DataOutputStream response) throws Exception {
+		final String className = request.readUTF();
+		final String fieldPath = request.readUTF();
+		final FieldAccessor accessor = this.mAccessors.get(className + AccessorRegistry.PATH_SEPARATOR + fieldPath);
+		if (!accessor.isStaticRoot()) {
+			throw new IllegalArgumentException(ERROR_NOT_STATIC + accessor);
+		}
+		response.writeUTF(String.valueOf(accessor.get(null)));
+	}
+
+	/**
+	 * Records the given failure, such that the host can take it. If the limit
+	 * of failures is reached, the oldest failure gets dropped.
+	 * 
+	 * @param failure
+	 *            The failure to record
+	 */
+	private void recordFailure(final Exception failure) {
+		synchronized (this.mFailures) {
+			if (this.mFailures.size() >= MAX_FAILURES) {
+				this.mFailures.removeFirst();
+			}
+			this.mFailures.addLast(String.valueOf(failure));
+		}
+	}
+
+	/**
+	 * Answers the requests received on the given connection until it gets
+	 * closed.
+	 * 
+	 * @param connection
+	 *            The connection to serve
+	 */
+	private void serve(final SocketChannel connection) {
+		try {
+			final DataInputStream input = new DataInputStream(
+					new BufferedInputStream(Channels.newInputStream(connection)));
+			final DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Channels.newOutputStream(connection)));
+			final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+			final DataOutputStream payloadOutput = new DataOutputStream(payload);
+
+			while (this.mRunning) {
+				final int length;
+				try {
+					length = input.readInt();
+				} catch (final EOFException e) {
+					return;
+				}
+				if (length < AgentProtocol.HEADER_SIZE || length > AgentProtocol.MAX_FRAME_LENGTH) {
+					throw new IOException(ERROR_FRAME_LENGTH + length);
+				}
+				final int requestId = input.readInt();
+				final byte command = input.readByte();
+				final byte[] request = new byte[length - AgentProtocol.HEADER_SIZE];
+				input.readFully(request);
+
+				payload.reset();
+				byte status = AgentProtocol.STATUS_OK;
+				try {
+					final CommandHandler handler = this.mHandlers.get(command & 0xFF);
+					if (handler == null) {
+						throw new IllegalArgumentException(ERROR_UNKNOWN_COMMAND + command);
+					}
+					handler.handle(new DataInputStream(new ByteArrayInputStream(request)), payloadOutput);
+					payloadOutput.flush();
+				} catch (final Exception e) {
+					status = AgentProtocol.STATUS_ERROR;
+					payload.reset();
+					payloadOutput.writeUTF(String.valueOf(e));
+					payloadOutput.flush();
+				}
+
+				output.writeInt(AgentProtocol.HEADER_SIZE + payload.size());
+				output.writeInt(requestId);
+				output.writeByte(status);
+				payload.writeTo(output);
+				output.flush();
+
+				if (command == AgentProtocol.COMMAND_SHUTDOWN && status == AgentProtocol.STATUS_OK) {
+					shutdown();
+				}
+			}
+		} catch (final IOException e) {
+			if (this.mRunning) {
+				recordFailure(e);
+			}
+		} finally {
+			this.mConnections.remove(connection);
+			try {
+				connection.close();
+			} catch (final IOException e) {
+				// Closing is best effort
+			}
+		}
+	}
+
+	/**
+	 * Starts a profiler, as requested by
+	 * {@link AgentProtocol#COMMAND_START_PROFILING}. A running profiler gets
+	 * stopped first.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @throws Exception
+	 *             If the flight recorder is not available
+	 */
+	private void startProfiling(final DataInputStream request) throws Exception {
+		final long samplingPeriod = request.readLong();
+		final long lockThreshold = request.readLong();
+		final StreamingProfiler profiler = new StreamingProfiler(samplingPeriod, lockThreshold);
+		final StreamingProfiler previousProfiler = this.mProfiler.getAndSet(profiler);
+		if (previousProfiler != null) {
+			previousProfiler.close();
+		}
+		profiler.start();
+	}
+
+	/**
+	 * Starts sampling static fields into a ring, as requested by
+	 * {@link AgentProtocol#COMMAND_START_SAMPLING}. A sampler that already
+	 * writes to the ring gets stopped first.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @throws Exception
+	 *             If the ring could not be opened or a field could not be
+	 *             found
+	 */
+	private void startSampling(final DataInputStream request) throws Exception {
+		final Path ringPath = Paths.get(request.readUTF());
+		final long interval = request.readLong();
+		final String[] fieldPaths = readArguments(request);
+		final FieldAccessor[] accessors = new FieldAccessor[fieldPaths.length];
+		for (int i = 0; i < fieldPaths.length; i++) {
+			accessors[i] = this.mAccessors.get(fieldPaths[i]);
+			if (!accessors[i].isStaticRoot()) {
+				throw new IllegalArgumentException(ERROR_NOT_STATIC + accessors[i]);
+			}
+		}
+
+		final FieldSampler previousSampler = this.mSamplers.remove(ringPath);
+		if (previousSampler != null) {
+			previousSampler.shutdown();
+		}
+		final FieldSampler sampler = new FieldSampler(SampleRing.open(ringPath).newWriter(), interval);
+		for (final FieldAccessor accessor : accessors) {
+			sampler.add(accessor, null);
+		}
+		this.mSamplers.put(ringPath, sampler);
+		sampler.start();
+	}
+
+	/**
+	 * Stops sampling fields into a ring, as requested by
+	 * {@link AgentProtocol#COMMAND_STOP_SAMPLING}.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws Exception
+	 *             If no fields are sampled into the ring
+	 */
+	private void stopSampling(final DataInputStream request, final DataOutputStream response) throws Exception {
+		final Path ringPath = Paths.get(request.readUTF());
+		final FieldSampler sampler = this.mSamplers.remove(ringPath);
+		if (sampler == null) {
+			throw new IllegalArgumentException(ERROR_NOT_SAMPLING + ringPath);
+		}
+		sampler.shutdown();
+		response.writeLong(sampler.getDroppedAmount());
+	}
+
+	/**
+	 * Takes the failures that were recorded since the last call, as requested
+	 * by {@link AgentProtocol#COMMAND_TAKE_FAILURES}.
+	 * Includes the classes that could not be rewritten to hook fields.
+	 * 
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws IOException
+	 *             If the response could not be written
+	 */
+	private void takeFailures(final DataOutputStream response) throws IOException {
+		final List<String> failures;
+		synchronized (this.mFailures) {
+			failures = new ArrayList<>(this.mFailures);
+			this.mFailures.clear();
+		}
+		failures.addAll(FieldHooks.takeFailures());
+		response.writeInt(failures.size());
+		for (final String failure : failures) {
+			response.writeUTF(failure);
+		}
+	}
+
+	/**
+	 * Removes the hooks that write to a ring, as requested by
+	 * {@link AgentProtocol#COMMAND_UNHOOK_FIELDS}.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws Exception
+	 *             If no fields are hooked into the ring or a class could not
+	 *             be retransformed
+	 */
+	private void unhookFields(final DataInputStream request, final DataOutputStream response) throws Exception {
+		final Path ringPath = Paths.get(request.readUTF());
+		final List<FieldHook> hooks = this.mHooks.remove(ringPath);
+		if (hooks == null) {
+			throw new IllegalArgumentException(ERROR_NOT_HOOKED + ringPath);
+		}
+		final SampleRingListener listener = this.mHookListeners.remove(ringPath);
+		FieldHooks.get(this.mInstrumentation).remove(hooks);
+		response.writeLong(listener.getDroppedAmount());
+	}
+
+	/**
+	 * Releases pinned objects, as requested by
+	 * {@link AgentProtocol#COMMAND_UNPIN_OBJECTS}.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws Exception
+	 *             If no objects are pinned with the ring
+	 */
+	private void unpinObjects(final DataInputStream request, final DataOutputStream response) throws Exception {
+		final Path ringPath = Paths.get(request.readUTF());
+		final PinnedObjects pins = this.mPins.remove(ringPath);
+		if (pins == null) {
+			throw new IllegalArgumentException(ERROR_NOT_PINNED + ringPath);
+		}
+		pins.release();
+		response.writeLong(pins.getDroppedAmount());
+	}
+
+	/**
+	 * Walks the object graph and counts the reachable instances, as requested
+	 * by {@link AgentProtocol#COMMAND_WALK_HEAP}.
+	 * 
+	 * @param request
+	 *            Stream holding the payload of the request
+	 * @param response
+	 *            Stream that receives the payload of the response
+	 * @throws Exception
+	 *             If a requested class is not loaded
+	 */
+	private void walkHeap(final DataInputStream request, final DataOutputStream response) throws Exception {
+		final int maxDepth = request.readInt();
+		final long timeBudget = request.readLong();
+		final int histogramLimit = request.readInt();
+		final String[] classNames = readArguments(request);
+		final List<Class<?>> classes = new ArrayList<>(classNames.length);
+		for (final String className : classNames) {
+			classes.add(this.mAccessors.getClassIndex().find(className));
+		}
+
+		final HeapWalkResult result = this.mHeapWalker.walk(classes, maxDepth, timeBudget, TimeUnit.NANOSECONDS);
+		response.writeBoolean(result.isTimedOut());
+		response.writeBoolean(result.isDepthExceeded());
+		response.writeBoolean(result.isRootsIncomplete());
+		response.writeLong(result.getVisitedAmount());
+		response.writeLong(result.getDuration());
+		for (final Class<?> requestedClass : classes) {
+			response.writeInt(result.getInstances(requestedClass).size());
+		}
+		final Map<Class<?>, Long> histogram = result.getHistogram();
+		final int entryAmount = Math.min(histogramLimit, histogram.size());
+		response.writeInt(entryAmount);
+		final Iterator<Map.Entry<Class<?>, Long>> entries = histogram.entrySet().iterator();
+		for (int i = 0; i < entryAmount; i++) {
+			final Map.Entry<Class<?>, Long> entry = entries.next();
+			response.writeUTF(entry.getKey().getName());
+			response.writeLong(entry.getValue().longValue());
+		}
+	}
+}
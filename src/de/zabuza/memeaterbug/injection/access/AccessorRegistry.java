@@ -0,0 +1,262 @@
+package de.zabuza.memeaterbug.injection.access;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link FieldAccessor field accessors} for injected agents.
+ * Paths like <tt>Game.alienCount</tt> are resolved once into cached handles,
+ * further requests for the same path return the cached accessor. Classes are
+ * resolved by a {@link ClassIndex}, thus across all class loaders.<br/>
+ * <br/>
+ * A path consists of the name of a class, either its full name or its simple
+ * name, followed by one or more field names, separated by dots. Fields are
+ * searched in the class and its super classes, each further field is
+ * searched in the declared type of the previous field. If the first field is
+ * not static, the path starts at a root object that is passed to the
+ * accessor.<br/>
+ * <br/>
+ * Private fields are accessible. If the package of a field is not open to
+ * the agent, it gets opened by the instrumentation object, if available.<br/>
+ * <br/>
+ * The registry may be used by many threads at once.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class AccessorRegistry {
+	/**
+	 * Separator of the elements of a path.
+	 */
+	public static final char PATH_SEPARATOR = '.';
+	/**
+	 * Thrown when a path does not contain a class and a field.
+	 */
+	private static final String ERROR_PATH_INVALID = "The path must consist of a class and at least one field: ";
+
+	/**
+	 * Finds the field with the given name in the given class or its super
+	 * classes.
+	 * 
+	 * @param declaringClass
+	 *            The class to start searching at
+	 * @param name
+	 *            The name of the field
+	 * @return The field with the given name
+	 * @throws NoSuchFieldException
+	 *             If neither the class nor its super classes declare the
+	 *             field
+	 */
+	private static Field findField(final Class<?> declaringClass, final String name) throws NoSuchFieldException {
+		Class<?> currentClass = declaringClass;
+		while (currentClass != null) {
+			try {
+				return currentClass.getDeclaredField(name);
+			} catch (final NoSuchFieldException e) {
+				currentClass = currentClass.getSuperclass();
+			}
+		}
+		throw new NoSuchFieldException(declaringClass.getName() + PATH_SEPARATOR + name);
+	}
+
+	/**
+	 * Cached accessors by their path.
+	 */
+	private final Map<String, FieldAccessor> mAccessors;
+	/**
+	 * Index used to resolve classes.
+	 */
+	private final ClassIndex mClasses;
+	/**
+	 * Object used to open packages to the agent, may be <tt>null</tt>.
+	 */
+	private final Instrumentation mInstrumentation;
+
+	/**
+	 * Creates a new empty registry.
+	 * 
+	 * @param inst
+	 *            Object used to enumerate the loaded classes and to open
+	 *            packages to the agent. If <tt>null</tt>, classes are only
+	 *            found by their full name and fields in packages that are not
+	 *            open are not accessible.
+	 */
+	public AccessorRegistry(final Instrumentation inst) {
+		this(inst, ClassLoader.getSystemClassLoader());
+	}
+
+	/**
+	 * Creates a new empty registry.
+	 * 
+	 * @param inst
+	 *            Object used to enumerate the loaded classes and to open
+	 *            packages to the agent. If <tt>null</tt>, classes are only
+	 *            found by their full name, using the given class loader, and
+	 *            fields in packages that are not open are not accessible.
+	 * @param classLoader
+	 *            Class loader used to load classes by their full name if there
+	 *            is no instrumentation object, like the loader of the
+	 *            application whose fields are accessed
+	 */
+	public AccessorRegistry(final Instrumentation inst, final ClassLoader classLoader) {
+		this.mInstrumentation = inst;
+		this.mClasses = new ClassIndex(inst, classLoader);
+		this.mAccessors = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Gets the accessor of the field given by its path. The accessor is
+	 * resolved on the first request and cached.
+	 * 
+	 * @param path
+	 *            Path of the field, like <tt>Game.alienCount</tt>
+	 * @return The accessor of the field
+	 * @throws ReflectiveOperationException
+	 *             If the class or a field of the path could not be found or is
+	 *             not accessible
+	 * @throws IllegalArgumentException
+	 *             If the path does not contain a class and a field
+	 */
+	public FieldAccessor get(final String path) throws ReflectiveOperationException, IllegalArgumentException {
+		final FieldAccessor cachedAccessor = this.mAccessors.get(path);
+		if (cachedAccessor != null) {
+			return cachedAccessor;
+		}
+		final FieldAccessor accessor = resolve(path);
+		final FieldAccessor previousAccessor = this.mAccessors.putIfAbsent(path, accessor);
+		if (previousAccessor != null) {
+			return previousAccessor;
+		}
+		return accessor;
+	}
+
+	/**
+	 * Gets the index used to resolve classes.
+	 * 
+	 * @return The index used to resolve classes
+	 */
+	public ClassIndex getClassIndex() {
+		return this.mClasses;
+	}
+
+	/**
+	 * Removes all cached accessors and rebuilds the class index. Should be
+	 * called once classes that are referred to by paths got reloaded.
+	 */
+	public void invalidate() {
+		this.mAccessors.clear();
+		this.mClasses.refresh();
+	}
+
+	/**
+	 * Creates a lookup with private access to the given class. Opens the
+	 * package of the class to the agent if needed and possible. Other agent
+	 * features that need handles of private members should use it too.
+	 * 
+	 * @param targetClass
+	 *            The class to access
+	 * @return A lookup with private access to the class
+	 * @throws IllegalAccessException
+	 *             If the package of the class is not open to the agent and
+	 *             could not be opened
+	 */
+	public MethodHandles.Lookup lookupIn(final Class<?> targetClass) throws IllegalAccessException {
+		try {
+			return MethodHandles.privateLookupIn(targetClass, MethodHandles.lookup());
+		} catch (final IllegalAccessException e) {
+			final Module module = targetClass.getModule();
+			if (this.mInstrumentation == null || !this.mInstrumentation.isModifiableModule(module)) {
+				throw e;
+			}
+			final Map<String, Set<Module>> opens = Collections.singletonMap(targetClass.getPackageName(),
+					Collections.singleton(AccessorRegistry.class.getModule()));
+			this.mInstrumentation.redefineModule(module, Collections.<Module> emptySet(),
+					Collections.<String, Set<Module>> emptyMap(), opens, Collections.<Class<?>> emptySet(),
+					Collections.<Class<?>, List<Class<?>>> emptyMap());
+			return MethodHandles.privateLookupIn(targetClass, MethodHandles.lookup());
+		}
+	}
+
+	/**
+	 * Resolves the given path into an accessor. The longest prefix of the
+	 * path that names a class is used as class, the remaining elements as
+	 * fields.
+	 * 
+	 * @param path
+	 *            Path of the field
+	 * @return The accessor of the field
+	 * @throws ReflectiveOperationException
+	 *             If the class or a field of the path could not be found or is
+	 *             not accessible
+	 * @throws IllegalArgumentException
+	 *             If the path does not contain a class and a field
+	 */
+	private FieldAccessor resolve(final String path) throws ReflectiveOperationException, IllegalArgumentException {
+		int fieldStart = path.lastIndexOf(PATH_SEPARATOR);
+		if (fieldStart <= 0) {
+			throw new IllegalArgumentException(ERROR_PATH_INVALID + path);
+		}
+		Class<?> rootClass = null;
+		while (fieldStart > 0 && rootClass == null) {
+			final List<Class<?>> classes = this.mClasses.findAll(path.substring(0, fieldStart));
+			if (classes.isEmpty()) {
+				fieldStart = path.lastIndexOf(PATH_SEPARATOR, fieldStart - 1);
+			} else {
+				rootClass = classes.get(0);
+			}
+		}
+		if (rootClass == null) {
+			throw new ClassNotFoundException(path);
+		}
+
+		final String[] fieldNames = path.substring(fieldStart + 1).split("\\" + PATH_SEPARATOR);
+		Class<?> currentClass = rootClass;
+		Field field = null;
+		MethodHandle chain = null;
+		MethodHandle holderChain = null;
+		VarHandle varHandle = null;
+		boolean staticRoot = false;
+		for (int i = 0; i < fieldNames.length; i++) {
+			field = findField(currentClass, fieldNames[i]);
+			final MethodHandles.Lookup lookup = lookupIn(field.getDeclaringClass());
+			MethodHandle getter = lookup.unreflectGetter(field);
+			if (Modifier.isStatic(field.getModifiers())) {
+				if (i == 0) {
+					staticRoot = true;
+				}
+				// Static fields do not depend on the previous object
+				getter = MethodHandles.dropArguments(getter, 0, Object.class);
+			} else {
+				getter = getter.asType(MethodType.methodType(field.getType(), Object.class));
+			}
+
+			holderChain = chain;
+			if (chain == null) {
+				chain = getter;
+			} else {
+				chain = MethodHandles.filterReturnValue(chain.asType(chain.type().changeReturnType(Object.class)),
+						getter);
+			}
+			varHandle = lookup.unreflectVarHandle(field);
+			currentClass = field.getType();
+		}
+
+		final Class<?> type = currentClass;
+		final Class<?> erasedType = type.isPrimitive() ? type : Object.class;
+		if (holderChain != null) {
+			holderChain = holderChain.asType(MethodType.methodType(Object.class, Object.class));
+		}
+		return new FieldAccessor(path, field, staticRoot, chain.asType(MethodType.methodType(erasedType, Object.class)),
+				holderChain, varHandle);
+	}
+}
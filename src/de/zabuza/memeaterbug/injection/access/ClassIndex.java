@@ -0,0 +1,237 @@
+package de.zabuza.memeaterbug.injection.access;
+
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of the classes loaded in the virtual machine, by their full and by
+ * their simple name. Classes are found across all class loaders, also those
+ * of applications that load their classes by custom loaders.<br/>
+ * <br/>
+ * The index is built from {@link Instrumentation#getAllLoadedClasses()}. A
+ * lookup that misses rebuilds the index, at most once per
+ * {@link #REFRESH_INTERVAL}, since classes may have been loaded meanwhile.
+ * Without an instrumentation object the index falls back to loading classes
+ * by a given class loader, the system class loader by default.<br/>
+ * <br/>
+ * The index may be used by many threads at once.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ClassIndex {
+	/**
+	 * Minimal time between two rebuilds of the index that are caused by
+	 * lookups that missed, in milliseconds.
+	 */
+	public static final long REFRESH_INTERVAL = 1_000;
+	/**
+	 * Thrown when a class could not be found.
+	 */
+	private static final String ERROR_CLASS_NOT_FOUND = "The class is not loaded: ";
+
+	/**
+	 * Adds the given class to the list of the given key.
+	 * 
+	 * @param index
+	 *            The index to add to
+	 * @param key
+	 *            The key to add the class under
+	 * @param indexedClass
+	 *            The class to add
+	 */
+	private static void add(final Map<String, List<Class<?>>> index, final String key, final Class<?> indexedClass) {
+		List<Class<?>> classes = index.get(key);
+		if (classes == null) {
+			classes = new ArrayList<>(1);
+			index.put(key, classes);
+		}
+		classes.add(indexedClass);
+	}
+
+	/**
+	 * Gets the simple name of the given full class name, which is the part
+	 * after the last dot. Nested classes keep the name of their outer class.
+	 * 
+	 * @param name
+	 *            The full name of the class
+	 * @return The simple name of the class
+	 */
+	private static String getSimpleName(final String name) {
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * Loaded classes by their full name.
+	 */
+	private volatile Map<String, List<Class<?>>> mClasses;
+	/**
+	 * Class loader used to load classes by their full name if there is no
+	 * instrumentation object.
+	 */
+	private final ClassLoader mClassLoader;
+	/**
+	 * Object used to enumerate the loaded classes, may be <tt>null</tt>.
+	 */
+	private final Instrumentation mInstrumentation;
+	/**
+	 * Time of the last rebuild of the index, as value of
+	 * {@link System#nanoTime()}.
+	 */
+	private long mLastRefresh;
+	/**
+	 * Loaded classes by their simple name.
+	 */
+	private volatile Map<String, List<Class<?>>> mSimpleNames;
+
+	/**
+	 * Creates and builds a new index.
+	 * 
+	 * @param inst
+	 *            Object used to enumerate the loaded classes. If
+	 *            <tt>null</tt>, the index stays empty and classes are only
+	 *            found by their full name, using the system class loader.
+	 */
+	public ClassIndex(final Instrumentation inst) {
+		this(inst, ClassLoader.getSystemClassLoader());
+	}
+
+	/**
+	 * Creates and builds a new index.
+	 * 
+	 * @param inst
+	 *            Object used to enumerate the loaded classes. If
+	 *            <tt>null</tt>, the index stays empty and classes are only
+	 *            found by their full name, using the given class loader.
+	 * @param classLoader
+	 *            Class loader used to load classes by their full name if there
+	 *            is no instrumentation object, like the loader of the
+	 *            application whose classes are accessed
+	 */
+	public ClassIndex(final Instrumentation inst, final ClassLoader classLoader) {
+		this.mInstrumentation = inst;
+		this.mClassLoader = classLoader;
+		this.mClasses = Collections.emptyMap();
+		this.mSimpleNames = Collections.emptyMap();
+		refresh();
+	}
+
+	/**
+	 * Finds the class with the given name. If classes of the same name were
+	 * loaded by different class loaders, the class that was indexed first is
+	 * returned, {@link #findAll(String)} yields all of them.
+	 * 
+	 * @param name
+	 *            The full name of the class or its simple name, which is the
+	 *            part after the last dot
+	 * @return The class with the given name
+	 * @throws ClassNotFoundException
+	 *             If no loaded class has the given name
+	 */
+	public Class<?> find(final String name) throws ClassNotFoundException {
+		final List<Class<?>> classes = findAll(name);
+		if (classes.isEmpty()) {
+			throw new ClassNotFoundException(ERROR_CLASS_NOT_FOUND + name);
+		}
+		return classes.get(0);
+	}
+
+	/**
+	 * Finds all classes with the given name.
+	 * 
+	 * @param name
+	 *            The full name of the classes or their simple name, which is
+	 *            the part after the last dot
+	 * @return All loaded classes with the given name, empty if there are none
+	 */
+	public List<Class<?>> findAll(final String name) {
+		List<Class<?>> classes = lookup(name);
+		if (classes.isEmpty() && refreshIfDue()) {
+			classes = lookup(name);
+		}
+		if (classes.isEmpty() && this.mInstrumentation == null) {
+			try {
+				classes = Collections.<Class<?>> singletonList(
+						Class.forName(name, false, this.mClassLoader));
+			} catch (final ClassNotFoundException | LinkageError e) {
+				// Not loadable by the class loader either
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * Gets the amount of indexed classes.
+	 * 
+	 * @return The amount of indexed classes
+	 */
+	public int getAmount() {
+		int amount = 0;
+		for (final List<Class<?>> classes : this.mClasses.values()) {
+			amount += classes.size();
+		}
+		return amount;
+	}
+
+	/**
+	 * Rebuilds the index from the currently loaded classes. Has no effect if
+	 * the index has no instrumentation object.
+	 */
+	public synchronized void refresh() {
+		this.mLastRefresh = System.nanoTime();
+		if (this.mInstrumentation == null) {
+			return;
+		}
+		final Class<?>[] loadedClasses = this.mInstrumentation.getAllLoadedClasses();
+		final Map<String, List<Class<?>>> classes = new HashMap<>(loadedClasses.length * 2);
+		final Map<String, List<Class<?>>> simpleNames = new HashMap<>(loadedClasses.length * 2);
+		for (final Class<?> loadedClass : loadedClasses) {
+			if (loadedClass.isArray() || loadedClass.isPrimitive() || loadedClass.isHidden()) {
+				continue;
+			}
+			final String name = loadedClass.getName();
+			add(classes, name, loadedClass);
+			add(simpleNames, getSimpleName(name), loadedClass);
+		}
+		this.mClasses = classes;
+		this.mSimpleNames = simpleNames;
+	}
+
+	/**
+	 * Looks the given name up in the index, without rebuilding it.
+	 * 
+	 * @param name
+	 *            The full or simple name of the classes
+	 * @return The indexed classes with the given name, empty if there are none
+	 */
+	private List<Class<?>> lookup(final String name) {
+		List<Class<?>> classes = this.mClasses.get(name);
+		if (classes == null && name.indexOf('.') == -1) {
+			classes = this.mSimpleNames.get(name);
+		}
+		if (classes == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(classes);
+	}
+
+	/**
+	 * Rebuilds the index if the last rebuild is longer ago than the
+	 * {@link #REFRESH_INTERVAL}.
+	 * 
+	 * @return <tt>True</tt> if the index was rebuilt, <tt>false</tt> otherwise
+	 */
+	private synchronized boolean refreshIfDue() {
+		if (this.mInstrumentation == null
+				|| System.nanoTime() - this.mLastRefresh < TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL)) {
+			return false;
+		}
+		refresh();
+		return true;
+	}
+}
@@ -0,0 +1,307 @@
+package de.zabuza.memeaterbug.injection.access;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+
+/**
+ * Accessor of a field that is reached by following a path of fields, like
+ * <tt>Game.alienCount</tt> or <tt>Game.player.position.x</tt>. The path is
+ * resolved once by an {@link AccessorRegistry} into a chain of
+ * {@link MethodHandle method handles} and a {@link VarHandle} of the last
+ * field. Reading is thus as fast as a chain of direct field accesses once the
+ * accessor was compiled, and the typed getters like {@link #getInt(Object)}
+ * do not allocate.<br/>
+ * <br/>
+ * The path either starts at a static field, then the root passed to the
+ * accessor is ignored, or at an instance field of the root object.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class FieldAccessor {
+	/**
+	 * Rethrows the given throwable, wrapped into an unchecked exception if it
+	 * is checked.
+	 * 
+	 * @param throwable
+	 *            The throwable to rethrow
+	 * @return Nothing, the method always throws. Allows to write
+	 *         <tt>throw rethrow(e)</tt> such that the compiler knows the
+	 *         statement does not complete.
+	 */
+	private static RuntimeException rethrow(final Throwable throwable) {
+		if (throwable instanceof RuntimeException) {
+			throw (RuntimeException) throwable;
+		}
+		if (throwable instanceof Error) {
+			throw (Error) throwable;
+		}
+		throw new IllegalStateException(throwable);
+	}
+
+	/**
+	 * The field at the end of the path.
+	 */
+	private final Field mField;
+	/**
+	 * Handle that reads the value of the field, of type
+	 * <tt>(Object)T</tt> where <tt>T</tt> is the type of the field if it is
+	 * primitive and {@link Object} else.
+	 */
+	private final MethodHandle mGetter;
+	/**
+	 * Handle that reads the object holding the field, of type
+	 * <tt>(Object)Object</tt>, or <tt>null</tt> if the field is held by the
+	 * root.
+	 */
+	private final MethodHandle mHolderGetter;
+	/**
+	 * Path of the field.
+	 */
+	private final String mPath;
+	/**
+	 * Whether the path starts at a static field.
+	 */
+	private final boolean mStaticRoot;
+	/**
+	 * Type of the field.
+	 */
+	private final Class<?> mType;
+	/**
+	 * Handle of the field itself, used for writing.
+	 */
+	private final VarHandle mVarHandle;
+
+	/**
+	 * Creates a new accessor.
+	 * 
+	 * @param path
+	 *            Path of the field
+	 * @param field
+	 *            The field at the end of the path
+	 * @param staticRoot
+	 *            Whether the path starts at a static field
+	 * @param getter
+	 *            Handle that reads the value of the field, of type
+	 *            <tt>(Object)T</tt> where <tt>T</tt> is the type of the field
+	 *            if it is primitive and {@link Object} else
+	 * @param holderGetter
+	 *            Handle that reads the object holding the field, of type
+	 *            <tt>(Object)Object</tt>, or <tt>null</tt> if the field is
+	 *            held by the root
+	 * @param varHandle
+	 *            Handle of the field itself
+	 */
+	FieldAccessor(final String path, final Field field, final boolean staticRoot, final MethodHandle getter,
+			final MethodHandle holderGetter, final VarHandle varHandle) {
+		this.mPath = path;
+		this.mField = field;
+		this.mType = field.getType();
+		this.mStaticRoot = staticRoot;
+		this.mGetter = getter;
+		this.mHolderGetter = holderGetter;
+		this.mVarHandle = varHandle;
+	}
+
+	/**
+	 * Reads the value of the field. Primitive values get boxed.
+	 * 
+	 * @param root
+	 *            The object the path starts at, ignored if it starts at a
+	 *            static field
+	 * @return The value of the field
+	 * @throws NullPointerException
+	 *             If an object on the path is <tt>null</tt>
+	 * @throws ClassCastException
+	 *             If the root or an object on the path has an unexpected type
+	 */
+	public Object get(final Object root) throws NullPointerException, ClassCastException {
+		try {
+			return this.mGetter.invoke(root);
+		} catch (final Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Reads the value of a field of type <tt>boolean</tt>.
+	 * 
+	 * @param root
+	 *            The object the path starts at, ignored if it starts at a
+	 *            static field
+	 * @return The value of the field
+	 * @throws NullPointerException
+	 *             If an object on the path is <tt>null</tt>
+	 * @throws java.lang.invoke.WrongMethodTypeException
+	 *             If the field is not of type <tt>boolean</tt>
+	 */
+	public boolean getBoolean(final Object root) throws NullPointerException {
+		try {
+			return (boolean) this.mGetter.invokeExact(root);
+		} catch (final Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Reads the value of a field of type <tt>double</tt>.
+	 * 
+	 * @param root
+	 *            The object the path starts at, ignored if it starts at a
+	 *            static field
+	 * @return The value of the field
+	 * @throws NullPointerException
+	 *             If an object on the path is <tt>null</tt>
+	 * @throws java.lang.invoke.WrongMethodTypeException
+	 *             If the field is not of type <tt>double</tt>
+	 */
+	public double getDouble(final Object root) throws NullPointerException {
+		try {
+			return (double) this.mGetter.invokeExact(root);
+		} catch (final Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Gets the field at the end of the path.
+	 * 
+	 * @return The field at the end of the path
+	 */
+	public Field getField() {
+		return this.mField;
+	}
+
+	/**
+	 * Gets the handle that reads the value of the field. It is of type
+	 * <tt>(Object)T</tt> where <tt>T</tt> is the type of the field if it is
+	 * primitive and {@link Object} else. Callers that store it in a
+	 * <tt>static final</tt> field allow the JIT to inline the whole chain.
+	 * 
+	 * @return The handle that reads the value of the field
+	 */
+	public MethodHandle getGetter() {
+		return this.mGetter;
+	}
+
+	/**
+	 * Reads the value of a field of type <tt>int</tt>.
+	 * 
+	 * @param root
+	 *            The object the path starts at, ignored if it starts at a
+	 *            static field
+	 * @return The value of the field
+	 * @throws NullPointerException
+	 *             If an object on the path is <tt>null</tt>
+	 * @throws java.lang.invoke.WrongMethodTypeException
+	 *             If the field is not of type <tt>int</tt>
+	 */
+	public int getInt(final Object root) throws NullPointerException {
+		try {
+			return (int) this.mGetter.invokeExact(root);
+		} catch (final Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Reads the value of a field of type <tt>long</tt>.
+	 * 
+	 * @param root
+	 *            The object the path starts at, ignored if it starts at a
+	 *            static field
+	 * @return The value of the field
+	 * @throws NullPointerException
+	 *             If an object on the path is <tt>null</tt>
+	 * @throws java.lang.invoke.WrongMethodTypeException
+	 *             If the field is not of type <tt>long</tt>
+	 */
+	public long getLong(final Object root) throws NullPointerException {
+		try {
+			return (long) this.mGetter.invokeExact(root);
+		} catch (final Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Gets the path of the field.
+	 * 
+	 * @return The path of the field
+	 */
+	public String getPath() {
+		return this.mPath;
+	}
+
+	/**
+	 * Gets the type of the field.
+	 * 
+	 * @return The type of the field
+	 */
+	public Class<?> getType() {
+		return this.mType;
+	}
+
+	/**
+	 * Gets the handle of the field itself. Its coordinates are the object
+	 * holding the field, or none if the field is static.
+	 * 
+	 * @return The handle of the field
+	 */
+	public VarHandle getVarHandle() {
+		return this.mVarHandle;
+	}
+
+	/**
+	 * Whether the path starts at a static field, thus the accessor does not
+	 * need a root object.
+	 * 
+	 * @return <tt>True</tt> if the path starts at a static field,
+	 *         <tt>false</tt> otherwise
+	 */
+	public boolean isStaticRoot() {
+		return this.mStaticRoot;
+	}
+
+	/**
+	 * Writes the given value to the field. Primitive values are passed boxed
+	 * and get unboxed.
+	 * 
+	 * @param root
+	 *            The object the path starts at, ignored if it starts at a
+	 *            static field
+	 * @param value
+	 *            The value to write
+	 * @throws NullPointerException
+	 *             If an object on the path is <tt>null</tt>
+	 * @throws ClassCastException
+	 *             If the value does not match the type of the field
+	 * @throws UnsupportedOperationException
+	 *             If the field is final
+	 */
+	public void set(final Object root, final Object value)
+			throws NullPointerException, ClassCastException, UnsupportedOperationException {
+		try {
+			if (this.mVarHandle.coordinateTypes().isEmpty()) {
+				this.mVarHandle.set(value);
+			} else if (this.mHolderGetter != null) {
+				this.mVarHandle.set(this.mHolderGetter.invoke(root), value);
+			} else {
+				this.mVarHandle.set(root, value);
+			}
+		} catch (final Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.mPath + " : " + this.mType.getName();
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains classes for injected agents that access fields of
+ * the target application by cached method and variable handles.
+ */
+package de.zabuza.memeaterbug.injection.access;
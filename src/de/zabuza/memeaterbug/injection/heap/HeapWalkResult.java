@@ -0,0 +1,191 @@
+package de.zabuza.memeaterbug.injection.heap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a walk over the object graph by a {@link HeapWalker}. Holds the
+ * found instances of the requested classes and a histogram of the classes of
+ * all visited objects.<br/>
+ * <br/>
+ * The result is incomplete if the walk exceeded its time budget, reached
+ * objects at its maximal depth which refer to further objects or had to skip
+ * roots.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class HeapWalkResult {
+	/**
+	 * Whether objects at the maximal depth referred to further objects.
+	 */
+	private final boolean mDepthExceeded;
+	/**
+	 * Duration of the walk, in nanoseconds.
+	 */
+	private final long mDuration;
+	/**
+	 * Amount of visited objects by their class, sorted descending by the
+	 * amount.
+	 */
+	private final Map<Class<?>, Long> mHistogram;
+	/**
+	 * Found instances by the requested class.
+	 */
+	private final Map<Class<?>, List<Object>> mInstances;
+	/**
+	 * Whether static fields or AWT frames were skipped as roots since the
+	 * initialization state of classes could not be determined.
+	 */
+	private final boolean mRootsIncomplete;
+	/**
+	 * Whether the walk was stopped since it exceeded its time budget.
+	 */
+	private final boolean mTimedOut;
+	/**
+	 * Amount of visited objects.
+	 */
+	private final long mVisitedAmount;
+
+	/**
+	 * Creates a new result.
+	 * 
+	 * @param instances
+	 *            Found instances by the requested class
+	 * @param histogram
+	 *            Amount of visited objects by their class
+	 * @param visitedAmount
+	 *            Amount of visited objects
+	 * @param duration
+	 *            Duration of the walk, in nanoseconds
+	 * @param timedOut
+	 *            Whether the walk was stopped since it exceeded its time
+	 *            budget
+	 * @param depthExceeded
+	 *            Whether objects at the maximal depth referred to further
+	 *            objects
+	 * @param rootsIncomplete
+	 *            Whether static fields or AWT frames were skipped as roots
+	 *            since the initialization state of classes could not be
+	 *            determined
+	 */
+	HeapWalkResult(final Map<Class<?>, List<Object>> instances, final Map<Class<?>, Long> histogram,
+			final long visitedAmount, final long duration, final boolean timedOut, final boolean depthExceeded,
+			final boolean rootsIncomplete) {
+		this.mInstances = instances;
+		this.mVisitedAmount = visitedAmount;
+		this.mDuration = duration;
+		this.mTimedOut = timedOut;
+		this.mDepthExceeded = depthExceeded;
+		this.mRootsIncomplete = rootsIncomplete;
+
+		final List<Map.Entry<Class<?>, Long>> entries = new ArrayList<>(histogram.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Class<?>, Long>>() {
+			@Override
+			public int compare(final Map.Entry<Class<?>, Long> first, final Map.Entry<Class<?>, Long> second) {
+				return second.getValue().compareTo(first.getValue());
+			}
+		});
+		this.mHistogram = new LinkedHashMap<>();
+		for (final Map.Entry<Class<?>, Long> entry : entries) {
+			this.mHistogram.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Gets the duration of the walk.
+	 * 
+	 * @return The duration of the walk, in nanoseconds
+	 */
+	public long getDuration() {
+		return this.mDuration;
+	}
+
+	/**
+	 * Gets the histogram of the classes of all visited objects.
+	 * 
+	 * @return The amount of visited objects by their class, iterating in
+	 *         descending order of the amount
+	 */
+	public Map<Class<?>, Long> getHistogram() {
+		return Collections.unmodifiableMap(this.mHistogram);
+	}
+
+	/**
+	 * Gets the found instances of the given requested class, including
+	 * instances of its sub classes.
+	 * 
+	 * @param <T>
+	 *            The requested class
+	 * @param requestedClass
+	 *            The requested class
+	 * @return The found instances, empty if there are none or the class was
+	 *         not requested
+	 */
+	public <T> List<T> getInstances(final Class<T> requestedClass) {
+		final List<Object> instances = this.mInstances.get(requestedClass);
+		if (instances == null) {
+			return Collections.emptyList();
+		}
+		final List<T> castedInstances = new ArrayList<>(instances.size());
+		for (final Object instance : instances) {
+			castedInstances.add(requestedClass.cast(instance));
+		}
+		return castedInstances;
+	}
+
+	/**
+	 * Gets the amount of visited objects.
+	 * 
+	 * @return The amount of visited objects
+	 */
+	public long getVisitedAmount() {
+		return this.mVisitedAmount;
+	}
+
+	/**
+	 * Whether the walk visited all objects reachable from the roots.
+	 * 
+	 * @return <tt>True</tt> if the walk neither exceeded its time budget nor
+	 *         its maximal depth and did not skip roots, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isComplete() {
+		return !this.mTimedOut && !this.mDepthExceeded && !this.mRootsIncomplete;
+	}
+
+	/**
+	 * Whether objects at the maximal depth referred to further objects, which
+	 * were not visited.
+	 * 
+	 * @return <tt>True</tt> if the maximal depth was exceeded, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isDepthExceeded() {
+		return this.mDepthExceeded;
+	}
+
+	/**
+	 * Whether static fields or AWT frames were skipped as roots since the
+	 * initialization state of classes could not be determined. Instances
+	 * that are only reachable from them were not visited.
+	 * 
+	 * @return <tt>True</tt> if roots were skipped, <tt>false</tt> otherwise
+	 */
+	public boolean isRootsIncomplete() {
+		return this.mRootsIncomplete;
+	}
+
+	/**
+	 * Whether the walk was stopped since it exceeded its time budget.
+	 * 
+	 * @return <tt>True</tt> if the walk timed out, <tt>false</tt> otherwise
+	 */
+	public boolean isTimedOut() {
+		return this.mTimedOut;
+	}
+}
@@ -0,0 +1,792 @@
+package de.zabuza.memeaterbug.injection.heap;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Reference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.zabuza.memeaterbug.injection.access.AccessorRegistry;
+
+/**
+ * Walker of the object graph of the target application, used by injected
+ * agents to discover the live instances of classes, like the game object of
+ * an application, without knowing the path to them.<br/>
+ * <br/>
+ * A walk starts at the roots, which are the static fields of all loaded and
+ * initialized classes, the threads including their thread locals and the open
+ * AWT frames, and follows all reference fields and array elements. Children
+ * of AWT containers are followed by their public API, thus they are found even
+ * if the packages of AWT are not open to the agent. Objects are visited once,
+ * tracked by an identity based set.<br/>
+ * <br/>
+ * The graph is walked in parallel by a dedicated pool of daemon threads that
+ * exists for the duration of a walk. Objects are processed in batches, new
+ * batches are forked as tasks without waiting for them, thus deep graphs like
+ * long linked lists do not grow the stack. A walk stops at its maximal depth
+ * and when it exceeds its time budget, such that it never stalls the target
+ * application for long.<br/>
+ * <br/>
+ * Without an instrumentation object, static fields are no roots and only
+ * fields in packages that are open to the agent are followed. Classes that are
+ * not initialized yet are never initialized by the walker. Their state is
+ * determined by <tt>sun.misc.Unsafe</tt> or, on virtual machines that removed
+ * the check from it, by <tt>jdk.internal.misc.Unsafe</tt>, whose package gets
+ * exported to the agent by the instrumentation object. If the state can not
+ * be determined, static fields and AWT frames are no roots and the result is
+ * {@link HeapWalkResult#isRootsIncomplete() flagged as incomplete}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class HeapWalker {
+	/**
+	 * State of a single walk, shared by all its tasks.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class Walk {
+		/**
+		 * Time at which the walk exceeds its time budget, as value of
+		 * {@link System#nanoTime()}.
+		 */
+		private final long mDeadline;
+		/**
+		 * Whether objects at the maximal depth referred to further objects.
+		 */
+		private volatile boolean mDepthExceeded;
+		/**
+		 * Amount of visited objects by their class.
+		 */
+		private final Map<Class<?>, LongAdder> mHistogram;
+		/**
+		 * Found instances by the requested class.
+		 */
+		private final Map<Class<?>, Queue<Object>> mInstances;
+		/**
+		 * Maximal depth of visited objects.
+		 */
+		private final int mMaxDepth;
+		/**
+		 * Classes whose instances to collect.
+		 */
+		private final Class<?>[] mRequestedClasses;
+		/**
+		 * Whether static fields or AWT frames were skipped as roots since the
+		 * initialization state of classes could not be determined. Only
+		 * written before the tasks of the walk are started.
+		 */
+		private boolean mRootsIncomplete;
+		/**
+		 * Whether the walk exceeded its time budget.
+		 */
+		private volatile boolean mTimedOut;
+		/**
+		 * Objects that were visited or are queued to be visited.
+		 */
+		private final IdentitySet mVisited;
+		/**
+		 * Amount of visited objects.
+		 */
+		private final LongAdder mVisitedAmount;
+
+		/**
+		 * Creates the state of a new walk.
+		 * 
+		 * @param requestedClasses
+		 *            Classes whose instances to collect
+		 * @param maxDepth
+		 *            Maximal depth of visited objects
+		 * @param deadline
+		 *            Time at which the walk exceeds its time budget, as value
+		 *            of {@link System#nanoTime()}
+		 * @param parallelism
+		 *            Amount of threads that walk the graph
+		 */
+		public Walk(final Collection<Class<?>> requestedClasses, final int maxDepth, final long deadline,
+				final int parallelism) {
+			this.mRequestedClasses = requestedClasses.toArray(new Class<?>[requestedClasses.size()]);
+			this.mMaxDepth = maxDepth;
+			this.mDeadline = deadline;
+			this.mHistogram = new ConcurrentHashMap<>();
+			this.mInstances = new HashMap<>();
+			for (final Class<?> requestedClass : this.mRequestedClasses) {
+				this.mInstances.put(requestedClass, new ConcurrentLinkedQueue<>());
+			}
+			this.mVisited = new IdentitySet(parallelism * 16);
+			this.mVisitedAmount = new LongAdder();
+			this.mDepthExceeded = false;
+			this.mTimedOut = false;
+			this.mRootsIncomplete = false;
+		}
+
+		/**
+		 * Whether the walk exceeded its time budget.
+		 * 
+		 * @return <tt>True</tt> if the walk timed out, <tt>false</tt>
+		 *         otherwise
+		 */
+		public boolean isTimedOut() {
+			if (!this.mTimedOut && System.nanoTime() - this.mDeadline > 0) {
+				this.mTimedOut = true;
+			}
+			return this.mTimedOut;
+		}
+
+		/**
+		 * Records a visited object in the histogram and collects it if it is
+		 * an instance of a requested class.
+		 * 
+		 * @param object
+		 *            The visited object
+		 */
+		public void record(final Object object) {
+			this.mVisitedAmount.increment();
+			final Class<?> objectClass = object.getClass();
+			LongAdder amount = this.mHistogram.get(objectClass);
+			if (amount == null) {
+				final LongAdder createdAmount = new LongAdder();
+				amount = this.mHistogram.putIfAbsent(objectClass, createdAmount);
+				if (amount == null) {
+					amount = createdAmount;
+				}
+			}
+			amount.increment();
+			for (final Class<?> requestedClass : this.mRequestedClasses) {
+				if (requestedClass.isInstance(object)) {
+					this.mInstances.get(requestedClass).add(object);
+				}
+			}
+		}
+
+		/**
+		 * Creates the result of the finished walk.
+		 * 
+		 * @param duration
+		 *            Duration of the walk, in nanoseconds
+		 * @return The result of the walk
+		 */
+		public HeapWalkResult toResult(final long duration) {
+			final Map<Class<?>, List<Object>> instances = new HashMap<>();
+			for (final Map.Entry<Class<?>, Queue<Object>> entry : this.mInstances.entrySet()) {
+				instances.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+			}
+			final Map<Class<?>, Long> histogram = new HashMap<>();
+			for (final Map.Entry<Class<?>, LongAdder> entry : this.mHistogram.entrySet()) {
+				histogram.put(entry.getKey(), Long.valueOf(entry.getValue().sum()));
+			}
+			return new HeapWalkResult(instances, histogram, this.mVisitedAmount.sum(), duration, this.mTimedOut,
+					this.mDepthExceeded, this.mRootsIncomplete);
+		}
+	}
+
+	/**
+	 * Task that visits a batch of objects of the same depth and forks tasks
+	 * for the batches of their unvisited children. It does not wait for the
+	 * forked tasks, they complete it once they are done.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private final class WalkTask extends CountedCompleter<Void> {
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * Children collected for the next task or <tt>null</tt> if there are
+		 * none yet.
+		 */
+		private Object[] mChildren;
+		/**
+		 * Amount of collected children.
+		 */
+		private int mChildrenAmount;
+		/**
+		 * Depth of the objects to visit.
+		 */
+		private final int mDepth;
+		/**
+		 * Amount of objects to visit.
+		 */
+		private final int mObjectAmount;
+		/**
+		 * Objects to visit.
+		 */
+		private final Object[] mObjects;
+		/**
+		 * The walk the task belongs to.
+		 */
+		private final Walk mWalk;
+
+		/**
+		 * Creates a new task.
+		 * 
+		 * @param walk
+		 *            The walk the task belongs to
+		 * @param parent
+		 *            Task that gets completed once this task and all tasks it
+		 *            forked are done, <tt>null</tt> for the first task
+		 * @param objects
+		 *            Objects to visit
+		 * @param objectAmount
+		 *            Amount of objects to visit
+		 * @param depth
+		 *            Depth of the objects to visit
+		 */
+		public WalkTask(final Walk walk, final WalkTask parent, final Object[] objects, final int objectAmount,
+				final int depth) {
+			super(parent);
+			this.mWalk = walk;
+			this.mObjects = objects;
+			this.mObjectAmount = objectAmount;
+			this.mDepth = depth;
+			this.mChildren = null;
+			this.mChildrenAmount = 0;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.CountedCompleter#compute()
+		 */
+		@Override
+		public void compute() {
+			for (int i = 0; i < this.mObjectAmount; i++) {
+				if ((i & DEADLINE_CHECK_MASK) == 0 && this.mWalk.isTimedOut()) {
+					break;
+				}
+				this.mWalk.record(this.mObjects[i]);
+				expand(this.mObjects[i]);
+			}
+			if (this.mChildrenAmount > 0) {
+				forkChildren();
+			}
+			tryComplete();
+		}
+
+		/**
+		 * Collects the children of the given object, which are the values of
+		 * its reference fields, its elements if it is an array and its
+		 * components if it is an AWT container.
+		 * 
+		 * @param object
+		 *            The object to collect the children of
+		 */
+		private void expand(final Object object) {
+			final Class<?> objectClass = object.getClass();
+			if (objectClass.isArray()) {
+				if (objectClass.getComponentType().isPrimitive()) {
+					return;
+				}
+				final Object[] elements = (Object[]) object;
+				for (int i = 0; i < elements.length; i++) {
+					if ((i & DEADLINE_CHECK_MASK) == DEADLINE_CHECK_MASK && this.mWalk.isTimedOut()
+							|| !push(elements[i])) {
+						return;
+					}
+				}
+				return;
+			}
+
+			for (final MethodHandle getter : getGetters(HeapWalker.this.mInstanceGetters, objectClass, false)) {
+				if (!push(read(getter, object))) {
+					return;
+				}
+			}
+			if (HeapWalker.this.mContainerClass != null && HeapWalker.this.mContainerClass.isInstance(object)) {
+				try {
+					for (final Object component : (Object[]) HeapWalker.this.mGetComponents.invokeExact(object)) {
+						if (!push(component)) {
+							return;
+						}
+					}
+				} catch (final Throwable e) {
+					// The components are not available
+				}
+			}
+		}
+
+		/**
+		 * Forks a task that visits the collected children.
+		 */
+		private void forkChildren() {
+			addToPendingCount(1);
+			new WalkTask(this.mWalk, this, this.mChildren, this.mChildrenAmount, this.mDepth + 1).fork();
+			this.mChildren = null;
+			this.mChildrenAmount = 0;
+		}
+
+		/**
+		 * Collects the given child, unless it is <tt>null</tt> or already
+		 * visited.
+		 * 
+		 * @param child
+		 *            The child to collect
+		 * @return <tt>True</tt> if further children should be collected,
+		 *         <tt>false</tt> if the maximal depth is reached
+		 */
+		private boolean push(final Object child) {
+			if (child == null) {
+				return true;
+			}
+			if (this.mDepth >= this.mWalk.mMaxDepth) {
+				this.mWalk.mDepthExceeded = true;
+				return false;
+			}
+			if (!this.mWalk.mVisited.add(child)) {
+				return true;
+			}
+			if (this.mChildren == null) {
+				this.mChildren = new Object[BATCH_SIZE];
+			}
+			this.mChildren[this.mChildrenAmount] = child;
+			this.mChildrenAmount++;
+			if (this.mChildrenAmount == BATCH_SIZE) {
+				forkChildren();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Default maximal depth of a walk, roots have the depth <tt>0</tt>.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 100_000;
+	/**
+	 * Maximal amount of objects processed by one task.
+	 */
+	private static final int BATCH_SIZE = 256;
+	/**
+	 * Name of the class of AWT components.
+	 */
+	private static final String COMPONENT_CLASS_NAME = "java.awt.Component";
+	/**
+	 * Name of the class of AWT containers.
+	 */
+	private static final String CONTAINER_CLASS_NAME = "java.awt.Container";
+	/**
+	 * Amount of processed objects after which the time budget is checked
+	 * again, minus one.
+	 */
+	private static final int DEADLINE_CHECK_MASK = 63;
+	/**
+	 * Name of the class of AWT frames.
+	 */
+	private static final String FRAME_CLASS_NAME = "java.awt.Frame";
+	/**
+	 * Type of the handles that read reference fields.
+	 */
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	/**
+	 * Name of the method that determines whether a class still needs to be
+	 * initialized.
+	 */
+	private static final String INITIALIZATION_CHECK_NAME = "shouldBeInitialized";
+	/**
+	 * Name of the internal class that offers the initialization check on
+	 * virtual machines that removed it from {@link #UNSAFE_CLASS_NAME}.
+	 */
+	private static final String INTERNAL_UNSAFE_CLASS_NAME = "jdk.internal.misc.Unsafe";
+	/**
+	 * Name of the static method that gets the instance of the internal class
+	 * that offers the initialization check.
+	 */
+	private static final String INTERNAL_UNSAFE_FACTORY_NAME = "getUnsafe";
+	/**
+	 * Name of the field of references that holds the referred object.
+	 */
+	private static final String REFERENT_FIELD_NAME = "referent";
+	/**
+	 * Name of the threads of the walker.
+	 */
+	private static final String THREAD_NAME = "Mem-Eater-Bug heap walker";
+	/**
+	 * Name of the class that offers the initialization check.
+	 */
+	private static final String UNSAFE_CLASS_NAME = "sun.misc.Unsafe";
+	/**
+	 * Name of the field that holds the instance of the class that offers the
+	 * initialization check.
+	 */
+	private static final String UNSAFE_FIELD_NAME = "theUnsafe";
+
+	/**
+	 * Adds the given object as root of a walk, unless it is <tt>null</tt> or
+	 * already visited.
+	 * 
+	 * @param roots
+	 *            The roots of the walk
+	 * @param walk
+	 *            The walk
+	 * @param root
+	 *            The object to add
+	 */
+	private static void addRoot(final List<Object> roots, final Walk walk, final Object root) {
+		if (root != null && walk.mVisited.add(root)) {
+			roots.add(root);
+		}
+	}
+
+	/**
+	 * Reads a reference field.
+	 * 
+	 * @param getter
+	 *            Handle that reads the field, of type <tt>(Object)Object</tt>
+	 * @param holder
+	 *            The object holding the field, ignored for static fields
+	 * @return The value of the field or <tt>null</tt> if it could not be read
+	 */
+	private static Object read(final MethodHandle getter, final Object holder) {
+		try {
+			return (Object) getter.invokeExact(holder);
+		} catch (final Throwable e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Finds the handle that determines whether a class still needs to be
+	 * initialized. Prefers <tt>sun.misc.Unsafe</tt> and falls back to
+	 * <tt>jdk.internal.misc.Unsafe</tt>, whose package gets exported to the
+	 * agent by the given instrumentation object.
+	 * 
+	 * @param inst
+	 *            Object used to export the package of the internal class, may
+	 *            be <tt>null</tt>
+	 * @return The handle of type <tt>(Class)boolean</tt> or <tt>null</tt> if
+	 *         the virtual machine does not offer it
+	 */
+	private static MethodHandle findInitializationCheck(final Instrumentation inst) {
+		final MethodType checkType = MethodType.methodType(boolean.class, Class.class);
+		try {
+			final Class<?> unsafeClass = Class.forName(UNSAFE_CLASS_NAME);
+			final Field unsafeField = unsafeClass.getDeclaredField(UNSAFE_FIELD_NAME);
+			unsafeField.setAccessible(true);
+			return MethodHandles.lookup().findVirtual(unsafeClass, INITIALIZATION_CHECK_NAME, checkType)
+					.bindTo(unsafeField.get(null));
+		} catch (final ReflectiveOperationException | RuntimeException e) {
+			// Removed by newer virtual machines, try the internal class
+		}
+		if (inst == null) {
+			return null;
+		}
+		try {
+			final Class<?> unsafeClass = Class.forName(INTERNAL_UNSAFE_CLASS_NAME);
+			final Module baseModule = unsafeClass.getModule();
+			final Module agentModule = HeapWalker.class.getModule();
+			if (!baseModule.isExported(unsafeClass.getPackageName(), agentModule)) {
+				final Map<String, Set<Module>> exports = Collections.singletonMap(unsafeClass.getPackageName(),
+						Collections.singleton(agentModule));
+				inst.redefineModule(baseModule, Collections.<Module> emptySet(), exports,
+						Collections.<String, Set<Module>> emptyMap(), Collections.<Class<?>> emptySet(),
+						Collections.<Class<?>, List<Class<?>>> emptyMap());
+			}
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			final Object unsafe = lookup
+					.findStatic(unsafeClass, INTERNAL_UNSAFE_FACTORY_NAME, MethodType.methodType(unsafeClass))
+					.invoke();
+			return lookup.findVirtual(unsafeClass, INITIALIZATION_CHECK_NAME, checkType).bindTo(unsafe);
+		} catch (final Throwable e) {
+			// The virtual machine does not offer the check
+			return null;
+		}
+	}
+
+	/**
+	 * Registry used to access private fields.
+	 */
+	private final AccessorRegistry mAccessors;
+	/**
+	 * Class of AWT containers or <tt>null</tt> if AWT is not available.
+	 */
+	private final Class<?> mContainerClass;
+	/**
+	 * Class of AWT frames or <tt>null</tt> if AWT is not available.
+	 */
+	private final Class<?> mFrameClass;
+	/**
+	 * Handle that gets the children of an AWT container, of type
+	 * <tt>(Object)Object[]</tt>, or <tt>null</tt> if AWT is not available.
+	 */
+	private final MethodHandle mGetComponents;
+	/**
+	 * Handle that gets the open AWT frames, of type <tt>()Object[]</tt>, or
+	 * <tt>null</tt> if AWT is not available.
+	 */
+	private final MethodHandle mGetFrames;
+	/**
+	 * Handle that determines whether a class still needs to be initialized,
+	 * of type <tt>(Class)boolean</tt>, or <tt>null</tt> if not available.
+	 */
+	private final MethodHandle mInitializationCheck;
+	/**
+	 * Handles that read the instance reference fields of a class, including
+	 * those of its super classes, by the class.
+	 */
+	private final Map<Class<?>, MethodHandle[]> mInstanceGetters;
+	/**
+	 * Object used to enumerate the loaded classes, may be <tt>null</tt>.
+	 */
+	private final Instrumentation mInstrumentation;
+	/**
+	 * Amount of threads that walk the graph.
+	 */
+	private final int mParallelism;
+	/**
+	 * Handles that read the static reference fields of a class, by the
+	 * class.
+	 */
+	private final Map<Class<?>, MethodHandle[]> mStaticGetters;
+
+	/**
+	 * Creates a new walker.
+	 * 
+	 * @param accessors
+	 *            Registry used to access private fields
+	 * @param inst
+	 *            Object used to enumerate the loaded classes, whose static
+	 *            fields are roots of the walk. May be <tt>null</tt>, then
+	 *            static fields are no roots.
+	 * @param parallelism
+	 *            Amount of threads that walk the graph
+	 */
+	public HeapWalker(final AccessorRegistry accessors, final Instrumentation inst, final int parallelism) {
+		this.mAccessors = accessors;
+		this.mInstrumentation = inst;
+		this.mParallelism = Math.max(1, parallelism);
+		this.mInitializationCheck = findInitializationCheck(inst);
+		this.mInstanceGetters = new ConcurrentHashMap<>();
+		this.mStaticGetters = new ConcurrentHashMap<>();
+
+		Class<?> containerClass = null;
+		Class<?> frameClass = null;
+		MethodHandle getComponents = null;
+		MethodHandle getFrames = null;
+		try {
+			// Loads the classes without initializing them
+			containerClass = Class.forName(CONTAINER_CLASS_NAME, false, null);
+			frameClass = Class.forName(FRAME_CLASS_NAME, false, null);
+			final Class<?> componentClass = Class.forName(COMPONENT_CLASS_NAME, false, null);
+			final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			getComponents = lookup
+					.findVirtual(containerClass, "getComponents", MethodType.methodType(componentClass.arrayType()))
+					.asType(MethodType.methodType(Object[].class, Object.class));
+			getFrames = lookup.findStatic(frameClass, "getFrames", MethodType.methodType(frameClass.arrayType()))
+					.asType(MethodType.methodType(Object[].class));
+		} catch (final ReflectiveOperationException | LinkageError e) {
+			// AWT is not available
+			containerClass = null;
+			frameClass = null;
+			getComponents = null;
+			getFrames = null;
+		}
+		this.mContainerClass = containerClass;
+		this.mFrameClass = frameClass;
+		this.mGetComponents = getComponents;
+		this.mGetFrames = getFrames;
+	}
+
+	/**
+	 * Walks the object graph starting at the roots and collects the instances
+	 * of the given classes. Blocks until the walk is finished, which takes at
+	 * most about the time budget.
+	 * 
+	 * @param requestedClasses
+	 *            Classes whose instances to collect, instances of sub classes
+	 *            are included
+	 * @param maxDepth
+	 *            Maximal depth of visited objects, roots have the depth
+	 *            <tt>0</tt>
+	 * @param timeBudget
+	 *            Maximal duration of the walk
+	 * @param unit
+	 *            Unit of the time budget
+	 * @return The result of the walk
+	 */
+	public HeapWalkResult walk(final Collection<Class<?>> requestedClasses, final int maxDepth, final long timeBudget,
+			final TimeUnit unit) {
+		final long start = System.nanoTime();
+		final Walk walk = new Walk(requestedClasses, maxDepth, start + unit.toNanos(timeBudget),
+				this.mParallelism);
+		final List<Object> roots = collectRoots(walk);
+
+		final ForkJoinPool pool = new ForkJoinPool(this.mParallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+			@Override
+			public ForkJoinWorkerThread newThread(final ForkJoinPool workerPool) {
+				final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+						.newThread(workerPool);
+				thread.setName(THREAD_NAME);
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, null, false);
+		try {
+			pool.invoke(new WalkTask(walk, null, roots.toArray(), roots.size(), 0));
+		} finally {
+			pool.shutdownNow();
+		}
+		return walk.toResult(System.nanoTime() - start);
+	}
+
+	/**
+	 * Adds the handles that read the reference fields declared by the given
+	 * class to the given list. Fields that are not accessible are skipped.
+	 * 
+	 * @param getters
+	 *            List to add the handles to, of type <tt>(Object)Object</tt>
+	 * @param declaringClass
+	 *            The class that declares the fields
+	 * @param statics
+	 *            Whether to add the static or the instance fields
+	 */
+	private void addGetters(final List<MethodHandle> getters, final Class<?> declaringClass,
+			final boolean statics) {
+		try {
+			MethodHandles.Lookup lookup = null;
+			for (final Field field : declaringClass.getDeclaredFields()) {
+				if (field.getType().isPrimitive() || Modifier.isStatic(field.getModifiers()) != statics) {
+					continue;
+				}
+				if (declaringClass == Reference.class && field.getName().equals(REFERENT_FIELD_NAME)) {
+					// Objects that are only weakly reachable are not live
+					continue;
+				}
+				if (lookup == null) {
+					lookup = this.mAccessors.lookupIn(declaringClass);
+				}
+				MethodHandle getter = lookup.unreflectGetter(field);
+				if (statics) {
+					getter = MethodHandles.dropArguments(getter, 0, Object.class);
+				}
+				getters.add(getter.asType(GETTER_TYPE));
+			}
+		} catch (final IllegalAccessException | RuntimeException | LinkageError e) {
+			// The fields of the class are not accessible
+		}
+	}
+
+	/**
+	 * Collects the roots of a walk and marks them as visited.
+	 * 
+	 * @param walk
+	 *            The walk to collect the roots for
+	 * @return The roots of the walk
+	 */
+	private List<Object> collectRoots(final Walk walk) {
+		final List<Object> roots = new ArrayList<>();
+		if (this.mInitializationCheck == null && (this.mInstrumentation != null || this.mGetFrames != null)) {
+			// No class is known to be initialized, thus static fields and
+			// frames can not be roots
+			walk.mRootsIncomplete = true;
+		}
+		if (this.mInstrumentation != null) {
+			for (final Class<?> loadedClass : this.mInstrumentation.getAllLoadedClasses()) {
+				if (walk.isTimedOut()) {
+					return roots;
+				}
+				if (loadedClass.isArray() || loadedClass.isPrimitive() || !isInitialized(loadedClass)) {
+					continue;
+				}
+				for (final MethodHandle getter : getGetters(this.mStaticGetters, loadedClass, true)) {
+					addRoot(roots, walk, read(getter, null));
+				}
+			}
+		}
+
+		ThreadGroup group = Thread.currentThread().getThreadGroup();
+		while (group.getParent() != null) {
+			group = group.getParent();
+		}
+		final Thread[] threads = new Thread[group.activeCount() * 2 + 1];
+		final int threadAmount = group.enumerate(threads, true);
+		for (int i = 0; i < threadAmount; i++) {
+			addRoot(roots, walk, threads[i]);
+		}
+
+		if (this.mGetFrames != null && isInitialized(this.mFrameClass)) {
+			try {
+				for (final Object frame : (Object[]) this.mGetFrames.invokeExact()) {
+					addRoot(roots, walk, frame);
+				}
+			} catch (final Throwable e) {
+				// The frames are not available, for example in headless mode
+			}
+		}
+		return roots;
+	}
+
+	/**
+	 * Gets the handles that read the reference fields of the given class.
+	 * They are created on the first request and cached.
+	 * 
+	 * @param cache
+	 *            Cache of the handles by their class
+	 * @param walkedClass
+	 *            The class to get the handles of
+	 * @param statics
+	 *            Whether to get the handles of the static fields declared by
+	 *            the class or of the instance fields of the class and its
+	 *            super classes
+	 * @return The handles that read the fields, of type
+	 *         <tt>(Object)Object</tt>
+	 */
+	private MethodHandle[] getGetters(final Map<Class<?>, MethodHandle[]> cache, final Class<?> walkedClass,
+			final boolean statics) {
+		final MethodHandle[] cachedGetters = cache.get(walkedClass);
+		if (cachedGetters != null) {
+			return cachedGetters;
+		}
+		final List<MethodHandle> getters = new ArrayList<>();
+		if (statics) {
+			addGetters(getters, walkedClass, true);
+		} else {
+			Class<?> currentClass = walkedClass;
+			while (currentClass != null) {
+				addGetters(getters, currentClass, false);
+				currentClass = currentClass.getSuperclass();
+			}
+		}
+		final MethodHandle[] createdGetters = getters.toArray(new MethodHandle[getters.size()]);
+		cache.put(walkedClass, createdGetters);
+		return createdGetters;
+	}
+
+	/**
+	 * Whether the given class is initialized, such that reading its static
+	 * fields does not run its static initializer.
+	 * 
+	 * @param checkedClass
+	 *            The class to check
+	 * @return <tt>True</tt> if the class is known to be initialized,
+	 *         <tt>false</tt> otherwise
+	 */
+	private boolean isInitialized(final Class<?> checkedClass) {
+		if (this.mInitializationCheck == null) {
+			return false;
+		}
+		try {
+			return !(boolean) this.mInitializationCheck.invokeExact(checkedClass);
+		} catch (final Throwable e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package de.zabuza.memeaterbug.injection.heap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of objects that compares them by identity and may be used by many
+ * threads at once. The objects are spread over stripes by their identity
+ * hash code, each stripe is guarded by its own lock, thus threads rarely
+ * contend.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class IdentitySet {
+	/**
+	 * Mask that maps a hash code to its stripe.
+	 */
+	private final int mMask;
+	/**
+	 * The stripes of the set.
+	 */
+	private final List<Set<Object>> mStripes;
+
+	/**
+	 * Creates a new empty set.
+	 * 
+	 * @param minStripeAmount
+	 *            Minimal amount of stripes, rounded up to a power of two
+	 */
+	IdentitySet(final int minStripeAmount) {
+		final int stripeAmount = Integer.highestOneBit(Math.max(1, minStripeAmount - 1)) << 1;
+		this.mMask = stripeAmount - 1;
+		this.mStripes = new ArrayList<>(stripeAmount);
+		for (int i = 0; i < stripeAmount; i++) {
+			this.mStripes.add(Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+		}
+	}
+
+	/**
+	 * Adds the given object to the set.
+	 * 
+	 * @param object
+	 *            The object to add
+	 * @return <tt>True</tt> if the object was not contained yet,
+	 *         <tt>false</tt> otherwise
+	 */
+	boolean add(final Object object) {
+		final int hash = System.identityHashCode(object);
+		final Set<Object> stripe = this.mStripes.get((hash ^ (hash >>> 16)) & this.mMask);
+		synchronized (stripe) {
+			return stripe.add(object);
+		}
+	}
+}
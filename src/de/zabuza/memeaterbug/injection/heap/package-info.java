@@ -0,0 +1,5 @@
+/**
+ * This package contains a walker of the object graph of the target
+ * application, used by injected agents to discover instances of classes.
+ */
+package de.zabuza.memeaterbug.injection.heap;
@@ -0,0 +1,365 @@
+package de.zabuza.memeaterbug.injection.hook;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Minimal rewriter of class files that redirects writes to hooked fields.
+ * Every <tt>putfield</tt> or <tt>putstatic</tt> instruction that refers to a
+ * hooked field is replaced by an <tt>invokestatic</tt> of the method the
+ * {@link FieldHook} generated for it. Both instructions have the same length
+ * and the method takes the same operands as the replaced instruction, thus
+ * branch offsets, exception tables and stack map frames stay valid and only
+ * the constant pool grows.<br/>
+ * <br/>
+ * Writes to instance fields within constructors are not redirected, since
+ * the object may not be initialized yet at that point, which the verifier
+ * does not allow to pass to a method.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class ClassRewriter {
+	/**
+	 * Name of the attribute that holds the bytecode of a method.
+	 */
+	static final String CODE_ATTRIBUTE = "Code";
+	/**
+	 * Magic number that starts every class file.
+	 */
+	static final int MAGIC = 0xCAFEBABE;
+	/**
+	 * Name of constructors.
+	 */
+	private static final String CONSTRUCTOR_NAME = "<init>";
+	/**
+	 * Thrown when the bytecode contains an unknown instruction.
+	 */
+	private static final String ERROR_UNKNOWN_OPCODE = "Unknown instruction: 0x";
+	/**
+	 * Opcode of the instruction that increments a local variable.
+	 */
+	private static final int IINC = 0x84;
+	/**
+	 * Opcode of the instruction that invokes a static method.
+	 */
+	private static final int INVOKESTATIC = 0xB8;
+	/**
+	 * Opcode of the instruction that looks up a jump target by a key.
+	 */
+	private static final int LOOKUPSWITCH = 0xAB;
+	/**
+	 * Offset of the amount of constant pool entries in a class file.
+	 */
+	private static final int POOL_COUNT_OFFSET = 8;
+	/**
+	 * Opcode of the instruction that writes an instance field.
+	 */
+	private static final int PUTFIELD = 0xB5;
+	/**
+	 * Opcode of the instruction that writes a static field.
+	 */
+	private static final int PUTSTATIC = 0xB3;
+	/**
+	 * Opcode of the instruction that looks up a jump target by an index.
+	 */
+	private static final int TABLESWITCH = 0xAA;
+	/**
+	 * Opcode of the prefix that widens the index of the next instruction.
+	 */
+	private static final int WIDE = 0xC4;
+
+	/**
+	 * Rewrites the given class file such that writes to the given hooked
+	 * fields are redirected.
+	 * 
+	 * @param classFile
+	 *            Content of the class file
+	 * @param hooks
+	 *            The hooks by the {@link FieldHook#getKey(String, String, String)
+	 *            key} of their field
+	 * @param loader
+	 *            The class loader that defines the class
+	 * @return The content of the rewritten class file or <tt>null</tt> if the
+	 *         class does not write hooked fields or is no class file
+	 * @throws IllegalArgumentException
+	 *             If the bytecode contains an unknown instruction
+	 */
+	static byte[] rewrite(final byte[] classFile, final Map<String, FieldHook> hooks, final ClassLoader loader)
+			throws IllegalArgumentException {
+		final ByteBuffer input = ByteBuffer.wrap(classFile);
+		if (input.getInt() != MAGIC) {
+			return null;
+		}
+		final int poolCount = input.getShort(POOL_COUNT_OFFSET) & 0xFFFF;
+		input.position(POOL_COUNT_OFFSET + 2);
+		final int[] offsets = new int[poolCount];
+		final byte[] tags = new byte[poolCount];
+		for (int i = 1; i < poolCount; i++) {
+			tags[i] = input.get();
+			offsets[i] = input.position();
+			final int size = getEntrySize(tags[i], input);
+			if (size < 0) {
+				return null;
+			}
+			input.position(input.position() + size);
+			if (tags[i] == ConstantPool.LONG || tags[i] == ConstantPool.DOUBLE) {
+				// Entries of eight bytes take two indices
+				i++;
+			}
+		}
+		final int poolEnd = input.position();
+
+		// Resolves the referenced fields that are hooked
+		FieldHook[] referencedHooks = null;
+		for (int i = 1; i < poolCount; i++) {
+			if (tags[i] != ConstantPool.FIELD_REF) {
+				continue;
+			}
+			final int classIndex = input.getShort(offsets[i]) & 0xFFFF;
+			final int nameAndTypeIndex = input.getShort(offsets[i] + 2) & 0xFFFF;
+			final String owner = readUtf8(input, offsets, input.getShort(offsets[classIndex]) & 0xFFFF);
+			final String name = readUtf8(input, offsets, input.getShort(offsets[nameAndTypeIndex]) & 0xFFFF);
+			final String descriptor = readUtf8(input, offsets, input.getShort(offsets[nameAndTypeIndex] + 2) & 0xFFFF);
+			final FieldHook hook = hooks.get(FieldHook.getKey(owner, name, descriptor));
+			if (hook != null && hook.isActive() && hook.isVisibleFrom(loader)) {
+				if (referencedHooks == null) {
+					referencedHooks = new FieldHook[poolCount];
+				}
+				referencedHooks[i] = hook;
+			}
+		}
+		if (referencedHooks == null) {
+			return null;
+		}
+
+		// Skips access flags, this and super class and the interfaces
+		input.position(poolEnd + 6);
+		final int interfaceAmount = input.getShort() & 0xFFFF;
+		input.position(input.position() + 2 * interfaceAmount);
+		final int fieldAmount = input.getShort() & 0xFFFF;
+		for (int i = 0; i < fieldAmount; i++) {
+			input.position(input.position() + 6);
+			skipAttributes(input);
+		}
+
+		final byte[] rewritten = classFile.clone();
+		final ConstantPool pool = new ConstantPool(poolCount);
+		boolean changed = false;
+		final int methodAmount = input.getShort() & 0xFFFF;
+		for (int i = 0; i < methodAmount; i++) {
+			input.position(input.position() + 2);
+			final boolean isConstructor = CONSTRUCTOR_NAME
+					.equals(readUtf8(input, offsets, input.getShort() & 0xFFFF));
+			input.position(input.position() + 2);
+			final int attributeAmount = input.getShort() & 0xFFFF;
+			for (int j = 0; j < attributeAmount; j++) {
+				final int nameIndex = input.getShort() & 0xFFFF;
+				final int length = input.getInt();
+				final int attributeStart = input.position();
+				if (CODE_ATTRIBUTE.equals(readUtf8(input, offsets, nameIndex))) {
+					final int codeStart = attributeStart + 8;
+					final int codeLength = input.getInt(attributeStart + 4);
+					changed |= rewriteCode(rewritten, codeStart, codeLength, referencedHooks, pool, isConstructor);
+				}
+				input.position(attributeStart + length);
+			}
+		}
+		if (!changed || pool.getCount() > ConstantPool.MAX_COUNT) {
+			return null;
+		}
+
+		final byte[] entries = pool.toByteArray();
+		final ByteBuffer output = ByteBuffer.allocate(rewritten.length + entries.length);
+		output.put(rewritten, 0, POOL_COUNT_OFFSET);
+		output.putShort((short) pool.getCount());
+		output.put(rewritten, POOL_COUNT_OFFSET + 2, poolEnd - POOL_COUNT_OFFSET - 2);
+		output.put(entries);
+		output.put(rewritten, poolEnd, rewritten.length - poolEnd);
+		return output.array();
+	}
+
+	/**
+	 * Gets the size of the content of a constant pool entry.
+	 * 
+	 * @param tag
+	 *            Tag of the entry
+	 * @param input
+	 *            The class file, positioned at the content of the entry
+	 * @return The size of the content in bytes or <tt>-1</tt> if the tag is
+	 *         unknown
+	 */
+	private static int getEntrySize(final byte tag, final ByteBuffer input) {
+		switch (tag) {
+		case ConstantPool.UTF8:
+			return 2 + (input.getShort(input.position()) & 0xFFFF);
+		case ConstantPool.CLASS:
+		case ConstantPool.STRING:
+		case ConstantPool.METHOD_TYPE:
+		case ConstantPool.MODULE:
+		case ConstantPool.PACKAGE:
+			return 2;
+		case ConstantPool.METHOD_HANDLE:
+			return 3;
+		case ConstantPool.INTEGER:
+		case ConstantPool.FLOAT:
+		case ConstantPool.FIELD_REF:
+		case ConstantPool.METHOD_REF:
+		case ConstantPool.INTERFACE_METHOD_REF:
+		case ConstantPool.NAME_AND_TYPE:
+		case ConstantPool.DYNAMIC:
+		case ConstantPool.INVOKE_DYNAMIC:
+			return 4;
+		case ConstantPool.LONG:
+		case ConstantPool.DOUBLE:
+			return 8;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * Gets the length of the instruction at the given position.
+	 * 
+	 * @param code
+	 *            The class file holding the bytecode
+	 * @param codeStart
+	 *            Position of the first instruction of the method
+	 * @param pc
+	 *            Position of the instruction, relative to the first
+	 *            instruction
+	 * @return The length of the instruction in bytes or <tt>-1</tt> if the
+	 *         opcode is unknown
+	 */
+	private static int getInstructionLength(final byte[] code, final int codeStart, final int pc) {
+		final int opcode = code[codeStart + pc] & 0xFF;
+		if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+			// Operands are aligned to four bytes relative to the first
+			// instruction
+			final int operands = (pc + 4) & ~3;
+			final ByteBuffer buffer = ByteBuffer.wrap(code);
+			if (opcode == TABLESWITCH) {
+				final int low = buffer.getInt(codeStart + operands + 4);
+				final int high = buffer.getInt(codeStart + operands + 8);
+				return operands - pc + 12 + 4 * (high - low + 1);
+			}
+			final int pairs = buffer.getInt(codeStart + operands + 4);
+			return operands - pc + 8 + 8 * pairs;
+		}
+		if (opcode == WIDE) {
+			// The wide form of iinc has an additional constant
+			return (code[codeStart + pc + 1] & 0xFF) == IINC ? 6 : 4;
+		}
+		if (opcode <= 0x0F || opcode >= 0x1A && opcode <= 0x35 || opcode >= 0x3B && opcode <= 0x83
+				|| opcode >= 0x85 && opcode <= 0x98 || opcode >= 0xAC && opcode <= 0xB1 || opcode == 0xBE
+				|| opcode == 0xBF || opcode == 0xC2 || opcode == 0xC3) {
+			return 1;
+		}
+		if (opcode == 0x10 || opcode == 0x12 || opcode >= 0x15 && opcode <= 0x19 || opcode >= 0x36 && opcode <= 0x3A
+				|| opcode == 0xA9 || opcode == 0xBC) {
+			return 2;
+		}
+		if (opcode == 0x11 || opcode == 0x13 || opcode == 0x14 || opcode == IINC || opcode >= 0x99 && opcode <= 0xA8
+				|| opcode >= 0xB2 && opcode <= 0xB8 || opcode == 0xBB || opcode == 0xBD || opcode == 0xC0
+				|| opcode == 0xC1 || opcode == 0xC6 || opcode == 0xC7) {
+			return 3;
+		}
+		if (opcode == 0xC5) {
+			return 4;
+		}
+		if (opcode == 0xB9 || opcode == 0xBA || opcode == 0xC8 || opcode == 0xC9) {
+			return 5;
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads a modified UTF-8 entry of the constant pool.
+	 * 
+	 * @param input
+	 *            The class file
+	 * @param offsets
+	 *            Positions of the contents of the entries
+	 * @param index
+	 *            Index of the entry
+	 * @return The value of the entry
+	 */
+	private static String readUtf8(final ByteBuffer input, final int[] offsets, final int index) {
+		final int length = input.getShort(offsets[index]) & 0xFFFF;
+		// Names and descriptors of fields and attributes are plain ASCII in
+		// practice, where modified UTF-8 and UTF-8 agree
+		return new String(input.array(), offsets[index] + 2, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Redirects the writes to hooked fields within the bytecode of a method.
+	 * 
+	 * @param code
+	 *            The class file holding the bytecode, it gets modified
+	 * @param codeStart
+	 *            Position of the first instruction of the method
+	 * @param codeLength
+	 *            Length of the bytecode
+	 * @param referencedHooks
+	 *            The hooks by the index of the field reference in the
+	 *            constant pool
+	 * @param pool
+	 *            Pool the references to the generated methods are added to
+	 * @param isConstructor
+	 *            Whether the method is a constructor
+	 * @return <tt>True</tt> if a write was redirected, <tt>false</tt>
+	 *         otherwise
+	 * @throws IllegalArgumentException
+	 *             If the bytecode contains an unknown instruction
+	 */
+	private static boolean rewriteCode(final byte[] code, final int codeStart, final int codeLength,
+			final FieldHook[] referencedHooks, final ConstantPool pool, final boolean isConstructor)
+			throws IllegalArgumentException {
+		boolean changed = false;
+		int pc = 0;
+		while (pc < codeLength) {
+			final int opcode = code[codeStart + pc] & 0xFF;
+			if (opcode == PUTSTATIC || opcode == PUTFIELD && !isConstructor) {
+				final int fieldIndex = ((code[codeStart + pc + 1] & 0xFF) << 8) | (code[codeStart + pc + 2] & 0xFF);
+				final FieldHook hook = referencedHooks[fieldIndex];
+				if (hook != null && hook.isStatic() == (opcode == PUTSTATIC)) {
+					final int methodIndex = pool.addMethodRef(hook.getHookClass(), hook.getHookName(),
+							hook.getHookDescriptor());
+					code[codeStart + pc] = (byte) INVOKESTATIC;
+					code[codeStart + pc + 1] = (byte) (methodIndex >>> 8);
+					code[codeStart + pc + 2] = (byte) methodIndex;
+					changed = true;
+				}
+			}
+			final int length = getInstructionLength(code, codeStart, pc);
+			if (length <= 0) {
+				throw new IllegalArgumentException(ERROR_UNKNOWN_OPCODE + Integer.toHexString(opcode));
+			}
+			pc += length;
+		}
+		return changed;
+	}
+
+	/**
+	 * Skips the attributes of a field or method.
+	 * 
+	 * @param input
+	 *            The class file, positioned at the amount of attributes
+	 */
+	private static void skipAttributes(final ByteBuffer input) {
+		final int amount = input.getShort() & 0xFFFF;
+		for (int i = 0; i < amount; i++) {
+			input.position(input.position() + 2);
+			final int length = input.getInt();
+			input.position(input.position() + length);
+		}
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private ClassRewriter() {
+
+	}
+}
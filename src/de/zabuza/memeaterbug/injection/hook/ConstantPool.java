@@ -0,0 +1,246 @@
+package de.zabuza.memeaterbug.injection.hook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entries that are appended to the constant pool of a class file. Equal
+ * entries are only added once.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class ConstantPool {
+	/**
+	 * Tag of a class entry.
+	 */
+	static final int CLASS = 7;
+	/**
+	 * Tag of a double entry.
+	 */
+	static final int DOUBLE = 6;
+	/**
+	 * Tag of a dynamically computed constant entry.
+	 */
+	static final int DYNAMIC = 17;
+	/**
+	 * Tag of a field reference entry.
+	 */
+	static final int FIELD_REF = 9;
+	/**
+	 * Tag of a float entry.
+	 */
+	static final int FLOAT = 4;
+	/**
+	 * Tag of an integer entry.
+	 */
+	static final int INTEGER = 3;
+	/**
+	 * Tag of an interface method reference entry.
+	 */
+	static final int INTERFACE_METHOD_REF = 11;
+	/**
+	 * Tag of a dynamically computed call site entry.
+	 */
+	static final int INVOKE_DYNAMIC = 18;
+	/**
+	 * Tag of a long entry.
+	 */
+	static final int LONG = 5;
+	/**
+	 * Maximal amount of entries of a constant pool, including the unused
+	 * first one.
+	 */
+	static final int MAX_COUNT = 0xFFFF;
+	/**
+	 * Tag of a method handle entry.
+	 */
+	static final int METHOD_HANDLE = 15;
+	/**
+	 * Tag of a method reference entry.
+	 */
+	static final int METHOD_REF = 10;
+	/**
+	 * Tag of a method type entry.
+	 */
+	static final int METHOD_TYPE = 16;
+	/**
+	 * Tag of a module entry.
+	 */
+	static final int MODULE = 19;
+	/**
+	 * Tag of a name and type entry.
+	 */
+	static final int NAME_AND_TYPE = 12;
+	/**
+	 * Tag of a package entry.
+	 */
+	static final int PACKAGE = 20;
+	/**
+	 * Tag of a string entry.
+	 */
+	static final int STRING = 8;
+	/**
+	 * Tag of a modified UTF-8 entry.
+	 */
+	static final int UTF8 = 1;
+
+	/**
+	 * Amount of entries of the pool, including the unused first one.
+	 */
+	private int mCount;
+	/**
+	 * Content of the added entries.
+	 */
+	private final ByteArrayOutputStream mEntries;
+	/**
+	 * Indices of the added entries, by a key that describes them.
+	 */
+	private final Map<String, Integer> mIndices;
+	/**
+	 * Stream the added entries are written to.
+	 */
+	private final DataOutputStream mOutput;
+
+	/**
+	 * Creates a new pool that appends entries to a pool of the given size.
+	 * 
+	 * @param count
+	 *            Amount of existing entries, including the unused first one
+	 */
+	ConstantPool(final int count) {
+		this.mCount = count;
+		this.mIndices = new HashMap<>();
+		this.mEntries = new ByteArrayOutputStream();
+		this.mOutput = new DataOutputStream(this.mEntries);
+	}
+
+	/**
+	 * Adds a class entry.
+	 * 
+	 * @param internalName
+	 *            Internal name of the class, like <tt>java/lang/Object</tt>
+	 * @return The index of the entry
+	 */
+	int addClass(final String internalName) {
+		final int nameIndex = addUtf8(internalName);
+		return add("C" + internalName, CLASS, nameIndex, -1);
+	}
+
+	/**
+	 * Adds an integer entry.
+	 * 
+	 * @param value
+	 *            The value of the entry
+	 * @return The index of the entry
+	 */
+	int addInteger(final int value) {
+		return add("I" + value, INTEGER, value >>> 16, value & 0xFFFF);
+	}
+
+	/**
+	 * Adds a method reference entry.
+	 * 
+	 * @param owner
+	 *            Internal name of the class that declares the method
+	 * @param name
+	 *            Name of the method
+	 * @param descriptor
+	 *            Descriptor of the method
+	 * @return The index of the entry
+	 */
+	int addMethodRef(final String owner, final String name, final String descriptor) {
+		final int classIndex = addClass(owner);
+		final int nameAndTypeIndex = add("N" + name + ';' + descriptor, NAME_AND_TYPE, addUtf8(name),
+				addUtf8(descriptor));
+		return add("M" + owner + '.' + name + descriptor, METHOD_REF, classIndex, nameAndTypeIndex);
+	}
+
+	/**
+	 * Adds a modified UTF-8 entry.
+	 * 
+	 * @param value
+	 *            The value of the entry
+	 * @return The index of the entry
+	 */
+	int addUtf8(final String value) {
+		final Integer index = this.mIndices.get("U" + value);
+		if (index != null) {
+			return index.intValue();
+		}
+		try {
+			this.mOutput.writeByte(UTF8);
+			this.mOutput.writeUTF(value);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return register("U" + value);
+	}
+
+	/**
+	 * Gets the amount of entries of the pool, including the unused first one
+	 * and the existing entries.
+	 * 
+	 * @return The amount of entries of the pool
+	 */
+	int getCount() {
+		return this.mCount;
+	}
+
+	/**
+	 * Gets the content of the added entries.
+	 * 
+	 * @return The content of the added entries
+	 */
+	byte[] toByteArray() {
+		return this.mEntries.toByteArray();
+	}
+
+	/**
+	 * Adds an entry that consists of a tag and up to two values of two bytes.
+	 * 
+	 * @param key
+	 *            Key that describes the entry
+	 * @param tag
+	 *            Tag of the entry
+	 * @param first
+	 *            The first value
+	 * @param second
+	 *            The second value or <tt>-1</tt> if the entry only has one
+	 * @return The index of the entry
+	 */
+	private int add(final String key, final int tag, final int first, final int second) {
+		final Integer index = this.mIndices.get(key);
+		if (index != null) {
+			return index.intValue();
+		}
+		try {
+			this.mOutput.writeByte(tag);
+			this.mOutput.writeShort(first);
+			if (second != -1) {
+				this.mOutput.writeShort(second);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return register(key);
+	}
+
+	/**
+	 * Registers the index of the entry that was just written.
+	 * 
+	 * @param key
+	 *            Key that describes the entry
+	 * @return The index of the entry
+	 */
+	private int register(final String key) {
+		final int index = this.mCount;
+		this.mCount++;
+		this.mIndices.put(key, Integer.valueOf(index));
+		return index;
+	}
+}
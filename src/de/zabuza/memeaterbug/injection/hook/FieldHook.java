@@ -0,0 +1,288 @@
+package de.zabuza.memeaterbug.injection.hook;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Hook of a field that was installed by {@link FieldHooks}. Writes to the
+ * field are redirected to a generated method that stores the value and
+ * notifies the {@link FieldWriteListener} of the hook.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class FieldHook {
+	/**
+	 * Gets the key of a field within class files.
+	 * 
+	 * @param owner
+	 *            Internal name of the class the field is referred to by
+	 * @param name
+	 *            Name of the field
+	 * @param descriptor
+	 *            Descriptor of the type of the field
+	 * @return The key of the field
+	 */
+	static String getKey(final String owner, final String name, final String descriptor) {
+		return owner + '.' + name + ':' + descriptor;
+	}
+
+	/**
+	 * Gets the type a value of the given field type has on the operand stack
+	 * of the virtual machine.
+	 * 
+	 * @param type
+	 *            The primitive type of a field
+	 * @return <tt>int</tt> for all integral types and <tt>boolean</tt>, the
+	 *         type itself otherwise
+	 */
+	static Class<?> getStackType(final Class<?> type) {
+		if (type == long.class || type == float.class || type == double.class) {
+			return type;
+		}
+		return int.class;
+	}
+
+	/**
+	 * Whether the given class is visible by its name from the given class
+	 * loader.
+	 * 
+	 * @param loader
+	 *            The class loader to resolve the name by
+	 * @param visibleClass
+	 *            The class to resolve
+	 * @return <tt>True</tt> if the name resolves to the class, <tt>false</tt>
+	 *         otherwise
+	 */
+	private static boolean isVisibleFrom(final ClassLoader loader, final Class<?> visibleClass) {
+		if (loader == visibleClass.getClassLoader()) {
+			return true;
+		}
+		try {
+			return Class.forName(visibleClass.getName(), false, loader) == visibleClass;
+		} catch (final ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Whether the hook is active, inactive hooks do not notify their listener
+	 * anymore.
+	 */
+	private volatile boolean mActive;
+	/**
+	 * The hooked field.
+	 */
+	private final Field mField;
+	/**
+	 * Internal name of the generated class that holds the method the writes
+	 * are redirected to.
+	 */
+	private final String mHookClass;
+	/**
+	 * Id of the hook, unique within the virtual machine.
+	 */
+	private final int mId;
+	/**
+	 * Index of the field in the list it was hooked with.
+	 */
+	private final int mIndex;
+	/**
+	 * Listener that gets notified when the field is written, <tt>null</tt>
+	 * for detached hooks.
+	 */
+	private final FieldWriteListener mListener;
+	/**
+	 * Handle that writes the field, of type <tt>(Object, T)void</tt> where
+	 * <tt>T</tt> is the {@link #getStackType(Class) stack type} of the field.
+	 */
+	private final MethodHandle mSetter;
+
+	/**
+	 * Creates a new active hook.
+	 * 
+	 * @param field
+	 *            The hooked field
+	 * @param id
+	 *            Id of the hook, unique within the virtual machine
+	 * @param index
+	 *            Index of the field in the list it was hooked with
+	 * @param listener
+	 *            Listener that gets notified when the field is written,
+	 *            <tt>null</tt> for detached hooks
+	 * @param setter
+	 *            Handle that writes the field, of type <tt>(Object, T)void</tt>
+	 *            where <tt>T</tt> is the stack type of the field
+	 * @param hookClass
+	 *            Internal name of the generated class that holds the method
+	 *            the writes are redirected to
+	 */
+	FieldHook(final Field field, final int id, final int index, final FieldWriteListener listener,
+			final MethodHandle setter, final String hookClass) {
+		this.mField = field;
+		this.mId = id;
+		this.mIndex = index;
+		this.mListener = listener;
+		this.mSetter = setter;
+		this.mHookClass = hookClass;
+		this.mActive = true;
+	}
+
+	/**
+	 * Gets the hooked field.
+	 * 
+	 * @return The hooked field
+	 */
+	public Field getField() {
+		return this.mField;
+	}
+
+	/**
+	 * Gets the id of the hook, which is unique within the virtual machine.
+	 * 
+	 * @return The id of the hook
+	 */
+	public int getId() {
+		return this.mId;
+	}
+
+	/**
+	 * Gets the index of the field in the list it was hooked with.
+	 * 
+	 * @return The index of the field
+	 */
+	public int getIndex() {
+		return this.mIndex;
+	}
+
+	/**
+	 * Gets the listener that gets notified when the field is written.
+	 * 
+	 * @return The listener of the hook or <tt>null</tt> if it was detached
+	 */
+	public FieldWriteListener getListener() {
+		return this.mListener;
+	}
+
+	/**
+	 * Whether the hook is active or was removed.
+	 * 
+	 * @return <tt>True</tt> if the hook is active, <tt>false</tt> otherwise
+	 */
+	public boolean isActive() {
+		return this.mActive;
+	}
+
+	/**
+	 * Whether the hooked field is static.
+	 * 
+	 * @return <tt>True</tt> if the field is static, <tt>false</tt> otherwise
+	 */
+	public boolean isStatic() {
+		return Modifier.isStatic(this.mField.getModifiers());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.mId + ": " + this.mField.getDeclaringClass().getName() + '.' + this.mField.getName();
+	}
+
+	/**
+	 * Deactivates the hook, it does not notify its listener anymore.
+	 */
+	void deactivate() {
+		this.mActive = false;
+	}
+
+	/**
+	 * Creates an inactive copy of the hook without listener. It still writes
+	 * the field, such that obsolete versions of rewritten methods can use it
+	 * after the hook was removed, but does not keep the listener reachable.
+	 * 
+	 * @return The detached copy of the hook
+	 */
+	FieldHook detach() {
+		final FieldHook detachedHook = new FieldHook(this.mField, this.mId, this.mIndex, null, this.mSetter,
+				this.mHookClass);
+		detachedHook.deactivate();
+		return detachedHook;
+	}
+
+	/**
+	 * Gets the internal name of the generated class that holds the method the
+	 * writes are redirected to.
+	 * 
+	 * @return The internal name of the class
+	 */
+	String getHookClass() {
+		return this.mHookClass;
+	}
+
+	/**
+	 * Gets the descriptor of the method the writes are redirected to. It
+	 * takes the same operands as the instruction that writes the field.
+	 * 
+	 * @return The descriptor of the method
+	 */
+	String getHookDescriptor() {
+		final String fieldDescriptor = this.mField.getType().descriptorString();
+		if (isStatic()) {
+			return "(" + fieldDescriptor + ")V";
+		}
+		return "(Ljava/lang/Object;" + fieldDescriptor + ")V";
+	}
+
+	/**
+	 * Gets the name of the method the writes are redirected to.
+	 * 
+	 * @return The name of the method
+	 */
+	String getHookName() {
+		return "write" + this.mId;
+	}
+
+	/**
+	 * Gets the key of the field within class files, which consists of the
+	 * internal name of the given class, the name and the descriptor of the
+	 * field.
+	 * 
+	 * @param owner
+	 *            The class the field is referred to by, the declaring class or
+	 *            a sub class of it
+	 * @return The key of the field
+	 */
+	String getKey(final Class<?> owner) {
+		return getKey(owner.getName().replace('.', '/'), this.mField.getName(),
+				this.mField.getType().descriptorString());
+	}
+
+	/**
+	 * Gets the handle that writes the field.
+	 * 
+	 * @return The handle that writes the field, of type <tt>(Object, T)void</tt>
+	 *         where <tt>T</tt> is the {@link #getStackType(Class) stack type}
+	 *         of the field
+	 */
+	MethodHandle getSetter() {
+		return this.mSetter;
+	}
+
+	/**
+	 * Whether code of the given class loader refers to the hooked field and
+	 * can call the generated class by their names.
+	 * 
+	 * @param loader
+	 *            The class loader of the code
+	 * @return <tt>True</tt> if the field and the generated class are visible,
+	 *         <tt>false</tt> otherwise
+	 */
+	boolean isVisibleFrom(final ClassLoader loader) {
+		return isVisibleFrom(loader, this.mField.getDeclaringClass()) && isVisibleFrom(loader, FieldHook.class);
+	}
+}
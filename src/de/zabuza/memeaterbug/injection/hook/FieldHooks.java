@@ -0,0 +1,487 @@
+package de.zabuza.memeaterbug.injection.hook;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.security.ProtectionDomain;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import de.zabuza.memeaterbug.injection.access.AccessorRegistry;
+
+/**
+ * Hooks that notify listeners when the target application writes selected
+ * fields, instead of polling them. The classes that write the fields are
+ * retransformed, such that each write instruction of a hooked field calls a
+ * generated method which stores the value and notifies the
+ * {@link FieldWriteListener} of the hook. A list of fields is hooked by a
+ * single retransformation of all affected classes.<br/>
+ * <br/>
+ * Retransformed are the loaded classes that can access the fields. These are
+ * the declaring classes of the fields and their nest members, unless a field
+ * is private also the classes of the same package and the sub classes, and
+ * for public fields every class whose class loader is not a parent of the
+ * loader of the declaring class. Classes that are loaded later are rewritten
+ * when they get loaded. Fields must not be final and must have a primitive
+ * type. Writes to instance fields within constructors are not hooked.<br/>
+ * <br/>
+ * Classes that could not be rewritten stay as they are, the failures are
+ * kept for {@link #takeFailures()} instead of being printed.<br/>
+ * <br/>
+ * The agent jar needs to set <tt>Can-Retransform-Classes</tt> in its
+ * manifest. Hooks are managed per virtual machine, they are obtained by
+ * {@link #get(Instrumentation)}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class FieldHooks implements ClassFileTransformer {
+	/**
+	 * Thrown when a field is final.
+	 */
+	private static final String ERROR_FINAL = "Final fields can not be hooked: ";
+	/**
+	 * Thrown when the virtual machine does not support retransformation.
+	 */
+	private static final String ERROR_RETRANSFORM_UNSUPPORTED = "Retransformation is not supported, the agent jar "
+			+ "must set Can-Retransform-Classes to true in its manifest";
+	/**
+	 * Reported when a class could not be rewritten.
+	 */
+	private static final String ERROR_REWRITE = "Unable to rewrite the class to hook fields: ";
+	/**
+	 * Thrown when a field does not have a primitive type.
+	 */
+	private static final String ERROR_TYPE = "Only fields of primitive types can be hooked: ";
+	/**
+	 * Prefix of the names of the generated classes.
+	 */
+	private static final String HOOK_CLASS_PREFIX = "HookBatch";
+	/**
+	 * Maximal amount of failures that are kept until they are taken.
+	 */
+	private static final int MAX_FAILURES = 64;
+	/**
+	 * Classes that could not be rewritten and were not taken yet, oldest
+	 * first. Guarded by itself.
+	 */
+	private static final Deque<String> sFailures = new ArrayDeque<>();
+	/**
+	 * The hooks of the virtual machine or <tt>null</tt> if not created yet.
+	 * Guarded by the class object.
+	 */
+	private static FieldHooks sFieldHooks = null;
+	/**
+	 * All hooks that were ever installed, by their id. Removed hooks are
+	 * replaced by {@link FieldHook#detach() detached} copies, since obsolete
+	 * versions of rewritten methods that are still running may call them. The
+	 * ids can not be reused for the same reason.
+	 */
+	private static volatile FieldHook[] sHooks = new FieldHook[0];
+
+	/**
+	 * Gets the hooks of the virtual machine. They get created and registered
+	 * as transformer on the first call.
+	 * 
+	 * @param inst
+	 *            Object used to retransform classes
+	 * @return The hooks of the virtual machine
+	 * @throws UnsupportedOperationException
+	 *             If the virtual machine does not support retransformation
+	 */
+	public static synchronized FieldHooks get(final Instrumentation inst) throws UnsupportedOperationException {
+		if (sFieldHooks == null) {
+			if (!inst.isRetransformClassesSupported()) {
+				throw new UnsupportedOperationException(ERROR_RETRANSFORM_UNSUPPORTED);
+			}
+			sFieldHooks = new FieldHooks(inst);
+			inst.addTransformer(sFieldHooks, true);
+		}
+		return sFieldHooks;
+	}
+
+	/**
+	 * Takes the failures of rewriting classes that occurred since the last
+	 * call. If more failures occurred than are kept, the oldest ones were
+	 * dropped.
+	 * 
+	 * @return The descriptions of the failures, oldest first
+	 */
+	public static List<String> takeFailures() {
+		synchronized (sFailures) {
+			final List<String> failures = new ArrayList<>(sFailures);
+			sFailures.clear();
+			return failures;
+		}
+	}
+
+	/**
+	 * Writes a hooked field of type <tt>double</tt> and notifies the listener
+	 * of the hook. Called by the generated methods.
+	 * 
+	 * @param holder
+	 *            The object holding the field or <tt>null</tt> if it is static
+	 * @param value
+	 *            The value to write
+	 * @param id
+	 *            Id of the hook
+	 * @throws Throwable
+	 *             What the write instruction would throw, like a
+	 *             {@link NullPointerException} if the holder is <tt>null</tt>
+	 */
+	static void writeDouble(final Object holder, final double value, final int id) throws Throwable {
+		final FieldHook hook = sHooks[id];
+		hook.getSetter().invokeExact(holder, value);
+		if (hook.isActive()) {
+			hook.getListener().onWrite(hook, holder, Double.doubleToRawLongBits(value));
+		}
+	}
+
+	/**
+	 * Writes a hooked field of type <tt>float</tt> and notifies the listener
+	 * of the hook. Called by the generated methods.
+	 * 
+	 * @param holder
+	 *            The object holding the field or <tt>null</tt> if it is static
+	 * @param value
+	 *            The value to write
+	 * @param id
+	 *            Id of the hook
+	 * @throws Throwable
+	 *             What the write instruction would throw, like a
+	 *             {@link NullPointerException} if the holder is <tt>null</tt>
+	 */
+	static void writeFloat(final Object holder, final float value, final int id) throws Throwable {
+		final FieldHook hook = sHooks[id];
+		hook.getSetter().invokeExact(holder, value);
+		if (hook.isActive()) {
+			hook.getListener().onWrite(hook, holder, Double.doubleToRawLongBits(value));
+		}
+	}
+
+	/**
+	 * Writes a hooked field of an integral type or of type <tt>boolean</tt>
+	 * and notifies the listener of the hook. Called by the generated methods.
+	 * 
+	 * @param holder
+	 *            The object holding the field or <tt>null</tt> if it is static
+	 * @param value
+	 *            The value to write
+	 * @param id
+	 *            Id of the hook
+	 * @throws Throwable
+	 *             What the write instruction would throw, like a
+	 *             {@link NullPointerException} if the holder is <tt>null</tt>
+	 */
+	static void writeInt(final Object holder, final int value, final int id) throws Throwable {
+		final FieldHook hook = sHooks[id];
+		hook.getSetter().invokeExact(holder, value);
+		if (hook.isActive()) {
+			// Booleans only store the lowest bit
+			final long writtenValue = hook.getField().getType() == boolean.class ? value & 1 : value;
+			hook.getListener().onWrite(hook, holder, writtenValue);
+		}
+	}
+
+	/**
+	 * Writes a hooked field of type <tt>long</tt> and notifies the listener of
+	 * the hook. Called by the generated methods.
+	 * 
+	 * @param holder
+	 *            The object holding the field or <tt>null</tt> if it is static
+	 * @param value
+	 *            The value to write
+	 * @param id
+	 *            Id of the hook
+	 * @throws Throwable
+	 *             What the write instruction would throw, like a
+	 *             {@link NullPointerException} if the holder is <tt>null</tt>
+	 */
+	static void writeLong(final Object holder, final long value, final int id) throws Throwable {
+		final FieldHook hook = sHooks[id];
+		hook.getSetter().invokeExact(holder, value);
+		if (hook.isActive()) {
+			hook.getListener().onWrite(hook, holder, value);
+		}
+	}
+
+	/**
+	 * Whether the given candidate is a parent of the given class loader. The
+	 * classes of a parent can not refer to the classes of the loader.
+	 * 
+	 * @param candidate
+	 *            The class loader that may be a parent, <tt>null</tt> for the
+	 *            bootstrap loader
+	 * @param loader
+	 *            The class loader to check, <tt>null</tt> for the bootstrap
+	 *            loader
+	 * @return <tt>True</tt> if the candidate is a parent of the loader,
+	 *         <tt>false</tt> otherwise
+	 */
+	private static boolean isParentLoader(final ClassLoader candidate, final ClassLoader loader) {
+		if (loader == null) {
+			return false;
+		}
+		if (candidate == null) {
+			return true;
+		}
+		ClassLoader parent = loader.getParent();
+		while (parent != null) {
+			if (parent == candidate) {
+				return true;
+			}
+			parent = parent.getParent();
+		}
+		return false;
+	}
+
+	/**
+	 * Records that the given class could not be rewritten. If the limit of
+	 * failures is reached, the oldest failure gets dropped.
+	 * 
+	 * @param className
+	 *            Internal name of the class
+	 * @param failure
+	 *            The failure that occurred
+	 */
+	private static void recordFailure(final String className, final RuntimeException failure) {
+		synchronized (sFailures) {
+			if (sFailures.size() >= MAX_FAILURES) {
+				sFailures.removeFirst();
+			}
+			sFailures.addLast(ERROR_REWRITE + className + ": " + failure);
+		}
+	}
+
+	/**
+	 * Registry used to access private fields.
+	 */
+	private final AccessorRegistry mAccessors;
+	/**
+	 * Amount of generated classes.
+	 */
+	private int mBatchAmount;
+	/**
+	 * Active hooks by the key of their field, for every class the field is
+	 * referred to by. Replaced as a whole when hooks are added or removed.
+	 */
+	private volatile Map<String, FieldHook> mHooksByKey;
+	/**
+	 * Object used to retransform classes.
+	 */
+	private final Instrumentation mInstrumentation;
+
+	/**
+	 * Creates new hooks without any hooked fields.
+	 * 
+	 * @param inst
+	 *            Object used to retransform classes
+	 */
+	private FieldHooks(final Instrumentation inst) {
+		this.mInstrumentation = inst;
+		this.mAccessors = new AccessorRegistry(inst);
+		this.mBatchAmount = 0;
+		this.mHooksByKey = Collections.emptyMap();
+	}
+
+	/**
+	 * Hooks the given fields by a single retransformation of the classes that
+	 * write them.
+	 * 
+	 * @param fields
+	 *            The fields to hook
+	 * @param listener
+	 *            Listener that gets notified when one of the fields is written
+	 * @return The hooks of the fields, in the same order
+	 * @throws IllegalArgumentException
+	 *             If a field is final or does not have a primitive type
+	 * @throws IllegalAccessException
+	 *             If a field is not accessible
+	 * @throws UnmodifiableClassException
+	 *             If a class that writes a field can not be retransformed
+	 */
+	public synchronized List<FieldHook> add(final List<Field> fields, final FieldWriteListener listener)
+			throws IllegalArgumentException, IllegalAccessException, UnmodifiableClassException {
+		final List<MethodHandle> setters = new ArrayList<>(fields.size());
+		for (final Field field : fields) {
+			if (Modifier.isFinal(field.getModifiers())) {
+				throw new IllegalArgumentException(ERROR_FINAL + field);
+			}
+			final Class<?> type = field.getType();
+			if (!type.isPrimitive()) {
+				throw new IllegalArgumentException(ERROR_TYPE + field);
+			}
+			MethodHandle setter = this.mAccessors.lookupIn(field.getDeclaringClass()).unreflectSetter(field);
+			if (Modifier.isStatic(field.getModifiers())) {
+				setter = MethodHandles.dropArguments(setter, 0, Object.class);
+			}
+			// Also narrows the int on the stack to the type of the field
+			setters.add(MethodHandles.explicitCastArguments(setter,
+					MethodType.methodType(void.class, Object.class, FieldHook.getStackType(type))));
+		}
+		if (fields.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final String hookClass = (FieldHooks.class.getPackageName() + '.' + HOOK_CLASS_PREFIX + this.mBatchAmount)
+				.replace('.', '/');
+		final FieldHook[] previousHooks = sHooks;
+		final List<FieldHook> hooks = new ArrayList<>(fields.size());
+		for (int i = 0; i < fields.size(); i++) {
+			hooks.add(new FieldHook(fields.get(i), previousHooks.length + i, i, listener, setters.get(i), hookClass));
+		}
+		MethodHandles.lookup().defineClass(HookClassWriter.write(hookClass, hooks));
+		this.mBatchAmount++;
+		final FieldHook[] allHooks = Arrays.copyOf(previousHooks, previousHooks.length + hooks.size());
+		for (final FieldHook hook : hooks) {
+			allHooks[hook.getId()] = hook;
+		}
+		sHooks = allHooks;
+
+		final Set<Class<?>> classes = new LinkedHashSet<>();
+		final Map<String, FieldHook> hooksByKey = new HashMap<>(this.mHooksByKey);
+		collectClasses(hooks, classes, hooksByKey);
+		this.mHooksByKey = hooksByKey;
+		try {
+			retransform(classes);
+		} catch (final UnmodifiableClassException | RuntimeException e) {
+			remove(hooks);
+			throw e;
+		}
+		return hooks;
+	}
+
+	/**
+	 * Removes the given hooks by a single retransformation of the classes that
+	 * write their fields. The listeners of the hooks are not notified
+	 * anymore and are not kept reachable by the hooks.
+	 * 
+	 * @param hooks
+	 *            The hooks to remove
+	 * @throws UnmodifiableClassException
+	 *             If a class that writes a field can not be retransformed
+	 */
+	public synchronized void remove(final List<FieldHook> hooks) throws UnmodifiableClassException {
+		final Set<Class<?>> classes = new LinkedHashSet<>();
+		collectClasses(hooks, classes, new HashMap<String, FieldHook>());
+		final Map<String, FieldHook> hooksByKey = new HashMap<>(this.mHooksByKey);
+		final FieldHook[] allHooks = sHooks.clone();
+		for (final FieldHook hook : hooks) {
+			hook.deactivate();
+			// A hook is registered once for every class its field is referred
+			// to by
+			final Iterator<Entry<String, FieldHook>> entries = hooksByKey.entrySet().iterator();
+			while (entries.hasNext()) {
+				if (entries.next().getValue() == hook) {
+					entries.remove();
+				}
+			}
+			if (allHooks[hook.getId()] == hook) {
+				allHooks[hook.getId()] = hook.detach();
+			}
+		}
+		this.mHooksByKey = hooksByKey;
+		sHooks = allHooks;
+		retransform(classes);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.instrument.ClassFileTransformer#transform(java.lang.
+	 * ClassLoader, java.lang.String, java.lang.Class,
+	 * java.security.ProtectionDomain, byte[])
+	 */
+	@Override
+	public byte[] transform(final ClassLoader loader, final String className, final Class<?> classBeingRedefined,
+			final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+		final Map<String, FieldHook> hooksByKey = this.mHooksByKey;
+		if (hooksByKey.isEmpty() || className == null) {
+			return null;
+		}
+		try {
+			return ClassRewriter.rewrite(classfileBuffer, hooksByKey, loader);
+		} catch (final RuntimeException e) {
+			// Exceptions of transformers are ignored by the virtual machine,
+			// the class stays as it is
+			recordFailure(className, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Collects the loaded classes that may write the fields of the given hooks
+	 * and the keys the fields are referred to by, in a single pass over all
+	 * loaded classes.
+	 * 
+	 * @param hooks
+	 *            The hooks to collect classes for
+	 * @param classes
+	 *            Set the classes that may write the fields are added to
+	 * @param hooksByKey
+	 *            Map the hooks are added to by the keys their field is
+	 *            referred to by
+	 */
+	private void collectClasses(final List<FieldHook> hooks, final Set<Class<?>> classes,
+			final Map<String, FieldHook> hooksByKey) {
+		for (final FieldHook hook : hooks) {
+			hooksByKey.put(hook.getKey(hook.getField().getDeclaringClass()), hook);
+		}
+		for (final Class<?> loadedClass : this.mInstrumentation.getAllLoadedClasses()) {
+			if (!this.mInstrumentation.isModifiableClass(loadedClass) || loadedClass.isArray()) {
+				continue;
+			}
+			for (final FieldHook hook : hooks) {
+				final Field field = hook.getField();
+				final Class<?> declaringClass = field.getDeclaringClass();
+				if (loadedClass == declaringClass || loadedClass.getNestHost() == declaringClass.getNestHost()) {
+					classes.add(loadedClass);
+				} else if (!Modifier.isPrivate(field.getModifiers())) {
+					if (declaringClass.isAssignableFrom(loadedClass)) {
+						classes.add(loadedClass);
+						hooksByKey.put(hook.getKey(loadedClass), hook);
+					} else if (Modifier.isPublic(field.getModifiers())) {
+						// Classes of every package may write public fields,
+						// except those that can not see the declaring class
+						if (!isParentLoader(loadedClass.getClassLoader(), declaringClass.getClassLoader())) {
+							classes.add(loadedClass);
+						}
+					} else if (loadedClass.getClassLoader() == declaringClass.getClassLoader()
+							&& loadedClass.getPackageName().equals(declaringClass.getPackageName())) {
+						classes.add(loadedClass);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Retransforms the given classes in a single pass.
+	 * 
+	 * @param classes
+	 *            The classes to retransform
+	 * @throws UnmodifiableClassException
+	 *             If a class can not be retransformed
+	 */
+	private void retransform(final Set<Class<?>> classes) throws UnmodifiableClassException {
+		if (classes.isEmpty()) {
+			return;
+		}
+		this.mInstrumentation.retransformClasses(classes.toArray(new Class<?>[classes.size()]));
+	}
+}
@@ -0,0 +1,28 @@
+package de.zabuza.memeaterbug.injection.hook;
+
+/**
+ * Listener that gets notified when the target application writes a field
+ * that is hooked by {@link FieldHooks}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface FieldWriteListener {
+	/**
+	 * Notifies the listener that a hooked field was written. Gets called on
+	 * the thread of the target application that wrote the field, right after
+	 * the value was stored. It must thus return quickly and must not write
+	 * hooked fields itself.
+	 * 
+	 * @param hook
+	 *            The hook of the written field
+	 * @param holder
+	 *            The object holding the field or <tt>null</tt> if the field is
+	 *            static
+	 * @param value
+	 *            The written value. Booleans are passed as <tt>0</tt> or
+	 *            <tt>1</tt>, floating point values as raw bits, see
+	 *            {@link Double#longBitsToDouble(long)}.
+	 */
+	public void onWrite(final FieldHook hook, final Object holder, final long value);
+}
@@ -0,0 +1,167 @@
+package de.zabuza.memeaterbug.injection.hook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Writer of the classes that hold the methods writes to hooked fields are
+ * redirected to. Every {@link FieldHook} gets a public static method that
+ * takes the same operands as the instruction that writes its field and
+ * passes them, together with the id of the hook, to the matching write
+ * method of {@link FieldHooks}. The methods do not branch, thus the class
+ * needs no stack map frames.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class HookClassWriter {
+	/**
+	 * Access flags of the class, public, final and super.
+	 */
+	private static final int CLASS_ACCESS = 0x0031;
+	/**
+	 * Major version of the class file format, Java 8 is the latest one that
+	 * allows to omit stack map frames.
+	 */
+	private static final int MAJOR_VERSION = 52;
+	/**
+	 * Access flags of the methods, public and static.
+	 */
+	private static final int METHOD_ACCESS = 0x0009;
+	/**
+	 * Internal name of the class all classes extend.
+	 */
+	private static final String OBJECT_CLASS = "java/lang/Object";
+	/**
+	 * Opcode of the instruction that pushes <tt>null</tt>.
+	 */
+	private static final int OPCODE_ACONST_NULL = 0x01;
+	/**
+	 * Opcode of the instruction that loads the first reference argument.
+	 */
+	private static final int OPCODE_ALOAD_0 = 0x2A;
+	/**
+	 * Opcode of the instruction that loads the first <tt>double</tt>
+	 * argument.
+	 */
+	private static final int OPCODE_DLOAD_0 = 0x26;
+	/**
+	 * Opcode of the instruction that loads the first <tt>float</tt> argument.
+	 */
+	private static final int OPCODE_FLOAD_0 = 0x22;
+	/**
+	 * Opcode of the instruction that loads the first <tt>int</tt> argument.
+	 */
+	private static final int OPCODE_ILOAD_0 = 0x1A;
+	/**
+	 * Opcode of the instruction that invokes a static method.
+	 */
+	private static final int OPCODE_INVOKESTATIC = 0xB8;
+	/**
+	 * Opcode of the instruction that pushes a constant by a wide index.
+	 */
+	private static final int OPCODE_LDC_W = 0x13;
+	/**
+	 * Opcode of the instruction that loads the first <tt>long</tt> argument.
+	 */
+	private static final int OPCODE_LLOAD_0 = 0x1E;
+	/**
+	 * Opcode of the instruction that returns from a <tt>void</tt> method.
+	 */
+	private static final int OPCODE_RETURN = 0xB1;
+
+	/**
+	 * Writes the class file of a class that holds the methods of the given
+	 * hooks.
+	 * 
+	 * @param internalName
+	 *            Internal name of the class, it must be in the package of
+	 *            {@link FieldHooks}
+	 * @param hooks
+	 *            The hooks to write methods for
+	 * @return The content of the class file
+	 */
+	static byte[] write(final String internalName, final List<FieldHook> hooks) {
+		final ConstantPool pool = new ConstantPool(1);
+		final int thisIndex = pool.addClass(internalName);
+		final int superIndex = pool.addClass(OBJECT_CLASS);
+		final int codeIndex = pool.addUtf8(ClassRewriter.CODE_ATTRIBUTE);
+		final String dispatcher = FieldHooks.class.getName().replace('.', '/');
+
+		final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(methods);
+		try {
+			for (final FieldHook hook : hooks) {
+				final Class<?> stackType = FieldHook.getStackType(hook.getField().getType());
+				final int valueSize = stackType == long.class || stackType == double.class ? 2 : 1;
+				final int valueSlot = hook.isStatic() ? 0 : 1;
+				final String typeName = Character.toUpperCase(stackType.getName().charAt(0))
+						+ stackType.getName().substring(1);
+				final int dispatchIndex = pool.addMethodRef(dispatcher, "write" + typeName,
+						"(Ljava/lang/Object;" + stackType.descriptorString() + "I)V");
+				final int idIndex = pool.addInteger(hook.getId());
+
+				final int loadOpcode;
+				if (stackType == long.class) {
+					loadOpcode = OPCODE_LLOAD_0;
+				} else if (stackType == float.class) {
+					loadOpcode = OPCODE_FLOAD_0;
+				} else if (stackType == double.class) {
+					loadOpcode = OPCODE_DLOAD_0;
+				} else {
+					loadOpcode = OPCODE_ILOAD_0;
+				}
+				final byte[] code = new byte[] { (byte) (hook.isStatic() ? OPCODE_ACONST_NULL : OPCODE_ALOAD_0),
+						(byte) (loadOpcode + valueSlot), (byte) OPCODE_LDC_W, (byte) (idIndex >>> 8), (byte) idIndex,
+						(byte) OPCODE_INVOKESTATIC, (byte) (dispatchIndex >>> 8), (byte) dispatchIndex,
+						(byte) OPCODE_RETURN };
+
+				output.writeShort(METHOD_ACCESS);
+				output.writeShort(pool.addUtf8(hook.getHookName()));
+				output.writeShort(pool.addUtf8(hook.getHookDescriptor()));
+				output.writeShort(1);
+				output.writeShort(codeIndex);
+				output.writeInt(12 + code.length);
+				// Holder, value and id
+				output.writeShort(1 + valueSize + 1);
+				output.writeShort(valueSlot + valueSize);
+				output.writeInt(code.length);
+				output.write(code);
+				// Neither exception handlers nor attributes
+				output.writeShort(0);
+				output.writeShort(0);
+			}
+
+			final ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+			final DataOutputStream classOutput = new DataOutputStream(classFile);
+			classOutput.writeInt(ClassRewriter.MAGIC);
+			classOutput.writeShort(0);
+			classOutput.writeShort(MAJOR_VERSION);
+			classOutput.writeShort(pool.getCount());
+			classOutput.write(pool.toByteArray());
+			classOutput.writeShort(CLASS_ACCESS);
+			classOutput.writeShort(thisIndex);
+			classOutput.writeShort(superIndex);
+			// Neither interfaces nor fields
+			classOutput.writeShort(0);
+			classOutput.writeShort(0);
+			classOutput.writeShort(hooks.size());
+			methods.writeTo(classOutput);
+			// No attributes
+			classOutput.writeShort(0);
+			return classFile.toByteArray();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private HookClassWriter() {
+
+	}
+}
@@ -0,0 +1,57 @@
+package de.zabuza.memeaterbug.injection.hook;
+
+import de.zabuza.memeaterbug.injection.ring.SampleWriter;
+
+/**
+ * Listener that writes every change of a hooked field as sample to a
+ * {@link de.zabuza.memeaterbug.injection.ring.SampleRing SampleRing}. The id
+ * of a sample is the {@link FieldHook#getIndex() index} of the field in the
+ * list it was hooked with. Since fields are written by many threads of the
+ * target application, writing to the ring is synchronized.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SampleRingListener implements FieldWriteListener {
+	/**
+	 * Writer the samples are written to.
+	 */
+	private final SampleWriter mWriter;
+
+	/**
+	 * Creates a new listener that writes to the given writer.
+	 * 
+	 * @param writer
+	 *            Writer the samples are written to, it must not be used by
+	 *            anyone else
+	 */
+	public SampleRingListener(final SampleWriter writer) {
+		this.mWriter = writer;
+	}
+
+	/**
+	 * Gets the amount of samples that were dropped since the ring was full.
+	 * 
+	 * @return The amount of dropped samples
+	 */
+	public long getDroppedAmount() {
+		synchronized (this.mWriter) {
+			return this.mWriter.getDroppedAmount();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.injection.hook.FieldWriteListener#onWrite(de.zabuza
+	 * .memeaterbug.injection.hook.FieldHook, java.lang.Object, long)
+	 */
+	@Override
+	public void onWrite(final FieldHook hook, final Object holder, final long value) {
+		final long timestamp = System.nanoTime();
+		synchronized (this.mWriter) {
+			this.mWriter.offer(hook.getIndex(), timestamp, value);
+		}
+	}
+}
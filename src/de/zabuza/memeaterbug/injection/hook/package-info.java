@@ -0,0 +1,5 @@
+/**
+ * This package contains hooks that instrument the bytecode of the target
+ * application, such that writes to selected fields notify injected agents.
+ */
+package de.zabuza.memeaterbug.injection.hook;
@@ -0,0 +1,303 @@
+package de.zabuza.memeaterbug.injection.layout;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Memory layout of the instances of a class, as exported by an
+ * {@link ObjectLocator}. It holds the offset of every instance field relative
+ * to the start of an object, including the fields of the super classes, and
+ * the word that identifies the class in the header of every instance.<br/>
+ * <br/>
+ * The host compares the class word at the address of an object with
+ * {@link #getKlassWord()} to verify that the object was not moved by the
+ * garbage collector. Layouts are transferred by
+ * {@link #write(DataOutputStream)} and {@link #read(DataInputStream)}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ClassLayout {
+	/**
+	 * Thrown when a read layout has an invalid amount of fields.
+	 */
+	private static final String ERROR_FIELD_AMOUNT = "Received a layout with an invalid amount of fields: ";
+
+	/**
+	 * Reads a layout that was written by {@link #write(DataOutputStream)}.
+	 * 
+	 * @param input
+	 *            Stream to read from
+	 * @return The read layout
+	 * @throws IOException
+	 *             If the stream holds no valid layout
+	 */
+	public static ClassLayout read(final DataInputStream input) throws IOException {
+		final String className = input.readUTF();
+		final int klassOffset = input.readInt();
+		final int klassSize = input.readInt();
+		final long klassWord = input.readLong();
+		final int referenceSize = input.readInt();
+		final int fieldAmount = input.readInt();
+		if (fieldAmount < 0) {
+			throw new IOException(ERROR_FIELD_AMOUNT + fieldAmount);
+		}
+		final String[] fieldNames = new String[fieldAmount];
+		final String[] fieldTypes = new String[fieldAmount];
+		final long[] fieldOffsets = new long[fieldAmount];
+		for (int i = 0; i < fieldAmount; i++) {
+			fieldNames[i] = input.readUTF();
+			fieldTypes[i] = input.readUTF();
+			fieldOffsets[i] = input.readLong();
+		}
+		return new ClassLayout(className, klassOffset, klassSize, klassWord, referenceSize, fieldNames, fieldTypes,
+				fieldOffsets);
+	}
+
+	/**
+	 * Full name of the class.
+	 */
+	private final String mClassName;
+	/**
+	 * Names of the fields, by their index.
+	 */
+	private final String[] mFieldNames;
+	/**
+	 * Offsets of the fields relative to the start of an object, by their
+	 * index.
+	 */
+	private final long[] mFieldOffsets;
+	/**
+	 * Type descriptors of the fields, like <tt>I</tt> or
+	 * <tt>Ljava/lang/String;</tt>, by their index.
+	 */
+	private final String[] mFieldTypes;
+	/**
+	 * Offset of the class word in the header of an object.
+	 */
+	private final int mKlassOffset;
+	/**
+	 * Size of the class word, in bytes.
+	 */
+	private final int mKlassSize;
+	/**
+	 * Class word of the instances, zero extended if it is smaller than a
+	 * long.
+	 */
+	private final long mKlassWord;
+	/**
+	 * Size of reference fields, in bytes.
+	 */
+	private final int mReferenceSize;
+
+	/**
+	 * Creates a new layout.
+	 * 
+	 * @param className
+	 *            Full name of the class
+	 * @param klassOffset
+	 *            Offset of the class word in the header of an object
+	 * @param klassSize
+	 *            Size of the class word, in bytes
+	 * @param klassWord
+	 *            Class word of the instances, zero extended if it is smaller
+	 *            than a long
+	 * @param referenceSize
+	 *            Size of reference fields, in bytes
+	 * @param fieldNames
+	 *            Names of the fields
+	 * @param fieldTypes
+	 *            Type descriptors of the fields, in the same order
+	 * @param fieldOffsets
+	 *            Offsets of the fields relative to the start of an object, in
+	 *            the same order
+	 */
+	public ClassLayout(final String className, final int klassOffset, final int klassSize, final long klassWord,
+			final int referenceSize, final String[] fieldNames, final String[] fieldTypes,
+			final long[] fieldOffsets) {
+		this.mClassName = className;
+		this.mKlassOffset = klassOffset;
+		this.mKlassSize = klassSize;
+		this.mKlassWord = klassWord;
+		this.mReferenceSize = referenceSize;
+		this.mFieldNames = fieldNames;
+		this.mFieldTypes = fieldTypes;
+		this.mFieldOffsets = fieldOffsets;
+	}
+
+	/**
+	 * Gets the full name of the class.
+	 * 
+	 * @return The full name of the class
+	 */
+	public String getClassName() {
+		return this.mClassName;
+	}
+
+	/**
+	 * Gets the amount of instance fields, including those of super classes.
+	 * 
+	 * @return The amount of instance fields
+	 */
+	public int getFieldAmount() {
+		return this.mFieldNames.length;
+	}
+
+	/**
+	 * Gets the name of the given field.
+	 * 
+	 * @param index
+	 *            Index of the field
+	 * @return The name of the field
+	 */
+	public String getFieldName(final int index) {
+		return this.mFieldNames[index];
+	}
+
+	/**
+	 * Gets the offset of the given field relative to the start of an object.
+	 * 
+	 * @param index
+	 *            Index of the field
+	 * @return The offset of the field, in bytes
+	 */
+	public long getFieldOffset(final int index) {
+		return this.mFieldOffsets[index];
+	}
+
+	/**
+	 * Gets the size of the given field in the memory of the target. Reference
+	 * fields have a size of {@link #getReferenceSize()}.
+	 * 
+	 * @param index
+	 *            Index of the field
+	 * @return The size of the field, in bytes
+	 */
+	public int getFieldSize(final int index) {
+		switch (this.mFieldTypes[index].charAt(0)) {
+		case 'Z':
+		case 'B':
+			return 1;
+		case 'C':
+		case 'S':
+			return 2;
+		case 'I':
+		case 'F':
+			return 4;
+		case 'J':
+		case 'D':
+			return 8;
+		default:
+			return this.mReferenceSize;
+		}
+	}
+
+	/**
+	 * Gets the type descriptor of the given field.
+	 * 
+	 * @param index
+	 *            Index of the field
+	 * @return The type descriptor of the field, like <tt>I</tt> or
+	 *         <tt>Ljava/lang/String;</tt>
+	 */
+	public String getFieldType(final int index) {
+		return this.mFieldTypes[index];
+	}
+
+	/**
+	 * Gets the offset of the class word in the header of an object.
+	 * 
+	 * @return The offset of the class word, in bytes
+	 */
+	public int getKlassOffset() {
+		return this.mKlassOffset;
+	}
+
+	/**
+	 * Gets the size of the class word.
+	 * 
+	 * @return The size of the class word, in bytes
+	 */
+	public int getKlassSize() {
+		return this.mKlassSize;
+	}
+
+	/**
+	 * Gets the class word that is stored in the header of every instance.
+	 * 
+	 * @return The class word, zero extended if it is smaller than a long
+	 */
+	public long getKlassWord() {
+		return this.mKlassWord;
+	}
+
+	/**
+	 * Gets the size of reference fields. References are stored compressed if
+	 * the size is four bytes, then they can not be followed by the host.
+	 * 
+	 * @return The size of reference fields, in bytes
+	 */
+	public int getReferenceSize() {
+		return this.mReferenceSize;
+	}
+
+	/**
+	 * Gets the index of the field with the given name. If a sub class hides a
+	 * field of a super class, the field of the sub class is found.
+	 * 
+	 * @param fieldName
+	 *            The name of the field
+	 * @return The index of the field or <tt>-1</tt> if the class has no
+	 *         instance field of the given name
+	 */
+	public int indexOf(final String fieldName) {
+		for (int i = 0; i < this.mFieldNames.length; i++) {
+			if (this.mFieldNames[i].equals(fieldName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(this.mClassName);
+		builder.append('[');
+		for (int i = 0; i < this.mFieldNames.length; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(this.mFieldNames[i]).append('@').append(this.mFieldOffsets[i]);
+		}
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Writes the layout such that it can be read by
+	 * {@link #read(DataInputStream)}.
+	 * 
+	 * @param output
+	 *            Stream to write to
+	 * @throws IOException
+	 *             If the stream could not be written
+	 */
+	public void write(final DataOutputStream output) throws IOException {
+		output.writeUTF(this.mClassName);
+		output.writeInt(this.mKlassOffset);
+		output.writeInt(this.mKlassSize);
+		output.writeLong(this.mKlassWord);
+		output.writeInt(this.mReferenceSize);
+		output.writeInt(this.mFieldNames.length);
+		for (int i = 0; i < this.mFieldNames.length; i++) {
+			output.writeUTF(this.mFieldNames[i]);
+			output.writeUTF(this.mFieldTypes[i]);
+			output.writeLong(this.mFieldOffsets[i]);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package de.zabuza.memeaterbug.injection.layout;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import de.zabuza.memeaterbug.injection.ring.SampleWriter;
+
+/**
+ * Listener that writes every garbage collection as sample to a
+ * {@link de.zabuza.memeaterbug.injection.ring.SampleRing SampleRing}, such
+ * that the host learns that pinned objects may have moved without asking the
+ * agent. The id of a sample is the index of the collector, its value the id
+ * of the collection, as counted by the collector.<br/>
+ * <br/>
+ * Notifications are sent by the virtual machine shortly after a collection
+ * finished, thus the host must not rely on them alone but also verify the
+ * class word of the objects it reads.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class CollectionListener implements NotificationListener {
+	/**
+	 * Whether the listener was closed. Guarded by the writer.
+	 */
+	private boolean mClosed;
+	/**
+	 * Amount of dropped samples at the time the listener was closed. Guarded
+	 * by the writer.
+	 */
+	private long mDroppedAmount;
+	/**
+	 * Emitters of the collectors the listener is registered at.
+	 */
+	private final List<NotificationEmitter> mEmitters;
+	/**
+	 * Writer the samples are written to.
+	 */
+	private final SampleWriter mWriter;
+
+	/**
+	 * Creates a new listener that writes to the given writer. It does not
+	 * listen until {@link #start()} is called.
+	 * 
+	 * @param writer
+	 *            Writer the samples are written to, it must not be used by
+	 *            anyone else
+	 */
+	public CollectionListener(final SampleWriter writer) {
+		this.mWriter = writer;
+		this.mEmitters = new ArrayList<>();
+		this.mClosed = false;
+		this.mDroppedAmount = 0;
+	}
+
+	/**
+	 * Stops listening to garbage collections. Once the method returns, the
+	 * writer is not accessed anymore, also not by notifications that are
+	 * currently delivered. Thus the ring can be closed afterwards. The
+	 * listener can not be started again.
+	 */
+	public synchronized void close() {
+		synchronized (this.mWriter) {
+			if (!this.mClosed) {
+				this.mDroppedAmount = this.mWriter.getDroppedAmount();
+				this.mClosed = true;
+			}
+		}
+		for (final NotificationEmitter emitter : this.mEmitters) {
+			try {
+				emitter.removeNotificationListener(this);
+			} catch (final ListenerNotFoundException e) {
+				// Already removed
+			}
+		}
+		this.mEmitters.clear();
+	}
+
+	/**
+	 * Gets the amount of samples that were dropped since the ring was full.
+	 * 
+	 * @return The amount of dropped samples
+	 */
+	public long getDroppedAmount() {
+		synchronized (this.mWriter) {
+			if (this.mClosed) {
+				return this.mDroppedAmount;
+			}
+			return this.mWriter.getDroppedAmount();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * javax.management.NotificationListener#handleNotification(javax.management
+	 * .Notification, java.lang.Object)
+	 */
+	@Override
+	public void handleNotification(final Notification notification, final Object handback) {
+		if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+			return;
+		}
+		final long timestamp = System.nanoTime();
+		final long collectionId = GarbageCollectionNotificationInfo
+				.from((CompositeData) notification.getUserData()).getGcInfo().getId();
+		synchronized (this.mWriter) {
+			if (this.mClosed) {
+				return;
+			}
+			this.mWriter.offer(((Integer) handback).intValue(), timestamp, collectionId);
+		}
+	}
+
+	/**
+	 * Starts listening to the collections of all garbage collectors of the
+	 * virtual machine. Has no effect if the listener already listens or was
+	 * closed.
+	 */
+	public synchronized void start() {
+		synchronized (this.mWriter) {
+			if (this.mClosed || !this.mEmitters.isEmpty()) {
+				return;
+			}
+		}
+		final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		for (int i = 0; i < collectors.size(); i++) {
+			if (collectors.get(i) instanceof NotificationEmitter) {
+				final NotificationEmitter emitter = (NotificationEmitter) collectors.get(i);
+				emitter.addNotificationListener(this, null, Integer.valueOf(i));
+				this.mEmitters.add(emitter);
+			}
+		}
+	}
+}
@@ -0,0 +1,382 @@
+package de.zabuza.memeaterbug.injection.layout;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * Locator of objects in the memory of the virtual machine it runs in. It
+ * computes the current address of an object and exports the
+ * {@link ClassLayout layout} of its class, by the field offsets of
+ * <tt>sun.misc.Unsafe</tt>. Together they allow the host to read the fields
+ * of the object directly from the memory of the target, without running any
+ * code in the target per read.<br/>
+ * <br/>
+ * Addresses are decoded from the references the virtual machine stores,
+ * compressed or not. The base and shift of compressed references are taken
+ * from the <tt>VM.info</tt> diagnostic command. The locator never reads
+ * memory at a computed address itself, an address that got stale since the
+ * garbage collector moved the object is detected by the host, by comparing
+ * the {@link ClassLayout#getKlassWord() class word}.<br/>
+ * <br/>
+ * Only 64-bit HotSpot virtual machines with the regular object header and a
+ * garbage collector that moves objects during pauses only are supported. The
+ * locator may be used by many threads at once.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ObjectLocator {
+	/**
+	 * Names of the options that enable garbage collectors which move objects
+	 * concurrently to the application, or store metadata in references.
+	 */
+	private static final String[] CONCURRENT_COLLECTOR_OPTIONS = { "UseZGC", "UseShenandoahGC" };
+	/**
+	 * Name of the MBean that executes diagnostic commands.
+	 */
+	private static final String DIAGNOSTIC_COMMAND_NAME = "com.sun.management:type=DiagnosticCommand";
+	/**
+	 * Thrown when a computed address lies outside of the heap.
+	 */
+	private static final String ERROR_ADDRESS = "The computed address lies outside of the heap: ";
+	/**
+	 * Thrown when the virtual machine has an unsupported memory layout.
+	 */
+	private static final String ERROR_UNSUPPORTED = "The memory layout of the virtual machine is not supported: ";
+	/**
+	 * Pattern of the line of <tt>VM.info</tt> that describes the reserved
+	 * heap.
+	 */
+	private static final Pattern HEAP_PATTERN = Pattern.compile("Heap address: 0x(\\p{XDigit}+), size: (\\d+) MB");
+	/**
+	 * Offset of the class word in the header of an object, it follows the
+	 * mark word.
+	 */
+	private static final int KLASS_OFFSET = 8;
+	/**
+	 * Pattern of the base of compressed references in the mode described by
+	 * <tt>VM.info</tt>. It is only listed if it is not zero.
+	 */
+	private static final Pattern OOP_BASE_PATTERN = Pattern.compile("0x(\\p{XDigit}+)");
+	/**
+	 * Pattern of the part of <tt>VM.info</tt> that describes how references
+	 * are compressed. The shift is only listed if it is not zero.
+	 */
+	private static final Pattern OOP_MODE_PATTERN = Pattern
+			.compile("Compressed Oops mode: ([^,\\r\\n]*)(?:, Oop shift amount: (\\d+))?");
+	/**
+	 * Name of the class that offers the field offsets and raw reads.
+	 */
+	private static final String UNSAFE_CLASS_NAME = "sun.misc.Unsafe";
+	/**
+	 * Name of the field that holds the instance of the class that offers the
+	 * field offsets and raw reads.
+	 */
+	private static final String UNSAFE_FIELD_NAME = "theUnsafe";
+	/**
+	 * Name of the operation of the diagnostic command MBean that executes
+	 * <tt>VM.info</tt>.
+	 */
+	private static final String VM_INFO_OPERATION = "vmInfo";
+
+	/**
+	 * Whether the given option of the virtual machine is enabled.
+	 * 
+	 * @param diagnostics
+	 *            Bean that offers the options
+	 * @param name
+	 *            The name of the option
+	 * @return <tt>True</tt> if the option exists and is enabled,
+	 *         <tt>false</tt> otherwise
+	 */
+	private static boolean isEnabled(final HotSpotDiagnosticMXBean diagnostics, final String name) {
+		try {
+			return Boolean.parseBoolean(diagnostics.getVMOption(name).getValue());
+		} catch (final IllegalArgumentException e) {
+			// The virtual machine does not know the option
+			return false;
+		}
+	}
+
+	/**
+	 * Rethrows the given throwable, wrapped into an unchecked exception if it
+	 * is checked.
+	 * 
+	 * @param throwable
+	 *            The throwable to rethrow
+	 * @return Nothing, the method always throws. Allows to write
+	 *         <tt>throw rethrow(e)</tt> such that the compiler knows the
+	 *         statement does not complete.
+	 */
+	private static RuntimeException rethrow(final Throwable throwable) {
+		if (throwable instanceof RuntimeException) {
+			throw (RuntimeException) throwable;
+		}
+		if (throwable instanceof Error) {
+			throw (Error) throwable;
+		}
+		throw new IllegalStateException(throwable);
+	}
+
+	/**
+	 * Offset of the first element of an object array.
+	 */
+	private final long mArrayBaseOffset;
+	/**
+	 * Whether references are stored compressed.
+	 */
+	private final boolean mCompressedOops;
+	/**
+	 * Handle that reads an integer, of type <tt>(Object, long)int</tt>.
+	 */
+	private final MethodHandle mGetInt;
+	/**
+	 * Handle that reads a long, of type <tt>(Object, long)long</tt>.
+	 */
+	private final MethodHandle mGetLong;
+	/**
+	 * End of the reserved heap, exclusive, or {@link Long#MAX_VALUE} if
+	 * unknown.
+	 */
+	private final long mHeapEnd;
+	/**
+	 * Start of the reserved heap, or zero if unknown.
+	 */
+	private final long mHeapStart;
+	/**
+	 * Size of the class word, in bytes.
+	 */
+	private final int mKlassSize;
+	/**
+	 * Cached layouts by their class.
+	 */
+	private final Map<Class<?>, ClassLayout> mLayouts;
+	/**
+	 * Handle that gets the offset of an instance field, of type
+	 * <tt>(Field)long</tt>.
+	 */
+	private final MethodHandle mObjectFieldOffset;
+	/**
+	 * Base that is added to decoded compressed references.
+	 */
+	private final long mOopBase;
+	/**
+	 * Amount of bits compressed references are shifted by.
+	 */
+	private final int mOopShift;
+
+	/**
+	 * Creates a new locator for the virtual machine it runs in.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             If the memory layout of the virtual machine is not
+	 *             supported, or <tt>sun.misc.Unsafe</tt> or the diagnostic
+	 *             beans are not available
+	 */
+	public ObjectLocator() throws UnsupportedOperationException {
+		this.mLayouts = new ConcurrentHashMap<>();
+		try {
+			final Class<?> unsafeClass = Class.forName(UNSAFE_CLASS_NAME);
+			final Field unsafeField = unsafeClass.getDeclaredField(UNSAFE_FIELD_NAME);
+			unsafeField.setAccessible(true);
+			final Object unsafe = unsafeField.get(null);
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			this.mObjectFieldOffset = lookup
+					.findVirtual(unsafeClass, "objectFieldOffset", MethodType.methodType(long.class, Field.class))
+					.bindTo(unsafe);
+			this.mGetInt = lookup.findVirtual(unsafeClass, "getInt",
+					MethodType.methodType(int.class, Object.class, long.class)).bindTo(unsafe);
+			this.mGetLong = lookup.findVirtual(unsafeClass, "getLong",
+					MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+			final int addressSize = (int) lookup
+					.findVirtual(unsafeClass, "addressSize", MethodType.methodType(int.class)).invoke(unsafe);
+			if (addressSize != 8) {
+				throw new UnsupportedOperationException(ERROR_UNSUPPORTED + addressSize + " byte addresses");
+			}
+			this.mArrayBaseOffset = (int) lookup
+					.findVirtual(unsafeClass, "arrayBaseOffset", MethodType.methodType(int.class, Class.class))
+					.invoke(unsafe, Object[].class);
+		} catch (final UnsupportedOperationException e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new UnsupportedOperationException(ERROR_UNSUPPORTED + e, e);
+		}
+
+		final HotSpotDiagnosticMXBean diagnostics = ManagementFactory
+				.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+		if (diagnostics == null) {
+			throw new UnsupportedOperationException(ERROR_UNSUPPORTED + HotSpotDiagnosticMXBean.class.getName());
+		}
+		for (final String option : CONCURRENT_COLLECTOR_OPTIONS) {
+			if (isEnabled(diagnostics, option)) {
+				throw new UnsupportedOperationException(ERROR_UNSUPPORTED + option);
+			}
+		}
+		if (isEnabled(diagnostics, "UseCompactObjectHeaders")) {
+			throw new UnsupportedOperationException(ERROR_UNSUPPORTED + "UseCompactObjectHeaders");
+		}
+		this.mCompressedOops = isEnabled(diagnostics, "UseCompressedOops");
+		if (isEnabled(diagnostics, "UseCompressedClassPointers")) {
+			this.mKlassSize = 4;
+		} else {
+			this.mKlassSize = 8;
+		}
+
+		if (!this.mCompressedOops) {
+			// References are stored as plain addresses
+			this.mOopBase = 0;
+			this.mOopShift = 0;
+			this.mHeapStart = 0;
+			this.mHeapEnd = Long.MAX_VALUE;
+			return;
+		}
+		final String vmInfo;
+		try {
+			vmInfo = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+					new ObjectName(DIAGNOSTIC_COMMAND_NAME), VM_INFO_OPERATION, new Object[] { null },
+					new String[] { String[].class.getName() });
+		} catch (final JMException e) {
+			throw new UnsupportedOperationException(ERROR_UNSUPPORTED + e, e);
+		}
+		final Matcher heapMatcher = HEAP_PATTERN.matcher(vmInfo);
+		final Matcher oopMatcher = OOP_MODE_PATTERN.matcher(vmInfo);
+		if (!heapMatcher.find() || !oopMatcher.find()) {
+			throw new UnsupportedOperationException(ERROR_UNSUPPORTED + "unknown compressed oops mode");
+		}
+		this.mHeapStart = Long.parseUnsignedLong(heapMatcher.group(1), 16);
+		this.mHeapEnd = this.mHeapStart + Long.parseLong(heapMatcher.group(2)) * 1024 * 1024;
+		final Matcher baseMatcher = OOP_BASE_PATTERN.matcher(oopMatcher.group(1));
+		if (baseMatcher.find()) {
+			this.mOopBase = Long.parseUnsignedLong(baseMatcher.group(1), 16);
+		} else {
+			this.mOopBase = 0;
+		}
+		if (oopMatcher.group(2) == null) {
+			this.mOopShift = 0;
+		} else {
+			this.mOopShift = Integer.parseInt(oopMatcher.group(2));
+		}
+	}
+
+	/**
+	 * Computes the current address of the given object. The address stays
+	 * valid until the garbage collector moves the object, which it may do at
+	 * any time. Callers should thus hold a strong reference to the object and
+	 * compute its address again once the host detects a move.
+	 * 
+	 * @param object
+	 *            The object to locate
+	 * @return The current address of the object
+	 * @throws IllegalStateException
+	 *             If the computed address lies outside of the heap, which
+	 *             indicates that references are compressed in an unknown way
+	 */
+	public long getAddress(final Object object) throws IllegalStateException {
+		// The reference is read from an array, since its element offsets are
+		// known, as stored by the virtual machine
+		final Object[] holder = { object };
+		final long address;
+		try {
+			if (this.mCompressedOops) {
+				final long narrowOop = ((int) this.mGetInt.invokeExact((Object) holder, this.mArrayBaseOffset))
+						& 0xFFFFFFFFL;
+				address = this.mOopBase + (narrowOop << this.mOopShift);
+			} else {
+				address = (long) this.mGetLong.invokeExact((Object) holder, this.mArrayBaseOffset);
+			}
+		} catch (final Throwable e) {
+			throw rethrow(e);
+		}
+		if (address < this.mHeapStart || address >= this.mHeapEnd) {
+			throw new IllegalStateException(ERROR_ADDRESS + Long.toHexString(address));
+		}
+		return address;
+	}
+
+	/**
+	 * Gets the layout of the class of the given object. The layout is created
+	 * on the first request for a class and cached.
+	 * 
+	 * @param object
+	 *            An instance of the class whose layout to get, its header
+	 *            provides the class word
+	 * @return The layout of the class of the object
+	 * @throws UnsupportedOperationException
+	 *             If the offsets of the fields of the class are not available,
+	 *             like for hidden classes and records
+	 */
+	public ClassLayout getLayout(final Object object) throws UnsupportedOperationException {
+		final Class<?> objectClass = object.getClass();
+		final ClassLayout cachedLayout = this.mLayouts.get(objectClass);
+		if (cachedLayout != null) {
+			return cachedLayout;
+		}
+
+		final List<Field> fields = new ArrayList<>();
+		Class<?> currentClass = objectClass;
+		while (currentClass != null) {
+			for (final Field field : currentClass.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers())) {
+					fields.add(field);
+				}
+			}
+			currentClass = currentClass.getSuperclass();
+		}
+		final String[] fieldNames = new String[fields.size()];
+		final String[] fieldTypes = new String[fields.size()];
+		final long[] fieldOffsets = new long[fields.size()];
+		final long klassWord;
+		try {
+			for (int i = 0; i < fieldNames.length; i++) {
+				final Field field = fields.get(i);
+				fieldNames[i] = field.getName();
+				fieldTypes[i] = field.getType().descriptorString();
+				fieldOffsets[i] = (long) this.mObjectFieldOffset.invokeExact(field);
+			}
+			if (this.mKlassSize == 4) {
+				klassWord = ((int) this.mGetInt.invokeExact(object, (long) KLASS_OFFSET)) & 0xFFFFFFFFL;
+			} else {
+				klassWord = (long) this.mGetLong.invokeExact(object, (long) KLASS_OFFSET);
+			}
+		} catch (final Throwable e) {
+			throw rethrow(e);
+		}
+
+		int referenceSize = 8;
+		if (this.mCompressedOops) {
+			referenceSize = 4;
+		}
+		final ClassLayout layout = new ClassLayout(objectClass.getName(), KLASS_OFFSET, this.mKlassSize, klassWord,
+				referenceSize, fieldNames, fieldTypes, fieldOffsets);
+		final ClassLayout previousLayout = this.mLayouts.putIfAbsent(objectClass, layout);
+		if (previousLayout != null) {
+			return previousLayout;
+		}
+		return layout;
+	}
+
+	/**
+	 * Whether references are stored compressed.
+	 * 
+	 * @return <tt>True</tt> if references are stored compressed,
+	 *         <tt>false</tt> otherwise
+	 */
+	public boolean isCompressedOops() {
+		return this.mCompressedOops;
+	}
+}
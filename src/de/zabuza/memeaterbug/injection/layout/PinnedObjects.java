@@ -0,0 +1,115 @@
+package de.zabuza.memeaterbug.injection.layout;
+
+import de.zabuza.memeaterbug.injection.ring.SampleRing;
+
+/**
+ * Objects of the target application whose fields the host reads directly
+ * from memory. The objects are strongly referenced, such that they stay
+ * alive as long as they are pinned. The virtual machine offers no way to
+ * keep the garbage collector from moving them though, thus every collection
+ * is reported to a ring by a {@link CollectionListener} and the host asks
+ * for the current addresses by {@link #locate()} afterwards.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class PinnedObjects {
+	/**
+	 * Listener that reports garbage collections to the host.
+	 */
+	private final CollectionListener mListener;
+	/**
+	 * Locator used to compute the addresses of the objects.
+	 */
+	private final ObjectLocator mLocator;
+	/**
+	 * The pinned objects.
+	 */
+	private final Object[] mObjects;
+	/**
+	 * Ring that receives the garbage collections.
+	 */
+	private final SampleRing mRing;
+
+	/**
+	 * Pins the given objects and starts reporting garbage collections to the
+	 * given ring. Collections are reported before any address is computed,
+	 * such that no move between the computation and a read of the host gets
+	 * unnoticed.
+	 * 
+	 * @param locator
+	 *            Locator used to compute the addresses of the objects
+	 * @param objects
+	 *            The objects to pin
+	 * @param ring
+	 *            Ring that receives the garbage collections, it must not be
+	 *            written by anyone else. It gets closed once the objects are
+	 *            released.
+	 */
+	public PinnedObjects(final ObjectLocator locator, final Object[] objects, final SampleRing ring) {
+		this.mLocator = locator;
+		this.mObjects = objects.clone();
+		this.mRing = ring;
+		this.mListener = new CollectionListener(ring.newWriter());
+		this.mListener.start();
+	}
+
+	/**
+	 * Gets the amount of pinned objects.
+	 * 
+	 * @return The amount of pinned objects
+	 */
+	public int getAmount() {
+		return this.mObjects.length;
+	}
+
+	/**
+	 * Gets the amount of garbage collections that were not reported since
+	 * the ring was full.
+	 * 
+	 * @return The amount of dropped samples
+	 */
+	public long getDroppedAmount() {
+		return this.mListener.getDroppedAmount();
+	}
+
+	/**
+	 * Gets the layout of the class of the given object.
+	 * 
+	 * @param index
+	 *            Index of the object
+	 * @return The layout of the class of the object
+	 * @throws UnsupportedOperationException
+	 *             If the offsets of the fields of the class are not available
+	 */
+	public ClassLayout getLayout(final int index) throws UnsupportedOperationException {
+		return this.mLocator.getLayout(this.mObjects[index]);
+	}
+
+	/**
+	 * Computes the current addresses of the objects.
+	 * 
+	 * @return The current addresses, in the order the objects were pinned
+	 * @throws IllegalStateException
+	 *             If an address could not be computed
+	 */
+	public long[] locate() throws IllegalStateException {
+		final long[] addresses = new long[this.mObjects.length];
+		for (int i = 0; i < addresses.length; i++) {
+			addresses[i] = this.mLocator.getAddress(this.mObjects[i]);
+		}
+		return addresses;
+	}
+
+	/**
+	 * Stops reporting garbage collections, closes the ring and releases the
+	 * objects, such that they can be collected again.
+	 */
+	public void release() {
+		this.mListener.close();
+		this.mRing.close();
+		for (int i = 0; i < this.mObjects.length; i++) {
+			this.mObjects[i] = null;
+		}
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * This package contains the export of the memory layout of objects of the
+ * target application, used by injected agents such that the host can read
+ * fields of pinned objects directly from the memory of the target.
+ */
+package de.zabuza.memeaterbug.injection.layout;
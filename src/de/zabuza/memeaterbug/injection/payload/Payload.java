@@ -0,0 +1,434 @@
+package de.zabuza.memeaterbug.injection.payload;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Structured payload that the host staged in a file by a
+ * {@link PayloadWriter}, mapped read-only by an injected agent. Instead of
+ * passing large arguments like address tables or class lists through the
+ * agent argument string, only the path of the file and the expected version
+ * are passed, encoded by {@link #toArgument(Path, int)}.<br/>
+ * <br/>
+ * The file starts with a header holding a magic number, the version of the
+ * layout, the version of the content and the amount of entries. A directory
+ * follows, holding the type, name, offset and length of each entry. The data
+ * of the entries follows, each aligned to eight bytes. Opening a payload only
+ * reads the directory, entries are offered as views on the mapping and not
+ * copied, except for strings, which are decoded on request.<br/>
+ * <br/>
+ * Remark: This package must not depend on other classes of the API, such
+ * that it can be packaged into an independent agent jar.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class Payload {
+	/**
+	 * Position and type of an entry in the mapping.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class Entry {
+		/**
+		 * Length of the data of the entry, in bytes.
+		 */
+		private final int mLength;
+		/**
+		 * Offset of the data of the entry, in bytes.
+		 */
+		private final int mOffset;
+		/**
+		 * Type of the entry.
+		 */
+		private final byte mType;
+
+		/**
+		 * Creates a new entry.
+		 * 
+		 * @param type
+		 *            Type of the entry
+		 * @param offset
+		 *            Offset of the data of the entry, in bytes
+		 * @param length
+		 *            Length of the data of the entry, in bytes
+		 */
+		public Entry(final byte type, final int offset, final int length) {
+			this.mType = type;
+			this.mOffset = offset;
+			this.mLength = length;
+		}
+	}
+
+	/**
+	 * Prefix of agent arguments that refer to a payload.
+	 */
+	public static final String ARGUMENT_PREFIX = "@payload:";
+	/**
+	 * Size of a directory entry without its name, in bytes.
+	 */
+	static final int DIRECTORY_ENTRY_SIZE = 19;
+	/**
+	 * Version of the layout of payload files.
+	 */
+	static final int FORMAT_VERSION = 1;
+	/**
+	 * Size of the header, in bytes.
+	 */
+	static final int HEADER_SIZE = 16;
+	/**
+	 * Magic number that starts every payload file.
+	 */
+	static final int MAGIC = 0x4D455050;
+	/**
+	 * Maximal length of the name of an entry, in bytes of its UTF-8 encoding.
+	 */
+	static final int MAX_NAME_LENGTH = 0xFFFF;
+	/**
+	 * Type of entries of bytes.
+	 */
+	static final byte TYPE_BYTES = 0;
+	/**
+	 * Type of entries of integers.
+	 */
+	static final byte TYPE_INTS = 1;
+	/**
+	 * Type of entries of longs.
+	 */
+	static final byte TYPE_LONGS = 2;
+	/**
+	 * Type of entries of strings.
+	 */
+	static final byte TYPE_STRINGS = 3;
+	/**
+	 * Separator of the version and the path in an agent argument.
+	 */
+	private static final char ARGUMENT_SEPARATOR = ':';
+	/**
+	 * Thrown when an argument does not refer to a payload.
+	 */
+	private static final String ERROR_NO_ARGUMENT = "The argument does not refer to a payload: ";
+	/**
+	 * Thrown when an entry does not exist.
+	 */
+	private static final String ERROR_NO_ENTRY = "The payload contains no entry with the name: ";
+	/**
+	 * Thrown when a file is no payload.
+	 */
+	private static final String ERROR_NO_PAYLOAD = "The file does not contain a payload: ";
+	/**
+	 * Thrown when an entry has a different type than requested.
+	 */
+	private static final String ERROR_TYPE = "The entry has a different type: ";
+	/**
+	 * Thrown when a payload has a different version than expected.
+	 */
+	private static final String ERROR_VERSION = "The payload has a different version than expected: ";
+
+	/**
+	 * Finds the argument that refers to a payload among the given agent
+	 * arguments.
+	 * 
+	 * @param args
+	 *            The arguments passed to an agent
+	 * @return The argument that refers to a payload or <tt>null</tt> if there
+	 *         is none
+	 */
+	public static String findArgument(final String[] args) {
+		for (final String arg : args) {
+			if (isArgument(arg)) {
+				return arg;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Whether the given agent argument refers to a payload.
+	 * 
+	 * @param arg
+	 *            The argument to check
+	 * @return <tt>True</tt> if the argument refers to a payload,
+	 *         <tt>false</tt> otherwise
+	 */
+	public static boolean isArgument(final String arg) {
+		return arg != null && arg.startsWith(ARGUMENT_PREFIX);
+	}
+
+	/**
+	 * Opens the payload an agent argument refers to, which was created by
+	 * {@link #toArgument(Path, int)}.
+	 * 
+	 * @param arg
+	 *            The argument that refers to the payload
+	 * @return The opened payload
+	 * @throws IOException
+	 *             If the file could not be mapped, does not contain a payload
+	 *             or the argument does not refer to one
+	 */
+	public static Payload open(final String arg) throws IOException {
+		if (!isArgument(arg)) {
+			throw new IOException(ERROR_NO_ARGUMENT + arg);
+		}
+		final int separator = arg.indexOf(ARGUMENT_SEPARATOR, ARGUMENT_PREFIX.length());
+		if (separator == -1) {
+			throw new IOException(ERROR_NO_ARGUMENT + arg);
+		}
+		final int version;
+		try {
+			version = Integer.parseInt(arg.substring(ARGUMENT_PREFIX.length(), separator));
+		} catch (final NumberFormatException e) {
+			throw new IOException(ERROR_NO_ARGUMENT + arg, e);
+		}
+		return open(Paths.get(arg.substring(separator + 1)), version);
+	}
+
+	/**
+	 * Opens a payload that was written by a {@link PayloadWriter}. The file
+	 * is mapped read-only, only its directory is read.
+	 * 
+	 * @param file
+	 *            The file holding the payload
+	 * @param version
+	 *            Version of the content the caller expects
+	 * @return The opened payload
+	 * @throws IOException
+	 *             If the file could not be mapped, does not contain a payload
+	 *             or has a different version
+	 */
+	public static Payload open(final Path file, final int version) throws IOException {
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(ERROR_NO_PAYLOAD + file);
+			}
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.nativeOrder());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				throw new IOException(ERROR_NO_PAYLOAD + file);
+			}
+			final int payloadVersion = buffer.getInt();
+			if (payloadVersion != version) {
+				throw new IOException(ERROR_VERSION + payloadVersion + " in " + file);
+			}
+
+			final int entryAmount = buffer.getInt();
+			final Map<String, Entry> entries = new HashMap<>();
+			try {
+				for (int i = 0; i < entryAmount; i++) {
+					final byte type = buffer.get();
+					final byte[] name = new byte[buffer.getShort() & 0xFFFF];
+					buffer.get(name);
+					final long offset = buffer.getLong();
+					final long length = buffer.getLong();
+					if (offset < 0 || length < 0 || offset + length > buffer.capacity()) {
+						throw new IOException(ERROR_NO_PAYLOAD + file);
+					}
+					entries.put(new String(name, StandardCharsets.UTF_8), new Entry(type, (int) offset, (int) length));
+				}
+			} catch (final BufferUnderflowException e) {
+				throw new IOException(ERROR_NO_PAYLOAD + file, e);
+			}
+			return new Payload(file, buffer, payloadVersion, entries);
+		}
+	}
+
+	/**
+	 * Encodes the agent argument that refers to the given payload. Unlike
+	 * other arguments it may contain the argument separator, thus it must be
+	 * the last argument.
+	 * 
+	 * @param file
+	 *            The file holding the payload
+	 * @param version
+	 *            Version of the content of the payload
+	 * @return The argument that refers to the payload
+	 */
+	public static String toArgument(final Path file, final int version) {
+		return ARGUMENT_PREFIX + version + ARGUMENT_SEPARATOR + file.toAbsolutePath();
+	}
+
+	/**
+	 * Aligns the given offset to eight bytes.
+	 * 
+	 * @param offset
+	 *            The offset to align
+	 * @return The smallest multiple of eight that is not smaller than the
+	 *         offset
+	 */
+	static long align(final long offset) {
+		return (offset + Long.BYTES - 1) & -Long.BYTES;
+	}
+
+	/**
+	 * Mapped content of the file.
+	 */
+	private final MappedByteBuffer mBuffer;
+	/**
+	 * Entries by their name.
+	 */
+	private final Map<String, Entry> mEntries;
+	/**
+	 * The file holding the payload.
+	 */
+	private final Path mFile;
+	/**
+	 * Version of the content of the payload.
+	 */
+	private final int mVersion;
+
+	/**
+	 * Creates a new payload on the given mapped file.
+	 * 
+	 * @param file
+	 *            The file holding the payload
+	 * @param buffer
+	 *            Mapped content of the file
+	 * @param version
+	 *            Version of the content of the payload
+	 * @param entries
+	 *            Entries by their name
+	 */
+	private Payload(final Path file, final MappedByteBuffer buffer, final int version,
+			final Map<String, Entry> entries) {
+		this.mFile = file;
+		this.mBuffer = buffer;
+		this.mVersion = version;
+		this.mEntries = entries;
+	}
+
+	/**
+	 * Whether the payload contains an entry with the given name.
+	 * 
+	 * @param name
+	 *            The name of the entry
+	 * @return <tt>True</tt> if the payload contains the entry, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean contains(final String name) {
+		return this.mEntries.containsKey(name);
+	}
+
+	/**
+	 * Gets an entry of bytes, as read-only view on the mapping.
+	 * 
+	 * @param name
+	 *            The name of the entry
+	 * @return The bytes of the entry
+	 * @throws IllegalArgumentException
+	 *             If there is no such entry or it is not of bytes
+	 */
+	public ByteBuffer getBytes(final String name) throws IllegalArgumentException {
+		return slice(name, TYPE_BYTES);
+	}
+
+	/**
+	 * Gets the file holding the payload.
+	 * 
+	 * @return The file holding the payload
+	 */
+	public Path getFile() {
+		return this.mFile;
+	}
+
+	/**
+	 * Gets an entry of integers, as read-only view on the mapping.
+	 * 
+	 * @param name
+	 *            The name of the entry
+	 * @return The integers of the entry
+	 * @throws IllegalArgumentException
+	 *             If there is no such entry or it is not of integers
+	 */
+	public IntBuffer getInts(final String name) throws IllegalArgumentException {
+		return slice(name, TYPE_INTS).asIntBuffer();
+	}
+
+	/**
+	 * Gets an entry of longs, as read-only view on the mapping.
+	 * 
+	 * @param name
+	 *            The name of the entry
+	 * @return The longs of the entry
+	 * @throws IllegalArgumentException
+	 *             If there is no such entry or it is not of longs
+	 */
+	public LongBuffer getLongs(final String name) throws IllegalArgumentException {
+		return slice(name, TYPE_LONGS).asLongBuffer();
+	}
+
+	/**
+	 * Gets the names of all entries.
+	 * 
+	 * @return The names of all entries
+	 */
+	public Set<String> getNames() {
+		return Collections.unmodifiableSet(this.mEntries.keySet());
+	}
+
+	/**
+	 * Gets an entry of strings. Other than the other entries, the strings
+	 * are decoded and thus copied.
+	 * 
+	 * @param name
+	 *            The name of the entry
+	 * @return The strings of the entry
+	 * @throws IllegalArgumentException
+	 *             If there is no such entry or it is not of strings
+	 */
+	public String[] getStrings(final String name) throws IllegalArgumentException {
+		final ByteBuffer data = slice(name, TYPE_STRINGS);
+		final String[] values = new String[data.getInt()];
+		for (int i = 0; i < values.length; i++) {
+			final byte[] value = new byte[data.getInt()];
+			data.get(value);
+			values[i] = new String(value, StandardCharsets.UTF_8);
+		}
+		return values;
+	}
+
+	/**
+	 * Gets the version of the content of the payload.
+	 * 
+	 * @return The version of the payload
+	 */
+	public int getVersion() {
+		return this.mVersion;
+	}
+
+	/**
+	 * Creates a read-only view on the data of an entry.
+	 * 
+	 * @param name
+	 *            The name of the entry
+	 * @param type
+	 *            The expected type of the entry
+	 * @return The view on the data of the entry, in native byte order
+	 * @throws IllegalArgumentException
+	 *             If there is no such entry or it has a different type
+	 */
+	private ByteBuffer slice(final String name, final byte type) throws IllegalArgumentException {
+		final Entry entry = this.mEntries.get(name);
+		if (entry == null) {
+			throw new IllegalArgumentException(ERROR_NO_ENTRY + name);
+		}
+		if (entry.mType != type) {
+			throw new IllegalArgumentException(ERROR_TYPE + name);
+		}
+		return this.mBuffer.slice(entry.mOffset, entry.mLength).order(ByteOrder.nativeOrder());
+	}
+}
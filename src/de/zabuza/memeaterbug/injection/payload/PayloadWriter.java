@@ -0,0 +1,290 @@
+package de.zabuza.memeaterbug.injection.payload;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the entries of a {@link Payload} and writes them to a file, which
+ * an injected agent then maps by {@link Payload#open(Path, int)}. Entries are
+ * named arrays of bytes, integers, longs or strings. The arrays are not
+ * copied when added, thus they must not be changed until the payload was
+ * written.<br/>
+ * <br/>
+ * The class is not thread-safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class PayloadWriter {
+	/**
+	 * Thrown when an entry name is used twice.
+	 */
+	private static final String ERROR_DUPLICATE_NAME = "The payload already contains an entry with the name: ";
+	/**
+	 * Thrown when an entry name is too long.
+	 */
+	private static final String ERROR_NAME_LENGTH = "The name of an entry is too long: ";
+	/**
+	 * Thrown when the payload exceeds the maximal size.
+	 */
+	private static final String ERROR_SIZE = "The payload exceeds the maximal size of a mapped file: ";
+
+	/**
+	 * Gets the length of the data of an entry in the file.
+	 * 
+	 * @param type
+	 *            Type of the entry
+	 * @param data
+	 *            Data of the entry
+	 * @return The length of the data, in bytes
+	 */
+	private static long getLength(final byte type, final Object data) {
+		switch (type) {
+		case Payload.TYPE_BYTES:
+			return ((byte[]) data).length;
+		case Payload.TYPE_INTS:
+			return (long) ((int[]) data).length * Integer.BYTES;
+		case Payload.TYPE_LONGS:
+			return (long) ((long[]) data).length * Long.BYTES;
+		default:
+			long length = Integer.BYTES;
+			for (final byte[] value : (byte[][]) data) {
+				length += Integer.BYTES + value.length;
+			}
+			return length;
+		}
+	}
+
+	/**
+	 * Puts the data of an entry at the current position of the buffer.
+	 * 
+	 * @param buffer
+	 *            The buffer to put the data in
+	 * @param type
+	 *            Type of the entry
+	 * @param data
+	 *            Data of the entry
+	 */
+	private static void putData(final MappedByteBuffer buffer, final byte type, final Object data) {
+		switch (type) {
+		case Payload.TYPE_BYTES:
+			buffer.put((byte[]) data);
+			break;
+		case Payload.TYPE_INTS:
+			buffer.asIntBuffer().put((int[]) data);
+			break;
+		case Payload.TYPE_LONGS:
+			buffer.asLongBuffer().put((long[]) data);
+			break;
+		default:
+			final byte[][] values = (byte[][]) data;
+			buffer.putInt(values.length);
+			for (final byte[] value : values) {
+				buffer.putInt(value.length);
+				buffer.put(value);
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Data of the entries, by their index. Either a byte, integer or long
+	 * array or an array of encoded strings.
+	 */
+	private final List<Object> mData;
+	/**
+	 * Names of the entries, encoded as UTF-8, by their index.
+	 */
+	private final List<byte[]> mNames;
+	/**
+	 * Names of all entries, used to reject duplicates.
+	 */
+	private final Set<String> mNameSet;
+	/**
+	 * Types of the entries, by their index.
+	 */
+	private final List<Byte> mTypes;
+	/**
+	 * Version of the payload, which the agent expects.
+	 */
+	private final int mVersion;
+
+	/**
+	 * Creates a new empty payload.
+	 * 
+	 * @param version
+	 *            Version of the content of the payload, the agent only opens
+	 *            payloads of the version it expects
+	 */
+	public PayloadWriter(final int version) {
+		this.mVersion = version;
+		this.mNames = new ArrayList<>();
+		this.mNameSet = new HashSet<>();
+		this.mTypes = new ArrayList<>();
+		this.mData = new ArrayList<>();
+	}
+
+	/**
+	 * Adds an entry of bytes.
+	 * 
+	 * @param name
+	 *            Unique name of the entry
+	 * @param values
+	 *            The bytes of the entry
+	 * @return This writer, to chain calls
+	 * @throws IllegalArgumentException
+	 *             If the name is already used or too long
+	 */
+	public PayloadWriter addBytes(final String name, final byte[] values) throws IllegalArgumentException {
+		return add(name, Payload.TYPE_BYTES, values);
+	}
+
+	/**
+	 * Adds an entry of integers.
+	 * 
+	 * @param name
+	 *            Unique name of the entry
+	 * @param values
+	 *            The integers of the entry
+	 * @return This writer, to chain calls
+	 * @throws IllegalArgumentException
+	 *             If the name is already used or too long
+	 */
+	public PayloadWriter addInts(final String name, final int[] values) throws IllegalArgumentException {
+		return add(name, Payload.TYPE_INTS, values);
+	}
+
+	/**
+	 * Adds an entry of longs, like a table of addresses.
+	 * 
+	 * @param name
+	 *            Unique name of the entry
+	 * @param values
+	 *            The longs of the entry
+	 * @return This writer, to chain calls
+	 * @throws IllegalArgumentException
+	 *             If the name is already used or too long
+	 */
+	public PayloadWriter addLongs(final String name, final long[] values) throws IllegalArgumentException {
+		return add(name, Payload.TYPE_LONGS, values);
+	}
+
+	/**
+	 * Adds an entry of strings, like a list of class names. Strings may
+	 * contain any character.
+	 * 
+	 * @param name
+	 *            Unique name of the entry
+	 * @param values
+	 *            The strings of the entry
+	 * @return This writer, to chain calls
+	 * @throws IllegalArgumentException
+	 *             If the name is already used or too long
+	 */
+	public PayloadWriter addStrings(final String name, final String... values) throws IllegalArgumentException {
+		final byte[][] encodedValues = new byte[values.length][];
+		for (int i = 0; i < values.length; i++) {
+			encodedValues[i] = values[i].getBytes(StandardCharsets.UTF_8);
+		}
+		return add(name, Payload.TYPE_STRINGS, encodedValues);
+	}
+
+	/**
+	 * Gets the version of the content of the payload.
+	 * 
+	 * @return The version of the payload
+	 */
+	public int getVersion() {
+		return this.mVersion;
+	}
+
+	/**
+	 * Writes the payload to the given file, replacing it. The data is written
+	 * into a mapping of the file, in the layout the agent maps it with.
+	 * 
+	 * @param file
+	 *            The file to write to
+	 * @return The size of the file, in bytes
+	 * @throws IOException
+	 *             If the file could not be written or the payload exceeds the
+	 *             maximal size of a mapped file
+	 */
+	public long write(final Path file) throws IOException {
+		final int entryAmount = this.mNames.size();
+		long directorySize = 0;
+		for (final byte[] name : this.mNames) {
+			directorySize += Payload.DIRECTORY_ENTRY_SIZE + name.length;
+		}
+		final long[] offsets = new long[entryAmount];
+		final long[] lengths = new long[entryAmount];
+		long size = Payload.align(Payload.HEADER_SIZE + directorySize);
+		for (int i = 0; i < entryAmount; i++) {
+			offsets[i] = size;
+			lengths[i] = getLength(this.mTypes.get(i).byteValue(), this.mData.get(i));
+			size = Payload.align(size + lengths[i]);
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException(ERROR_SIZE + size);
+		}
+
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.nativeOrder());
+			buffer.putInt(Payload.MAGIC);
+			buffer.putInt(Payload.FORMAT_VERSION);
+			buffer.putInt(this.mVersion);
+			buffer.putInt(entryAmount);
+			for (int i = 0; i < entryAmount; i++) {
+				final byte[] name = this.mNames.get(i);
+				buffer.put(this.mTypes.get(i).byteValue());
+				buffer.putShort((short) name.length);
+				buffer.put(name);
+				buffer.putLong(offsets[i]);
+				buffer.putLong(lengths[i]);
+			}
+			for (int i = 0; i < entryAmount; i++) {
+				buffer.position((int) offsets[i]);
+				putData(buffer, this.mTypes.get(i).byteValue(), this.mData.get(i));
+			}
+			buffer.force();
+		}
+		return size;
+	}
+
+	/**
+	 * Adds an entry.
+	 * 
+	 * @param name
+	 *            Unique name of the entry
+	 * @param type
+	 *            Type of the entry
+	 * @param data
+	 *            Data of the entry
+	 * @return This writer, to chain calls
+	 * @throws IllegalArgumentException
+	 *             If the name is already used or too long
+	 */
+	private PayloadWriter add(final String name, final byte type, final Object data) throws IllegalArgumentException {
+		final byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+		if (encodedName.length > Payload.MAX_NAME_LENGTH) {
+			throw new IllegalArgumentException(ERROR_NAME_LENGTH + name);
+		}
+		if (!this.mNameSet.add(name)) {
+			throw new IllegalArgumentException(ERROR_DUPLICATE_NAME + name);
+		}
+		this.mNames.add(encodedName);
+		this.mTypes.add(Byte.valueOf(type));
+		this.mData.add(data);
+		return this;
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains structured payloads that the host stages in a file
+ * and injected agents map read-only, to pass large arguments to agents.
+ */
+package de.zabuza.memeaterbug.injection.payload;
@@ -0,0 +1,81 @@
+package de.zabuza.memeaterbug.injection.profile;
+
+/**
+ * Aggregated events of one key of a {@link ProfileSnapshot}, like all CPU
+ * samples of a method or all allocations of a class.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ProfileEntry {
+	/**
+	 * Amount of aggregated events.
+	 */
+	private final long mAmount;
+	/**
+	 * Key the events were aggregated by, like the name of a method or class.
+	 */
+	private final String mName;
+	/**
+	 * Sum of the weights of the aggregated events, like allocated bytes or
+	 * blocked nanoseconds.
+	 */
+	private final long mTotal;
+
+	/**
+	 * Creates a new entry.
+	 * 
+	 * @param name
+	 *            Key the events were aggregated by, like the name of a method
+	 *            or class
+	 * @param amount
+	 *            Amount of aggregated events
+	 * @param total
+	 *            Sum of the weights of the aggregated events, like allocated
+	 *            bytes or blocked nanoseconds
+	 */
+	public ProfileEntry(final String name, final long amount, final long total) {
+		this.mName = name;
+		this.mAmount = amount;
+		this.mTotal = total;
+	}
+
+	/**
+	 * Gets the amount of aggregated events.
+	 * 
+	 * @return The amount of aggregated events
+	 */
+	public long getAmount() {
+		return this.mAmount;
+	}
+
+	/**
+	 * Gets the key the events were aggregated by.
+	 * 
+	 * @return The key, like the name of a method or class
+	 */
+	public String getName() {
+		return this.mName;
+	}
+
+	/**
+	 * Gets the sum of the weights of the aggregated events. For CPU samples it
+	 * equals the amount, for allocations it is in bytes and for locks in
+	 * nanoseconds.
+	 * 
+	 * @return The sum of the weights of the aggregated events
+	 */
+	public long getTotal() {
+		return this.mTotal;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.mName + "=" + this.mAmount + "/" + this.mTotal;
+	}
+}
@@ -0,0 +1,203 @@
+package de.zabuza.memeaterbug.injection.profile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Events that a {@link StreamingProfiler} aggregated between two drains. CPU
+ * samples are aggregated by their top method, allocations and contended locks
+ * by the class of the allocated object or of the lock. Each table is sorted
+ * descending by the total weight of its entries.<br/>
+ * <br/>
+ * Snapshots are transferred by {@link #write(DataOutputStream, int)} and
+ * {@link #read(DataInputStream)}, such that both sides of a connection share
+ * the format.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ProfileSnapshot {
+	/**
+	 * Compares entries descending by their total weight.
+	 */
+	private static final Comparator<ProfileEntry> BY_TOTAL = new Comparator<ProfileEntry>() {
+		@Override
+		public int compare(final ProfileEntry first, final ProfileEntry second) {
+			return Long.compare(second.getTotal(), first.getTotal());
+		}
+	};
+
+	/**
+	 * Reads a snapshot that was written by {@link #write(DataOutputStream, int)}.
+	 * 
+	 * @param input
+	 *            Stream to read the snapshot from
+	 * @return The read snapshot
+	 * @throws IOException
+	 *             If the stream could not be read
+	 */
+	public static ProfileSnapshot read(final DataInputStream input) throws IOException {
+		final long duration = input.readLong();
+		final List<ProfileEntry> cpuSamples = readEntries(input);
+		final List<ProfileEntry> allocations = readEntries(input);
+		final List<ProfileEntry> locks = readEntries(input);
+		return new ProfileSnapshot(duration, cpuSamples, allocations, locks);
+	}
+
+	/**
+	 * Reads a table of entries.
+	 * 
+	 * @param input
+	 *            Stream to read the table from
+	 * @return The entries of the table
+	 * @throws IOException
+	 *             If the stream could not be read
+	 */
+	private static List<ProfileEntry> readEntries(final DataInputStream input) throws IOException {
+		final int entryAmount = input.readInt();
+		final List<ProfileEntry> entries = new ArrayList<>(entryAmount);
+		for (int i = 0; i < entryAmount; i++) {
+			entries.add(new ProfileEntry(input.readUTF(), input.readLong(), input.readLong()));
+		}
+		return entries;
+	}
+
+	/**
+	 * Writes the first entries of a table.
+	 * 
+	 * @param output
+	 *            Stream to write the table to
+	 * @param entries
+	 *            Entries of the table
+	 * @param limit
+	 *            Maximal amount of entries to write
+	 * @throws IOException
+	 *             If the stream could not be written
+	 */
+	private static void writeEntries(final DataOutputStream output, final List<ProfileEntry> entries,
+			final int limit) throws IOException {
+		final int entryAmount = Math.min(limit, entries.size());
+		output.writeInt(entryAmount);
+		for (int i = 0; i < entryAmount; i++) {
+			final ProfileEntry entry = entries.get(i);
+			output.writeUTF(entry.getName());
+			output.writeLong(entry.getAmount());
+			output.writeLong(entry.getTotal());
+		}
+	}
+
+	/**
+	 * Allocations by the class of the allocated objects.
+	 */
+	private final List<ProfileEntry> mAllocations;
+	/**
+	 * CPU samples by their top method.
+	 */
+	private final List<ProfileEntry> mCpuSamples;
+	/**
+	 * Time the events were aggregated over, in nanoseconds.
+	 */
+	private final long mDuration;
+	/**
+	 * Contended locks by the class of the lock.
+	 */
+	private final List<ProfileEntry> mLocks;
+
+	/**
+	 * Creates a new snapshot. The tables get sorted descending by the total
+	 * weight of their entries.
+	 * 
+	 * @param duration
+	 *            Time the events were aggregated over, in nanoseconds
+	 * @param cpuSamples
+	 *            CPU samples by their top method
+	 * @param allocations
+	 *            Allocations by the class of the allocated objects
+	 * @param locks
+	 *            Contended locks by the class of the lock
+	 */
+	public ProfileSnapshot(final long duration, final List<ProfileEntry> cpuSamples,
+			final List<ProfileEntry> allocations, final List<ProfileEntry> locks) {
+		this.mDuration = duration;
+		this.mCpuSamples = new ArrayList<>(cpuSamples);
+		this.mAllocations = new ArrayList<>(allocations);
+		this.mLocks = new ArrayList<>(locks);
+		Collections.sort(this.mCpuSamples, BY_TOTAL);
+		Collections.sort(this.mAllocations, BY_TOTAL);
+		Collections.sort(this.mLocks, BY_TOTAL);
+	}
+
+	/**
+	 * Gets the allocations by the class of the allocated objects. The total
+	 * of an entry is the estimated amount of allocated bytes.
+	 * 
+	 * @return The allocations, sorted descending by the allocated bytes
+	 */
+	public List<ProfileEntry> getAllocations() {
+		return Collections.unmodifiableList(this.mAllocations);
+	}
+
+	/**
+	 * Gets the CPU samples by the method that was executed on top of the
+	 * stack.
+	 * 
+	 * @return The CPU samples, sorted descending by their amount
+	 */
+	public List<ProfileEntry> getCpuSamples() {
+		return Collections.unmodifiableList(this.mCpuSamples);
+	}
+
+	/**
+	 * Gets the time the events were aggregated over.
+	 * 
+	 * @return The time the events were aggregated over, in nanoseconds
+	 */
+	public long getDuration() {
+		return this.mDuration;
+	}
+
+	/**
+	 * Gets the contended locks by the class of the lock. The total of an entry
+	 * is the time threads were blocked, in nanoseconds.
+	 * 
+	 * @return The contended locks, sorted descending by the blocked time
+	 */
+	public List<ProfileEntry> getLocks() {
+		return Collections.unmodifiableList(this.mLocks);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "duration=" + this.mDuration + "ns, cpu=" + this.mCpuSamples + ", allocations=" + this.mAllocations
+				+ ", locks=" + this.mLocks;
+	}
+
+	/**
+	 * Writes the snapshot, such that it can be read by
+	 * {@link #read(DataInputStream)}.
+	 * 
+	 * @param output
+	 *            Stream to write the snapshot to
+	 * @param limit
+	 *            Maximal amount of entries to write per table, the entries
+	 *            with the highest weight are kept
+	 * @throws IOException
+	 *             If the stream could not be written
+	 */
+	public void write(final DataOutputStream output, final int limit) throws IOException {
+		output.writeLong(this.mDuration);
+		writeEntries(output, this.mCpuSamples, limit);
+		writeEntries(output, this.mAllocations, limit);
+		writeEntries(output, this.mLocks, limit);
+	}
+}
@@ -0,0 +1,308 @@
+package de.zabuza.memeaterbug.injection.profile;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Profiler that runs inside the target on a {@link RecordingStream} of the
+ * flight recorder. It records CPU samples, sampled allocations and contended
+ * locks and aggregates them in memory, such that only compact
+ * {@link ProfileSnapshot snapshots} are sent to the host, whenever it drains
+ * the profiler.<br/>
+ * <br/>
+ * The stream reads its events from the repository of the flight recorder,
+ * which is located in the temporary directory. The profiler keeps the
+ * repository small by a short maximal age and never dumps a recording, thus
+ * it does not leave files in the working directory of the target.<br/>
+ * <br/>
+ * Events are delivered on the thread of the stream while the host drains
+ * from other threads, the aggregation is guarded by the profiler itself.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class StreamingProfiler {
+	/**
+	 * Sum of the weights of aggregated events of one key.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class Counter {
+		/**
+		 * Amount of aggregated events.
+		 */
+		private long mAmount;
+		/**
+		 * Sum of the weights of the aggregated events.
+		 */
+		private long mTotal;
+
+		/**
+		 * Creates a new counter without events.
+		 */
+		public Counter() {
+			this.mAmount = 0;
+			this.mTotal = 0;
+		}
+	}
+
+	/**
+	 * Name of the events that sample allocations.
+	 */
+	private static final String ALLOCATION_EVENT = "jdk.ObjectAllocationSample";
+	/**
+	 * Maximal amount of sampled allocations per second.
+	 */
+	private static final String ALLOCATION_THROTTLE = "150/s";
+	/**
+	 * Name of the events that sample the stacks of running threads.
+	 */
+	private static final String CPU_EVENT = "jdk.ExecutionSample";
+	/**
+	 * Thrown when the profiler was already started.
+	 */
+	private static final String ERROR_STARTED = "The profiler was already started";
+	/**
+	 * Maximal age of the events kept in the repository.
+	 */
+	private static final Duration MAX_AGE = Duration.ofSeconds(10);
+	/**
+	 * Name of the events of contended monitors.
+	 */
+	private static final String MONITOR_EVENT = "jdk.JavaMonitorEnter";
+	/**
+	 * Name of the events of parked threads, which covers the locks of
+	 * <tt>java.util.concurrent</tt>.
+	 */
+	private static final String PARK_EVENT = "jdk.ThreadPark";
+	/**
+	 * Key of events without a known method or class.
+	 */
+	private static final String UNKNOWN_NAME = "<unknown>";
+
+	/**
+	 * Adds an event to the counter of the given key.
+	 * 
+	 * @param counters
+	 *            Counters by their key
+	 * @param name
+	 *            The key of the event
+	 * @param weight
+	 *            The weight of the event
+	 */
+	private static void count(final Map<String, Counter> counters, final String name, final long weight) {
+		Counter counter = counters.get(name);
+		if (counter == null) {
+			counter = new Counter();
+			counters.put(name, counter);
+		}
+		counter.mAmount++;
+		counter.mTotal += weight;
+	}
+
+	/**
+	 * Gets the name of the given class.
+	 * 
+	 * @param recordedClass
+	 *            The class, may be <tt>null</tt>
+	 * @return The name of the class or {@link #UNKNOWN_NAME}
+	 */
+	private static String getName(final RecordedClass recordedClass) {
+		if (recordedClass == null) {
+			return UNKNOWN_NAME;
+		}
+		return recordedClass.getName();
+	}
+
+	/**
+	 * Gets the name of the method on top of the given stack.
+	 * 
+	 * @param stackTrace
+	 *            The stack, may be <tt>null</tt>
+	 * @return The full name of the method or {@link #UNKNOWN_NAME}
+	 */
+	private static String getTopMethod(final RecordedStackTrace stackTrace) {
+		if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+			return UNKNOWN_NAME;
+		}
+		final RecordedFrame frame = stackTrace.getFrames().get(0);
+		final RecordedMethod method = frame.getMethod();
+		if (method == null) {
+			return UNKNOWN_NAME;
+		}
+		return getName(method.getType()) + '.' + method.getName();
+	}
+
+	/**
+	 * Converts the given counters into entries.
+	 * 
+	 * @param counters
+	 *            Counters by their key
+	 * @return The entries of the counters
+	 */
+	private static List<ProfileEntry> toEntries(final Map<String, Counter> counters) {
+		final List<ProfileEntry> entries = new ArrayList<>(counters.size());
+		for (final Map.Entry<String, Counter> counter : counters.entrySet()) {
+			entries.add(new ProfileEntry(counter.getKey(), counter.getValue().mAmount, counter.getValue().mTotal));
+		}
+		return entries;
+	}
+
+	/**
+	 * Allocated bytes by the class of the allocated objects, since the last
+	 * drain.
+	 */
+	private Map<String, Counter> mAllocations;
+	/**
+	 * CPU samples by their top method, since the last drain.
+	 */
+	private Map<String, Counter> mCpuSamples;
+	/**
+	 * Time of the last drain, as value of {@link System#nanoTime()}.
+	 */
+	private long mLastDrain;
+	/**
+	 * Blocked time by the class of the lock, since the last drain.
+	 */
+	private Map<String, Counter> mLocks;
+	/**
+	 * Whether the stream was started.
+	 */
+	private boolean mStarted;
+	/**
+	 * Stream delivering the events.
+	 */
+	private final RecordingStream mStream;
+
+	/**
+	 * Creates a new profiler that is not started yet.
+	 * 
+	 * @param samplingPeriod
+	 *            Time between two CPU samples of a thread, in nanoseconds
+	 * @param lockThreshold
+	 *            Minimal time a thread must be blocked on a lock for the lock
+	 *            to be recorded, in nanoseconds
+	 */
+	public StreamingProfiler(final long samplingPeriod, final long lockThreshold) {
+		this.mAllocations = new HashMap<>();
+		this.mCpuSamples = new HashMap<>();
+		this.mLocks = new HashMap<>();
+		this.mStarted = false;
+
+		this.mStream = new RecordingStream();
+		this.mStream.setMaxAge(MAX_AGE);
+		this.mStream.enable(CPU_EVENT).withPeriod(Duration.ofNanos(samplingPeriod)).withStackTrace();
+		this.mStream.enable(ALLOCATION_EVENT).with("throttle", ALLOCATION_THROTTLE).withoutStackTrace();
+		this.mStream.enable(MONITOR_EVENT).withThreshold(Duration.ofNanos(lockThreshold)).withoutStackTrace();
+		this.mStream.enable(PARK_EVENT).withThreshold(Duration.ofNanos(lockThreshold)).withoutStackTrace();
+
+		this.mStream.onEvent(CPU_EVENT, new Consumer<RecordedEvent>() {
+			@Override
+			public void accept(final RecordedEvent event) {
+				onCpuSample(event);
+			}
+		});
+		this.mStream.onEvent(ALLOCATION_EVENT, new Consumer<RecordedEvent>() {
+			@Override
+			public void accept(final RecordedEvent event) {
+				onAllocation(event);
+			}
+		});
+		this.mStream.onEvent(MONITOR_EVENT, new Consumer<RecordedEvent>() {
+			@Override
+			public void accept(final RecordedEvent event) {
+				onLock(event, "monitorClass");
+			}
+		});
+		this.mStream.onEvent(PARK_EVENT, new Consumer<RecordedEvent>() {
+			@Override
+			public void accept(final RecordedEvent event) {
+				onLock(event, "parkedClass");
+			}
+		});
+	}
+
+	/**
+	 * Stops the profiler and releases its stream. Events that were aggregated
+	 * but not drained yet stay available to {@link #drain()}.
+	 */
+	public void close() {
+		this.mStream.close();
+	}
+
+	/**
+	 * Takes the events that were aggregated since the last drain, or since
+	 * the start for the first drain, and resets the aggregation.
+	 * 
+	 * @return The aggregated events
+	 */
+	public synchronized ProfileSnapshot drain() {
+		final long now = System.nanoTime();
+		final ProfileSnapshot snapshot = new ProfileSnapshot(now - this.mLastDrain, toEntries(this.mCpuSamples),
+				toEntries(this.mAllocations), toEntries(this.mLocks));
+		this.mLastDrain = now;
+		this.mCpuSamples = new HashMap<>();
+		this.mAllocations = new HashMap<>();
+		this.mLocks = new HashMap<>();
+		return snapshot;
+	}
+
+	/**
+	 * Starts recording on a daemon thread of the flight recorder.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the profiler was already started
+	 */
+	public synchronized void start() throws IllegalStateException {
+		if (this.mStarted) {
+			throw new IllegalStateException(ERROR_STARTED);
+		}
+		this.mStarted = true;
+		this.mLastDrain = System.nanoTime();
+		this.mStream.startAsync();
+	}
+
+	/**
+	 * Aggregates a sampled allocation by the class of the allocated object.
+	 * 
+	 * @param event
+	 *            The allocation event
+	 */
+	private synchronized void onAllocation(final RecordedEvent event) {
+		count(this.mAllocations, getName(event.getClass("objectClass")), event.getLong("weight"));
+	}
+
+	/**
+	 * Aggregates a CPU sample by its top method.
+	 * 
+	 * @param event
+	 *            The sample event
+	 */
+	private synchronized void onCpuSample(final RecordedEvent event) {
+		count(this.mCpuSamples, getTopMethod(event.getStackTrace()), 1);
+	}
+
+	/**
+	 * Aggregates a contended lock by its class.
+	 * 
+	 * @param event
+	 *            The lock event
+	 * @param classField
+	 *            Name of the field of the event holding the class of the lock
+	 */
+	private synchronized void onLock(final RecordedEvent event, final String classField) {
+		count(this.mLocks, getName(event.getClass(classField)), event.getDuration().toNanos());
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * This package contains a profiler that injected agents run inside the target
+ * on a stream of flight recorder events, aggregating them into compact
+ * snapshots that are sent to the host.
+ */
+package de.zabuza.memeaterbug.injection.profile;
@@ -0,0 +1,221 @@
+package de.zabuza.memeaterbug.injection.ring;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import de.zabuza.memeaterbug.injection.access.FieldAccessor;
+
+/**
+ * Daemon thread of an injected agent that periodically samples the values of
+ * fields and writes them to a {@link SampleRing}. Each field is read by a
+ * {@link FieldAccessor} and identified in the samples by the id that was
+ * returned when it was added, which is its index in the order of adding.<br/>
+ * <br/>
+ * Values of integral types and booleans are written as <tt>long</tt>, values
+ * of floating point types as raw bits of a <tt>double</tt>. Fields that can
+ * not be read at a time, for example since an object on their path is
+ * <tt>null</tt>, are skipped for that round.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class FieldSampler {
+	/**
+	 * Thrown when a field has a type that can not be sampled.
+	 */
+	private static final String ERROR_TYPE = "Only fields of primitive or numeric types can be sampled: ";
+
+	/**
+	 * Reads the value of the given field and converts it to its
+	 * representation in a sample.
+	 * 
+	 * @param accessor
+	 *            Accessor of the field
+	 * @param root
+	 *            The object the path of the field starts at
+	 * @return The value of the field as stored in a sample
+	 * @throws NullPointerException
+	 *             If an object on the path or a boxed value is <tt>null</tt>
+	 */
+	private static long read(final FieldAccessor accessor, final Object root) throws NullPointerException {
+		final Class<?> type = accessor.getType();
+		if (type == int.class) {
+			return accessor.getInt(root);
+		}
+		if (type == long.class) {
+			return accessor.getLong(root);
+		}
+		if (type == double.class) {
+			return Double.doubleToRawLongBits(accessor.getDouble(root));
+		}
+		if (type == boolean.class) {
+			return accessor.getBoolean(root) ? 1 : 0;
+		}
+		final Object value = accessor.get(root);
+		if (value instanceof Character) {
+			return ((Character) value).charValue();
+		}
+		if (value instanceof Double || value instanceof Float) {
+			return Double.doubleToRawLongBits(((Number) value).doubleValue());
+		}
+		return ((Number) value).longValue();
+	}
+
+	/**
+	 * Accessors of the sampled fields, by their id. Replaced as a whole when a
+	 * field is added.
+	 */
+	private volatile FieldAccessor[] mAccessors;
+	/**
+	 * Time between two rounds of sampling, in nanoseconds.
+	 */
+	private final long mInterval;
+	/**
+	 * Objects the paths of the sampled fields start at, by their id.
+	 */
+	private volatile Object[] mRoots;
+	/**
+	 * Whether the sampler is running.
+	 */
+	private volatile boolean mRunning;
+	/**
+	 * Thread that samples the fields, <tt>null</tt> if not started yet.
+	 */
+	private Thread mThread;
+	/**
+	 * Writer the samples are written to.
+	 */
+	private final SampleWriter mWriter;
+
+	/**
+	 * Creates a new sampler without fields.
+	 * 
+	 * @param writer
+	 *            Writer the samples are written to, it must not be used by
+	 *            anyone else
+	 * @param interval
+	 *            Time between two rounds of sampling, in nanoseconds. If
+	 *            <tt>0</tt> the fields are sampled as often as possible.
+	 */
+	public FieldSampler(final SampleWriter writer, final long interval) {
+		this.mWriter = writer;
+		this.mInterval = interval;
+		this.mAccessors = new FieldAccessor[0];
+		this.mRoots = new Object[0];
+		this.mRunning = false;
+		this.mThread = null;
+	}
+
+	/**
+	 * Adds a field to sample. It is sampled from the next round on.
+	 * 
+	 * @param accessor
+	 *            Accessor of the field
+	 * @param root
+	 *            The object the path of the field starts at, ignored if it
+	 *            starts at a static field
+	 * @return The id of the field in the samples
+	 * @throws IllegalArgumentException
+	 *             If the field has neither a primitive nor a numeric type
+	 */
+	public synchronized int add(final FieldAccessor accessor, final Object root) throws IllegalArgumentException {
+		final Class<?> type = accessor.getType();
+		if (!(type.isPrimitive() && type != void.class) && !Number.class.isAssignableFrom(type)
+				&& type != Character.class && type != Boolean.class) {
+			throw new IllegalArgumentException(ERROR_TYPE + accessor);
+		}
+		final int id = this.mAccessors.length;
+		final Object[] roots = Arrays.copyOf(this.mRoots, id + 1);
+		roots[id] = root;
+		final FieldAccessor[] accessors = Arrays.copyOf(this.mAccessors, id + 1);
+		accessors[id] = accessor;
+		// Roots first, such that the sampling thread never sees an accessor
+		// without its root
+		this.mRoots = roots;
+		this.mAccessors = accessors;
+		return id;
+	}
+
+	/**
+	 * Gets the amount of samples that were dropped since the ring was full.
+	 * 
+	 * @return The amount of dropped samples
+	 */
+	public long getDroppedAmount() {
+		return this.mWriter.getDroppedAmount();
+	}
+
+	/**
+	 * Whether the sampler is running or not.
+	 * 
+	 * @return <tt>True</tt> if the sampler is running, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isRunning() {
+		return this.mRunning;
+	}
+
+	/**
+	 * Stops sampling. The thread finishes its current round. Has no effect if
+	 * the sampler is not running.
+	 */
+	public synchronized void shutdown() {
+		if (!this.mRunning) {
+			return;
+		}
+		this.mRunning = false;
+		LockSupport.unpark(this.mThread);
+	}
+
+	/**
+	 * Starts the daemon thread that samples the fields. Has no effect if the
+	 * sampler was already started.
+	 */
+	public synchronized void start() {
+		if (this.mThread != null) {
+			return;
+		}
+		this.mRunning = true;
+		this.mThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				sample();
+			}
+		}, "Mem-Eater-Bug sampler");
+		this.mThread.setDaemon(true);
+		this.mThread.start();
+	}
+
+	/**
+	 * Samples all fields once per interval until the sampler gets shut down.
+	 */
+	private void sample() {
+		long nextRound = System.nanoTime();
+		while (this.mRunning) {
+			final FieldAccessor[] accessors = this.mAccessors;
+			final Object[] roots = this.mRoots;
+			for (int id = 0; id < accessors.length; id++) {
+				final long value;
+				try {
+					value = read(accessors[id], roots[id]);
+				} catch (final RuntimeException e) {
+					// The field is not reachable at the moment
+					continue;
+				}
+				this.mWriter.offer(id, System.nanoTime(), value);
+			}
+
+			if (this.mInterval <= 0) {
+				continue;
+			}
+			nextRound += this.mInterval;
+			final long now = System.nanoTime();
+			if (nextRound - now > 0) {
+				LockSupport.parkNanos(this, nextRound - now);
+			} else {
+				// Rounds that were missed are skipped instead of caught up
+				nextRound = now;
+			}
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package de.zabuza.memeaterbug.injection.ring;
+
+/**
+ * Handler of the samples that are read from a {@link SampleRing} by a
+ * {@link SampleReader}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface SampleHandler {
+	/**
+	 * Handles a sample. Gets called on the thread that polls the reader and
+	 * must return quickly, since the producer can not reuse the slot of the
+	 * sample before.
+	 * 
+	 * @param id
+	 *            Id of the sampled value, as given by the producer
+	 * @param timestamp
+	 *            Time the value was sampled, as value of
+	 *            {@link System#nanoTime()} in the producing process
+	 * @param value
+	 *            The sampled value. Floating point values are stored as raw
+	 *            bits, see {@link Double#longBitsToDouble(long)}.
+	 */
+	public void onSample(final int id, final long timestamp, final long value);
+}
@@ -0,0 +1,101 @@
+package de.zabuza.memeaterbug.injection.ring;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Consumer of a {@link SampleRing}. Polling reads the index of the producer
+ * once with acquire semantics, hands all samples that were published up to
+ * it to a {@link SampleHandler} and then frees their slots by a single store
+ * with release semantics. Thus the cost of the synchronization is shared by
+ * all samples of a batch.<br/>
+ * <br/>
+ * A reader must only be used by one thread at a time.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SampleReader {
+	/**
+	 * Mapped content of the ring.
+	 */
+	private final ByteBuffer mBuffer;
+	/**
+	 * Index of the producer as seen when it was last read.
+	 */
+	private long mCachedHead;
+	/**
+	 * Mask that maps an index to its slot.
+	 */
+	private final long mMask;
+	/**
+	 * Index of the next sample to read.
+	 */
+	private long mTail;
+
+	/**
+	 * Creates a new reader that continues at the current index of the ring.
+	 * 
+	 * @param buffer
+	 *            Mapped content of the ring
+	 * @param capacity
+	 *            Amount of samples the ring can hold
+	 */
+	SampleReader(final ByteBuffer buffer, final int capacity) {
+		this.mBuffer = buffer;
+		this.mMask = capacity - 1;
+		this.mTail = (long) SampleRing.INDEX.getAcquire(buffer, SampleRing.TAIL_OFFSET);
+		this.mCachedHead = (long) SampleRing.INDEX.getAcquire(buffer, SampleRing.HEAD_OFFSET);
+	}
+
+	/**
+	 * Gets the index of the next sample to read. It equals the amount of
+	 * samples that were read from the ring since it was created.
+	 * 
+	 * @return The index of the next sample to read
+	 */
+	public long getPosition() {
+		return this.mTail;
+	}
+
+	/**
+	 * Hands all samples that are available to the given handler.
+	 * 
+	 * @param handler
+	 *            The handler to pass the samples to
+	 * @return The amount of handled samples, <tt>0</tt> if the ring was empty
+	 */
+	public int poll(final SampleHandler handler) {
+		return poll(handler, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Hands at most the given amount of available samples to the given
+	 * handler.
+	 * 
+	 * @param handler
+	 *            The handler to pass the samples to
+	 * @param limit
+	 *            Maximal amount of samples to handle
+	 * @return The amount of handled samples, <tt>0</tt> if the ring was empty
+	 */
+	public int poll(final SampleHandler handler, final int limit) {
+		if (this.mTail == this.mCachedHead) {
+			this.mCachedHead = (long) SampleRing.INDEX.getAcquire(this.mBuffer, SampleRing.HEAD_OFFSET);
+			if (this.mTail == this.mCachedHead) {
+				return 0;
+			}
+		}
+		final int amount = (int) Math.min(this.mCachedHead - this.mTail, limit);
+		for (int i = 0; i < amount; i++) {
+			final int offset = SampleRing.SAMPLES_OFFSET
+					+ (int) ((this.mTail + i) & this.mMask) * SampleRing.SAMPLE_SIZE;
+			handler.onSample(this.mBuffer.getInt(offset + SampleRing.SAMPLE_ID_OFFSET),
+					this.mBuffer.getLong(offset + SampleRing.SAMPLE_TIMESTAMP_OFFSET),
+					this.mBuffer.getLong(offset + SampleRing.SAMPLE_VALUE_OFFSET));
+		}
+		this.mTail += amount;
+		// Frees the slots, the loads above can not be reordered after it
+		SampleRing.INDEX.setRelease(this.mBuffer, SampleRing.TAIL_OFFSET, this.mTail);
+		return amount;
+	}
+}
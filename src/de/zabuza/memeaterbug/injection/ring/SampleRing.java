@@ -0,0 +1,305 @@
+package de.zabuza.memeaterbug.injection.ring;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Ring buffer of fixed size samples in a memory mapped file, shared between
+ * one producer and one consumer, usually in different processes. The host
+ * creates the ring by {@link #create(Path, int)} and an injected agent opens
+ * it by {@link #open(Path)}. Samples are then exchanged by plain memory
+ * accesses, without any system call per sample.<br/>
+ * <br/>
+ * The file starts with a header holding a magic number, the version of the
+ * layout, the capacity and the size of a sample. The index of the producer
+ * and the amount of dropped samples follow on their own cache line, the
+ * index of the consumer on the next one, such that both sides do not share
+ * cache lines they write. The samples follow, each holding an id, a
+ * timestamp and a value.<br/>
+ * <br/>
+ * The ring is lock-free. The producer writes a sample and then publishes it
+ * by storing its index with release semantics, the consumer reads the index
+ * with acquire semantics and frees slots the same way. Thus the ring must
+ * only be written by one {@link SampleWriter} and read by one
+ * {@link SampleReader} at a time.<br/>
+ * <br/>
+ * Both sides should {@link #close()} the ring once they are done, else the
+ * mapping is only released when the garbage collector finalizes the buffer
+ * and the file can, depending on the platform, not be deleted until then.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SampleRing implements Closeable {
+	/**
+	 * Offset of the amount of samples that were dropped since the ring was
+	 * full, in bytes.
+	 */
+	static final int DROPPED_OFFSET = 72;
+	/**
+	 * Offset of the index of the next sample the producer writes, in bytes.
+	 */
+	static final int HEAD_OFFSET = 64;
+	/**
+	 * Handle used to access the indices with memory ordering semantics.
+	 */
+	static final VarHandle INDEX = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	/**
+	 * Offset of the id within a sample, in bytes.
+	 */
+	static final int SAMPLE_ID_OFFSET = 0;
+	/**
+	 * Size of a sample, in bytes.
+	 */
+	static final int SAMPLE_SIZE = 24;
+	/**
+	 * Offset of the timestamp within a sample, in bytes.
+	 */
+	static final int SAMPLE_TIMESTAMP_OFFSET = 8;
+	/**
+	 * Offset of the value within a sample, in bytes.
+	 */
+	static final int SAMPLE_VALUE_OFFSET = 16;
+	/**
+	 * Offset of the first sample, in bytes.
+	 */
+	static final int SAMPLES_OFFSET = 192;
+	/**
+	 * Offset of the index of the next sample the consumer reads, in bytes.
+	 */
+	static final int TAIL_OFFSET = 128;
+	/**
+	 * Offset of the capacity in the header, in bytes.
+	 */
+	private static final int CAPACITY_OFFSET = 8;
+	/**
+	 * Thrown when a capacity is not a power of two.
+	 */
+	private static final String ERROR_CAPACITY = "The capacity must be a positive power of two: ";
+	/**
+	 * Thrown when a file is no ring.
+	 */
+	private static final String ERROR_NO_RING = "The file does not contain a sample ring: ";
+	/**
+	 * Name of the method of <tt>sun.misc.Unsafe</tt> that unmaps a buffer.
+	 */
+	private static final String INVOKE_CLEANER_NAME = "invokeCleaner";
+	/**
+	 * Magic number that starts every ring.
+	 */
+	private static final int MAGIC = 0x4D455252;
+	/**
+	 * Offset of the size of a sample in the header, in bytes.
+	 */
+	private static final int SAMPLE_SIZE_OFFSET = 12;
+	/**
+	 * Name of the class that offers to unmap buffers.
+	 */
+	private static final String UNSAFE_CLASS_NAME = "sun.misc.Unsafe";
+	/**
+	 * Name of the field that holds the instance of the class that offers to
+	 * unmap buffers.
+	 */
+	private static final String UNSAFE_FIELD_NAME = "theUnsafe";
+	/**
+	 * Version of the layout of rings.
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * Offset of the version in the header, in bytes.
+	 */
+	private static final int VERSION_OFFSET = 4;
+
+	/**
+	 * Creates a new empty ring, replacing the given file.
+	 * 
+	 * @param file
+	 *            The file to create the ring in
+	 * @param capacity
+	 *            Amount of samples the ring can hold, must be a power of two
+	 * @return The created ring
+	 * @throws IOException
+	 *             If the file could not be created or mapped
+	 * @throws IllegalArgumentException
+	 *             If the capacity is not a positive power of two
+	 */
+	public static SampleRing create(final Path file, final int capacity) throws IOException, IllegalArgumentException {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1
+				|| (long) capacity * SAMPLE_SIZE > Integer.MAX_VALUE - SAMPLES_OFFSET) {
+			throw new IllegalArgumentException(ERROR_CAPACITY + capacity);
+		}
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					SAMPLES_OFFSET + (long) capacity * SAMPLE_SIZE);
+			buffer.order(ByteOrder.nativeOrder());
+			buffer.putInt(VERSION_OFFSET, VERSION);
+			buffer.putInt(CAPACITY_OFFSET, capacity);
+			buffer.putInt(SAMPLE_SIZE_OFFSET, SAMPLE_SIZE);
+			// The magic number is written last, the ring is valid from then on
+			buffer.putInt(0, MAGIC);
+			return new SampleRing(file, buffer, capacity);
+		}
+	}
+
+	/**
+	 * Opens a ring that was created by {@link #create(Path, int)}.
+	 * 
+	 * @param file
+	 *            The file holding the ring
+	 * @return The opened ring
+	 * @throws IOException
+	 *             If the file could not be mapped or does not contain a ring
+	 */
+	public static SampleRing open(final Path file) throws IOException {
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			if (channel.size() < SAMPLES_OFFSET) {
+				throw new IOException(ERROR_NO_RING + file);
+			}
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			buffer.order(ByteOrder.nativeOrder());
+			final int capacity = buffer.getInt(CAPACITY_OFFSET);
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION
+					|| buffer.getInt(SAMPLE_SIZE_OFFSET) != SAMPLE_SIZE || capacity <= 0
+					|| Integer.bitCount(capacity) != 1
+					|| channel.size() < SAMPLES_OFFSET + (long) capacity * SAMPLE_SIZE) {
+				throw new IOException(ERROR_NO_RING + file);
+			}
+			return new SampleRing(file, buffer, capacity);
+		}
+	}
+
+	/**
+	 * Unmaps the given buffer immediately, if the virtual machine offers it.
+	 * Otherwise the mapping is released once the buffer gets garbage
+	 * collected.
+	 * 
+	 * @param buffer
+	 *            The buffer to unmap, it must not be accessed afterwards
+	 */
+	private static void unmap(final MappedByteBuffer buffer) {
+		try {
+			final Class<?> unsafeClass = Class.forName(UNSAFE_CLASS_NAME);
+			final Field unsafeField = unsafeClass.getDeclaredField(UNSAFE_FIELD_NAME);
+			unsafeField.setAccessible(true);
+			unsafeClass.getMethod(INVOKE_CLEANER_NAME, ByteBuffer.class).invoke(unsafeField.get(null), buffer);
+		} catch (final ReflectiveOperationException | RuntimeException e) {
+			// Leave the mapping to the garbage collector
+		}
+	}
+
+	/**
+	 * Mapped content of the file.
+	 */
+	private final MappedByteBuffer mBuffer;
+	/**
+	 * Amount of samples the ring can hold.
+	 */
+	private final int mCapacity;
+	/**
+	 * Whether the ring was closed.
+	 */
+	private boolean mClosed;
+	/**
+	 * The file holding the ring.
+	 */
+	private final Path mFile;
+
+	/**
+	 * Creates a new ring on the given mapped file.
+	 * 
+	 * @param file
+	 *            The file holding the ring
+	 * @param buffer
+	 *            Mapped content of the file
+	 * @param capacity
+	 *            Amount of samples the ring can hold
+	 */
+	private SampleRing(final Path file, final MappedByteBuffer buffer, final int capacity) {
+		this.mFile = file;
+		this.mBuffer = buffer;
+		this.mCapacity = capacity;
+		this.mClosed = false;
+	}
+
+	/**
+	 * Unmaps the ring. Neither the ring nor its readers and writers may be
+	 * used afterwards, since they would access unmapped memory. The file is
+	 * kept. Has no effect if the ring is already closed.
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.mClosed) {
+			return;
+		}
+		this.mClosed = true;
+		unmap(this.mBuffer);
+	}
+
+	/**
+	 * Gets the amount of samples the ring can hold.
+	 * 
+	 * @return The capacity of the ring
+	 */
+	public int getCapacity() {
+		return this.mCapacity;
+	}
+
+	/**
+	 * Gets the amount of samples that were dropped by the producer since the
+	 * ring was full.
+	 * 
+	 * @return The amount of dropped samples
+	 */
+	public long getDroppedAmount() {
+		return (long) INDEX.getAcquire(this.mBuffer, DROPPED_OFFSET);
+	}
+
+	/**
+	 * Gets the file holding the ring.
+	 * 
+	 * @return The file holding the ring
+	 */
+	public Path getFile() {
+		return this.mFile;
+	}
+
+	/**
+	 * Gets the amount of samples that were written but not yet read.
+	 * 
+	 * @return The amount of pending samples
+	 */
+	public int getPendingAmount() {
+		final long tail = (long) INDEX.getAcquire(this.mBuffer, TAIL_OFFSET);
+		final long head = (long) INDEX.getAcquire(this.mBuffer, HEAD_OFFSET);
+		return (int) (head - tail);
+	}
+
+	/**
+	 * Creates a reader of the ring. Only one reader may be used at a time.
+	 * 
+	 * @return The reader of the ring
+	 */
+	public SampleReader newReader() {
+		return new SampleReader(this.mBuffer, this.mCapacity);
+	}
+
+	/**
+	 * Creates a writer of the ring. Only one writer may be used at a time.
+	 * 
+	 * @return The writer of the ring
+	 */
+	public SampleWriter newWriter() {
+		return new SampleWriter(this.mBuffer, this.mCapacity);
+	}
+}
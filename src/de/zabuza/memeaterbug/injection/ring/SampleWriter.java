@@ -0,0 +1,103 @@
+package de.zabuza.memeaterbug.injection.ring;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Producer of a {@link SampleRing}. Writing a sample stores it into the next
+ * free slot and publishes it by a single store with release semantics. The
+ * index of the consumer is only read when the ring seems to be full, thus
+ * the producer usually does not touch the cache line the consumer writes.<br/>
+ * <br/>
+ * If the ring is full, samples are dropped instead of waiting for the
+ * consumer, such that a slow host never stalls the sampled application.<br/>
+ * <br/>
+ * A writer must only be used by one thread at a time.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SampleWriter {
+	/**
+	 * Mapped content of the ring.
+	 */
+	private final ByteBuffer mBuffer;
+	/**
+	 * Index of the consumer as seen when it was last read.
+	 */
+	private long mCachedTail;
+	/**
+	 * Amount of samples the ring can hold.
+	 */
+	private final int mCapacity;
+	/**
+	 * Amount of samples that were dropped since the ring was full.
+	 */
+	private long mDropped;
+	/**
+	 * Index of the next sample to write.
+	 */
+	private long mHead;
+	/**
+	 * Mask that maps an index to its slot.
+	 */
+	private final long mMask;
+
+	/**
+	 * Creates a new writer that continues at the current index of the ring.
+	 * 
+	 * @param buffer
+	 *            Mapped content of the ring
+	 * @param capacity
+	 *            Amount of samples the ring can hold
+	 */
+	SampleWriter(final ByteBuffer buffer, final int capacity) {
+		this.mBuffer = buffer;
+		this.mCapacity = capacity;
+		this.mMask = capacity - 1;
+		this.mHead = (long) SampleRing.INDEX.getAcquire(buffer, SampleRing.HEAD_OFFSET);
+		this.mCachedTail = (long) SampleRing.INDEX.getAcquire(buffer, SampleRing.TAIL_OFFSET);
+		this.mDropped = (long) SampleRing.INDEX.getAcquire(buffer, SampleRing.DROPPED_OFFSET);
+	}
+
+	/**
+	 * Gets the amount of samples that were dropped since the ring was full.
+	 * 
+	 * @return The amount of dropped samples
+	 */
+	public long getDroppedAmount() {
+		return this.mDropped;
+	}
+
+	/**
+	 * Writes a sample to the ring, unless it is full.
+	 * 
+	 * @param id
+	 *            Id of the sampled value
+	 * @param timestamp
+	 *            Time the value was sampled, as value of
+	 *            {@link System#nanoTime()}
+	 * @param value
+	 *            The sampled value, floating point values should be passed as
+	 *            raw bits, see {@link Double#doubleToRawLongBits(double)}
+	 * @return <tt>True</tt> if the sample was written, <tt>false</tt> if it
+	 *         was dropped since the ring is full
+	 */
+	public boolean offer(final int id, final long timestamp, final long value) {
+		if (this.mHead - this.mCachedTail >= this.mCapacity) {
+			this.mCachedTail = (long) SampleRing.INDEX.getAcquire(this.mBuffer, SampleRing.TAIL_OFFSET);
+			if (this.mHead - this.mCachedTail >= this.mCapacity) {
+				this.mDropped++;
+				SampleRing.INDEX.setRelease(this.mBuffer, SampleRing.DROPPED_OFFSET, this.mDropped);
+				return false;
+			}
+		}
+		final int offset = SampleRing.SAMPLES_OFFSET + (int) (this.mHead & this.mMask) * SampleRing.SAMPLE_SIZE;
+		this.mBuffer.putInt(offset + SampleRing.SAMPLE_ID_OFFSET, id);
+		this.mBuffer.putLong(offset + SampleRing.SAMPLE_TIMESTAMP_OFFSET, timestamp);
+		this.mBuffer.putLong(offset + SampleRing.SAMPLE_VALUE_OFFSET, value);
+		this.mHead++;
+		// Publishes the sample, the stores above can not be reordered after it
+		SampleRing.INDEX.setRelease(this.mBuffer, SampleRing.HEAD_OFFSET, this.mHead);
+		return true;
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains a ring buffer in a memory mapped file, through which
+ * injected agents stream sampled values to the host without system calls.
+ */
+package de.zabuza.memeaterbug.injection.ring;
@@ -0,0 +1,88 @@
+package de.zabuza.memeaterbug.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.MemoryAddress;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of the execution of a
+ * {@link de.zabuza.memeaterbug.memory.ReadBatch ReadBatch}, which reads a
+ * region of memory in coalesced spans. Only executions that take longer than
+ * the threshold are recorded.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+@Name("de.zabuza.memeaterbug.BatchRead")
+@Label("Batch Read")
+@Description("Execution of a batch of memory reads, coalesced into spans")
+@Category({ "Mem-Eater-Bug", "Memory" })
+@StackTrace(false)
+@Threshold("100 us")
+public final class BatchReadEvent extends Event {
+	/**
+	 * Amount of bytes that were read.
+	 */
+	@Label("Bytes")
+	@DataAmount
+	@Name("bytes")
+	private long mBytes;
+	/**
+	 * Amount of entries of the batch.
+	 */
+	@Label("Entries")
+	@Name("entries")
+	private int mEntries;
+	/**
+	 * Amount of entries that could not be read.
+	 */
+	@Label("Failures")
+	@Name("failures")
+	private int mFailures;
+	/**
+	 * Amount of issued read calls.
+	 */
+	@Label("Read Calls")
+	@Name("readCalls")
+	private int mReadCalls;
+	/**
+	 * Start address of the region covered by the batch.
+	 */
+	@Label("Region Start")
+	@MemoryAddress
+	@Name("regionStart")
+	private long mRegionStart;
+
+	/**
+	 * Ends the event and commits it, if it should be recorded.
+	 * 
+	 * @param regionStart
+	 *            Start address of the region covered by the batch
+	 * @param bytes
+	 *            Amount of bytes that were read
+	 * @param entries
+	 *            Amount of entries of the batch
+	 * @param readCalls
+	 *            Amount of issued read calls
+	 * @param failures
+	 *            Amount of entries that could not be read
+	 */
+	public void finish(final long regionStart, final long bytes, final int entries, final int readCalls,
+			final int failures) {
+		end();
+		if (shouldCommit()) {
+			this.mRegionStart = regionStart;
+			this.mBytes = bytes;
+			this.mEntries = entries;
+			this.mReadCalls = readCalls;
+			this.mFailures = failures;
+			commit();
+		}
+	}
+}
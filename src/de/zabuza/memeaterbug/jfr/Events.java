@@ -0,0 +1,35 @@
+package de.zabuza.memeaterbug.jfr;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Utility class that decides whether the events of this package get created
+ * at all. Creating the first instance of an event class registers the class
+ * with the Flight Recorder, which takes hundreds of milliseconds even if
+ * nothing is recorded. Thus events are only created once the recorder was
+ * initialized, which happens as soon as the first recording gets created,
+ * either at startup or later on by <tt>jcmd JFR.start</tt>. Until then,
+ * recorded operations pay neither the registration nor an allocation.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class Events {
+	/**
+	 * Whether events should be created, since the Flight Recorder was
+	 * initialized.
+	 * 
+	 * @return <tt>True</tt> if events should be created, <tt>false</tt>
+	 *         otherwise
+	 */
+	public static boolean isEnabled() {
+		return FlightRecorder.isInitialized();
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private Events() {
+
+	}
+}
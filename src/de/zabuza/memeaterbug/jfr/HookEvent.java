@@ -0,0 +1,59 @@
+package de.zabuza.memeaterbug.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of hooking to or unhooking from a process.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+@Name("de.zabuza.memeaterbug.Hook")
+@Label("Hook")
+@Description("Hooking to or unhooking from a process")
+@Category({ "Mem-Eater-Bug", "Process" })
+public final class HookEvent extends Event {
+	/**
+	 * Whether the process got hooked or unhooked.
+	 */
+	@Label("Hooked")
+	@Description("True if the process got hooked, false if it got unhooked")
+	@Name("hooked")
+	private boolean mHooked;
+	/**
+	 * Id of the process.
+	 */
+	@Label("Process Id")
+	@Name("processId")
+	private int mProcessId;
+	/**
+	 * Whether the operation succeeded.
+	 */
+	@Label("Success")
+	@Name("success")
+	private boolean mSuccess;
+
+	/**
+	 * Ends the event and commits it, if it should be recorded.
+	 * 
+	 * @param processId
+	 *            Id of the process
+	 * @param hooked
+	 *            Whether the process got hooked or unhooked
+	 * @param success
+	 *            Whether the operation succeeded
+	 */
+	public void finish(final int processId, final boolean hooked, final boolean success) {
+		end();
+		if (shouldCommit()) {
+			this.mProcessId = processId;
+			this.mHooked = hooked;
+			this.mSuccess = success;
+			commit();
+		}
+	}
+}
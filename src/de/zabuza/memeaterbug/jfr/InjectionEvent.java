@@ -0,0 +1,58 @@
+package de.zabuza.memeaterbug.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of the injection of an agent into a JVM.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+@Name("de.zabuza.memeaterbug.Injection")
+@Label("Injection")
+@Description("Injection of an agent into a JVM")
+@Category({ "Mem-Eater-Bug", "Injection" })
+public final class InjectionEvent extends Event {
+	/**
+	 * Path to the injected agent.
+	 */
+	@Label("Agent")
+	@Name("agent")
+	private String mAgent;
+	/**
+	 * Id of the process of the JVM.
+	 */
+	@Label("Process Id")
+	@Name("processId")
+	private int mProcessId;
+	/**
+	 * Whether the injection succeeded.
+	 */
+	@Label("Success")
+	@Name("success")
+	private boolean mSuccess;
+
+	/**
+	 * Ends the event and commits it, if it should be recorded.
+	 * 
+	 * @param processId
+	 *            Id of the process of the JVM
+	 * @param agent
+	 *            Path to the injected agent
+	 * @param success
+	 *            Whether the injection succeeded
+	 */
+	public void finish(final int processId, final String agent, final boolean success) {
+		end();
+		if (shouldCommit()) {
+			this.mProcessId = processId;
+			this.mAgent = agent;
+			this.mSuccess = success;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package de.zabuza.memeaterbug.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.MemoryAddress;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event of a read from the memory of a process. Only reads
+ * that take longer than the threshold are recorded.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+@Name("de.zabuza.memeaterbug.MemoryRead")
+@Label("Memory Read")
+@Description("Read from the memory of a process")
+@Category({ "Mem-Eater-Bug", "Memory" })
+@StackTrace(false)
+@Threshold("20 us")
+public final class MemoryReadEvent extends Event {
+	/**
+	 * Start address of the read.
+	 */
+	@Label("Address")
+	@MemoryAddress
+	@Name("address")
+	private long mAddress;
+	/**
+	 * Amount of bytes to read.
+	 */
+	@Label("Size")
+	@DataAmount
+	@Name("size")
+	private int mSize;
+	/**
+	 * Whether the read succeeded.
+	 */
+	@Label("Success")
+	@Name("success")
+	private boolean mSuccess;
+
+	/**
+	 * Ends the event and commits it, if it should be recorded.
+	 * 
+	 * @param address
+	 *            Start address of the read
+	 * @param size
+	 *            Amount of bytes to read
+	 * @param success
+	 *            Whether the read succeeded
+	 */
+	public void finish(final long address, final int size, final boolean success) {
+		end();
+		if (shouldCommit()) {
+			this.mAddress = address;
+			this.mSize = size;
+			this.mSuccess = success;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package de.zabuza.memeaterbug.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of an enumeration of the modules of a process.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+@Name("de.zabuza.memeaterbug.ModuleEnumeration")
+@Label("Module Enumeration")
+@Description("Enumeration of the modules loaded into a process")
+@Category({ "Mem-Eater-Bug", "Process" })
+public final class ModuleEnumerationEvent extends Event {
+	/**
+	 * Amount of enumerated modules.
+	 */
+	@Label("Module Amount")
+	@Name("moduleAmount")
+	private int mModuleAmount;
+	/**
+	 * Name of the source that enumerated the modules.
+	 */
+	@Label("Source")
+	@Name("source")
+	private String mSource;
+
+	/**
+	 * Ends the event and commits it, if it should be recorded.
+	 * 
+	 * @param source
+	 *            Name of the source that enumerated the modules
+	 * @param moduleAmount
+	 *            Amount of enumerated modules, <tt>-1</tt> if the enumeration
+	 *            failed
+	 */
+	public void finish(final String source, final int moduleAmount) {
+		end();
+		if (shouldCommit()) {
+			this.mSource = source;
+			this.mModuleAmount = moduleAmount;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,8 @@
+/**
+ * This package contains custom JDK Flight Recorder events of the
+ * Mem-Eater-Bug, such that memory operations, hooks and injections show up in
+ * recordings next to garbage collection and CPU usage. Events are only created
+ * once the Flight Recorder was initialized, see {@link
+ * de.zabuza.memeaterbug.jfr.Events Events}.
+ */
+package de.zabuza.memeaterbug.jfr;
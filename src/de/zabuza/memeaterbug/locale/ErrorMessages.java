@@ -7,6 +7,55 @@ package de.zabuza.memeaterbug.locale;
  * 
  */
 public final class ErrorMessages {
+	/**
+	 * Thrown when a response received from a resident agent is malformed.
+	 */
+	public static final String AGENT_RESPONSE_INVALID = "Received a malformed response from the agent: ";
+	/**
+	 * Thrown when a manager or a bulk injector gets created with a maximal
+	 * amount of concurrent calls that is not greater than zero.
+	 */
+	public static final String CONCURRENT_CALLS_INVALID = "Maximal amount of concurrent calls must be greater zero: ";
+	/**
+	 * Signaled when a subscriber requests an amount of values that is not
+	 * greater than zero.
+	 */
+	public static final String DEMAND_INVALID = "Requested amount must be greater zero: ";
+	/**
+	 * Thrown when a field is read from raw memory that the layout of the
+	 * object does not contain.
+	 */
+	public static final String FIELD_NOT_IN_LAYOUT = "Field is not an instance field of the object: ";
+	/**
+	 * Thrown when a file could not be parsed as executable image since its
+	 * format is neither ELF nor PE.
+	 */
+	public static final String IMAGE_FORMAT_UNKNOWN = "Unknown executable image format: ";
+	/**
+	 * Thrown when an executable image could not be parsed since its content is
+	 * malformed or truncated.
+	 */
+	public static final String IMAGE_MALFORMED = "Malformed executable image: ";
+	/**
+	 * Thrown when an executable image could not be mapped since it exceeds
+	 * the maximal size of a mapped buffer.
+	 */
+	public static final String IMAGE_TOO_LARGE = "Executable image is too large to be mapped: ";
+	/**
+	 * Thrown when a periodic task gets created with an interval that is not
+	 * greater than zero.
+	 */
+	public static final String INTERVAL_INVALID = "Interval must be greater zero: ";
+	/**
+	 * Thrown when memory could not be accessed since it is not mapped or its
+	 * protection does not allow the access.
+	 */
+	public static final String MEMORY_NOT_ACCESSIBLE = "Memory is not accessible at address: ";
+	/**
+	 * Thrown when a symbol could not be resolved since its module is not
+	 * loaded by the process.
+	 */
+	public static final String MODULE_NOT_FOUND = "Module was not found: ";
 	/**
 	 * Thrown when trying to create a {@link de.zabuza.memeaterbug.MemEaterBug
 	 * MemEaterBug} with an operating system that is not Windows.
@@ -34,12 +83,67 @@ public final class ErrorMessages {
 	 * it was not hooked to a process.
 	 */
 	public static final String PROCESS_UNABLE_TO_UNHOOK_SINCE_NOT_HOOKED = "Unable to unhook since not hooked to a process.";
+	/**
+	 * Thrown when a reader of objects is used after it was closed.
+	 */
+	public static final String READER_CLOSED = "Unable to read since the reader is closed.";
+	/**
+	 * Thrown when a memory region gets mapped that overlaps an already mapped
+	 * region.
+	 */
+	public static final String REGION_OVERLAPS = "Region overlaps an already mapped region: ";
+	/**
+	 * Thrown when stored results of a module could not be read since they have
+	 * an unknown format.
+	 */
+	public static final String RESULTS_INVALID = "Stored results have an unknown format.";
+	/**
+	 * Thrown when a service gets started, but it is already running.
+	 */
+	public static final String SERVICE_ALREADY_RUNNING = "Unable to start since the service is already running.";
+	/**
+	 * Thrown when a service gets shut down, but it is not running.
+	 */
+	public static final String SERVICE_NOT_RUNNING = "Unable to shut down since the service is not running.";
+	/**
+	 * Thrown when a memory region gets requested with a size that is not
+	 * greater than zero.
+	 */
+	public static final String SIZE_INVALID = "Size must be greater zero: ";
+	/**
+	 * Thrown when a stored symbol index could not be read since it has an
+	 * unknown format.
+	 */
+	public static final String SYMBOL_INDEX_INVALID = "Stored symbol index has an unknown format.";
+	/**
+	 * Thrown when a symbol could not be resolved since its module does not
+	 * define it.
+	 */
+	public static final String SYMBOL_NOT_FOUND = "Symbol was not found: ";
+	/**
+	 * Thrown when a trace has an unknown format or is malformed.
+	 */
+	public static final String TRACE_INVALID = "Trace has an unknown format or is malformed: ";
+	/**
+	 * Thrown when a trace that only stores hashes should be replayed.
+	 */
+	public static final String TRACE_NOT_REPLAYABLE = "Trace does not store the accessed bytes and can not be replayed: ";
 	/**
 	 * Thrown when a method could not be executed since the
 	 * {@link de.zabuza.memeaterbug.MemEaterBug MemEaterBug} was not hooked to a
 	 * process.
 	 */
 	public static final String UNABLE_SINCE_NOT_HOOKED = "Unable to execute since not hooked to a process. First hook, then try again.";
+	/**
+	 * Thrown when a resident agent did not accept connections after it was
+	 * injected.
+	 */
+	public static final String UNABLE_TO_CONNECT_TO_AGENT = "Unable to connect to the resident agent after injecting it. Make sure the agent jar specifies the ResidentAgent as Agent-Class and the target process supports Unix domain sockets: ";
+	/**
+	 * Thrown when the directory of the socket of a resident agent could not
+	 * be created such that only the current user can access it.
+	 */
+	public static final String UNABLE_TO_CREATE_SOCKET_DIRECTORY = "Unable to create a socket directory for the resident agent that only the current user can access: ";
 	/**
 	 * Thrown when an {@link de.zabuza.memeaterbug.injection.Injector Injector}
 	 * method could not inject an agent jar file into a target jar file.
@@ -50,6 +154,24 @@ public final class ErrorMessages {
 	 * method could not inject an agent jar file into a target jar file.
 	 */
 	public static final String UNABLE_TO_INJECT_LIBRARY_INTO_JAR = "Unable to inject the agent library into the target jar. Ensure the target process is a jar-file and you have all needed permissions. Also make sure the agent library specifies all needed agent-methods via the native agent interface.";
+	/**
+	 * Thrown when a payload for an agent could not be staged.
+	 */
+	public static final String UNABLE_TO_STAGE_PAYLOAD = "Unable to stage the payload for the agent in a temporary file: ";
+	/**
+	 * Thrown when a resident agent reported that it failed to start listening
+	 * after it was injected.
+	 */
+	public static final String UNABLE_TO_START_AGENT = "The resident agent failed to start listening: ";
+	/**
+	 * Thrown when the profiler of a resident agent could not be started.
+	 */
+	public static final String UNABLE_TO_START_PROFILER = "Unable to start the profiler of the resident agent. Make sure the target process offers the flight recorder (module jdk.jfr): ";
+	/**
+	 * Thrown when a service gets created with an amount of worker threads that
+	 * is not greater than zero.
+	 */
+	public static final String WORKER_AMOUNT_INVALID = "Amount of worker threads must be greater zero: ";
 
 	/**
 	 * Utility class. No implementation.
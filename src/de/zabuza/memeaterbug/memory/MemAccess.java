@@ -0,0 +1,131 @@
+package de.zabuza.memeaterbug.memory;
+
+import com.sun.jna.Memory;
+
+import de.zabuza.memeaterbug.exceptions.MemAccessException;
+
+/**
+ * Access to the memory of a process. Implemented by the
+ * {@link MemManipulator} for real processes and by backends that do not need
+ * a process, like simulated targets. Batches, pointer chains, watches and
+ * freezes only depend on this interface.<br/>
+ * <br/>
+ * Accesses that fail since the memory is not accessible throw a
+ * {@link com.sun.jna.platform.win32.Win32Exception Win32Exception} for real
+ * processes and a {@link MemAccessException} for all other backends.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface MemAccess {
+	/**
+	 * Finds a dynamic address given by its offsets from the given starting
+	 * address. It is assumed that the value stored at the base address is a
+	 * pointer. It is also assumed that the pointer received by this stored
+	 * pointer plus the first offset stores another pointer. The same principle
+	 * must hold for all offsets. The resulting dynamic address is the pointer
+	 * stored at this location.<br/>
+	 * <br/>
+	 * The pointers are read by {@link #readMemory(long, byte[], int, int)} as
+	 * 32-bit little endian values. Backends may override this to follow the
+	 * chain more efficiently.
+	 * 
+	 * @param offsets
+	 *            Offsets that need to be followed
+	 * @param startingAddress
+	 *            Address from which to start following the offsets
+	 * @return The dynamic address received by following all offsets starting at
+	 *         the given starting address
+	 */
+	public default long findDynAddress(final int[] offsets, final long startingAddress) {
+		final byte[] value = new byte[Integer.BYTES];
+		long pointerAddress = -1;
+		long address = startingAddress;
+		for (int i = 0; i < offsets.length; i++) {
+			readMemory(address, value, 0, value.length);
+			final int pointer = (value[0] & 0xFF) | (value[1] & 0xFF) << 8 | (value[2] & 0xFF) << 16
+					| (value[3] & 0xFF) << 24;
+			pointerAddress = pointer + offsets[i];
+			address = pointerAddress;
+		}
+		return pointerAddress;
+	}
+
+	/**
+	 * Gets the load address of the main module of the process.
+	 * 
+	 * @return The load address of the main module
+	 */
+	public long getBaseAddress();
+
+	/**
+	 * Reads an integer from the given address.
+	 * 
+	 * @param address
+	 *            Address to start reading from
+	 * @return The integer read from the given address.
+	 */
+	public int readInt(final long address);
+
+	/**
+	 * Reads a number of bytes starting from a given address.
+	 * 
+	 * @param address
+	 *            Address to start reading from
+	 * @param bytesToRead
+	 *            Number of bytes to read
+	 * @return Object holding the read bytes
+	 */
+	public Memory readMemory(final long address, final int bytesToRead);
+
+	/**
+	 * Reads a number of bytes starting from a given address into the given
+	 * buffer.
+	 * 
+	 * @param address
+	 *            Address to start reading from
+	 * @param buffer
+	 *            Buffer that receives the read bytes
+	 * @param offset
+	 *            Index in the buffer where the first read byte gets stored
+	 * @param bytesToRead
+	 *            Number of bytes to read
+	 */
+	public void readMemory(final long address, final byte[] buffer, final int offset, final int bytesToRead);
+
+	/**
+	 * Writes the given integer to the given address.
+	 * 
+	 * @param address
+	 *            The address to write at
+	 * @param valueToWrite
+	 *            The value to write
+	 */
+	public void writeInt(final long address, final int valueToWrite);
+
+	/**
+	 * Writes the given bytes to the given address.
+	 * 
+	 * @param address
+	 *            The address to write at
+	 * @param bytesToWrite
+	 *            The bytes to write. Read from left to right, i.e. from the
+	 *            lower to the higher indices.
+	 */
+	public void writeMemory(final long address, final byte[] bytesToWrite);
+
+	/**
+	 * Writes a part of the given bytes to the given address.
+	 * 
+	 * @param address
+	 *            The address to write at
+	 * @param bytesToWrite
+	 *            The bytes to write. Read from left to right, i.e. from the
+	 *            lower to the higher indices.
+	 * @param offset
+	 *            Index of the first byte to write
+	 * @param length
+	 *            Number of bytes to write
+	 */
+	public void writeMemory(final long address, final byte[] bytesToWrite, final int offset, final int length);
+}
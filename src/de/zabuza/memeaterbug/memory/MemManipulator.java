@@ -8,22 +8,37 @@ import com.sun.jna.Memory;
 import com.sun.jna.Pointer;
 import com.sun.jna.platform.win32.WinNT.HANDLE;
 
+import de.zabuza.memeaterbug.exceptions.NotHookedException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.metrics.Metrics;
+import de.zabuza.memeaterbug.metrics.Operation;
 import de.zabuza.memeaterbug.winapi.Process;
+import de.zabuza.memeaterbug.winapi.SharedHandle;
 import de.zabuza.memeaterbug.winapi.jna.util.Kernel32Util;
 import de.zabuza.memeaterbug.winapi.jna.util.PsapiUtil;
 
 /**
- * Provides various methods for memory manipulation of a given process.
+ * Provides various methods for memory manipulation of a given process. It is
+ * the {@link MemAccess} for real processes.<br/>
+ * <br/>
+ * If created with a {@link SharedHandle}, all methods may be used by many
+ * threads at once. Each operation holds the handle while it is in flight,
+ * once the handle was closed new operations throw a
+ * {@link NotHookedException}.
  * 
  * @author Zabuza {@literal <zabuza.dev@gmail.com>}
  *
  */
-public final class MemManipulator {
+public final class MemManipulator implements MemAccess {
 
 	/**
 	 * The process this object belongs to.
 	 */
 	private final Process mProcess;
+	/**
+	 * Shared handle used for all operations, if given, <tt>null</tt> else.
+	 */
+	private final SharedHandle mSharedHandle;
 
 	/**
 	 * Creates a new object that is able to manipulate the memory of the given
@@ -33,7 +48,7 @@ public final class MemManipulator {
 	 *            Id of the process to manipulate
 	 */
 	public MemManipulator(final int processId) {
-		this(processId, null);
+		this(processId, (HANDLE) null);
 	}
 
 	/**
@@ -53,6 +68,25 @@ public final class MemManipulator {
 		if (processHandle != null) {
 			this.mProcess.setHandle(processHandle);
 		}
+		this.mSharedHandle = null;
+	}
+
+	/**
+	 * Creates a new object that is able to manipulate the memory of the given
+	 * process, using a shared handle. The object may be used by many threads
+	 * at once.
+	 * 
+	 * @param processId
+	 *            Id of the process to manipulate
+	 * @param sharedHandle
+	 *            Shared handle that must correspond to the same process that
+	 *            is specified by processId. It is acquired for every operation
+	 *            and not closed by this object.
+	 */
+	public MemManipulator(final int processId, final SharedHandle sharedHandle) {
+		this.mProcess = PsapiUtil.getProcessById(processId);
+		this.mProcess.setHandle(sharedHandle.getHandle());
+		this.mSharedHandle = sharedHandle;
 	}
 
 	/**
@@ -87,21 +121,31 @@ public final class MemManipulator {
 	 * @return The dynamic address received by following all offsets starting at
 	 *         the given starting address
 	 */
+	@Override
 	public long findDynAddress(final int[] offsets, final long startingAddress) {
 		final int size = Pointer.SIZE;
 		Memory pTemp = new Memory(size);
 		long pointerAddress = -1;
 
-		for (int i = 0; i < offsets.length; i++) {
-			if (i == 0) {
-				pTemp = Kernel32Util.readMemory(this.mProcess.getHandle(), startingAddress, size);
-			}
+		final long start = Metrics.start();
+		boolean success = false;
+		final HANDLE handle = acquireHandle();
+		try {
+			for (int i = 0; i < offsets.length; i++) {
+				if (i == 0) {
+					pTemp = Kernel32Util.readMemory(handle, startingAddress, size);
+				}
 
-			pointerAddress = pTemp.getInt(0) + offsets[i];
+				pointerAddress = pTemp.getInt(0) + offsets[i];
 
-			if (i != offsets.length - 1) {
-				pTemp = Kernel32Util.readMemory(this.mProcess.getHandle(), pointerAddress, size);
+				if (i != offsets.length - 1) {
+					pTemp = Kernel32Util.readMemory(handle, pointerAddress, size);
+				}
 			}
+			success = true;
+		} finally {
+			releaseHandle();
+			Metrics.record(Operation.POINTER_CHAIN, start, 0, success);
 		}
 		return pointerAddress;
 	}
@@ -111,8 +155,14 @@ public final class MemManipulator {
 	 * 
 	 * @return The load address of this process module
 	 */
+	@Override
 	public long getBaseAddress() {
-		return Pointer.nativeValue(this.mProcess.getBase());
+		acquireHandle();
+		try {
+			return Pointer.nativeValue(this.mProcess.getBase());
+		} finally {
+			releaseHandle();
+		}
 	}
 
 	/**
@@ -122,6 +172,7 @@ public final class MemManipulator {
 	 *            Address to start reading from
 	 * @return The integer read from the given address.
 	 */
+	@Override
 	public int readInt(final long address) {
 		final Memory value = readMemory(address, MemSize.getIntSize());
 		return value.getInt(0);
@@ -136,8 +187,37 @@ public final class MemManipulator {
 	 *            Number of bytes to read
 	 * @return Object holding the read bytes
 	 */
+	@Override
 	public Memory readMemory(final long address, final int bytesToRead) {
-		return Kernel32Util.readMemory(this.mProcess.getHandle(), address, bytesToRead);
+		final HANDLE handle = acquireHandle();
+		try {
+			return Kernel32Util.readMemory(handle, address, bytesToRead);
+		} finally {
+			releaseHandle();
+		}
+	}
+
+	/**
+	 * Reads a number of bytes starting from a given address into the given
+	 * buffer.
+	 * 
+	 * @param address
+	 *            Address to start reading from
+	 * @param buffer
+	 *            Buffer that receives the read bytes
+	 * @param offset
+	 *            Index in the buffer where the first read byte gets stored
+	 * @param bytesToRead
+	 *            Number of bytes to read
+	 */
+	@Override
+	public void readMemory(final long address, final byte[] buffer, final int offset, final int bytesToRead) {
+		final HANDLE handle = acquireHandle();
+		try {
+			Kernel32Util.readMemory(handle, address, buffer, offset, bytesToRead);
+		} finally {
+			releaseHandle();
+		}
 	}
 
 	/**
@@ -151,7 +231,7 @@ public final class MemManipulator {
 	 * @return The string read from the given address
 	 */
 	public String readString(final long address, final int size) {
-		final Memory output = Kernel32Util.readMemory(this.mProcess.getHandle(), address, size);
+		final Memory output = readMemory(address, size);
 		return output.getString(0);
 	}
 
@@ -175,7 +255,7 @@ public final class MemManipulator {
 		if (!Charset.availableCharsets().keySet().contains(encoding)) {
 			throw new UnsupportedEncodingException();
 		}
-		final Memory output = Kernel32Util.readMemory(this.mProcess.getHandle(), address, sizeOfOneChar * length);
+		final Memory output = readMemory(address, sizeOfOneChar * length);
 		return output.getString(0, encoding);
 	}
 
@@ -187,6 +267,7 @@ public final class MemManipulator {
 	 * @param valueToWrite
 	 *            The value to write
 	 */
+	@Override
 	public void writeInt(final long address, final int valueToWrite) {
 		final byte[] bytesToWriteReversed = ByteBuffer.allocate(MemSize.getIntSize()).putInt(valueToWrite).array();
 		writeMemoryReversely(address, bytesToWriteReversed);
@@ -201,8 +282,37 @@ public final class MemManipulator {
 	 *            The bytes to write. Read from left to right, i.e. from the
 	 *            lower to the higher indices.
 	 */
+	@Override
 	public void writeMemory(final long address, final byte[] bytesToWrite) {
-		Kernel32Util.writeMemory(this.mProcess.getHandle(), address, bytesToWrite);
+		final HANDLE handle = acquireHandle();
+		try {
+			Kernel32Util.writeMemory(handle, address, bytesToWrite);
+		} finally {
+			releaseHandle();
+		}
+	}
+
+	/**
+	 * Writes a part of the given bytes to the given address.
+	 * 
+	 * @param address
+	 *            The address to write at
+	 * @param bytesToWrite
+	 *            The bytes to write. Read from left to right, i.e. from the
+	 *            lower to the higher indices.
+	 * @param offset
+	 *            Index of the first byte to write
+	 * @param length
+	 *            Number of bytes to write
+	 */
+	@Override
+	public void writeMemory(final long address, final byte[] bytesToWrite, final int offset, final int length) {
+		final HANDLE handle = acquireHandle();
+		try {
+			Kernel32Util.writeMemory(handle, address, bytesToWrite, offset, length);
+		} finally {
+			releaseHandle();
+		}
 	}
 
 	/**
@@ -215,7 +325,12 @@ public final class MemManipulator {
 	 *            from the higher to the lower indices.
 	 */
 	public void writeMemoryReversely(final long address, final byte[] bytesToWrite) {
-		Kernel32Util.writeMemoryReversely(this.mProcess.getHandle(), address, bytesToWrite);
+		final HANDLE handle = acquireHandle();
+		try {
+			Kernel32Util.writeMemoryReversely(handle, address, bytesToWrite);
+		} finally {
+			releaseHandle();
+		}
 	}
 
 	/**
@@ -247,4 +362,32 @@ public final class MemManipulator {
 			throws UnsupportedEncodingException {
 		writeMemory(address, toWrite.getBytes(encoding));
 	}
+
+	/**
+	 * Acquires the handle of the process for an operation. Must be followed by
+	 * {@link #releaseHandle()} once the operation has finished.
+	 * 
+	 * @return The handle of the process
+	 * @throws NotHookedException
+	 *             If the shared handle was already closed
+	 */
+	private HANDLE acquireHandle() throws NotHookedException {
+		if (this.mSharedHandle == null) {
+			return this.mProcess.getHandle();
+		}
+		if (!this.mSharedHandle.acquire()) {
+			throw new NotHookedException(ErrorMessages.UNABLE_SINCE_NOT_HOOKED);
+		}
+		return this.mSharedHandle.getHandle();
+	}
+
+	/**
+	 * Releases the handle of the process after an operation that was started
+	 * by {@link #acquireHandle()}.
+	 */
+	private void releaseHandle() {
+		if (this.mSharedHandle != null) {
+			this.mSharedHandle.release();
+		}
+	}
 }
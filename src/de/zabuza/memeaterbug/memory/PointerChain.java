@@ -0,0 +1,176 @@
+package de.zabuza.memeaterbug.memory;
+
+import java.util.Arrays;
+
+import com.sun.jna.Pointer;
+
+/**
+ * Chain of offsets that leads from a static starting address to a dynamic
+ * address, as used by {@link MemManipulator#findDynAddress(int[], long)}. The
+ * value stored at the starting address is a pointer, this pointer plus the
+ * first offset stores the next pointer and so on. The dynamic address is the
+ * last pointer plus the last offset.<br/>
+ * <br/>
+ * Since the pointers may change at any time, a chain should be resolved again
+ * whenever its dynamic address is used. Many chains of the same process can
+ * be resolved together by {@link #resolveAll(MemAccess, PointerChain[],
+ * long[], boolean[])}, which issues one coalesced {@link ReadBatch} per level
+ * instead of one read per pointer.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class PointerChain {
+	/**
+	 * Resolves all given chains together. The pointers of every level are
+	 * read with one {@link ReadBatch}, thus the amount of read operations is
+	 * bounded by the depth of the deepest chain and the amount of coalesced
+	 * spans, not by the amount of chains.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the chains belong to
+	 * @param chains
+	 *            The chains to resolve
+	 * @param addresses
+	 *            Array that receives the resolved dynamic address of each
+	 *            chain, by its index. Must have at least the length of the
+	 *            chains array.
+	 * @param successful
+	 *            Array that receives whether each chain could be resolved, by
+	 *            its index. A chain can not be resolved if one of its pointers
+	 *            could not be read. Must have at least the length of the chains
+	 *            array.
+	 * @return The amount of chains that could not be resolved
+	 */
+	public static int resolveAll(final MemAccess memManipulator, final PointerChain[] chains,
+			final long[] addresses, final boolean[] successful) {
+		final int[] batchIndices = new int[chains.length];
+		int maxDepth = 0;
+		for (int i = 0; i < chains.length; i++) {
+			addresses[i] = chains[i].mStartingAddress;
+			successful[i] = true;
+			maxDepth = Math.max(maxDepth, chains[i].mOffsets.length);
+		}
+
+		final ReadBatch batch = new ReadBatch();
+		int failures = 0;
+		for (int level = 0; level < maxDepth; level++) {
+			batch.clear();
+			for (int i = 0; i < chains.length; i++) {
+				if (successful[i] && level < chains[i].mOffsets.length) {
+					batchIndices[i] = batch.add(addresses[i], Pointer.SIZE);
+				}
+			}
+			batch.execute(memManipulator);
+			for (int i = 0; i < chains.length; i++) {
+				if (!successful[i] || level >= chains[i].mOffsets.length) {
+					continue;
+				}
+				if (batch.isSuccessful(batchIndices[i])) {
+					addresses[i] = batch.getInt(batchIndices[i]) + chains[i].mOffsets[level];
+				} else {
+					successful[i] = false;
+					failures++;
+				}
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Offsets that need to be followed.
+	 */
+	private final int[] mOffsets;
+	/**
+	 * Address from which to start following the offsets.
+	 */
+	private final long mStartingAddress;
+
+	/**
+	 * Creates a new chain.
+	 * 
+	 * @param startingAddress
+	 *            Address from which to start following the offsets, for
+	 *            example the base address of the process plus a static offset
+	 * @param offsets
+	 *            Offsets that need to be followed, must contain at least one
+	 *            offset
+	 */
+	public PointerChain(final long startingAddress, final int[] offsets) {
+		if (offsets.length == 0) {
+			throw new IllegalArgumentException();
+		}
+		this.mStartingAddress = startingAddress;
+		this.mOffsets = Arrays.copyOf(offsets, offsets.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PointerChain)) {
+			return false;
+		}
+		final PointerChain other = (PointerChain) obj;
+		return this.mStartingAddress == other.mStartingAddress && Arrays.equals(this.mOffsets, other.mOffsets);
+	}
+
+	/**
+	 * Gets the depth of the chain, i.e. the amount of pointers that need to be
+	 * read to resolve it.
+	 * 
+	 * @return The depth of the chain
+	 */
+	public int getDepth() {
+		return this.mOffsets.length;
+	}
+
+	/**
+	 * Gets the offsets that need to be followed.
+	 * 
+	 * @return A copy of the offsets that need to be followed
+	 */
+	public int[] getOffsets() {
+		return Arrays.copyOf(this.mOffsets, this.mOffsets.length);
+	}
+
+	/**
+	 * Gets the address from which to start following the offsets.
+	 * 
+	 * @return The address from which to start following the offsets
+	 */
+	public long getStartingAddress() {
+		return this.mStartingAddress;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(this.mOffsets);
+		result = prime * result + (int) (this.mStartingAddress ^ (this.mStartingAddress >>> 32));
+		return result;
+	}
+
+	/**
+	 * Resolves the dynamic address of this chain.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the chain belongs to
+	 * @return The dynamic address received by following all offsets
+	 */
+	public long resolve(final MemAccess memManipulator) {
+		return memManipulator.findDynAddress(this.mOffsets, this.mStartingAddress);
+	}
+}
@@ -0,0 +1,442 @@
+package de.zabuza.memeaterbug.memory;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import com.sun.jna.platform.win32.Win32Exception;
+
+import de.zabuza.memeaterbug.exceptions.MemAccessException;
+import de.zabuza.memeaterbug.jfr.BatchReadEvent;
+import de.zabuza.memeaterbug.jfr.Events;
+import de.zabuza.memeaterbug.util.IndexSort;
+
+/**
+ * Batch of memory reads that get executed together. Entries are sorted by
+ * their address and neighboring entries are coalesced into spans, such that
+ * every span is fetched with only one read operation. If the read of a span
+ * fails, its entries are read one by one, so that a single inaccessible entry
+ * does not invalidate the others.<br/>
+ * <br/>
+ * The read plan is only rebuilt if entries were added or cleared since the
+ * last execution, thus executing the same batch repeatedly does not allocate.
+ * The class is not thread-safe.
+ *
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ReadBatch {
+	/**
+	 * Default maximal amount of unrequested bytes between two entries that are
+	 * still coalesced into one span.
+	 */
+	public static final int DEFAULT_MAX_GAP = 64;
+	/**
+	 * Default maximal size of a coalesced span, in bytes.
+	 */
+	public static final int DEFAULT_MAX_SPAN = 64 * 1024;
+	/**
+	 * Initial capacity of the entry arrays.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+	/**
+	 * Whether the native byte order of the platform is little endian.
+	 */
+	private static final boolean IS_LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+	/**
+	 * Addresses of the entries, by their index.
+	 */
+	private long[] mAddresses;
+	/**
+	 * Buffer holding the content of all spans after an execution.
+	 */
+	private byte[] mBuffer;
+	/**
+	 * Offset of each entry in the buffer, by its index.
+	 */
+	private int[] mBufferOffsets;
+	/**
+	 * Amount of entries in the batch.
+	 */
+	private int mEntryAmount;
+	/**
+	 * Maximal amount of unrequested bytes between two entries that are still
+	 * coalesced into one span.
+	 */
+	private final int mMaxGap;
+	/**
+	 * Maximal size of a coalesced span, in bytes.
+	 */
+	private final int mMaxSpan;
+	/**
+	 * Whether the read plan needs to be rebuilt before the next execution.
+	 */
+	private boolean mNeedsPlan;
+	/**
+	 * Amount of read operations issued by the last execution.
+	 */
+	private int mReadCalls;
+	/**
+	 * Sizes of the entries, by their index.
+	 */
+	private int[] mSizes;
+	/**
+	 * Amount of coalesced spans in the current plan.
+	 */
+	private int mSpanAmount;
+	/**
+	 * Offset of each span in the buffer.
+	 */
+	private int[] mSpanBufferOffsets;
+	/**
+	 * Index of the first entry of each span in the sorted order, followed by
+	 * the total amount of entries as sentinel.
+	 */
+	private int[] mSpanFirstEntries;
+	/**
+	 * Lengths of the spans, in bytes.
+	 */
+	private int[] mSpanLengths;
+	/**
+	 * Start addresses of the spans.
+	 */
+	private long[] mSpanStarts;
+	/**
+	 * Entry indices sorted by their address.
+	 */
+	private int[] mSortedOrder;
+	/**
+	 * Whether the entry could be read by the last execution, by its index.
+	 */
+	private boolean[] mSuccessful;
+
+	/**
+	 * Creates a new empty batch that uses {@link #DEFAULT_MAX_GAP} and
+	 * {@link #DEFAULT_MAX_SPAN} for coalescing.
+	 */
+	public ReadBatch() {
+		this(DEFAULT_MAX_GAP, DEFAULT_MAX_SPAN);
+	}
+
+	/**
+	 * Creates a new empty batch.
+	 *
+	 * @param maxGap
+	 *            Maximal amount of unrequested bytes between two entries that
+	 *            are still coalesced into one span. Must not be negative.
+	 * @param maxSpan
+	 *            Maximal size of a coalesced span, in bytes. Must be greater
+	 *            than zero. Entries that are bigger form a span on their own.
+	 */
+	public ReadBatch(final int maxGap, final int maxSpan) {
+		if (maxGap < 0 || maxSpan <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.mMaxGap = maxGap;
+		this.mMaxSpan = maxSpan;
+
+		this.mAddresses = new long[INITIAL_CAPACITY];
+		this.mSizes = new int[INITIAL_CAPACITY];
+		this.mEntryAmount = 0;
+		this.mNeedsPlan = true;
+		this.mReadCalls = 0;
+	}
+
+	/**
+	 * Adds an entry to the batch.
+	 *
+	 * @param address
+	 *            Address to start reading from
+	 * @param size
+	 *            Number of bytes to read, must be greater than zero
+	 * @return The index of the entry, used to access its result after an
+	 *         execution
+	 */
+	public int add(final long address, final int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException();
+		}
+		if (this.mEntryAmount == this.mAddresses.length) {
+			final int capacity = this.mAddresses.length * 2;
+			this.mAddresses = Arrays.copyOf(this.mAddresses, capacity);
+			this.mSizes = Arrays.copyOf(this.mSizes, capacity);
+		}
+		final int index = this.mEntryAmount;
+		this.mAddresses[index] = address;
+		this.mSizes[index] = size;
+		this.mEntryAmount++;
+		this.mNeedsPlan = true;
+		return index;
+	}
+
+	/**
+	 * Removes all entries from the batch.
+	 */
+	public void clear() {
+		this.mEntryAmount = 0;
+		this.mNeedsPlan = true;
+	}
+
+	/**
+	 * Copies the result of the given entry of the last execution into the
+	 * given array.
+	 *
+	 * @param index
+	 *            Index of the entry
+	 * @param destination
+	 *            Array to copy into
+	 * @param destinationOffset
+	 *            Index in the destination where the first byte gets stored
+	 */
+	public void copy(final int index, final byte[] destination, final int destinationOffset) {
+		System.arraycopy(this.mBuffer, this.mBufferOffsets[index], destination, destinationOffset, this.mSizes[index]);
+	}
+
+	/**
+	 * Executes the batch by reading all entries from the given manipulator.
+	 * Entries that could not be read are marked as unsuccessful, see
+	 * {@link #isSuccessful(int)}.
+	 *
+	 * @param memManipulator
+	 *            Manipulator of the process to read from
+	 * @return The amount of entries that could not be read
+	 */
+	public int execute(final MemAccess memManipulator) {
+		BatchReadEvent event = null;
+		if (Events.isEnabled()) {
+			event = new BatchReadEvent();
+			event.begin();
+		}
+		if (this.mNeedsPlan) {
+			plan();
+		}
+		this.mReadCalls = 0;
+
+		int failures = 0;
+		long bytes = 0;
+		for (int span = 0; span < this.mSpanAmount; span++) {
+			this.mReadCalls++;
+			bytes += this.mSpanLengths[span];
+			try {
+				memManipulator.readMemory(this.mSpanStarts[span], this.mBuffer, this.mSpanBufferOffsets[span],
+						this.mSpanLengths[span]);
+				for (int i = this.mSpanFirstEntries[span]; i < this.mSpanFirstEntries[span + 1]; i++) {
+					this.mSuccessful[this.mSortedOrder[i]] = true;
+				}
+			} catch (final Win32Exception | MemAccessException e) {
+				// Fall back to reading the entries of the span one by one
+				for (int i = this.mSpanFirstEntries[span]; i < this.mSpanFirstEntries[span + 1]; i++) {
+					final int entry = this.mSortedOrder[i];
+					this.mReadCalls++;
+					try {
+						memManipulator.readMemory(this.mAddresses[entry], this.mBuffer, this.mBufferOffsets[entry],
+								this.mSizes[entry]);
+						this.mSuccessful[entry] = true;
+					} catch (final Win32Exception | MemAccessException e2) {
+						this.mSuccessful[entry] = false;
+						failures++;
+					}
+				}
+			}
+		}
+		if (event != null && this.mSpanAmount > 0) {
+			event.finish(this.mSpanStarts[0], bytes, this.mEntryAmount, this.mReadCalls, failures);
+		}
+		return failures;
+	}
+
+	/**
+	 * Gets the address of the given entry.
+	 *
+	 * @param index
+	 *            Index of the entry
+	 * @return The address of the entry
+	 */
+	public long getAddress(final int index) {
+		return this.mAddresses[index];
+	}
+
+	/**
+	 * Gets the buffer holding the results of the last execution. The result of
+	 * an entry starts at {@link #getOffset(int)} and has a length of
+	 * {@link #getSize(int)}. The buffer must not be modified.
+	 *
+	 * @return The buffer holding the results of the last execution
+	 */
+	public byte[] getBuffer() {
+		return this.mBuffer;
+	}
+
+	/**
+	 * Gets the amount of entries in the batch.
+	 *
+	 * @return The amount of entries in the batch
+	 */
+	public int getEntryAmount() {
+		return this.mEntryAmount;
+	}
+
+	/**
+	 * Interprets the first four bytes of the result of the given entry of the
+	 * last execution as integer in the native byte order.
+	 *
+	 * @param index
+	 *            Index of the entry, must have a size of at least four bytes
+	 * @return The integer read for the entry
+	 */
+	public int getInt(final int index) {
+		final int offset = this.mBufferOffsets[index];
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			final int shift;
+			if (IS_LITTLE_ENDIAN) {
+				shift = 8 * i;
+			} else {
+				shift = 8 * (3 - i);
+			}
+			value |= (this.mBuffer[offset + i] & 0xFF) << shift;
+		}
+		return value;
+	}
+
+	/**
+	 * Gets the offset of the result of the given entry in the buffer returned
+	 * by {@link #getBuffer()}.
+	 *
+	 * @param index
+	 *            Index of the entry
+	 * @return The offset of the result of the entry
+	 */
+	public int getOffset(final int index) {
+		return this.mBufferOffsets[index];
+	}
+
+	/**
+	 * Gets the amount of read operations issued by the last execution.
+	 *
+	 * @return The amount of read operations issued by the last execution
+	 */
+	public int getReadCalls() {
+		return this.mReadCalls;
+	}
+
+	/**
+	 * Gets the size of the given entry.
+	 *
+	 * @param index
+	 *            Index of the entry
+	 * @return The size of the entry, in bytes
+	 */
+	public int getSize(final int index) {
+		return this.mSizes[index];
+	}
+
+	/**
+	 * Gets the amount of coalesced spans, i.e. the amount of read operations
+	 * an execution issues if no read fails.
+	 *
+	 * @return The amount of coalesced spans
+	 */
+	public int getSpanAmount() {
+		if (this.mNeedsPlan) {
+			plan();
+		}
+		return this.mSpanAmount;
+	}
+
+	/**
+	 * Whether the result of the given entry of the last execution equals the
+	 * content of the given array.
+	 *
+	 * @param index
+	 *            Index of the entry
+	 * @param other
+	 *            Array to compare with, may be <tt>null</tt>
+	 * @return <tt>True</tt> if the result equals the given content,
+	 *         <tt>false</tt> otherwise
+	 */
+	public boolean isEqual(final int index, final byte[] other) {
+		final int size = this.mSizes[index];
+		if (other == null || other.length != size) {
+			return false;
+		}
+		final int offset = this.mBufferOffsets[index];
+		for (int i = 0; i < size; i++) {
+			if (this.mBuffer[offset + i] != other[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether the given entry could be read by the last execution.
+	 *
+	 * @param index
+	 *            Index of the entry
+	 * @return <tt>True</tt> if the entry could be read, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isSuccessful(final int index) {
+		return this.mSuccessful[index];
+	}
+
+	/**
+	 * Builds the read plan by sorting the entries and coalescing them into
+	 * spans.
+	 */
+	private void plan() {
+		final int amount = this.mEntryAmount;
+		this.mSortedOrder = new int[amount];
+		for (int i = 0; i < amount; i++) {
+			this.mSortedOrder[i] = i;
+		}
+		if (amount > 1) {
+			IndexSort.sortByKey(this.mSortedOrder, this.mAddresses, 0, amount - 1);
+		}
+
+		this.mSpanStarts = new long[amount];
+		this.mSpanLengths = new int[amount];
+		this.mSpanBufferOffsets = new int[amount];
+		this.mSpanFirstEntries = new int[amount + 1];
+		this.mBufferOffsets = new int[amount];
+		this.mSuccessful = new boolean[amount];
+
+		int spanAmount = 0;
+		int bufferSize = 0;
+		long spanStart = 0;
+		long spanEnd = 0;
+		for (int i = 0; i < amount; i++) {
+			final int entry = this.mSortedOrder[i];
+			final long start = this.mAddresses[entry];
+			final long end = start + this.mSizes[entry];
+
+			final boolean fitsIntoSpan = spanAmount > 0 && start - spanEnd <= this.mMaxGap
+					&& Math.max(end, spanEnd) - spanStart <= this.mMaxSpan;
+			if (fitsIntoSpan) {
+				spanEnd = Math.max(end, spanEnd);
+			} else {
+				if (spanAmount > 0) {
+					this.mSpanLengths[spanAmount - 1] = (int) (spanEnd - spanStart);
+					bufferSize += this.mSpanLengths[spanAmount - 1];
+				}
+				spanStart = start;
+				spanEnd = end;
+				this.mSpanStarts[spanAmount] = start;
+				this.mSpanBufferOffsets[spanAmount] = bufferSize;
+				this.mSpanFirstEntries[spanAmount] = i;
+				spanAmount++;
+			}
+			this.mBufferOffsets[entry] = this.mSpanBufferOffsets[spanAmount - 1] + (int) (start - spanStart);
+		}
+		if (spanAmount > 0) {
+			this.mSpanLengths[spanAmount - 1] = (int) (spanEnd - spanStart);
+			bufferSize += this.mSpanLengths[spanAmount - 1];
+		}
+		this.mSpanFirstEntries[spanAmount] = amount;
+		this.mSpanAmount = spanAmount;
+
+		this.mBuffer = new byte[bufferSize];
+		this.mNeedsPlan = false;
+	}
+}
@@ -0,0 +1,240 @@
+package de.zabuza.memeaterbug.memory;
+
+import java.util.Arrays;
+
+import com.sun.jna.platform.win32.Win32Exception;
+
+import de.zabuza.memeaterbug.exceptions.MemAccessException;
+import de.zabuza.memeaterbug.util.IndexSort;
+
+/**
+ * Batch of memory writes that get executed together. Entries are sorted by
+ * their address and entries that are adjacent or overlap are coalesced into
+ * spans, such that every span is written with only one write operation. Other
+ * than {@link ReadBatch}, gaps are never bridged since that would overwrite
+ * memory which was not requested. If the write of a span fails, its entries
+ * are written one by one.<br/>
+ * <br/>
+ * Overlapping entries are applied in the order they were added. The class is
+ * not thread-safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class WriteBatch {
+	/**
+	 * Initial capacity of the entry arrays.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Addresses of the entries, by their index.
+	 */
+	private long[] mAddresses;
+	/**
+	 * Buffer holding the data of all entries.
+	 */
+	private byte[] mData;
+	/**
+	 * Offset of the data of each entry in the data buffer, by its index.
+	 */
+	private int[] mDataOffsets;
+	/**
+	 * Amount of bytes used in the data buffer.
+	 */
+	private int mDataSize;
+	/**
+	 * Amount of entries in the batch.
+	 */
+	private int mEntryAmount;
+	/**
+	 * Sizes of the entries, by their index.
+	 */
+	private int[] mSizes;
+	/**
+	 * Buffer used to assemble the content of a span.
+	 */
+	private byte[] mSpanBuffer;
+	/**
+	 * Amount of write operations issued by the last execution.
+	 */
+	private int mWriteCalls;
+
+	/**
+	 * Creates a new empty batch.
+	 */
+	public WriteBatch() {
+		this.mAddresses = new long[INITIAL_CAPACITY];
+		this.mSizes = new int[INITIAL_CAPACITY];
+		this.mDataOffsets = new int[INITIAL_CAPACITY];
+		this.mData = new byte[INITIAL_CAPACITY * 8];
+		this.mSpanBuffer = new byte[0];
+		this.mEntryAmount = 0;
+		this.mDataSize = 0;
+		this.mWriteCalls = 0;
+	}
+
+	/**
+	 * Adds an entry to the batch. The data is copied, later modifications of
+	 * the given array have no effect on the batch.
+	 * 
+	 * @param address
+	 *            The address to write at
+	 * @param bytesToWrite
+	 *            Buffer holding the bytes to write. Read from left to right,
+	 *            i.e. from the lower to the higher indices.
+	 * @param offset
+	 *            Index of the first byte to write
+	 * @param length
+	 *            Number of bytes to write, must be greater than zero
+	 * @return The index of the entry
+	 */
+	public int add(final long address, final byte[] bytesToWrite, final int offset, final int length) {
+		if (length <= 0) {
+			throw new IllegalArgumentException();
+		}
+		if (this.mEntryAmount == this.mAddresses.length) {
+			final int capacity = this.mAddresses.length * 2;
+			this.mAddresses = Arrays.copyOf(this.mAddresses, capacity);
+			this.mSizes = Arrays.copyOf(this.mSizes, capacity);
+			this.mDataOffsets = Arrays.copyOf(this.mDataOffsets, capacity);
+		}
+		if (this.mDataSize + length > this.mData.length) {
+			this.mData = Arrays.copyOf(this.mData, Math.max(this.mData.length * 2, this.mDataSize + length));
+		}
+		System.arraycopy(bytesToWrite, offset, this.mData, this.mDataSize, length);
+
+		final int index = this.mEntryAmount;
+		this.mAddresses[index] = address;
+		this.mSizes[index] = length;
+		this.mDataOffsets[index] = this.mDataSize;
+		this.mDataSize += length;
+		this.mEntryAmount++;
+		return index;
+	}
+
+	/**
+	 * Removes all entries from the batch.
+	 */
+	public void clear() {
+		this.mEntryAmount = 0;
+		this.mDataSize = 0;
+	}
+
+	/**
+	 * Executes the batch by writing all entries using the given manipulator.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process to write to
+	 * @return The amount of entries that could not be written
+	 */
+	public int execute(final MemAccess memManipulator) {
+		this.mWriteCalls = 0;
+		final int amount = this.mEntryAmount;
+		if (amount == 0) {
+			return 0;
+		}
+
+		final int[] order = new int[amount];
+		for (int i = 0; i < amount; i++) {
+			order[i] = i;
+		}
+		// The sort is not stable, writeSpan restores the insertion order
+		IndexSort.sortByKey(order, this.mAddresses, 0, amount - 1);
+
+		int failures = 0;
+		int spanFirst = 0;
+		while (spanFirst < amount) {
+			final long spanStart = this.mAddresses[order[spanFirst]];
+			long spanEnd = spanStart + this.mSizes[order[spanFirst]];
+			int spanLast = spanFirst;
+			while (spanLast + 1 < amount && this.mAddresses[order[spanLast + 1]] <= spanEnd) {
+				spanLast++;
+				spanEnd = Math.max(spanEnd, this.mAddresses[order[spanLast]] + this.mSizes[order[spanLast]]);
+			}
+			failures += writeSpan(memManipulator, order, spanFirst, spanLast, spanStart, (int) (spanEnd - spanStart));
+			spanFirst = spanLast + 1;
+		}
+		return failures;
+	}
+
+	/**
+	 * Gets the amount of entries in the batch.
+	 * 
+	 * @return The amount of entries in the batch
+	 */
+	public int getEntryAmount() {
+		return this.mEntryAmount;
+	}
+
+	/**
+	 * Gets the amount of write operations issued by the last execution.
+	 * 
+	 * @return The amount of write operations issued by the last execution
+	 */
+	public int getWriteCalls() {
+		return this.mWriteCalls;
+	}
+
+	/**
+	 * Writes one coalesced span. Entries of the span are applied to the span
+	 * buffer in the order they were added, such that later entries win on
+	 * overlaps.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process to write to
+	 * @param order
+	 *            Entry indices sorted by their address
+	 * @param first
+	 *            Index of the first entry of the span in the sorted order
+	 * @param last
+	 *            Index of the last entry of the span in the sorted order
+	 * @param spanStart
+	 *            Start address of the span
+	 * @param spanLength
+	 *            Length of the span, in bytes
+	 * @return The amount of entries that could not be written
+	 */
+	private int writeSpan(final MemAccess memManipulator, final int[] order, final int first, final int last,
+			final long spanStart, final int spanLength) {
+		if (first == last) {
+			final int entry = order[first];
+			this.mWriteCalls++;
+			try {
+				memManipulator.writeMemory(spanStart, this.mData, this.mDataOffsets[entry], spanLength);
+				return 0;
+			} catch (final Win32Exception | MemAccessException e) {
+				return 1;
+			}
+		}
+
+		if (this.mSpanBuffer.length < spanLength) {
+			this.mSpanBuffer = new byte[spanLength];
+		}
+		final int[] entries = Arrays.copyOfRange(order, first, last + 1);
+		Arrays.sort(entries);
+		for (final int entry : entries) {
+			System.arraycopy(this.mData, this.mDataOffsets[entry], this.mSpanBuffer,
+					(int) (this.mAddresses[entry] - spanStart), this.mSizes[entry]);
+		}
+
+		this.mWriteCalls++;
+		try {
+			memManipulator.writeMemory(spanStart, this.mSpanBuffer, 0, spanLength);
+			return 0;
+		} catch (final Win32Exception | MemAccessException e) {
+			// Fall back to writing the entries of the span one by one
+			int failures = 0;
+			for (final int entry : entries) {
+				this.mWriteCalls++;
+				try {
+					memManipulator.writeMemory(this.mAddresses[entry], this.mData, this.mDataOffsets[entry],
+							this.mSizes[entry]);
+				} catch (final Win32Exception | MemAccessException e2) {
+					failures++;
+				}
+			}
+			return failures;
+		}
+	}
+}
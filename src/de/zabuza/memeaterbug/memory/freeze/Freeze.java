@@ -0,0 +1,95 @@
+package de.zabuza.memeaterbug.memory.freeze;
+
+import java.util.Arrays;
+
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.PointerChain;
+import de.zabuza.memeaterbug.memory.schedule.ScheduledTarget;
+
+/**
+ * A value that is frozen in the memory of a process by a {@link FreezeEngine}.
+ * The target is either a fixed address or a {@link PointerChain} which gets
+ * resolved again on every check. Freezes are created by the
+ * <tt>freeze</tt>-methods of {@link FreezeEngine}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class Freeze extends ScheduledTarget {
+	/**
+	 * The engine this freeze belongs to.
+	 */
+	private final FreezeEngine mEngine;
+	/**
+	 * The value to keep at the target.
+	 */
+	private volatile byte[] mValue;
+
+	/**
+	 * Creates a new freeze.
+	 * 
+	 * @param engine
+	 *            The engine this freeze belongs to
+	 * @param memManipulator
+	 *            Manipulator of the process the target belongs to
+	 * @param address
+	 *            The fixed target address, only used if there is no chain
+	 * @param chain
+	 *            Chain that leads to the target address or <tt>null</tt> if
+	 *            the target address is fixed
+	 * @param value
+	 *            The value to keep at the target, gets copied
+	 * @param interval
+	 *            Interval in which the value is checked, in milliseconds
+	 */
+	Freeze(final FreezeEngine engine, final MemAccess memManipulator, final long address,
+			final PointerChain chain, final byte[] value, final long interval) {
+		super(memManipulator, address, chain, value.length, interval);
+		this.mEngine = engine;
+		this.mValue = Arrays.copyOf(value, value.length);
+	}
+
+	/**
+	 * Cancels the freeze. The value at the target is not restored anymore, a
+	 * check that is currently in progress may still complete.
+	 */
+	@Override
+	public void cancel() {
+		this.mEngine.unfreeze(this);
+	}
+
+	/**
+	 * Gets the value that is kept at the target.
+	 * 
+	 * @return A copy of the value that is kept at the target
+	 */
+	public byte[] getValue() {
+		final byte[] value = this.mValue;
+		return Arrays.copyOf(value, value.length);
+	}
+
+	/**
+	 * Sets the value that is kept at the target. It gets applied with the next
+	 * check.
+	 * 
+	 * @param value
+	 *            The value to keep, gets copied. Must have the same size as
+	 *            the current value.
+	 */
+	public void setValue(final byte[] value) {
+		if (value.length != this.mValue.length) {
+			throw new IllegalArgumentException();
+		}
+		this.mValue = Arrays.copyOf(value, value.length);
+	}
+
+	/**
+	 * Gets the value that is kept at the target without copying it. The array
+	 * must not be modified.
+	 * 
+	 * @return The value that is kept at the target
+	 */
+	byte[] getValueDirect() {
+		return this.mValue;
+	}
+}
@@ -0,0 +1,272 @@
+package de.zabuza.memeaterbug.memory.freeze;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.MemManipulator;
+import de.zabuza.memeaterbug.memory.MemSize;
+import de.zabuza.memeaterbug.memory.PointerChain;
+import de.zabuza.memeaterbug.memory.schedule.BatchGroup;
+import de.zabuza.memeaterbug.memory.schedule.BatchScheduler;
+import de.zabuza.memeaterbug.util.TimingWheel;
+
+/**
+ * Engine that freezes values in the memory of processes, for example to keep
+ * the health of a player at its maximum.<br/>
+ * <br/>
+ * Instead of blindly writing every value in every interval, the engine reads
+ * all targets back and only restores the ones that drifted. Freezes are
+ * grouped by their process and interval and read by a {@link BatchScheduler},
+ * every group is restored with one coalesced write batch. Targets given by a
+ * {@link PointerChain} are resolved again on every check, so they follow the
+ * value when the process relocates it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class FreezeEngine extends BatchScheduler<Freeze> {
+	/**
+	 * Default amount of worker threads that execute the checks.
+	 */
+	public static final int DEFAULT_WORKER_AMOUNT = 1;
+	/**
+	 * Name of the thread that drives the timing wheel.
+	 */
+	private static final String WHEEL_THREAD_NAME = "MemEaterBug-FreezeEngine-Wheel";
+	/**
+	 * Prefix of the names of the worker threads.
+	 */
+	private static final String WORKER_THREAD_NAME = "MemEaterBug-FreezeEngine-Worker-";
+
+	/**
+	 * Encodes the given integer in the byte order that is used by
+	 * {@link MemManipulator#writeInt(long, int)}.
+	 * 
+	 * @param value
+	 *            The integer to encode
+	 * @return The encoded integer
+	 */
+	private static byte[] encodeInt(final int value) {
+		return ByteBuffer.allocate(MemSize.getIntSize()).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+	}
+
+	/**
+	 * Amount of targets that drifted and were restored.
+	 */
+	private final AtomicLong mDrifted;
+	/**
+	 * Amount of issued write operations.
+	 */
+	private final AtomicLong mWriteCalls;
+
+	/**
+	 * Creates a new engine with {@link #DEFAULT_WORKER_AMOUNT} worker threads
+	 * and a tick duration of {@link TimingWheel#DEFAULT_TICK_DURATION}. It
+	 * must be started using {@link #start()}.
+	 */
+	public FreezeEngine() {
+		this(DEFAULT_WORKER_AMOUNT, TimingWheel.DEFAULT_TICK_DURATION);
+	}
+
+	/**
+	 * Creates a new engine. It must be started using {@link #start()}.
+	 * 
+	 * @param workerAmount
+	 *            Amount of worker threads that execute the checks, must be
+	 *            greater than zero
+	 * @param tickDuration
+	 *            Duration of one tick of the timing wheel, in milliseconds.
+	 *            It is the granularity in which intervals are served.
+	 */
+	public FreezeEngine(final int workerAmount, final long tickDuration) {
+		super(workerAmount, tickDuration, WHEEL_THREAD_NAME, WORKER_THREAD_NAME);
+		this.mWriteCalls = new AtomicLong();
+		this.mDrifted = new AtomicLong();
+	}
+
+	/**
+	 * Freezes the given value at the given address.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the address belongs to
+	 * @param address
+	 *            The address to freeze
+	 * @param value
+	 *            The value to keep at the address, gets copied. Read from left
+	 *            to right, i.e. from the lower to the higher indices.
+	 * @param interval
+	 *            Interval in which the value is checked, in milliseconds
+	 * @return The created freeze, can be used to change the value or to cancel
+	 *         it
+	 */
+	public Freeze freeze(final MemAccess memManipulator, final long address, final byte[] value,
+			final long interval) {
+		return register(memManipulator, address, null, value, interval);
+	}
+
+	/**
+	 * Freezes the given value at the address the given chain leads to. The
+	 * chain gets resolved again on every check.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the chain belongs to
+	 * @param chain
+	 *            Chain that leads to the address to freeze
+	 * @param value
+	 *            The value to keep at the address, gets copied. Read from left
+	 *            to right, i.e. from the lower to the higher indices.
+	 * @param interval
+	 *            Interval in which the value is checked, in milliseconds
+	 * @return The created freeze, can be used to change the value or to cancel
+	 *         it
+	 */
+	public Freeze freeze(final MemAccess memManipulator, final PointerChain chain, final byte[] value,
+			final long interval) {
+		if (chain == null) {
+			throw new NullPointerException();
+		}
+		return register(memManipulator, -1, chain, value, interval);
+	}
+
+	/**
+	 * Freezes the given integer at the given address, in the same byte order
+	 * that is used by {@link MemManipulator#writeInt(long, int)}.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the address belongs to
+	 * @param address
+	 *            The address to freeze
+	 * @param value
+	 *            The integer to keep at the address
+	 * @param interval
+	 *            Interval in which the value is checked, in milliseconds
+	 * @return The created freeze, can be used to change the value or to cancel
+	 *         it
+	 */
+	public Freeze freezeInt(final MemAccess memManipulator, final long address, final int value,
+			final long interval) {
+		return freeze(memManipulator, address, encodeInt(value), interval);
+	}
+
+	/**
+	 * Freezes the given integer at the address the given chain leads to, in
+	 * the same byte order that is used by
+	 * {@link MemManipulator#writeInt(long, int)}. The chain gets resolved again
+	 * on every check.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the chain belongs to
+	 * @param chain
+	 *            Chain that leads to the address to freeze
+	 * @param value
+	 *            The integer to keep at the address
+	 * @param interval
+	 *            Interval in which the value is checked, in milliseconds
+	 * @return The created freeze, can be used to change the value or to cancel
+	 *         it
+	 */
+	public Freeze freezeInt(final MemAccess memManipulator, final PointerChain chain, final int value,
+			final long interval) {
+		return freeze(memManipulator, chain, encodeInt(value), interval);
+	}
+
+	/**
+	 * Gets the amount of targets that drifted away from their value and were
+	 * restored.
+	 * 
+	 * @return The amount of restored targets
+	 */
+	public long getDriftedAmount() {
+		return this.mDrifted.get();
+	}
+
+	/**
+	 * Gets the amount of registered freezes.
+	 * 
+	 * @return The amount of registered freezes
+	 */
+	public int getFreezeAmount() {
+		return getTargetAmount();
+	}
+
+	/**
+	 * Gets the amount of issued write operations.
+	 * 
+	 * @return The amount of write operations
+	 */
+	public long getWriteCallAmount() {
+		return this.mWriteCalls.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.schedule.BatchScheduler#resetMetrics()
+	 */
+	@Override
+	public void resetMetrics() {
+		super.resetMetrics();
+		this.mWriteCalls.set(0);
+		this.mDrifted.set(0);
+	}
+
+	/**
+	 * Removes the given freeze from the engine. Removing a freeze that was
+	 * already removed has no effect.
+	 * 
+	 * @param freeze
+	 *            The freeze to remove
+	 */
+	public void unfreeze(final Freeze freeze) {
+		unregister(freeze);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.memory.schedule.BatchScheduler#createGroup(de.zabuza.
+	 * memeaterbug.memory.MemAccess, long)
+	 */
+	@Override
+	protected BatchGroup<Freeze> createGroup(final MemAccess memManipulator, final long interval) {
+		return new FreezeGroup(this, memManipulator, interval);
+	}
+
+	/**
+	 * Records the restores of a check.
+	 * 
+	 * @param writeCalls
+	 *            Amount of issued write operations
+	 * @param drifted
+	 *            Amount of targets that drifted
+	 */
+	void recordWrites(final int writeCalls, final int drifted) {
+		this.mWriteCalls.addAndGet(writeCalls);
+		this.mDrifted.addAndGet(drifted);
+	}
+
+	/**
+	 * Registers a new freeze.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the target belongs to
+	 * @param address
+	 *            The fixed target address, only used if there is no chain
+	 * @param chain
+	 *            Chain that leads to the target address or <tt>null</tt> if
+	 *            the target address is fixed
+	 * @param value
+	 *            The value to keep at the target
+	 * @param interval
+	 *            Interval in which the value is checked, in milliseconds
+	 * @return The created freeze
+	 */
+	private Freeze register(final MemAccess memManipulator, final long address, final PointerChain chain,
+			final byte[] value, final long interval) {
+		validate(memManipulator, value.length, interval);
+		return register(new Freeze(this, memManipulator, address, chain, value, interval));
+	}
+}
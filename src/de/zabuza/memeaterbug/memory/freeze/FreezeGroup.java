@@ -0,0 +1,72 @@
+package de.zabuza.memeaterbug.memory.freeze;
+
+import java.util.List;
+
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.ReadBatch;
+import de.zabuza.memeaterbug.memory.WriteBatch;
+import de.zabuza.memeaterbug.memory.schedule.BatchGroup;
+
+/**
+ * Group of freezes that belong to the same process and share the same
+ * interval. After all targets were read back, only the targets that drifted
+ * away from their value are restored with one {@link WriteBatch}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class FreezeGroup extends BatchGroup<Freeze> {
+	/**
+	 * The engine this group belongs to.
+	 */
+	private final FreezeEngine mEngine;
+	/**
+	 * Batch used to restore all drifted targets. Only accessed by the thread
+	 * currently executing the group.
+	 */
+	private final WriteBatch mWriteBatch;
+
+	/**
+	 * Creates a new empty group.
+	 * 
+	 * @param engine
+	 *            The engine this group belongs to
+	 * @param memManipulator
+	 *            Manipulator of the process the freezes belong to
+	 * @param interval
+	 *            Interval of the group, in milliseconds
+	 */
+	public FreezeGroup(final FreezeEngine engine, final MemAccess memManipulator, final long interval) {
+		super(engine, memManipulator, interval);
+		this.mEngine = engine;
+		this.mWriteBatch = new WriteBatch();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.memory.schedule.BatchGroup#process(java.util.List,
+	 * int[], de.zabuza.memeaterbug.memory.ReadBatch)
+	 */
+	@Override
+	protected int process(final List<Freeze> targets, final int[] batchIndices, final ReadBatch batch) {
+		this.mWriteBatch.clear();
+		for (int i = 0; i < batchIndices.length; i++) {
+			final Freeze freeze = targets.get(i);
+			final int index = batchIndices[i];
+			if (freeze.isCancelled() || index == -1 || !batch.isSuccessful(index)) {
+				continue;
+			}
+			final byte[] value = freeze.getValueDirect();
+			if (!batch.isEqual(index, value)) {
+				this.mWriteBatch.add(batch.getAddress(index), value, 0, value.length);
+			}
+		}
+		final int drifted = this.mWriteBatch.getEntryAmount();
+		final int failures = this.mWriteBatch.execute(getMemManipulator());
+
+		this.mEngine.recordWrites(this.mWriteBatch.getWriteCalls(), drifted);
+		return failures;
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains classes for freezing values in the memory of
+ * processes, i.e. periodically restoring them once they drifted.
+ */
+package de.zabuza.memeaterbug.memory.freeze;
@@ -0,0 +1,370 @@
+package de.zabuza.memeaterbug.memory.schedule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.zabuza.memeaterbug.exceptions.NotHookedException;
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.PointerChain;
+import de.zabuza.memeaterbug.memory.ReadBatch;
+
+/**
+ * Group of targets that belong to the same process and share the same
+ * interval. All targets of a group are read together with one
+ * {@link ReadBatch} and the group occupies only one slot on the timing wheel,
+ * regardless of its amount of targets. Chains of the group are resolved level
+ * by level before every read.<br/>
+ * <br/>
+ * Sub classes only define what happens with the values once they were read,
+ * see {@link #process(List, int[], ReadBatch)}.<br/>
+ * <br/>
+ * If the manipulator fails unexpectedly, all targets of the execution count
+ * as failed. Once it reports that it is not hooked to its process anymore,
+ * the targets of the group get cancelled.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ * @param <T>
+ *            Type of the targets of the group
+ */
+public abstract class BatchGroup<T extends ScheduledTarget> implements Runnable {
+	/**
+	 * Batch used to read all targets. Only accessed by the thread currently
+	 * executing the group.
+	 */
+	private final ReadBatch mBatch;
+	/**
+	 * Index of every target of the snapshot in the read batch or <tt>-1</tt>
+	 * if it is not part of it. Only accessed by the thread currently
+	 * executing the group.
+	 */
+	private int[] mBatchIndices;
+	/**
+	 * Whether the group was cancelled since it has no targets anymore.
+	 */
+	private volatile boolean mCancelled;
+	/**
+	 * Indices in the snapshot of the targets that have a chain.
+	 */
+	private int[] mChainOwners;
+	/**
+	 * Chains of the targets in the snapshot that have one, in the order of
+	 * {@link #mChainOwners}.
+	 */
+	private PointerChain[] mChains;
+	/**
+	 * Whether each chain could be resolved by the last read.
+	 */
+	private boolean[] mChainsResolved;
+	/**
+	 * Addresses the chains were resolved to by the last read.
+	 */
+	private long[] mChainTargets;
+	/**
+	 * Deadline of the next execution, as value of {@link System#nanoTime()}.
+	 * Only accessed by the thread of the timing wheel.
+	 */
+	private long mDeadline;
+	/**
+	 * Whether the targets were modified since the last execution. Guarded by
+	 * the group.
+	 */
+	private boolean mDirty;
+	/**
+	 * Deadline of the current execution, as value of
+	 * {@link System#nanoTime()}.
+	 */
+	private volatile long mExecutionDeadline;
+	/**
+	 * Interval of the group, in nanoseconds.
+	 */
+	private final long mInterval;
+	/**
+	 * Manipulator of the process the targets belong to.
+	 */
+	private final MemAccess mMemManipulator;
+	/**
+	 * Whether the group is currently executing or queued for execution.
+	 */
+	private final AtomicBoolean mRunning;
+	/**
+	 * The scheduler this group belongs to.
+	 */
+	private final BatchScheduler<T> mScheduler;
+	/**
+	 * Targets of the group at the time of the last rebuild. Only accessed by
+	 * the thread currently executing the group.
+	 */
+	private List<T> mSnapshot;
+	/**
+	 * Targets of the group. Guarded by the group.
+	 */
+	private final List<T> mTargets;
+	/**
+	 * Task that gets scheduled on the timing wheel and triggers the execution
+	 * of the group.
+	 */
+	private final Runnable mTrigger;
+
+	/**
+	 * Creates a new empty group.
+	 * 
+	 * @param scheduler
+	 *            The scheduler this group belongs to
+	 * @param memManipulator
+	 *            Manipulator of the process the targets belong to
+	 * @param interval
+	 *            Interval of the group, in milliseconds
+	 */
+	protected BatchGroup(final BatchScheduler<T> scheduler, final MemAccess memManipulator, final long interval) {
+		this.mScheduler = scheduler;
+		this.mMemManipulator = memManipulator;
+		this.mInterval = TimeUnit.MILLISECONDS.toNanos(interval);
+
+		this.mBatch = new ReadBatch();
+		this.mTargets = new ArrayList<>();
+		this.mSnapshot = Collections.emptyList();
+		this.mBatchIndices = new int[0];
+		this.mChains = new PointerChain[0];
+		this.mDirty = false;
+		this.mCancelled = false;
+		this.mRunning = new AtomicBoolean(false);
+		this.mTrigger = new Runnable() {
+			@Override
+			public void run() {
+				trigger();
+			}
+		};
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			this.mScheduler.recordLag(System.nanoTime() - this.mExecutionDeadline);
+			poll();
+		} finally {
+			this.mRunning.set(false);
+		}
+	}
+
+	/**
+	 * Gets the manipulator of the process the targets belong to.
+	 * 
+	 * @return The manipulator of the process the targets belong to
+	 */
+	protected final MemAccess getMemManipulator() {
+		return this.mMemManipulator;
+	}
+
+	/**
+	 * Processes the values of the targets after they were read. Targets that
+	 * are not part of the batch or could not be read must be skipped, as well
+	 * as targets that were cancelled in the meantime.
+	 * 
+	 * @param targets
+	 *            Targets of the group, must not be modified
+	 * @param batchIndices
+	 *            Index of every target in the batch or <tt>-1</tt> if it is
+	 *            not part of it, must not be modified
+	 * @param batch
+	 *            The executed batch that holds the read values
+	 * @return The amount of failures that occurred while processing
+	 */
+	protected abstract int process(final List<T> targets, final int[] batchIndices, final ReadBatch batch);
+
+	/**
+	 * Adds the given target to the group.
+	 * 
+	 * @param target
+	 *            The target to add
+	 */
+	synchronized void add(final T target) {
+		this.mTargets.add(target);
+		this.mDirty = true;
+	}
+
+	/**
+	 * Cancels the group. It will not be executed anymore.
+	 */
+	void cancel() {
+		this.mCancelled = true;
+	}
+
+	/**
+	 * Releases the group without executing it, such that it can be dispatched
+	 * again.
+	 */
+	void release() {
+		this.mRunning.set(false);
+	}
+
+	/**
+	 * Removes the given target from the group.
+	 * 
+	 * @param target
+	 *            The target to remove
+	 * @return <tt>True</tt> if the group has no targets anymore,
+	 *         <tt>false</tt> otherwise
+	 */
+	synchronized boolean remove(final T target) {
+		if (this.mTargets.remove(target)) {
+			this.mDirty = true;
+		}
+		return this.mTargets.isEmpty();
+	}
+
+	/**
+	 * Schedules the first execution of the group on the timing wheel, one
+	 * interval from now.
+	 */
+	void schedule() {
+		this.mDeadline = System.nanoTime() + this.mInterval;
+		this.mScheduler.getWheel().schedule(this.mTrigger, this.mDeadline);
+	}
+
+	/**
+	 * Cancels all targets of the snapshot, since the process they belong to
+	 * is not hooked anymore. The group gets cancelled with its last target.
+	 */
+	private void cancelTargets() {
+		for (final T target : this.mSnapshot) {
+			target.cancel();
+		}
+	}
+
+	/**
+	 * Resolves the chains, reads all targets of the group with one batch and
+	 * processes the read values.
+	 */
+	private void poll() {
+		boolean needsPlan = false;
+		synchronized (this) {
+			if (this.mDirty) {
+				rebuild();
+				needsPlan = true;
+				this.mDirty = false;
+			}
+		}
+		if (this.mSnapshot.isEmpty()) {
+			this.mScheduler.recordExecution(0, 0);
+			return;
+		}
+
+		int failures = 0;
+		int readCalls = 0;
+		try {
+			if (this.mChains.length > 0) {
+				failures += PointerChain.resolveAll(this.mMemManipulator, this.mChains, this.mChainTargets,
+						this.mChainsResolved);
+				for (int i = 0; i < this.mChains.length; i++) {
+					final T target = this.mSnapshot.get(this.mChainOwners[i]);
+					long address = -1;
+					if (this.mChainsResolved[i]) {
+						address = this.mChainTargets[i];
+					}
+					if (address != target.getResolvedAddress()) {
+						target.setResolvedAddress(address);
+						needsPlan = true;
+					}
+				}
+			}
+
+			if (needsPlan) {
+				this.mBatch.clear();
+				for (int i = 0; i < this.mBatchIndices.length; i++) {
+					final T target = this.mSnapshot.get(i);
+					final long address = target.getResolvedAddress();
+					if (address == -1 && target.getChain() != null) {
+						this.mBatchIndices[i] = -1;
+					} else {
+						this.mBatchIndices[i] = this.mBatch.add(address, target.getSize());
+					}
+				}
+			}
+			if (this.mBatch.getEntryAmount() > 0) {
+				failures += this.mBatch.execute(this.mMemManipulator);
+				readCalls = this.mBatch.getReadCalls();
+			}
+			failures += process(this.mSnapshot, this.mBatchIndices, this.mBatch);
+		} catch (final NotHookedException e) {
+			this.mScheduler.recordExecution(readCalls, this.mSnapshot.size());
+			cancelTargets();
+			return;
+		} catch (final RuntimeException e) {
+			// The values may be incomplete, plan the batch again by the next
+			// execution
+			synchronized (this) {
+				this.mDirty = true;
+			}
+			this.mScheduler.recordExecution(readCalls, this.mSnapshot.size());
+			return;
+		}
+		this.mScheduler.recordExecution(readCalls, failures);
+	}
+
+	/**
+	 * Rebuilds the snapshot of the targets. Must be called while holding the
+	 * lock of the group.
+	 */
+	private void rebuild() {
+		this.mSnapshot = new ArrayList<>(this.mTargets);
+		this.mBatchIndices = new int[this.mSnapshot.size()];
+
+		int chainAmount = 0;
+		for (final T target : this.mSnapshot) {
+			if (target.getChain() != null) {
+				chainAmount++;
+			}
+		}
+		this.mChains = new PointerChain[chainAmount];
+		this.mChainOwners = new int[chainAmount];
+		this.mChainTargets = new long[chainAmount];
+		this.mChainsResolved = new boolean[chainAmount];
+		int chainIndex = 0;
+		for (int i = 0; i < this.mSnapshot.size(); i++) {
+			final PointerChain chain = this.mSnapshot.get(i).getChain();
+			if (chain != null) {
+				this.mChains[chainIndex] = chain;
+				this.mChainOwners[chainIndex] = i;
+				chainIndex++;
+			}
+		}
+	}
+
+	/**
+	 * Gets called by the timing wheel once the deadline of the group has
+	 * passed. Dispatches the execution to the workers of the scheduler and
+	 * schedules the next deadline. If the previous execution has not finished
+	 * yet, the deadline is skipped and counted as overrun.
+	 */
+	private void trigger() {
+		if (this.mCancelled || !this.mScheduler.isRunning()) {
+			return;
+		}
+		if (this.mRunning.compareAndSet(false, true)) {
+			this.mExecutionDeadline = this.mDeadline;
+			this.mScheduler.dispatch(this);
+		} else {
+			this.mScheduler.recordOverruns(1);
+		}
+
+		// Schedule at fixed rate, skip deadlines that were already missed
+		long nextDeadline = this.mDeadline + this.mInterval;
+		final long now = System.nanoTime();
+		if (nextDeadline < now) {
+			final long missed = (now - nextDeadline) / this.mInterval + 1;
+			this.mScheduler.recordOverruns(missed);
+			nextDeadline += missed * this.mInterval;
+		}
+		this.mDeadline = nextDeadline;
+		this.mScheduler.getWheel().schedule(this.mTrigger, nextDeadline);
+	}
+}
@@ -0,0 +1,455 @@
+package de.zabuza.memeaterbug.memory.schedule;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.util.TimingWheel;
+
+/**
+ * Scheduler that periodically reads targets in the memory of processes.<br/>
+ * <br/>
+ * Targets are grouped by their process and interval. Each group occupies one
+ * slot on a hashed {@link TimingWheel} and is read with one coalesced
+ * {@link de.zabuza.memeaterbug.memory.ReadBatch ReadBatch} per interval, thus
+ * the costs of the scheduler grow with the amount of groups and spans, not
+ * with the amount of targets. The reads are executed by a small, fixed amount
+ * of worker threads.<br/>
+ * <br/>
+ * The scheduler collects metrics about the lag between the deadline of a
+ * group and the actual start of its execution, and about overruns, i.e.
+ * deadlines that were skipped since the previous execution of the group had
+ * not finished yet. Sub classes define the groups, see
+ * {@link #createGroup(MemAccess, long)}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ * @param <T>
+ *            Type of the targets of the scheduler
+ */
+public abstract class BatchScheduler<T extends ScheduledTarget> {
+	/**
+	 * Validates the parameters of a new target.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the target belongs to
+	 * @param size
+	 *            Size of the value at the target, in bytes
+	 * @param interval
+	 *            Interval in which the target is read, in milliseconds
+	 * @throws IllegalArgumentException
+	 *             If the size or the interval is not greater than zero
+	 * @throws NullPointerException
+	 *             If the manipulator is <tt>null</tt>
+	 */
+	protected static void validate(final MemAccess memManipulator, final int size, final long interval)
+			throws IllegalArgumentException, NullPointerException {
+		if (size <= 0) {
+			throw new IllegalArgumentException(ErrorMessages.SIZE_INVALID + size);
+		}
+		if (interval <= 0) {
+			throw new IllegalArgumentException(ErrorMessages.INTERVAL_INVALID + interval);
+		}
+		if (memManipulator == null) {
+			throw new NullPointerException();
+		}
+	}
+
+	/**
+	 * Amount of executed groups.
+	 */
+	private final AtomicLong mExecutions;
+	/**
+	 * Executor that runs the reads, if running, <tt>null</tt> else.
+	 */
+	private volatile ExecutorService mExecutor;
+	/**
+	 * Amount of failed resolutions, reads and processings.
+	 */
+	private final AtomicLong mFailures;
+	/**
+	 * Groups of targets, by their process and interval. Also used as lock for
+	 * registering and unregistering targets.
+	 */
+	private final Map<MemAccess, Map<Long, BatchGroup<T>>> mGroups;
+	/**
+	 * Maximal lag that occurred, in nanoseconds.
+	 */
+	private final AtomicLong mMaxLag;
+	/**
+	 * Amount of skipped deadlines.
+	 */
+	private final AtomicLong mOverruns;
+	/**
+	 * Amount of issued read operations.
+	 */
+	private final AtomicLong mReadCalls;
+	/**
+	 * Whether the scheduler is running.
+	 */
+	private volatile boolean mRunning;
+	/**
+	 * Amount of registered targets. Guarded by {@link #mGroups}.
+	 */
+	private int mTargetAmount;
+	/**
+	 * Sum of all lags, in nanoseconds.
+	 */
+	private final AtomicLong mTotalLag;
+	/**
+	 * The timing wheel that schedules the groups.
+	 */
+	private final TimingWheel mWheel;
+	/**
+	 * Amount of worker threads that execute the reads.
+	 */
+	private final int mWorkerAmount;
+	/**
+	 * Prefix of the names of the worker threads.
+	 */
+	private final String mWorkerThreadName;
+
+	/**
+	 * Creates a new scheduler. It must be started using {@link #start()}.
+	 * 
+	 * @param workerAmount
+	 *            Amount of worker threads that execute the reads, must be
+	 *            greater than zero
+	 * @param tickDuration
+	 *            Duration of one tick of the timing wheel, in milliseconds.
+	 *            It is the granularity in which intervals are served.
+	 * @param wheelThreadName
+	 *            Name of the thread that drives the timing wheel
+	 * @param workerThreadName
+	 *            Prefix of the names of the worker threads
+	 */
+	protected BatchScheduler(final int workerAmount, final long tickDuration, final String wheelThreadName,
+			final String workerThreadName) {
+		if (workerAmount <= 0) {
+			throw new IllegalArgumentException(ErrorMessages.WORKER_AMOUNT_INVALID + workerAmount);
+		}
+		this.mWorkerAmount = workerAmount;
+		this.mWorkerThreadName = workerThreadName;
+		this.mWheel = new TimingWheel(wheelThreadName, tickDuration, TimingWheel.DEFAULT_BUCKET_AMOUNT);
+		this.mGroups = new HashMap<>();
+		this.mTargetAmount = 0;
+		this.mRunning = false;
+		this.mExecutor = null;
+
+		this.mExecutions = new AtomicLong();
+		this.mTotalLag = new AtomicLong();
+		this.mMaxLag = new AtomicLong();
+		this.mOverruns = new AtomicLong();
+		this.mReadCalls = new AtomicLong();
+		this.mFailures = new AtomicLong();
+	}
+
+	/**
+	 * Gets the average lag between the deadline of a group and the start of
+	 * its execution.
+	 * 
+	 * @return The average lag, in nanoseconds
+	 */
+	public long getAverageLag() {
+		final long executions = this.mExecutions.get();
+		if (executions == 0) {
+			return 0;
+		}
+		return this.mTotalLag.get() / executions;
+	}
+
+	/**
+	 * Gets the amount of executed groups, i.e. the amount of batch reads.
+	 * 
+	 * @return The amount of executed groups
+	 */
+	public long getExecutionAmount() {
+		return this.mExecutions.get();
+	}
+
+	/**
+	 * Gets the amount of failures, i.e. chains that could not be resolved,
+	 * targets that could not be read and failures while processing the read
+	 * values.
+	 * 
+	 * @return The amount of failures
+	 */
+	public long getFailureAmount() {
+		return this.mFailures.get();
+	}
+
+	/**
+	 * Gets the amount of groups, i.e. the amount of distinct pairs of process
+	 * and interval.
+	 * 
+	 * @return The amount of groups
+	 */
+	public int getGroupAmount() {
+		synchronized (this.mGroups) {
+			int amount = 0;
+			for (final Map<Long, BatchGroup<T>> groupsOfProcess : this.mGroups.values()) {
+				amount += groupsOfProcess.size();
+			}
+			return amount;
+		}
+	}
+
+	/**
+	 * Gets the maximal lag between the deadline of a group and the start of
+	 * its execution.
+	 * 
+	 * @return The maximal lag, in nanoseconds
+	 */
+	public long getMaxLag() {
+		return this.mMaxLag.get();
+	}
+
+	/**
+	 * Gets the amount of overruns, i.e. deadlines that were skipped since the
+	 * previous execution of the group had not finished yet.
+	 * 
+	 * @return The amount of overruns
+	 */
+	public long getOverrunAmount() {
+		return this.mOverruns.get();
+	}
+
+	/**
+	 * Gets the amount of read operations issued for reading the targets.
+	 * Reads for resolving chains are not included.
+	 * 
+	 * @return The amount of read operations
+	 */
+	public long getReadCallAmount() {
+		return this.mReadCalls.get();
+	}
+
+	/**
+	 * Whether the scheduler is running or not.
+	 * 
+	 * @return <tt>True</tt> if the scheduler is running, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isRunning() {
+		return this.mRunning;
+	}
+
+	/**
+	 * Resets all collected metrics.
+	 */
+	public void resetMetrics() {
+		this.mExecutions.set(0);
+		this.mTotalLag.set(0);
+		this.mMaxLag.set(0);
+		this.mOverruns.set(0);
+		this.mReadCalls.set(0);
+		this.mFailures.set(0);
+	}
+
+	/**
+	 * Stops the scheduler. Targets stay registered and are served again once
+	 * the scheduler gets restarted. Executions that are currently in progress
+	 * are completed.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the scheduler is not running
+	 */
+	public void shutdown() throws IllegalStateException {
+		synchronized (this.mGroups) {
+			if (!this.mRunning) {
+				throw new IllegalStateException(ErrorMessages.SERVICE_NOT_RUNNING);
+			}
+			this.mRunning = false;
+			this.mWheel.shutdown();
+			this.mExecutor.shutdown();
+			this.mExecutor = null;
+		}
+	}
+
+	/**
+	 * Starts the scheduler.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the scheduler is already running
+	 */
+	public void start() throws IllegalStateException {
+		synchronized (this.mGroups) {
+			if (this.mRunning) {
+				throw new IllegalStateException(ErrorMessages.SERVICE_ALREADY_RUNNING);
+			}
+			final AtomicInteger threadCounter = new AtomicInteger();
+			final String workerThreadName = this.mWorkerThreadName;
+			this.mExecutor = Executors.newFixedThreadPool(this.mWorkerAmount, new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, workerThreadName + threadCounter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			this.mRunning = true;
+			this.mWheel.start();
+			for (final Map<Long, BatchGroup<T>> groupsOfProcess : this.mGroups.values()) {
+				for (final BatchGroup<T> group : groupsOfProcess.values()) {
+					group.schedule();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a new empty group for the given process and interval.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the targets of the group belong
+	 *            to
+	 * @param interval
+	 *            Interval of the group, in milliseconds
+	 * @return The created group
+	 */
+	protected abstract BatchGroup<T> createGroup(final MemAccess memManipulator, final long interval);
+
+	/**
+	 * Gets the amount of registered targets.
+	 * 
+	 * @return The amount of registered targets
+	 */
+	protected final int getTargetAmount() {
+		synchronized (this.mGroups) {
+			return this.mTargetAmount;
+		}
+	}
+
+	/**
+	 * Registers the given target. It gets read once per interval from the
+	 * next deadline of its group on.
+	 * 
+	 * @param target
+	 *            The target to register
+	 * @return The registered target
+	 */
+	protected final T register(final T target) {
+		synchronized (this.mGroups) {
+			final MemAccess memManipulator = target.getMemManipulator();
+			Map<Long, BatchGroup<T>> groupsOfProcess = this.mGroups.get(memManipulator);
+			if (groupsOfProcess == null) {
+				groupsOfProcess = new HashMap<>();
+				this.mGroups.put(memManipulator, groupsOfProcess);
+			}
+			final Long interval = Long.valueOf(target.getInterval());
+			BatchGroup<T> group = groupsOfProcess.get(interval);
+			if (group == null) {
+				group = createGroup(memManipulator, target.getInterval());
+				groupsOfProcess.put(interval, group);
+				if (this.mRunning) {
+					group.schedule();
+				}
+			}
+			group.add(target);
+			this.mTargetAmount++;
+		}
+		return target;
+	}
+
+	/**
+	 * Removes the given target from the scheduler. Removing a target that was
+	 * already removed has no effect.
+	 * 
+	 * @param target
+	 *            The target to remove
+	 */
+	protected final void unregister(final T target) {
+		synchronized (this.mGroups) {
+			if (target.isCancelled()) {
+				return;
+			}
+			target.setCancelled();
+			this.mTargetAmount--;
+
+			final Map<Long, BatchGroup<T>> groupsOfProcess = this.mGroups.get(target.getMemManipulator());
+			final Long interval = Long.valueOf(target.getInterval());
+			final BatchGroup<T> group = groupsOfProcess.get(interval);
+			if (group.remove(target)) {
+				group.cancel();
+				groupsOfProcess.remove(interval);
+				if (groupsOfProcess.isEmpty()) {
+					this.mGroups.remove(target.getMemManipulator());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dispatches the execution of the given group to the worker threads.
+	 * 
+	 * @param group
+	 *            The group to execute
+	 */
+	void dispatch(final BatchGroup<T> group) {
+		final ExecutorService executor = this.mExecutor;
+		try {
+			if (executor == null) {
+				throw new RejectedExecutionException();
+			}
+			executor.execute(group);
+		} catch (final RejectedExecutionException e) {
+			// The scheduler was shut down in the meantime
+			group.release();
+		}
+	}
+
+	/**
+	 * Gets the timing wheel that schedules the groups.
+	 * 
+	 * @return The timing wheel that schedules the groups
+	 */
+	TimingWheel getWheel() {
+		return this.mWheel;
+	}
+
+	/**
+	 * Records the execution of a group.
+	 * 
+	 * @param readCalls
+	 *            Amount of issued read operations
+	 * @param failures
+	 *            Amount of failed resolutions, reads and processings
+	 */
+	void recordExecution(final int readCalls, final int failures) {
+		this.mExecutions.incrementAndGet();
+		this.mReadCalls.addAndGet(readCalls);
+		this.mFailures.addAndGet(failures);
+	}
+
+	/**
+	 * Records the lag between the deadline of a group and the start of its
+	 * execution.
+	 * 
+	 * @param lag
+	 *            The lag to record, in nanoseconds
+	 */
+	void recordLag(final long lag) {
+		this.mTotalLag.addAndGet(lag);
+		long currentMax = this.mMaxLag.get();
+		while (lag > currentMax && !this.mMaxLag.compareAndSet(currentMax, lag)) {
+			currentMax = this.mMaxLag.get();
+		}
+	}
+
+	/**
+	 * Records skipped deadlines.
+	 * 
+	 * @param overruns
+	 *            Amount of skipped deadlines
+	 */
+	void recordOverruns(final long overruns) {
+		this.mOverruns.addAndGet(overruns);
+	}
+}
@@ -0,0 +1,151 @@
+package de.zabuza.memeaterbug.memory.schedule;
+
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.PointerChain;
+
+/**
+ * A target in the memory of a process that is periodically read by a
+ * {@link BatchScheduler}. The target is either a fixed address or given by a
+ * {@link PointerChain} which gets resolved again before every read.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public abstract class ScheduledTarget {
+	/**
+	 * Whether the target was cancelled.
+	 */
+	private volatile boolean mCancelled;
+	/**
+	 * Chain that leads to the target address or <tt>null</tt> if the address
+	 * is fixed.
+	 */
+	private final PointerChain mChain;
+	/**
+	 * Interval in which the target is read, in milliseconds.
+	 */
+	private final long mInterval;
+	/**
+	 * Manipulator of the process the target belongs to.
+	 */
+	private final MemAccess mMemManipulator;
+	/**
+	 * The target address. For chains it is the address the chain was last
+	 * resolved to or <tt>-1</tt> if it could not be resolved yet.
+	 */
+	private volatile long mResolvedAddress;
+	/**
+	 * Size of the value at the target, in bytes.
+	 */
+	private final int mSize;
+
+	/**
+	 * Creates a new target.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the target belongs to
+	 * @param address
+	 *            The fixed target address, only used if there is no chain
+	 * @param chain
+	 *            Chain that leads to the target address or <tt>null</tt> if
+	 *            the address is fixed
+	 * @param size
+	 *            Size of the value at the target, in bytes
+	 * @param interval
+	 *            Interval in which the target is read, in milliseconds
+	 */
+	protected ScheduledTarget(final MemAccess memManipulator, final long address, final PointerChain chain,
+			final int size, final long interval) {
+		this.mMemManipulator = memManipulator;
+		this.mChain = chain;
+		this.mSize = size;
+		this.mInterval = interval;
+		this.mCancelled = false;
+		if (chain == null) {
+			this.mResolvedAddress = address;
+		} else {
+			this.mResolvedAddress = -1;
+		}
+	}
+
+	/**
+	 * Cancels the target. It is not read anymore, an execution that is
+	 * currently in progress may still complete.
+	 */
+	public abstract void cancel();
+
+	/**
+	 * Gets the chain that leads to the target address.
+	 * 
+	 * @return The chain that leads to the target address or <tt>null</tt> if
+	 *         the address is fixed
+	 */
+	public PointerChain getChain() {
+		return this.mChain;
+	}
+
+	/**
+	 * Gets the interval in which the target is read.
+	 * 
+	 * @return The interval in which the target is read, in milliseconds
+	 */
+	public long getInterval() {
+		return this.mInterval;
+	}
+
+	/**
+	 * Gets the manipulator of the process the target belongs to.
+	 * 
+	 * @return The manipulator of the process the target belongs to
+	 */
+	public MemAccess getMemManipulator() {
+		return this.mMemManipulator;
+	}
+
+	/**
+	 * Gets the target address. For fixed targets this is the given address,
+	 * for chains it is the address the chain was last resolved to.
+	 * 
+	 * @return The target address or <tt>-1</tt> if the chain could not be
+	 *         resolved yet
+	 */
+	public long getResolvedAddress() {
+		return this.mResolvedAddress;
+	}
+
+	/**
+	 * Gets the size of the value at the target.
+	 * 
+	 * @return The size of the value at the target, in bytes
+	 */
+	public int getSize() {
+		return this.mSize;
+	}
+
+	/**
+	 * Whether the target was cancelled or not.
+	 * 
+	 * @return <tt>True</tt> if the target was cancelled, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isCancelled() {
+		return this.mCancelled;
+	}
+
+	/**
+	 * Marks the target as cancelled.
+	 */
+	void setCancelled() {
+		this.mCancelled = true;
+	}
+
+	/**
+	 * Sets the address the chain of the target was resolved to.
+	 * 
+	 * @param resolvedAddress
+	 *            The address to set
+	 */
+	void setResolvedAddress(final long resolvedAddress) {
+		this.mResolvedAddress = resolvedAddress;
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains the scheduling shared by services that periodically
+ * read targets in the memory of processes in coalesced batches.
+ */
+package de.zabuza.memeaterbug.memory.schedule;
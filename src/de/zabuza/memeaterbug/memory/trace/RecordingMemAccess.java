@@ -0,0 +1,261 @@
+package de.zabuza.memeaterbug.memory.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.sun.jna.Memory;
+import com.sun.jna.platform.win32.Win32Exception;
+
+import de.zabuza.memeaterbug.exceptions.MemAccessException;
+import de.zabuza.memeaterbug.memory.MemAccess;
+
+/**
+ * Decorator of a {@link MemAccess} that records every access into a trace,
+ * which can later be replayed by a {@link ReplayMemAccess} without the target
+ * process.<br/>
+ * <br/>
+ * All accesses are forwarded to the decorated object and a record holding
+ * the address, the amount of bytes and the read or written bytes, or their
+ * hash, is appended to the {@link TraceWriter}. Accesses that fail are
+ * recorded as failed and the exception is rethrown. Dynamic addresses are
+ * resolved by this object, such that every followed pointer is recorded.<br/>
+ * <br/>
+ * Recording never lets an access fail. If the trace could not be written, the
+ * error is remembered, recording stops and the error is reported by
+ * {@link #getFailure()} and {@link #close()}. Accesses after {@link #close()}
+ * are still forwarded, but no longer recorded.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class RecordingMemAccess implements MemAccess, Closeable {
+	/**
+	 * Size of an integer, in bytes.
+	 */
+	private static final int INT_SIZE = 4;
+
+	/**
+	 * Whether recording has stopped since the writer was closed.
+	 */
+	private volatile boolean mClosed;
+	/**
+	 * The object that serves all accesses.
+	 */
+	private final MemAccess mDelegate;
+	/**
+	 * Error that occurred while writing the trace or <tt>null</tt> if there
+	 * was none.
+	 */
+	private volatile IOException mFailure;
+	/**
+	 * Writer the records get appended to.
+	 */
+	private final TraceWriter mWriter;
+
+	/**
+	 * Creates a new recording decorator.
+	 * 
+	 * @param delegate
+	 *            The object that serves all accesses
+	 * @param writer
+	 *            Writer the records get appended to. It gets closed together
+	 *            with this object.
+	 */
+	public RecordingMemAccess(final MemAccess delegate, final TraceWriter writer) {
+		this.mDelegate = delegate;
+		this.mWriter = writer;
+		this.mFailure = null;
+		this.mClosed = false;
+	}
+
+	/**
+	 * Stops recording and closes the writer of the trace. Further accesses
+	 * are still forwarded to the decorated object.
+	 * 
+	 * @throws IOException
+	 *             If the trace could not be written completely
+	 */
+	@Override
+	public void close() throws IOException {
+		this.mClosed = true;
+		this.mWriter.close();
+		final IOException failure = this.mFailure;
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#getBaseAddress()
+	 */
+	@Override
+	public long getBaseAddress() {
+		final long baseAddress = this.mDelegate.getBaseAddress();
+		record(TraceOperation.BASE_ADDRESS, baseAddress, null, 0, 0);
+		return baseAddress;
+	}
+
+	/**
+	 * Gets the object that serves all accesses.
+	 * 
+	 * @return The decorated object
+	 */
+	public MemAccess getDelegate() {
+		return this.mDelegate;
+	}
+
+	/**
+	 * Gets the error that occurred while writing the trace. Once an error
+	 * occurred, no further accesses are recorded.
+	 * 
+	 * @return The error or <tt>null</tt> if there was none
+	 */
+	public IOException getFailure() {
+		return this.mFailure;
+	}
+
+	/**
+	 * Gets the writer the records get appended to.
+	 * 
+	 * @return The writer of the trace
+	 */
+	public TraceWriter getWriter() {
+		return this.mWriter;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#readInt(long)
+	 */
+	@Override
+	public int readInt(final long address) {
+		final int value;
+		try {
+			value = this.mDelegate.readInt(address);
+		} catch (final Win32Exception | MemAccessException e) {
+			record(TraceOperation.READ_FAILED, address, null, 0, INT_SIZE);
+			throw e;
+		}
+		final byte[] bytes = ByteBuffer.allocate(INT_SIZE).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+		record(TraceOperation.READ, address, bytes, 0, INT_SIZE);
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#readMemory(long, byte[], int,
+	 * int)
+	 */
+	@Override
+	public void readMemory(final long address, final byte[] buffer, final int offset, final int bytesToRead) {
+		try {
+			this.mDelegate.readMemory(address, buffer, offset, bytesToRead);
+		} catch (final Win32Exception | MemAccessException e) {
+			record(TraceOperation.READ_FAILED, address, null, 0, bytesToRead);
+			throw e;
+		}
+		record(TraceOperation.READ, address, buffer, offset, bytesToRead);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#readMemory(long, int)
+	 */
+	@Override
+	public Memory readMemory(final long address, final int bytesToRead) {
+		final Memory memory;
+		try {
+			memory = this.mDelegate.readMemory(address, bytesToRead);
+		} catch (final Win32Exception | MemAccessException e) {
+			record(TraceOperation.READ_FAILED, address, null, 0, bytesToRead);
+			throw e;
+		}
+		if (this.mFailure == null) {
+			record(TraceOperation.READ, address, memory.getByteArray(0, bytesToRead), 0, bytesToRead);
+		}
+		return memory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#writeInt(long, int)
+	 */
+	@Override
+	public void writeInt(final long address, final int valueToWrite) {
+		try {
+			this.mDelegate.writeInt(address, valueToWrite);
+		} catch (final Win32Exception | MemAccessException e) {
+			record(TraceOperation.WRITE_FAILED, address, null, 0, INT_SIZE);
+			throw e;
+		}
+		final byte[] bytes = ByteBuffer.allocate(INT_SIZE).order(ByteOrder.LITTLE_ENDIAN).putInt(valueToWrite)
+				.array();
+		record(TraceOperation.WRITE, address, bytes, 0, INT_SIZE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#writeMemory(long, byte[])
+	 */
+	@Override
+	public void writeMemory(final long address, final byte[] bytesToWrite) {
+		writeMemory(address, bytesToWrite, 0, bytesToWrite.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#writeMemory(long, byte[],
+	 * int, int)
+	 */
+	@Override
+	public void writeMemory(final long address, final byte[] bytesToWrite, final int offset, final int length) {
+		try {
+			this.mDelegate.writeMemory(address, bytesToWrite, offset, length);
+		} catch (final Win32Exception | MemAccessException e) {
+			record(TraceOperation.WRITE_FAILED, address, null, 0, length);
+			throw e;
+		}
+		record(TraceOperation.WRITE, address, bytesToWrite, offset, length);
+	}
+
+	/**
+	 * Appends a record to the trace, unless writing the trace failed before.
+	 * 
+	 * @param operation
+	 *            Type of the operation
+	 * @param address
+	 *            Address the operation accessed
+	 * @param data
+	 *            Array holding the accessed bytes, ignored if the operation
+	 *            has no content
+	 * @param offset
+	 *            Index of the first accessed byte in the array
+	 * @param length
+	 *            Amount of accessed bytes
+	 */
+	private void record(final TraceOperation operation, final long address, final byte[] data, final int offset,
+			final int length) {
+		if (this.mClosed || this.mFailure != null) {
+			return;
+		}
+		try {
+			this.mWriter.append(operation, address, data, offset, length);
+		} catch (final IOException e) {
+			this.mFailure = e;
+		} catch (final IllegalStateException e) {
+			// The writer was closed concurrently or by its owner, recording
+			// stops without affecting the access
+			this.mClosed = true;
+		}
+	}
+}
@@ -0,0 +1,352 @@
+package de.zabuza.memeaterbug.memory.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.jna.Memory;
+
+import de.zabuza.memeaterbug.exceptions.MemAccessException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.memory.MemAccess;
+
+/**
+ * Backend that serves accesses from a recorded trace instead of a process,
+ * such that caches, batches and other consumers of a {@link MemAccess} can be
+ * run deterministically on the traffic of a real session.<br/>
+ * <br/>
+ * The replay reconstructs the memory of the process from the recorded reads
+ * and writes. A cursor walks through the records of the trace and all records
+ * up to the cursor have been applied to the memory. Bytes that are first
+ * recorded after the cursor hold the value they were first seen with, thus
+ * every recorded byte is readable at any time. Reads that touch a page of
+ * which no byte was ever recorded throw a {@link MemAccessException}.<br/>
+ * <br/>
+ * By default every access first advances the cursor by one record, thus
+ * repeating the recorded sequence of accesses reads exactly the recorded
+ * values, while a consumer that accesses differently, for example by merging
+ * reads, sees the memory change at the pace of its own accesses.
+ * Alternatively the cursor can be driven explicitly by {@link #seek(long)}.
+ * Writes are applied to the reconstructed memory. Recorded failures are not
+ * reproduced, except for reads of pages that were never recorded.<br/>
+ * <br/>
+ * Only traces that store the {@link TraceContent#BYTES bytes} can be
+ * replayed. The replay may be used by many threads at once.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ReplayMemAccess implements MemAccess {
+	/**
+	 * Size of an integer, in bytes.
+	 */
+	private static final int INT_SIZE = 4;
+	/**
+	 * Binary logarithm of the size of a page of the reconstructed memory.
+	 */
+	private static final int PAGE_SHIFT = 12;
+	/**
+	 * Size of a page of the reconstructed memory, in bytes.
+	 */
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+	/**
+	 * Creates a replay of the given trace file.
+	 * 
+	 * @param file
+	 *            The trace file to replay
+	 * @return The replay of the trace
+	 * @throws IOException
+	 *             If the trace could not be read
+	 * @throws IllegalArgumentException
+	 *             If the trace only stores hashes
+	 */
+	public static ReplayMemAccess load(final File file) throws IOException, IllegalArgumentException {
+		try (final TraceReader reader = new TraceReader(file)) {
+			if (reader.getContent() != TraceContent.BYTES) {
+				throw new IllegalArgumentException(ErrorMessages.TRACE_NOT_REPLAYABLE + file);
+			}
+			return new ReplayMemAccess(reader.readAll());
+		}
+	}
+
+	/**
+	 * Whether every access advances the cursor by one record.
+	 */
+	private volatile boolean mAdvanceOnAccess;
+	/**
+	 * Base address of the recorded process.
+	 */
+	private final long mBaseAddress;
+	/**
+	 * Pages of the reconstructed memory, accessed by their index.
+	 */
+	private final Map<Long, byte[]> mPages;
+	/**
+	 * Index of the next record to apply.
+	 */
+	private int mPosition;
+	/**
+	 * Records of the trace, in the order they were recorded.
+	 */
+	private final TraceRecord[] mRecords;
+
+	/**
+	 * Creates a replay of the given records.
+	 * 
+	 * @param records
+	 *            Records of the trace, in the order they were recorded
+	 * @throws IllegalArgumentException
+	 *             If a record that has content does not store its bytes
+	 */
+	public ReplayMemAccess(final List<TraceRecord> records) throws IllegalArgumentException {
+		this.mRecords = records.toArray(new TraceRecord[records.size()]);
+		this.mPages = new HashMap<>();
+		this.mPosition = 0;
+		this.mAdvanceOnAccess = true;
+
+		long baseAddress = 0;
+		for (int i = this.mRecords.length - 1; i >= 0; i--) {
+			final TraceRecord record = this.mRecords[i];
+			if (record.getOperation() == TraceOperation.BASE_ADDRESS) {
+				baseAddress = record.getAddress();
+			} else if (record.getOperation().hasContent() && record.getContent() == null) {
+				throw new IllegalArgumentException(ErrorMessages.TRACE_NOT_REPLAYABLE + record);
+			}
+		}
+		this.mBaseAddress = baseAddress;
+		reconstruct();
+	}
+
+	/**
+	 * Applies the next record of the trace to the reconstructed memory.
+	 * 
+	 * @return <tt>True</tt> if a record was applied, <tt>false</tt> if the end
+	 *         of the trace was reached
+	 */
+	public synchronized boolean advance() {
+		if (this.mPosition >= this.mRecords.length) {
+			return false;
+		}
+		final TraceRecord record = this.mRecords[this.mPosition];
+		if (record.getOperation().hasContent()) {
+			store(record.getAddress(), record.getContent(), 0, record.getLength());
+		}
+		this.mPosition++;
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#getBaseAddress()
+	 */
+	@Override
+	public synchronized long getBaseAddress() {
+		if (this.mAdvanceOnAccess) {
+			advance();
+		}
+		return this.mBaseAddress;
+	}
+
+	/**
+	 * Gets the index of the next record to apply.
+	 * 
+	 * @return The index of the next record, equal to the amount of records if
+	 *         the end of the trace was reached
+	 */
+	public synchronized int getPosition() {
+		return this.mPosition;
+	}
+
+	/**
+	 * Gets the amount of records of the trace.
+	 * 
+	 * @return The amount of records
+	 */
+	public int getRecordAmount() {
+		return this.mRecords.length;
+	}
+
+	/**
+	 * Whether every access advances the cursor by one record.
+	 * 
+	 * @return <tt>True</tt> if accesses advance the cursor, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isAdvanceOnAccess() {
+		return this.mAdvanceOnAccess;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#readInt(long)
+	 */
+	@Override
+	public int readInt(final long address) {
+		final byte[] bytes = new byte[INT_SIZE];
+		readMemory(address, bytes, 0, INT_SIZE);
+		return (bytes[0] & 0xFF) | (bytes[1] & 0xFF) << 8 | (bytes[2] & 0xFF) << 16 | (bytes[3] & 0xFF) << 24;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#readMemory(long, byte[], int,
+	 * int)
+	 */
+	@Override
+	public synchronized void readMemory(final long address, final byte[] buffer, final int offset,
+			final int bytesToRead) {
+		if (this.mAdvanceOnAccess) {
+			advance();
+		}
+		long current = address;
+		int copied = 0;
+		while (copied < bytesToRead) {
+			final byte[] page = this.mPages.get(Long.valueOf(current >>> PAGE_SHIFT));
+			if (page == null) {
+				throw new MemAccessException(ErrorMessages.MEMORY_NOT_ACCESSIBLE + Long.toHexString(current));
+			}
+			final int pageOffset = (int) (current & (PAGE_SIZE - 1));
+			final int length = Math.min(PAGE_SIZE - pageOffset, bytesToRead - copied);
+			System.arraycopy(page, pageOffset, buffer, offset + copied, length);
+			copied += length;
+			current += length;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#readMemory(long, int)
+	 */
+	@Override
+	public Memory readMemory(final long address, final int bytesToRead) {
+		final byte[] bytes = new byte[bytesToRead];
+		readMemory(address, bytes, 0, bytesToRead);
+		final Memory memory = new Memory(bytesToRead);
+		memory.write(0, bytes, 0, bytesToRead);
+		return memory;
+	}
+
+	/**
+	 * Moves the cursor to the given time of the trace. Records that completed
+	 * until then get applied, if the cursor is moved backwards the memory is
+	 * reconstructed from the start of the trace. Writes issued on the replay
+	 * are lost in the latter case.
+	 * 
+	 * @param timestamp
+	 *            The time to move to, in nanoseconds since the start of the
+	 *            trace
+	 */
+	public synchronized void seek(final long timestamp) {
+		if (this.mPosition > 0 && this.mRecords[this.mPosition - 1].getTimestamp() > timestamp) {
+			reconstruct();
+		}
+		while (this.mPosition < this.mRecords.length && this.mRecords[this.mPosition].getTimestamp() <= timestamp) {
+			advance();
+		}
+	}
+
+	/**
+	 * Sets whether every access advances the cursor by one record.
+	 * 
+	 * @param advanceOnAccess
+	 *            <tt>True</tt> if accesses should advance the cursor,
+	 *            <tt>false</tt> if it is only moved explicitly
+	 */
+	public void setAdvanceOnAccess(final boolean advanceOnAccess) {
+		this.mAdvanceOnAccess = advanceOnAccess;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#writeInt(long, int)
+	 */
+	@Override
+	public void writeInt(final long address, final int valueToWrite) {
+		final byte[] bytes = new byte[INT_SIZE];
+		for (int i = 0; i < INT_SIZE; i++) {
+			bytes[i] = (byte) (valueToWrite >>> (i * Byte.SIZE));
+		}
+		writeMemory(address, bytes, 0, INT_SIZE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#writeMemory(long, byte[])
+	 */
+	@Override
+	public void writeMemory(final long address, final byte[] bytesToWrite) {
+		writeMemory(address, bytesToWrite, 0, bytesToWrite.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#writeMemory(long, byte[],
+	 * int, int)
+	 */
+	@Override
+	public synchronized void writeMemory(final long address, final byte[] bytesToWrite, final int offset,
+			final int length) {
+		if (this.mAdvanceOnAccess) {
+			advance();
+		}
+		store(address, bytesToWrite, offset, length);
+	}
+
+	/**
+	 * Reconstructs the memory as it was at the start of the trace, which is
+	 * the value every recorded byte was first seen with, and moves the cursor
+	 * to the first record.
+	 */
+	private void reconstruct() {
+		this.mPages.clear();
+		// Apply in reverse such that the first seen value of every byte wins
+		for (int i = this.mRecords.length - 1; i >= 0; i--) {
+			final TraceRecord record = this.mRecords[i];
+			if (record.getOperation().hasContent()) {
+				store(record.getAddress(), record.getContent(), 0, record.getLength());
+			}
+		}
+		this.mPosition = 0;
+	}
+
+	/**
+	 * Stores the given bytes in the reconstructed memory, creating pages as
+	 * needed.
+	 * 
+	 * @param address
+	 *            Address to store the bytes at
+	 * @param data
+	 *            Array holding the bytes
+	 * @param offset
+	 *            Index of the first byte to store
+	 * @param length
+	 *            Amount of bytes to store
+	 */
+	private void store(final long address, final byte[] data, final int offset, final int length) {
+		long current = address;
+		int copied = 0;
+		while (copied < length) {
+			final Long pageIndex = Long.valueOf(current >>> PAGE_SHIFT);
+			byte[] page = this.mPages.get(pageIndex);
+			if (page == null) {
+				page = new byte[PAGE_SIZE];
+				this.mPages.put(pageIndex, page);
+			}
+			final int pageOffset = (int) (current & (PAGE_SIZE - 1));
+			final int amount = Math.min(PAGE_SIZE - pageOffset, length - copied);
+			System.arraycopy(data, offset + copied, page, pageOffset, amount);
+			copied += amount;
+			current += amount;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package de.zabuza.memeaterbug.memory.trace;
+
+/**
+ * Ways in which the accessed bytes are stored in a trace.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public enum TraceContent {
+	/**
+	 * The accessed bytes are stored completely. Such traces can be replayed.
+	 */
+	BYTES,
+	/**
+	 * Only a hash of the accessed bytes is stored. Such traces are much
+	 * smaller and reveal the access pattern and whether values changed, but
+	 * they can not be replayed.
+	 */
+	HASH;
+}
@@ -0,0 +1,56 @@
+package de.zabuza.memeaterbug.memory.trace;
+
+/**
+ * Types of operations that are stored in a trace.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public enum TraceOperation {
+	/**
+	 * Successful read of a range of memory. The record holds the read bytes.
+	 */
+	READ(true),
+	/**
+	 * Successful write to a range of memory. The record holds the written
+	 * bytes.
+	 */
+	WRITE(true),
+	/**
+	 * Read of a range of memory that failed since it was not accessible.
+	 */
+	READ_FAILED(false),
+	/**
+	 * Write to a range of memory that failed since it was not accessible.
+	 */
+	WRITE_FAILED(false),
+	/**
+	 * Query of the base address, which is stored as address of the record.
+	 */
+	BASE_ADDRESS(false);
+
+	/**
+	 * Whether records of the operation hold the accessed bytes.
+	 */
+	private final boolean mHasContent;
+
+	/**
+	 * Creates a new operation.
+	 * 
+	 * @param hasContent
+	 *            Whether records of the operation hold the accessed bytes
+	 */
+	private TraceOperation(final boolean hasContent) {
+		this.mHasContent = hasContent;
+	}
+
+	/**
+	 * Whether records of the operation hold the accessed bytes, or their hash.
+	 * 
+	 * @return <tt>True</tt> if records hold the accessed bytes, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean hasContent() {
+		return this.mHasContent;
+	}
+}
@@ -0,0 +1,188 @@
+package de.zabuza.memeaterbug.memory.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+
+/**
+ * Reads the records of a trace that was written by a {@link TraceWriter}, in
+ * the order they were appended.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class TraceReader implements Closeable {
+	/**
+	 * Size of the buffer of the underlying stream, in bytes.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * How the accessed bytes are stored in the trace.
+	 */
+	private final TraceContent mContent;
+	/**
+	 * Stream to read records from.
+	 */
+	private final DataInputStream mInput;
+	/**
+	 * Address of the previous record.
+	 */
+	private long mLastAddress;
+	/**
+	 * Timestamp of the previous record, in nanoseconds since the start.
+	 */
+	private long mLastTimestamp;
+	/**
+	 * Time the trace started, in milliseconds since the epoch.
+	 */
+	private final long mStartTime;
+
+	/**
+	 * Creates a new reader for the given trace file and reads its header.
+	 * 
+	 * @param file
+	 *            The trace file to read
+	 * @throws IOException
+	 *             If the file could not be read or is not a trace
+	 */
+	public TraceReader(final File file) throws IOException {
+		this.mInput = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+		try {
+			if (this.mInput.readInt() != TraceWriter.MAGIC || this.mInput.readInt() != TraceWriter.VERSION) {
+				throw new IOException(ErrorMessages.TRACE_INVALID + file);
+			}
+			final int content = this.mInput.readUnsignedByte();
+			if (content >= TraceContent.values().length) {
+				throw new IOException(ErrorMessages.TRACE_INVALID + file);
+			}
+			this.mContent = TraceContent.values()[content];
+			this.mStartTime = this.mInput.readLong();
+		} catch (final IOException e) {
+			this.mInput.close();
+			throw e;
+		}
+		this.mLastAddress = 0;
+		this.mLastTimestamp = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.mInput.close();
+	}
+
+	/**
+	 * Gets how the accessed bytes are stored in the trace.
+	 * 
+	 * @return How the accessed bytes are stored
+	 */
+	public TraceContent getContent() {
+		return this.mContent;
+	}
+
+	/**
+	 * Gets the time the trace started.
+	 * 
+	 * @return The time the trace started, in milliseconds since the epoch
+	 */
+	public long getStartTime() {
+		return this.mStartTime;
+	}
+
+	/**
+	 * Reads the next record of the trace.
+	 * 
+	 * @return The next record or <tt>null</tt> if the end of the trace was
+	 *         reached
+	 * @throws IOException
+	 *             If the trace could not be read or is malformed. A trace that
+	 *             was not closed properly may end with a truncated record,
+	 *             which is also reported as end of the trace.
+	 */
+	public TraceRecord next() throws IOException {
+		final int type = this.mInput.read();
+		if (type == -1) {
+			return null;
+		}
+		if (type >= TraceOperation.values().length) {
+			throw new IOException(ErrorMessages.TRACE_INVALID + type);
+		}
+		final TraceOperation operation = TraceOperation.values()[type];
+		try {
+			final long timestamp = this.mLastTimestamp + readVarLong();
+			final long zigZagDelta = readVarLong();
+			final long address = this.mLastAddress + ((zigZagDelta >>> 1) ^ -(zigZagDelta & 1));
+			final long length = readVarLong();
+			if (length < 0 || length > Integer.MAX_VALUE) {
+				throw new IOException(ErrorMessages.TRACE_INVALID + length);
+			}
+
+			byte[] content = null;
+			long hash = 0;
+			if (operation.hasContent()) {
+				if (this.mContent == TraceContent.BYTES) {
+					content = new byte[(int) length];
+					this.mInput.readFully(content);
+					hash = TraceRecord.hash(content, 0, content.length);
+				} else {
+					hash = this.mInput.readLong();
+				}
+			}
+
+			this.mLastTimestamp = timestamp;
+			this.mLastAddress = address;
+			return new TraceRecord(operation, timestamp, address, (int) length, content, hash);
+		} catch (final EOFException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reads all remaining records of the trace.
+	 * 
+	 * @return The remaining records, in the order they were appended
+	 * @throws IOException
+	 *             If the trace could not be read or is malformed
+	 */
+	public List<TraceRecord> readAll() throws IOException {
+		final List<TraceRecord> records = new ArrayList<>();
+		TraceRecord record = next();
+		while (record != null) {
+			records.add(record);
+			record = next();
+		}
+		return records;
+	}
+
+	/**
+	 * Reads a variable length quantity as written by the {@link TraceWriter}.
+	 * 
+	 * @return The read value
+	 * @throws IOException
+	 *             If the stream could not be read or the quantity is too long
+	 */
+	private long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			final int group = this.mInput.readUnsignedByte();
+			value |= (long) (group & 0x7F) << shift;
+			if ((group & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException(ErrorMessages.TRACE_INVALID + value);
+	}
+}
@@ -0,0 +1,164 @@
+package de.zabuza.memeaterbug.memory.trace;
+
+/**
+ * A single operation stored in a trace.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class TraceRecord {
+	/**
+	 * Offset basis of the 64 bit FNV-1a hash.
+	 */
+	private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+	/**
+	 * Prime of the 64 bit FNV-1a hash.
+	 */
+	private static final long FNV_PRIME = 0x100000001B3L;
+
+	/**
+	 * Computes the hash of the given bytes, as stored in traces that only hold
+	 * {@link TraceContent#HASH hashes}. It is the 64 bit FNV-1a hash.
+	 * 
+	 * @param data
+	 *            Array holding the bytes to hash
+	 * @param offset
+	 *            Index of the first byte to hash
+	 * @param length
+	 *            Amount of bytes to hash
+	 * @return The hash of the bytes
+	 */
+	public static long hash(final byte[] data, final int offset, final int length) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = offset; i < offset + length; i++) {
+			hash ^= data[i] & 0xFF;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Address the operation accessed.
+	 */
+	private final long mAddress;
+	/**
+	 * The accessed bytes or <tt>null</tt> if not stored.
+	 */
+	private final byte[] mContent;
+	/**
+	 * Hash of the accessed bytes or <tt>0</tt> if not stored.
+	 */
+	private final long mHash;
+	/**
+	 * Amount of accessed bytes.
+	 */
+	private final int mLength;
+	/**
+	 * Type of the operation.
+	 */
+	private final TraceOperation mOperation;
+	/**
+	 * Time the operation completed, in nanoseconds since the start of the
+	 * trace.
+	 */
+	private final long mTimestamp;
+
+	/**
+	 * Creates a new record.
+	 * 
+	 * @param operation
+	 *            Type of the operation
+	 * @param timestamp
+	 *            Time the operation completed, in nanoseconds since the start
+	 *            of the trace
+	 * @param address
+	 *            Address the operation accessed
+	 * @param length
+	 *            Amount of accessed bytes
+	 * @param content
+	 *            The accessed bytes or <tt>null</tt> if not stored
+	 * @param hash
+	 *            Hash of the accessed bytes or <tt>0</tt> if not stored
+	 */
+	TraceRecord(final TraceOperation operation, final long timestamp, final long address, final int length,
+			final byte[] content, final long hash) {
+		this.mOperation = operation;
+		this.mTimestamp = timestamp;
+		this.mAddress = address;
+		this.mLength = length;
+		this.mContent = content;
+		this.mHash = hash;
+	}
+
+	/**
+	 * Gets the address the operation accessed. For
+	 * {@link TraceOperation#BASE_ADDRESS} this is the base address that was
+	 * returned.
+	 * 
+	 * @return The accessed address
+	 */
+	public long getAddress() {
+		return this.mAddress;
+	}
+
+	/**
+	 * Gets the accessed bytes. The array is not copied and must not be
+	 * changed.
+	 * 
+	 * @return The accessed bytes or <tt>null</tt> if the operation has no
+	 *         content or the trace only stores hashes
+	 */
+	public byte[] getContent() {
+		return this.mContent;
+	}
+
+	/**
+	 * Gets the hash of the accessed bytes, as computed by
+	 * {@link #hash(byte[], int, int)}.
+	 * 
+	 * @return The hash of the accessed bytes or <tt>0</tt> if the operation has
+	 *         no content
+	 */
+	public long getHash() {
+		return this.mHash;
+	}
+
+	/**
+	 * Gets the amount of accessed bytes.
+	 * 
+	 * @return The amount of accessed bytes
+	 */
+	public int getLength() {
+		return this.mLength;
+	}
+
+	/**
+	 * Gets the type of the operation.
+	 * 
+	 * @return The type of the operation
+	 */
+	public TraceOperation getOperation() {
+		return this.mOperation;
+	}
+
+	/**
+	 * Gets the time the operation completed.
+	 * 
+	 * @return The time the operation completed, in nanoseconds since the start
+	 *         of the trace
+	 */
+	public long getTimestamp() {
+		return this.mTimestamp;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.mOperation + "@" + this.mTimestamp + "[0x" + Long.toHexString(this.mAddress) + ", "
+				+ this.mLength + "]";
+	}
+}
@@ -0,0 +1,372 @@
+package de.zabuza.memeaterbug.memory.trace;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes records into a trace file in a compact binary format. Records are
+ * encoded into a buffer by the calling thread and full buffers are handed
+ * over to a background thread, which writes them to a {@link FileChannel}.
+ * Thus recording does not block on the file system, unless the writer thread
+ * falls behind by more than all buffers, in which case callers wait for a
+ * free buffer.<br/>
+ * <br/>
+ * A trace starts with a header holding a magic number, the version of the
+ * format, the {@link TraceContent} and the time the trace started. Each
+ * record then consists of the ordinal of its {@link TraceOperation}, the
+ * timestamp as variable length delta to the previous record, the address as
+ * variable length and zig-zag encoded delta to the previous address, the
+ * variable length amount of bytes and finally either the accessed bytes or
+ * their hash.<br/>
+ * <br/>
+ * The writer may be used by many threads at once.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class TraceWriter implements Closeable {
+	/**
+	 * Magic number that starts every trace.
+	 */
+	static final int MAGIC = 0x4D454254;
+	/**
+	 * Version of the format of traces.
+	 */
+	static final int VERSION = 1;
+	/**
+	 * Amount of buffers that can be filled while the writer thread is busy.
+	 */
+	private static final int BUFFER_AMOUNT = 4;
+	/**
+	 * Size of a buffer, in bytes.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/**
+	 * Maximal size of a record without its content, in bytes.
+	 */
+	private static final int MAX_RECORD_HEADER_SIZE = 1 + 10 + 10 + 5;
+	/**
+	 * Buffer that signals the writer thread to terminate.
+	 */
+	private static final ByteBuffer POISON = ByteBuffer.allocate(0);
+
+	/**
+	 * Encodes the given value as variable length quantity, seven bits per
+	 * byte, least significant group first.
+	 * 
+	 * @param buffer
+	 *            Buffer to put the value into
+	 * @param value
+	 *            The value to encode, interpreted as unsigned
+	 */
+	private static void putVarLong(final ByteBuffer buffer, final long value) {
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			buffer.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		buffer.put((byte) remaining);
+	}
+
+	/**
+	 * Channel of the trace file.
+	 */
+	private final FileChannel mChannel;
+	/**
+	 * How the accessed bytes are stored.
+	 */
+	private final TraceContent mContent;
+	/**
+	 * Buffer records are currently encoded into.
+	 */
+	private ByteBuffer mCurrent;
+	/**
+	 * Error the writer thread encountered or <tt>null</tt> if there was none.
+	 */
+	private volatile IOException mFailure;
+	/**
+	 * Buffers that are free to be filled.
+	 */
+	private final BlockingQueue<ByteBuffer> mFree;
+	/**
+	 * Buffers that wait to be written by the writer thread.
+	 */
+	private final BlockingQueue<ByteBuffer> mFull;
+	/**
+	 * Address of the previous record.
+	 */
+	private long mLastAddress;
+	/**
+	 * Timestamp of the previous record, in nanoseconds since the start.
+	 */
+	private long mLastTimestamp;
+	/**
+	 * Whether the writer is open.
+	 */
+	private boolean mOpen;
+	/**
+	 * Amount of records that were appended.
+	 */
+	private long mRecordAmount;
+	/**
+	 * Start time of the trace, as value of {@link System#nanoTime()}.
+	 */
+	private final long mStartTime;
+	/**
+	 * Thread that writes full buffers to the channel.
+	 */
+	private final Thread mThread;
+
+	/**
+	 * Creates a new writer which replaces the given file by an empty trace.
+	 * 
+	 * @param file
+	 *            The file to write the trace to
+	 * @param content
+	 *            How the accessed bytes are stored
+	 * @throws IOException
+	 *             If the file could not be opened
+	 */
+	public TraceWriter(final File file, final TraceContent content) throws IOException {
+		this.mContent = content;
+		this.mChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.mFree = new ArrayBlockingQueue<>(BUFFER_AMOUNT);
+		for (int i = 1; i < BUFFER_AMOUNT; i++) {
+			this.mFree.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+		}
+		this.mFull = new LinkedBlockingQueue<>();
+		this.mCurrent = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.mFailure = null;
+		this.mLastAddress = 0;
+		this.mLastTimestamp = 0;
+		this.mRecordAmount = 0;
+		this.mStartTime = System.nanoTime();
+
+		this.mCurrent.putInt(MAGIC);
+		this.mCurrent.putInt(VERSION);
+		this.mCurrent.put((byte) content.ordinal());
+		this.mCurrent.putLong(System.currentTimeMillis());
+
+		this.mOpen = true;
+		this.mThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "Mem-Eater-Bug trace writer");
+		this.mThread.setDaemon(true);
+		this.mThread.start();
+	}
+
+	/**
+	 * Appends a record for the given operation, timestamped with the current
+	 * time.
+	 * 
+	 * @param operation
+	 *            Type of the operation
+	 * @param address
+	 *            Address the operation accessed
+	 * @param data
+	 *            Array holding the accessed bytes, ignored if the operation
+	 *            has no content
+	 * @param offset
+	 *            Index of the first accessed byte in the array
+	 * @param length
+	 *            Amount of accessed bytes
+	 * @throws IOException
+	 *             If the writer thread failed to write earlier records
+	 * @throws IllegalStateException
+	 *             If the writer is closed
+	 */
+	public synchronized void append(final TraceOperation operation, final long address, final byte[] data,
+			final int offset, final int length) throws IOException, IllegalStateException {
+		if (!this.mOpen) {
+			throw new IllegalStateException();
+		}
+		final IOException failure = this.mFailure;
+		if (failure != null) {
+			throw failure;
+		}
+
+		final boolean storesBytes = operation.hasContent() && this.mContent == TraceContent.BYTES;
+		int contentSize = 0;
+		if (operation.hasContent()) {
+			contentSize = storesBytes ? length : Long.BYTES;
+		}
+		final int recordSize = MAX_RECORD_HEADER_SIZE + contentSize;
+		if (this.mCurrent.remaining() < recordSize && this.mCurrent.position() > 0) {
+			handOver();
+		}
+		ByteBuffer buffer = this.mCurrent;
+		if (buffer.remaining() < recordSize) {
+			// Records larger than a buffer get a buffer of their own
+			buffer = ByteBuffer.allocate(recordSize);
+		}
+
+		final long timestamp = System.nanoTime() - this.mStartTime;
+		buffer.put((byte) operation.ordinal());
+		putVarLong(buffer, timestamp - this.mLastTimestamp);
+		final long addressDelta = address - this.mLastAddress;
+		putVarLong(buffer, (addressDelta << 1) ^ (addressDelta >> 63));
+		putVarLong(buffer, length);
+		if (storesBytes) {
+			buffer.put(data, offset, length);
+		} else if (operation.hasContent()) {
+			buffer.putLong(TraceRecord.hash(data, offset, length));
+		}
+		this.mLastTimestamp = timestamp;
+		this.mLastAddress = address;
+		this.mRecordAmount++;
+
+		if (buffer != this.mCurrent) {
+			enqueue(buffer);
+		}
+	}
+
+	/**
+	 * Hands over all appended records to the writer thread, waits until they
+	 * were written and closes the file. Has no effect if the writer is already
+	 * closed.
+	 * 
+	 * @throws IOException
+	 *             If the writer thread failed to write records or the file
+	 *             could not be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!this.mOpen) {
+			return;
+		}
+		this.mOpen = false;
+		try {
+			if (this.mCurrent.position() > 0) {
+				enqueue(this.mCurrent);
+			}
+			enqueue(POISON);
+			this.mThread.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.mChannel.close();
+		}
+
+		final IOException failure = this.mFailure;
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Hands over all appended records to the writer thread. Does not wait
+	 * until they were written.
+	 * 
+	 * @throws IOException
+	 *             If the writer thread failed to write earlier records
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.mOpen && this.mCurrent.position() > 0) {
+			handOver();
+		}
+		final IOException failure = this.mFailure;
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Gets how the accessed bytes are stored.
+	 * 
+	 * @return How the accessed bytes are stored
+	 */
+	public TraceContent getContent() {
+		return this.mContent;
+	}
+
+	/**
+	 * Gets the amount of records that were appended.
+	 * 
+	 * @return The amount of appended records
+	 */
+	public synchronized long getRecordAmount() {
+		return this.mRecordAmount;
+	}
+
+	/**
+	 * Writes full buffers to the channel until the writer gets closed. Runs on
+	 * the writer thread.
+	 */
+	private void drain() {
+		while (true) {
+			final ByteBuffer buffer;
+			try {
+				buffer = this.mFull.take();
+			} catch (final InterruptedException e) {
+				// The thread is only stopped by the poison buffer
+				continue;
+			}
+			if (buffer == POISON) {
+				return;
+			}
+
+			buffer.flip();
+			if (this.mFailure == null) {
+				try {
+					while (buffer.hasRemaining()) {
+						this.mChannel.write(buffer);
+					}
+				} catch (final IOException e) {
+					this.mFailure = e;
+				}
+			}
+			if (buffer.capacity() == BUFFER_SIZE) {
+				buffer.clear();
+				this.mFree.offer(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Hands the given buffer over to the writer thread.
+	 * 
+	 * @param buffer
+	 *            The buffer to write
+	 * @throws InterruptedIOException
+	 *             If the current thread was interrupted while waiting
+	 */
+	private void enqueue(final ByteBuffer buffer) throws InterruptedIOException {
+		try {
+			this.mFull.put(buffer);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * Hands the current buffer over to the writer thread and replaces it by a
+	 * free buffer, waiting for one if necessary.
+	 * 
+	 * @throws InterruptedIOException
+	 *             If the current thread was interrupted while waiting
+	 */
+	private void handOver() throws InterruptedIOException {
+		enqueue(this.mCurrent);
+		try {
+			this.mCurrent = this.mFree.take();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			// The handed over buffer is lost for the pool, use a new one
+			this.mCurrent = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			throw new InterruptedIOException();
+		}
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains classes for recording the memory traffic of a session
+ * into a trace and for replaying such traces without the target process.
+ */
+package de.zabuza.memeaterbug.memory.trace;
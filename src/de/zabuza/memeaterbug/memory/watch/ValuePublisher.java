@@ -0,0 +1,469 @@
+package de.zabuza.memeaterbug.memory.watch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.PointerChain;
+
+/**
+ * Publisher that streams the changes of a value in the memory of a process to
+ * its subscribers, using the reactive streams interfaces of {@link Flow}.<br/>
+ * <br/>
+ * All subscribers share one {@link Watch} of a {@link WatchService}, thus the
+ * value is read only once per interval, regardless of the amount of
+ * subscribers. Polling is demand-driven: the watch is only registered while at
+ * least one subscriber has requested values, and it is removed entirely once
+ * nobody is subscribed anymore.<br/>
+ * <br/>
+ * Values are conflated per subscriber. If a subscriber is slower than the
+ * value changes, it only receives the latest value once it requests the next
+ * one, intermediate values are dropped. Thus a slow subscriber never queues
+ * up values. Every delivered value is a copy of its own, such that a
+ * subscriber may modify it without affecting the other subscribers or the
+ * change detection of the watch.<br/>
+ * <br/>
+ * Signals are delivered either on a worker thread of the service or on the
+ * thread that requests values. Subscribers should hand expensive work over to
+ * their own executor, since they otherwise delay the other watches of the
+ * service.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ValuePublisher implements Flow.Publisher<byte[]> {
+	/**
+	 * Subscription of a single subscriber. Holds the latest value that was not
+	 * yet delivered and serializes all signals to the subscriber by a
+	 * work-in-progress counter, such that the subscriber may request more
+	 * values from within its callbacks.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private final class ValueSubscription implements Flow.Subscription {
+		/**
+		 * Whether the subscription was cancelled or terminated.
+		 */
+		private volatile boolean mCancelled;
+		/**
+		 * Whether the publisher was closed and the subscriber should get
+		 * completed once it received the latest value.
+		 */
+		private volatile boolean mCompleted;
+		/**
+		 * Amount of requested but not yet delivered values.
+		 */
+		private long mDemand;
+		/**
+		 * Error to signal on the next drain, caused by an invalid request.
+		 */
+		private volatile Throwable mError;
+		/**
+		 * Latest value that was not yet delivered or <tt>null</tt> if there is
+		 * none.
+		 */
+		private final AtomicReference<byte[]> mLatest;
+		/**
+		 * The subscriber to deliver values to.
+		 */
+		private final Flow.Subscriber<? super byte[]> mSubscriber;
+		/**
+		 * Amount of pending drain requests, only the thread that increments
+		 * it from zero delivers signals.
+		 */
+		private final AtomicInteger mWorkInProgress;
+
+		/**
+		 * Creates a new subscription for the given subscriber.
+		 * 
+		 * @param subscriber
+		 *            The subscriber to deliver values to
+		 */
+		public ValueSubscription(final Flow.Subscriber<? super byte[]> subscriber) {
+			this.mSubscriber = subscriber;
+			this.mLatest = new AtomicReference<>();
+			this.mWorkInProgress = new AtomicInteger();
+			this.mDemand = 0;
+			this.mCancelled = false;
+			this.mCompleted = false;
+			this.mError = null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.Flow.Subscription#cancel()
+		 */
+		@Override
+		public void cancel() {
+			if (!this.mCancelled) {
+				this.mCancelled = true;
+				removeSubscription(this);
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.Flow.Subscription#request(long)
+		 */
+		@Override
+		public void request(final long n) {
+			if (n <= 0) {
+				this.mError = new IllegalArgumentException(ErrorMessages.DEMAND_INVALID + n);
+			} else {
+				synchronized (this) {
+					this.mDemand += n;
+					if (this.mDemand < 0) {
+						// Overflow, treat as unbounded
+						this.mDemand = Long.MAX_VALUE;
+					}
+				}
+				updatePolling();
+			}
+			drain();
+		}
+
+		/**
+		 * Delivers all signals that are possible with the current demand.
+		 */
+		void drain() {
+			if (this.mWorkInProgress.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				if (this.mCancelled) {
+					return;
+				}
+				if (this.mError != null) {
+					this.mCancelled = true;
+					removeSubscription(this);
+					this.mSubscriber.onError(this.mError);
+					return;
+				}
+				while (hasDemand() && this.mLatest.get() != null) {
+					final byte[] value = this.mLatest.getAndSet(null);
+					if (value == null) {
+						break;
+					}
+					synchronized (this) {
+						if (this.mDemand != Long.MAX_VALUE) {
+							this.mDemand--;
+						}
+					}
+					// The value is shared with the other subscribers and the watch
+					this.mSubscriber.onNext(value.clone());
+					if (this.mCancelled) {
+						return;
+					}
+				}
+				if (this.mCompleted && this.mLatest.get() == null) {
+					this.mCancelled = true;
+					removeSubscription(this);
+					this.mSubscriber.onComplete();
+					return;
+				}
+				missed = this.mWorkInProgress.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		/**
+		 * Whether the subscriber has requested values that were not yet
+		 * delivered.
+		 * 
+		 * @return <tt>True</tt> if there is outstanding demand,
+		 *         <tt>false</tt> otherwise
+		 */
+		synchronized boolean hasDemand() {
+			return this.mDemand > 0;
+		}
+
+		/**
+		 * Completes the subscription once the latest value was delivered.
+		 */
+		void complete() {
+			this.mCompleted = true;
+			drain();
+		}
+
+		/**
+		 * Offers a new value to the subscription. It replaces any value that
+		 * was not yet delivered.
+		 * 
+		 * @param value
+		 *            The value to offer
+		 */
+		void offer(final byte[] value) {
+			this.mLatest.set(value);
+			drain();
+		}
+	}
+
+	/**
+	 * The fixed address of the published value, only used if there is no
+	 * chain.
+	 */
+	private final long mAddress;
+	/**
+	 * Chain that leads to the published value or <tt>null</tt> if the address
+	 * is fixed.
+	 */
+	private final PointerChain mChain;
+	/**
+	 * Whether the publisher was closed.
+	 */
+	private volatile boolean mClosed;
+	/**
+	 * Interval in which the value is read, in milliseconds.
+	 */
+	private final long mInterval;
+	/**
+	 * The last value that was published or <tt>null</tt> if none was published
+	 * yet. Used to suppress repeated values when the watch gets registered
+	 * again.
+	 */
+	private volatile byte[] mLastValue;
+	/**
+	 * Listener that receives the changes from the watch.
+	 */
+	private final WatchListener mListener;
+	/**
+	 * Manipulator of the process the value belongs to.
+	 */
+	private final MemAccess mMemManipulator;
+	/**
+	 * The service that reads the value.
+	 */
+	private final WatchService mService;
+	/**
+	 * Size of the published value, in bytes.
+	 */
+	private final int mSize;
+	/**
+	 * The current subscriptions.
+	 */
+	private final List<ValueSubscription> mSubscriptions;
+	/**
+	 * The watch that reads the value while polling, <tt>null</tt> else.
+	 * Guarded by the publisher.
+	 */
+	private Watch mWatch;
+
+	/**
+	 * Creates a new publisher for the value at the given address.
+	 * 
+	 * @param service
+	 *            The service that reads the value
+	 * @param memManipulator
+	 *            Manipulator of the process the value belongs to
+	 * @param address
+	 *            The address of the value
+	 * @param size
+	 *            Size of the value, in bytes
+	 * @param interval
+	 *            Interval in which the value is read while polling, in
+	 *            milliseconds
+	 */
+	public ValuePublisher(final WatchService service, final MemAccess memManipulator, final long address,
+			final int size, final long interval) {
+		this(service, memManipulator, address, null, size, interval);
+	}
+
+	/**
+	 * Creates a new publisher for the value at the address the given chain
+	 * leads to. The chain gets resolved again before every read.
+	 * 
+	 * @param service
+	 *            The service that reads the value
+	 * @param memManipulator
+	 *            Manipulator of the process the value belongs to
+	 * @param chain
+	 *            Chain that leads to the address of the value
+	 * @param size
+	 *            Size of the value, in bytes
+	 * @param interval
+	 *            Interval in which the value is read while polling, in
+	 *            milliseconds
+	 */
+	public ValuePublisher(final WatchService service, final MemAccess memManipulator, final PointerChain chain,
+			final int size, final long interval) {
+		this(service, memManipulator, -1, chain, size, interval);
+		if (chain == null) {
+			throw new NullPointerException();
+		}
+	}
+
+	/**
+	 * Creates a new publisher.
+	 * 
+	 * @param service
+	 *            The service that reads the value
+	 * @param memManipulator
+	 *            Manipulator of the process the value belongs to
+	 * @param address
+	 *            The fixed address of the value, only used if there is no
+	 *            chain
+	 * @param chain
+	 *            Chain that leads to the address of the value or <tt>null</tt>
+	 *            if the address is fixed
+	 * @param size
+	 *            Size of the value, in bytes
+	 * @param interval
+	 *            Interval in which the value is read while polling, in
+	 *            milliseconds
+	 */
+	private ValuePublisher(final WatchService service, final MemAccess memManipulator, final long address,
+			final PointerChain chain, final int size, final long interval) {
+		if (size <= 0) {
+			throw new IllegalArgumentException(ErrorMessages.SIZE_INVALID + size);
+		}
+		if (interval <= 0) {
+			throw new IllegalArgumentException(ErrorMessages.INTERVAL_INVALID + interval);
+		}
+		if (service == null || memManipulator == null) {
+			throw new NullPointerException();
+		}
+		this.mService = service;
+		this.mMemManipulator = memManipulator;
+		this.mAddress = address;
+		this.mChain = chain;
+		this.mSize = size;
+		this.mInterval = interval;
+
+		this.mSubscriptions = new CopyOnWriteArrayList<>();
+		this.mWatch = null;
+		this.mLastValue = null;
+		this.mClosed = false;
+		this.mListener = new WatchListener() {
+			@Override
+			public void valueChanged(final Watch watch, final byte[] previousValue, final byte[] currentValue) {
+				publish(currentValue);
+			}
+		};
+	}
+
+	/**
+	 * Closes the publisher. All subscribers get completed once they received
+	 * the latest value and polling stops. Subscribers that subscribe afterwards
+	 * are completed immediately.
+	 */
+	public void close() {
+		this.mClosed = true;
+		for (final ValueSubscription subscription : this.mSubscriptions) {
+			subscription.complete();
+		}
+		updatePolling();
+	}
+
+	/**
+	 * Gets the amount of current subscribers.
+	 * 
+	 * @return The amount of current subscribers
+	 */
+	public int getSubscriberAmount() {
+		return this.mSubscriptions.size();
+	}
+
+	/**
+	 * Whether the value is currently polled, i.e. whether at least one
+	 * subscriber has requested values.
+	 * 
+	 * @return <tt>True</tt> if the value is currently polled, <tt>false</tt>
+	 *         otherwise
+	 */
+	public synchronized boolean isPolling() {
+		return this.mWatch != null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Flow.Publisher#subscribe(java.util.concurrent.
+	 * Flow.Subscriber)
+	 */
+	@Override
+	public void subscribe(final Flow.Subscriber<? super byte[]> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException();
+		}
+		final ValueSubscription subscription = new ValueSubscription(subscriber);
+		this.mSubscriptions.add(subscription);
+		subscriber.onSubscribe(subscription);
+
+		final byte[] lastValue = this.mLastValue;
+		if (lastValue != null) {
+			// Late subscribers start with the current value
+			subscription.offer(lastValue);
+		}
+		if (this.mClosed) {
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * Publishes a changed value to all subscribers and stops polling if none
+	 * of them has outstanding demand anymore.
+	 * 
+	 * @param value
+	 *            The value to publish
+	 */
+	void publish(final byte[] value) {
+		if (Arrays.equals(value, this.mLastValue)) {
+			// The watch was registered again and reports the known value
+			return;
+		}
+		this.mLastValue = value;
+		for (final ValueSubscription subscription : this.mSubscriptions) {
+			subscription.offer(value);
+		}
+		updatePolling();
+	}
+
+	/**
+	 * Removes the given subscription and stops polling if it was the last
+	 * one.
+	 * 
+	 * @param subscription
+	 *            The subscription to remove
+	 */
+	void removeSubscription(final ValueSubscription subscription) {
+		this.mSubscriptions.remove(subscription);
+		updatePolling();
+	}
+
+	/**
+	 * Registers or removes the watch depending on whether any subscriber has
+	 * outstanding demand.
+	 */
+	synchronized void updatePolling() {
+		boolean hasDemand = false;
+		if (!this.mClosed) {
+			for (final ValueSubscription subscription : this.mSubscriptions) {
+				if (!subscription.mCancelled && subscription.hasDemand()) {
+					hasDemand = true;
+					break;
+				}
+			}
+		}
+
+		if (hasDemand && this.mWatch == null) {
+			if (this.mChain == null) {
+				this.mWatch = this.mService.watch(this.mMemManipulator, this.mAddress, this.mSize, this.mInterval,
+						this.mListener);
+			} else {
+				this.mWatch = this.mService.watch(this.mMemManipulator, this.mChain, this.mSize, this.mInterval,
+						this.mListener);
+			}
+		} else if (!hasDemand && this.mWatch != null) {
+			this.mWatch.cancel();
+			this.mWatch = null;
+		}
+	}
+}
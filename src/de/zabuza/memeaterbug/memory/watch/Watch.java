@@ -0,0 +1,106 @@
+package de.zabuza.memeaterbug.memory.watch;
+
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.PointerChain;
+import de.zabuza.memeaterbug.memory.schedule.ScheduledTarget;
+
+/**
+ * An address in the memory of a process that is periodically read by a
+ * {@link WatchService}. Its listener gets notified whenever the value at the
+ * address changes. The address is either fixed or given by a
+ * {@link PointerChain} which gets resolved again on every read. Watches are
+ * created by the <tt>watch</tt>-methods of {@link WatchService}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class Watch extends ScheduledTarget {
+	/**
+	 * Listener to notify on changes.
+	 */
+	private final WatchListener mListener;
+	/**
+	 * The service this watch belongs to.
+	 */
+	private final WatchService mService;
+	/**
+	 * The last value read or <tt>null</tt> if no value could be read yet.
+	 */
+	private volatile byte[] mValue;
+
+	/**
+	 * Creates a new watch.
+	 * 
+	 * @param service
+	 *            The service this watch belongs to
+	 * @param memManipulator
+	 *            Manipulator of the process the address belongs to
+	 * @param address
+	 *            The address to watch, only used if there is no chain
+	 * @param chain
+	 *            Chain that leads to the watched address or <tt>null</tt> if
+	 *            the address is fixed
+	 * @param size
+	 *            Size of the value to watch, in bytes
+	 * @param interval
+	 *            Interval in which the address is read, in milliseconds
+	 * @param listener
+	 *            Listener to notify on changes
+	 */
+	Watch(final WatchService service, final MemAccess memManipulator, final long address,
+			final PointerChain chain, final int size, final long interval, final WatchListener listener) {
+		super(memManipulator, address, chain, size, interval);
+		this.mService = service;
+		this.mListener = listener;
+		this.mValue = null;
+	}
+
+	/**
+	 * Cancels the watch. Its listener does not get notified anymore, a
+	 * notification that is currently in progress may still complete.
+	 */
+	@Override
+	public void cancel() {
+		this.mService.unwatch(this);
+	}
+
+	/**
+	 * Gets the watched address. For chains it is the address the chain was
+	 * last resolved to.
+	 * 
+	 * @return The watched address or <tt>-1</tt> if the chain could not be
+	 *         resolved yet
+	 */
+	public long getAddress() {
+		return getResolvedAddress();
+	}
+
+	/**
+	 * Gets the last value that was read. The array must not be modified.
+	 * 
+	 * @return The last value that was read or <tt>null</tt> if no value could
+	 *         be read yet
+	 */
+	public byte[] getValue() {
+		return this.mValue;
+	}
+
+	/**
+	 * Gets the listener to notify on changes.
+	 * 
+	 * @return The listener to notify on changes
+	 */
+	WatchListener getListener() {
+		return this.mListener;
+	}
+
+	/**
+	 * Sets the last value that was read.
+	 * 
+	 * @param value
+	 *            The value to set
+	 */
+	void setValue(final byte[] value) {
+		this.mValue = value;
+	}
+}
@@ -0,0 +1,76 @@
+package de.zabuza.memeaterbug.memory.watch;
+
+import java.util.List;
+
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.ReadBatch;
+import de.zabuza.memeaterbug.memory.schedule.BatchGroup;
+
+/**
+ * Group of watches that belong to the same process and share the same
+ * interval. After every read the listeners of the watches whose value has
+ * changed get notified.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+final class WatchGroup extends BatchGroup<Watch> {
+	/**
+	 * The service this group belongs to.
+	 */
+	private final WatchService mService;
+
+	/**
+	 * Creates a new empty group.
+	 * 
+	 * @param service
+	 *            The service this group belongs to
+	 * @param memManipulator
+	 *            Manipulator of the process the watches belong to
+	 * @param interval
+	 *            Interval of the group, in milliseconds
+	 */
+	public WatchGroup(final WatchService service, final MemAccess memManipulator, final long interval) {
+		super(service, memManipulator, interval);
+		this.mService = service;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.memory.schedule.BatchGroup#process(java.util.List,
+	 * int[], de.zabuza.memeaterbug.memory.ReadBatch)
+	 */
+	@Override
+	protected int process(final List<Watch> targets, final int[] batchIndices, final ReadBatch batch) {
+		int notifications = 0;
+		int listenerFailures = 0;
+		for (int i = 0; i < batchIndices.length; i++) {
+			final Watch watch = targets.get(i);
+			final int index = batchIndices[i];
+			if (watch.isCancelled() || index == -1 || !batch.isSuccessful(index)) {
+				continue;
+			}
+			final byte[] previousValue = watch.getValue();
+			if (batch.isEqual(index, previousValue)) {
+				continue;
+			}
+
+			final byte[] currentValue = new byte[watch.getSize()];
+			batch.copy(index, currentValue, 0);
+			watch.setValue(currentValue);
+			notifications++;
+			try {
+				watch.getListener().valueChanged(watch, previousValue, currentValue);
+			} catch (final RuntimeException e) {
+				// A failing listener must not affect the other watches
+				listenerFailures++;
+				final Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+			}
+		}
+		this.mService.recordNotifications(notifications, listenerFailures);
+		return 0;
+	}
+}
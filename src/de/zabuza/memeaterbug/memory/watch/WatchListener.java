@@ -0,0 +1,25 @@
+package de.zabuza.memeaterbug.memory.watch;
+
+/**
+ * Listener that gets notified whenever the value of a {@link Watch} changes.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface WatchListener {
+	/**
+	 * Gets called whenever the value of the given watch has changed. It is
+	 * called from a worker thread of the {@link WatchService} and should return
+	 * quickly, since it delays all other watches of the same batch.
+	 * 
+	 * @param watch
+	 *            The watch whose value has changed
+	 * @param previousValue
+	 *            The previous value or <tt>null</tt> if this is the first
+	 *            value that could be read
+	 * @param currentValue
+	 *            The current value. The array belongs to the listener and is
+	 *            not modified afterwards.
+	 */
+	public void valueChanged(final Watch watch, final byte[] previousValue, final byte[] currentValue);
+}
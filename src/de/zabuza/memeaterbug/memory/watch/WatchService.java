@@ -0,0 +1,229 @@
+package de.zabuza.memeaterbug.memory.watch;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.memory.PointerChain;
+import de.zabuza.memeaterbug.memory.schedule.BatchGroup;
+import de.zabuza.memeaterbug.memory.schedule.BatchScheduler;
+import de.zabuza.memeaterbug.util.TimingWheel;
+
+/**
+ * Service that periodically reads addresses in the memory of processes and
+ * notifies listeners whenever their value changes.<br/>
+ * <br/>
+ * Watches are grouped by their process and interval and read by a
+ * {@link BatchScheduler}, thus the costs of the service grow with the amount
+ * of groups and spans, not with the amount of watches. Besides the metrics of
+ * the scheduler, the service counts the notifications of listeners.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class WatchService extends BatchScheduler<Watch> {
+	/**
+	 * Default amount of worker threads that execute the reads.
+	 */
+	public static final int DEFAULT_WORKER_AMOUNT = 2;
+	/**
+	 * Name of the thread that drives the timing wheel.
+	 */
+	private static final String WHEEL_THREAD_NAME = "MemEaterBug-WatchService-Wheel";
+	/**
+	 * Prefix of the names of the worker threads.
+	 */
+	private static final String WORKER_THREAD_NAME = "MemEaterBug-WatchService-Worker-";
+
+	/**
+	 * Amount of listener notifications that threw an exception.
+	 */
+	private final AtomicLong mListenerFailures;
+	/**
+	 * Amount of listener notifications.
+	 */
+	private final AtomicLong mNotifications;
+
+	/**
+	 * Creates a new service with {@link #DEFAULT_WORKER_AMOUNT} worker threads
+	 * and a tick duration of {@link TimingWheel#DEFAULT_TICK_DURATION}. It
+	 * must be started using {@link #start()}.
+	 */
+	public WatchService() {
+		this(DEFAULT_WORKER_AMOUNT, TimingWheel.DEFAULT_TICK_DURATION);
+	}
+
+	/**
+	 * Creates a new service. It must be started using {@link #start()}.
+	 * 
+	 * @param workerAmount
+	 *            Amount of worker threads that execute the reads, must be
+	 *            greater than zero
+	 * @param tickDuration
+	 *            Duration of one tick of the timing wheel, in milliseconds.
+	 *            It is the granularity in which intervals are served.
+	 */
+	public WatchService(final int workerAmount, final long tickDuration) {
+		super(workerAmount, tickDuration, WHEEL_THREAD_NAME, WORKER_THREAD_NAME);
+		this.mNotifications = new AtomicLong();
+		this.mListenerFailures = new AtomicLong();
+	}
+
+	/**
+	 * Gets the amount of listener notifications that threw an exception. Such
+	 * exceptions do not affect other watches, they are passed to the uncaught
+	 * exception handler of the worker thread instead.
+	 * 
+	 * @return The amount of listener notifications that threw an exception
+	 */
+	public long getListenerFailureAmount() {
+		return this.mListenerFailures.get();
+	}
+
+	/**
+	 * Gets the amount of listener notifications.
+	 * 
+	 * @return The amount of listener notifications
+	 */
+	public long getNotificationAmount() {
+		return this.mNotifications.get();
+	}
+
+	/**
+	 * Gets the amount of registered watches.
+	 * 
+	 * @return The amount of registered watches
+	 */
+	public int getWatchAmount() {
+		return getTargetAmount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.schedule.BatchScheduler#resetMetrics()
+	 */
+	@Override
+	public void resetMetrics() {
+		super.resetMetrics();
+		this.mNotifications.set(0);
+		this.mListenerFailures.set(0);
+	}
+
+	/**
+	 * Removes the given watch from the service. Its listener does not get
+	 * notified anymore, a notification that is currently in progress may still
+	 * complete. Removing a watch that was already removed has no effect.
+	 * 
+	 * @param watch
+	 *            The watch to remove
+	 */
+	public void unwatch(final Watch watch) {
+		unregister(watch);
+	}
+
+	/**
+	 * Watches the given address. The address is read once per interval and
+	 * the listener gets notified whenever its value changes, including the
+	 * first time the value could be read.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the address belongs to
+	 * @param address
+	 *            The address to watch
+	 * @param size
+	 *            Size of the value to watch, in bytes
+	 * @param interval
+	 *            Interval in which the address is read, in milliseconds. It
+	 *            gets served in the granularity of the tick duration of the
+	 *            service. Watches that share the same process and interval are
+	 *            read together.
+	 * @param listener
+	 *            Listener to notify on changes
+	 * @return The created watch, can be used to cancel it
+	 */
+	public Watch watch(final MemAccess memManipulator, final long address, final int size,
+			final long interval, final WatchListener listener) {
+		return register(memManipulator, address, null, size, interval, listener);
+	}
+
+	/**
+	 * Watches the address the given chain leads to. The chain gets resolved
+	 * again before every read, thus the watch follows the value when the
+	 * process relocates it. The listener gets notified whenever the value
+	 * changes, including the first time the value could be read.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the chain belongs to
+	 * @param chain
+	 *            Chain that leads to the address to watch
+	 * @param size
+	 *            Size of the value to watch, in bytes
+	 * @param interval
+	 *            Interval in which the address is read, in milliseconds. It
+	 *            gets served in the granularity of the tick duration of the
+	 *            service. Watches that share the same process and interval are
+	 *            read together.
+	 * @param listener
+	 *            Listener to notify on changes
+	 * @return The created watch, can be used to cancel it
+	 */
+	public Watch watch(final MemAccess memManipulator, final PointerChain chain, final int size,
+			final long interval, final WatchListener listener) {
+		if (chain == null) {
+			throw new NullPointerException();
+		}
+		return register(memManipulator, -1, chain, size, interval, listener);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.memory.schedule.BatchScheduler#createGroup(de.zabuza.
+	 * memeaterbug.memory.MemAccess, long)
+	 */
+	@Override
+	protected BatchGroup<Watch> createGroup(final MemAccess memManipulator, final long interval) {
+		return new WatchGroup(this, memManipulator, interval);
+	}
+
+	/**
+	 * Records the notifications of an execution of a group.
+	 * 
+	 * @param notifications
+	 *            Amount of listener notifications
+	 * @param listenerFailures
+	 *            Amount of listener notifications that threw an exception
+	 */
+	void recordNotifications(final int notifications, final int listenerFailures) {
+		this.mNotifications.addAndGet(notifications);
+		this.mListenerFailures.addAndGet(listenerFailures);
+	}
+
+	/**
+	 * Registers a new watch.
+	 * 
+	 * @param memManipulator
+	 *            Manipulator of the process the address belongs to
+	 * @param address
+	 *            The address to watch, only used if there is no chain
+	 * @param chain
+	 *            Chain that leads to the watched address or <tt>null</tt> if
+	 *            the address is fixed
+	 * @param size
+	 *            Size of the value to watch, in bytes
+	 * @param interval
+	 *            Interval in which the address is read, in milliseconds
+	 * @param listener
+	 *            Listener to notify on changes
+	 * @return The created watch
+	 */
+	private Watch register(final MemAccess memManipulator, final long address, final PointerChain chain,
+			final int size, final long interval, final WatchListener listener) {
+		validate(memManipulator, size, interval);
+		if (listener == null) {
+			throw new NullPointerException();
+		}
+		return register(new Watch(this, memManipulator, address, chain, size, interval, listener));
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains classes for periodically watching addresses in the
+ * memory of processes for changes.
+ */
+package de.zabuza.memeaterbug.memory.watch;
@@ -0,0 +1,213 @@
+package de.zabuza.memeaterbug.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies with logarithmic buckets. Latencies below
+ * <tt>16</tt> nanoseconds get a bucket each, larger ones are grouped into
+ * four buckets per power of two, such that every bucket is precise to at most
+ * <tt>25 %</tt> of its value.<br/>
+ * <br/>
+ * Recording is lock-free and striped: every thread records into one of
+ * several independent arrays of buckets, chosen by its id, such that
+ * concurrent threads rarely contend on the same cache lines. The stripes are
+ * only merged when the histogram gets read.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class LatencyHistogram {
+	/**
+	 * Amount of buckets of a stripe.
+	 */
+	private static final int BUCKET_AMOUNT = 252;
+	/**
+	 * Amount of latencies that get an own bucket.
+	 */
+	private static final int LINEAR_BUCKETS = 16;
+	/**
+	 * Maximal amount of stripes.
+	 */
+	private static final int MAX_STRIPES = 64;
+	/**
+	 * Amount of buckets per power of two, as power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 2;
+
+	/**
+	 * Gets the index of the bucket of the given latency.
+	 * 
+	 * @param latency
+	 *            The latency, in nanoseconds
+	 * @return The index of the bucket
+	 */
+	private static int bucketOf(final long latency) {
+		if (latency < LINEAR_BUCKETS) {
+			return (int) Math.max(latency, 0);
+		}
+		final int octave = 63 - Long.numberOfLeadingZeros(latency);
+		final int subBucket = (int) (latency >>> (octave - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+		return LINEAR_BUCKETS + ((octave - 4) << SUB_BUCKET_BITS) + subBucket;
+	}
+
+	/**
+	 * Gets the smallest latency that falls into the given bucket.
+	 * 
+	 * @param bucket
+	 *            Index of the bucket
+	 * @return The smallest latency of the bucket, in nanoseconds
+	 */
+	private static long lowerBoundOf(final int bucket) {
+		if (bucket < LINEAR_BUCKETS) {
+			return bucket;
+		}
+		final int octave = ((bucket - LINEAR_BUCKETS) >>> SUB_BUCKET_BITS) + 4;
+		final int subBucket = (bucket - LINEAR_BUCKETS) & ((1 << SUB_BUCKET_BITS) - 1);
+		return (long) ((1 << SUB_BUCKET_BITS) + subBucket) << (octave - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * Maximal recorded latency, in nanoseconds.
+	 */
+	private final AtomicLong mMax;
+	/**
+	 * Mask used to map thread ids to stripes.
+	 */
+	private final int mStripeMask;
+	/**
+	 * Stripes of buckets, each holding the amount of recorded latencies per
+	 * bucket.
+	 */
+	private final AtomicLongArray[] mStripes;
+	/**
+	 * Sum of all recorded latencies, in nanoseconds.
+	 */
+	private final LongAdder mSum;
+
+	/**
+	 * Creates a new empty histogram with a stripe count matching the amount of
+	 * available processors.
+	 */
+	public LatencyHistogram() {
+		final int processors = Runtime.getRuntime().availableProcessors();
+		int stripeAmount = 1;
+		while (stripeAmount < processors * 2 && stripeAmount < MAX_STRIPES) {
+			stripeAmount <<= 1;
+		}
+		this.mStripes = new AtomicLongArray[stripeAmount];
+		for (int i = 0; i < stripeAmount; i++) {
+			this.mStripes[i] = new AtomicLongArray(BUCKET_AMOUNT);
+		}
+		this.mStripeMask = stripeAmount - 1;
+		this.mSum = new LongAdder();
+		this.mMax = new AtomicLong();
+	}
+
+	/**
+	 * Gets the amount of recorded latencies.
+	 * 
+	 * @return The amount of recorded latencies
+	 */
+	public long getCount() {
+		long count = 0;
+		for (final AtomicLongArray stripe : this.mStripes) {
+			for (int i = 0; i < BUCKET_AMOUNT; i++) {
+				count += stripe.get(i);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the maximal recorded latency.
+	 * 
+	 * @return The maximal recorded latency, in nanoseconds
+	 */
+	public long getMax() {
+		return this.mMax.get();
+	}
+
+	/**
+	 * Gets the mean of the recorded latencies.
+	 * 
+	 * @return The mean latency, in nanoseconds, <tt>0</tt> if nothing was
+	 *         recorded
+	 */
+	public double getMean() {
+		final long count = getCount();
+		if (count == 0) {
+			return 0;
+		}
+		return (double) this.mSum.sum() / count;
+	}
+
+	/**
+	 * Gets the given percentile of the recorded latencies, precise to the
+	 * bucket it falls into.
+	 * 
+	 * @param percentile
+	 *            The percentile, between <tt>0</tt> and <tt>100</tt>
+	 * @return The largest latency of the bucket the percentile falls into, in
+	 *         nanoseconds, <tt>0</tt> if nothing was recorded
+	 */
+	public long getPercentile(final double percentile) {
+		final long[] counts = new long[BUCKET_AMOUNT];
+		long total = 0;
+		for (final AtomicLongArray stripe : this.mStripes) {
+			for (int i = 0; i < BUCKET_AMOUNT; i++) {
+				final long count = stripe.get(i);
+				counts[i] += count;
+				total += count;
+			}
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_AMOUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				if (i == BUCKET_AMOUNT - 1) {
+					return getMax();
+				}
+				return Math.min(lowerBoundOf(i + 1) - 1, getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Records the given latency.
+	 * 
+	 * @param latency
+	 *            The latency to record, in nanoseconds
+	 */
+	public void record(final long latency) {
+		final int stripe = (int) Thread.currentThread().getId() & this.mStripeMask;
+		this.mStripes[stripe].incrementAndGet(bucketOf(latency));
+		this.mSum.add(latency);
+
+		long max = this.mMax.get();
+		while (latency > max && !this.mMax.compareAndSet(max, latency)) {
+			max = this.mMax.get();
+		}
+	}
+
+	/**
+	 * Removes all recorded latencies. Latencies recorded concurrently may get
+	 * lost.
+	 */
+	public void reset() {
+		for (final AtomicLongArray stripe : this.mStripes) {
+			for (int i = 0; i < BUCKET_AMOUNT; i++) {
+				stripe.set(i, 0);
+			}
+		}
+		this.mSum.reset();
+		this.mMax.set(0);
+	}
+}
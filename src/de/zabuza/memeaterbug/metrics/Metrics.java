@@ -0,0 +1,204 @@
+package de.zabuza.memeaterbug.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.zabuza.memeaterbug.util.SystemProperties;
+
+/**
+ * Utility class that holds the {@link OperationMetrics metrics} of all
+ * {@link Operation operations} of the Mem-Eater-Bug and publishes them over
+ * JMX.<br/>
+ * <br/>
+ * Instrumented code measures an operation like
+ * 
+ * <pre>
+ * final long start = Metrics.start();
+ * boolean success = false;
+ * try {
+ * 	// Execute the operation
+ * 	success = true;
+ * } finally {
+ * 	Metrics.record(Operation.READ, start, bytes, success);
+ * }
+ * </pre>
+ * 
+ * Metrics are disabled by default, then the instrumentation only costs one
+ * volatile read per operation. They get enabled by {@link #setEnabled(boolean)}
+ * or by setting the system property {@link SystemProperties#METRICS_ENABLED}
+ * to <tt>true</tt>.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class Metrics {
+	/**
+	 * Domain of the names of the MBeans.
+	 */
+	public static final String DOMAIN = "de.zabuza.memeaterbug";
+	/**
+	 * Start time that marks an operation which started while metrics were
+	 * disabled and thus does not get recorded.
+	 */
+	private static final long NOT_MEASURED = Long.MIN_VALUE;
+	/**
+	 * Metrics of all operations, by the ordinal of the operation.
+	 */
+	private static final OperationMetrics[] OPERATION_METRICS;
+	/**
+	 * Whether metrics are enabled.
+	 */
+	private static volatile boolean sEnabled = Boolean.getBoolean(SystemProperties.METRICS_ENABLED);
+
+	static {
+		final Operation[] operations = Operation.values();
+		OPERATION_METRICS = new OperationMetrics[operations.length];
+		for (final Operation operation : operations) {
+			OPERATION_METRICS[operation.ordinal()] = new OperationMetrics(operation);
+		}
+	}
+
+	/**
+	 * Gets the metrics of the given operation.
+	 * 
+	 * @param operation
+	 *            The operation in question
+	 * @return The metrics of the operation
+	 */
+	public static OperationMetrics get(final Operation operation) {
+		return OPERATION_METRICS[operation.ordinal()];
+	}
+
+	/**
+	 * Gets the name of the MBean of the given operation.
+	 * 
+	 * @param operation
+	 *            The operation in question
+	 * @return The name of the MBean
+	 * @throws JMException
+	 *             If the name is malformed
+	 */
+	public static ObjectName getObjectName(final Operation operation) throws JMException {
+		return new ObjectName(DOMAIN + ":type=Metrics,operation=" + operation.getKey());
+	}
+
+	/**
+	 * Whether metrics are enabled.
+	 * 
+	 * @return <tt>True</tt> if metrics are enabled, <tt>false</tt> otherwise
+	 */
+	public static boolean isEnabled() {
+		return sEnabled;
+	}
+
+	/**
+	 * Records an operation that was started by {@link #start()}. Does nothing
+	 * if metrics were disabled at the start of the operation.
+	 * 
+	 * @param operation
+	 *            Type of the operation
+	 * @param start
+	 *            Value returned by {@link #start()}
+	 * @param bytes
+	 *            Amount of bytes the operation transferred
+	 * @param success
+	 *            Whether the operation succeeded
+	 */
+	public static void record(final Operation operation, final long start, final long bytes,
+			final boolean success) {
+		if (start == NOT_MEASURED) {
+			return;
+		}
+		OPERATION_METRICS[operation.ordinal()].record(System.nanoTime() - start, bytes, success);
+	}
+
+	/**
+	 * Registers the MBeans of all operations at the platform MBean server.
+	 * 
+	 * @throws JMException
+	 *             If an MBean could not be registered
+	 */
+	public static void registerMBeans() throws JMException {
+		registerMBeans(ManagementFactory.getPlatformMBeanServer());
+	}
+
+	/**
+	 * Registers the MBeans of all operations at the given server. MBeans that
+	 * are already registered are kept.
+	 * 
+	 * @param server
+	 *            The server to register at
+	 * @throws JMException
+	 *             If an MBean could not be registered
+	 */
+	public static void registerMBeans(final MBeanServer server) throws JMException {
+		for (final Operation operation : Operation.values()) {
+			final ObjectName name = getObjectName(operation);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(get(operation), name);
+			}
+		}
+	}
+
+	/**
+	 * Resets the metrics of all operations.
+	 */
+	public static void reset() {
+		for (final OperationMetrics metrics : OPERATION_METRICS) {
+			metrics.reset();
+		}
+	}
+
+	/**
+	 * Sets whether metrics are enabled. Operations that are in flight while
+	 * metrics get enabled are not recorded.
+	 * 
+	 * @param enabled
+	 *            Whether metrics should be enabled
+	 */
+	public static void setEnabled(final boolean enabled) {
+		sEnabled = enabled;
+	}
+
+	/**
+	 * Marks the start of an operation that gets recorded by
+	 * {@link #record(Operation, long, long, boolean)}.
+	 * 
+	 * @return The start time of the operation, or a marker if metrics are
+	 *         disabled
+	 */
+	public static long start() {
+		if (!sEnabled) {
+			return NOT_MEASURED;
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Unregisters the MBeans of all operations from the platform MBean server.
+	 * 
+	 * @throws JMException
+	 *             If an MBean could not be unregistered
+	 */
+	public static void unregisterMBeans() throws JMException {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (final Operation operation : Operation.values()) {
+			try {
+				server.unregisterMBean(getObjectName(operation));
+			} catch (final InstanceNotFoundException e) {
+				// Was not registered, nothing to do
+			}
+		}
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private Metrics() {
+
+	}
+}
@@ -0,0 +1,39 @@
+package de.zabuza.memeaterbug.metrics;
+
+/**
+ * Types of operations that are instrumented by the {@link Metrics}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public enum Operation {
+	/**
+	 * Injection of an agent into a JVM.
+	 */
+	INJECTION,
+	/**
+	 * Opening of a handle to a process.
+	 */
+	OPEN_PROCESS,
+	/**
+	 * Resolution of a chain of pointers.
+	 */
+	POINTER_CHAIN,
+	/**
+	 * Read from the memory of a process.
+	 */
+	READ,
+	/**
+	 * Write to the memory of a process.
+	 */
+	WRITE;
+
+	/**
+	 * Gets the name of the operation, as used in the names of MBeans.
+	 * 
+	 * @return The name of the operation, in lower case
+	 */
+	public String getKey() {
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,178 @@
+package de.zabuza.memeaterbug.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one {@link Operation type of operations}, that is the amount of
+ * calls, failures and transferred bytes as well as a histogram of the
+ * latencies. All values are recorded with striped counters, such that
+ * concurrent threads do not contend.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+	/**
+	 * Amount of transferred bytes.
+	 */
+	private final LongAdder mBytes;
+	/**
+	 * Amount of operations that failed.
+	 */
+	private final LongAdder mFailures;
+	/**
+	 * Histogram of the latencies of the operations.
+	 */
+	private final LatencyHistogram mLatencies;
+	/**
+	 * The type of operations.
+	 */
+	private final Operation mOperation;
+
+	/**
+	 * Creates new empty metrics for the given type of operations.
+	 * 
+	 * @param operation
+	 *            The type of operations
+	 */
+	OperationMetrics(final Operation operation) {
+		this.mOperation = operation;
+		this.mBytes = new LongAdder();
+		this.mFailures = new LongAdder();
+		this.mLatencies = new LatencyHistogram();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.metrics.OperationMetricsMBean#getBytes()
+	 */
+	@Override
+	public long getBytes() {
+		return this.mBytes.sum();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.metrics.OperationMetricsMBean#getCalls()
+	 */
+	@Override
+	public long getCalls() {
+		return this.mLatencies.getCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.metrics.OperationMetricsMBean#getFailures()
+	 */
+	@Override
+	public long getFailures() {
+		return this.mFailures.sum();
+	}
+
+	/**
+	 * Gets the histogram of the latencies of the operations.
+	 * 
+	 * @return The histogram of the latencies
+	 */
+	public LatencyHistogram getLatencies() {
+		return this.mLatencies;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.metrics.OperationMetricsMBean#
+	 * getLatency999thPercentile()
+	 */
+	@Override
+	public long getLatency999thPercentile() {
+		return this.mLatencies.getPercentile(99.9);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.metrics.OperationMetricsMBean#
+	 * getLatency99thPercentile()
+	 */
+	@Override
+	public long getLatency99thPercentile() {
+		return this.mLatencies.getPercentile(99);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.metrics.OperationMetricsMBean#getLatencyMax()
+	 */
+	@Override
+	public long getLatencyMax() {
+		return this.mLatencies.getMax();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.metrics.OperationMetricsMBean#getLatencyMean()
+	 */
+	@Override
+	public double getLatencyMean() {
+		return this.mLatencies.getMean();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.metrics.OperationMetricsMBean#getLatencyMedian()
+	 */
+	@Override
+	public long getLatencyMedian() {
+		return this.mLatencies.getPercentile(50);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.metrics.OperationMetricsMBean#getOperation()
+	 */
+	@Override
+	public String getOperation() {
+		return this.mOperation.getKey();
+	}
+
+	/**
+	 * Records an executed operation.
+	 * 
+	 * @param latency
+	 *            Latency of the operation, in nanoseconds
+	 * @param bytes
+	 *            Amount of bytes the operation transferred
+	 * @param success
+	 *            Whether the operation succeeded
+	 */
+	public void record(final long latency, final long bytes, final boolean success) {
+		this.mLatencies.record(latency);
+		if (bytes != 0) {
+			this.mBytes.add(bytes);
+		}
+		if (!success) {
+			this.mFailures.increment();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.metrics.OperationMetricsMBean#reset()
+	 */
+	@Override
+	public void reset() {
+		this.mLatencies.reset();
+		this.mBytes.reset();
+		this.mFailures.reset();
+	}
+}
@@ -0,0 +1,77 @@
+package de.zabuza.memeaterbug.metrics;
+
+/**
+ * Management interface of {@link OperationMetrics}, as published over JMX.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface OperationMetricsMBean {
+	/**
+	 * Gets the amount of bytes that were transferred by the operations.
+	 * 
+	 * @return The amount of transferred bytes
+	 */
+	public long getBytes();
+
+	/**
+	 * Gets the amount of executed operations.
+	 * 
+	 * @return The amount of executed operations
+	 */
+	public long getCalls();
+
+	/**
+	 * Gets the amount of operations that failed.
+	 * 
+	 * @return The amount of failed operations
+	 */
+	public long getFailures();
+
+	/**
+	 * Gets the 99th percentile of the latency of the operations.
+	 * 
+	 * @return The 99th percentile, in nanoseconds
+	 */
+	public long getLatency99thPercentile();
+
+	/**
+	 * Gets the 99.9th percentile of the latency of the operations.
+	 * 
+	 * @return The 99.9th percentile, in nanoseconds
+	 */
+	public long getLatency999thPercentile();
+
+	/**
+	 * Gets the maximal latency of the operations.
+	 * 
+	 * @return The maximal latency, in nanoseconds
+	 */
+	public long getLatencyMax();
+
+	/**
+	 * Gets the mean latency of the operations.
+	 * 
+	 * @return The mean latency, in nanoseconds
+	 */
+	public double getLatencyMean();
+
+	/**
+	 * Gets the median latency of the operations.
+	 * 
+	 * @return The median latency, in nanoseconds
+	 */
+	public long getLatencyMedian();
+
+	/**
+	 * Gets the name of the operation.
+	 * 
+	 * @return The name of the operation
+	 */
+	public String getOperation();
+
+	/**
+	 * Resets all counters and the histogram.
+	 */
+	public void reset();
+}
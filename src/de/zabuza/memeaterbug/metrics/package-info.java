@@ -0,0 +1,6 @@
+/**
+ * This package contains the instrumentation of the hot paths of the
+ * Mem-Eater-Bug, like counters and latency histograms of memory operations,
+ * which are published as JMX MBeans.
+ */
+package de.zabuza.memeaterbug.metrics;
@@ -0,0 +1,70 @@
+package de.zabuza.memeaterbug.process;
+
+/**
+ * Caches the module table of a process. The modules are enumerated by a
+ * {@link ModuleSource} on first use and cached until the cache gets
+ * invalidated by {@link #invalidate()}, for example after the process has
+ * loaded or unloaded a library.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ModuleCache {
+	/**
+	 * Source that enumerates the modules.
+	 */
+	private final ModuleSource mSource;
+	/**
+	 * The cached table, if already enumerated, <tt>null</tt> else.
+	 */
+	private volatile ModuleTable mTable;
+
+	/**
+	 * Creates a new empty cache. The modules are enumerated on first use.
+	 * 
+	 * @param source
+	 *            Source that enumerates the modules
+	 */
+	public ModuleCache(final ModuleSource source) {
+		this.mSource = source;
+		this.mTable = null;
+	}
+
+	/**
+	 * Gets the module table. Enumerates the modules if not cached.
+	 * 
+	 * @return The module table
+	 */
+	public ModuleTable get() {
+		ModuleTable table = this.mTable;
+		if (table != null) {
+			return table;
+		}
+		synchronized (this) {
+			table = this.mTable;
+			if (table == null) {
+				table = this.mSource.readModules();
+				this.mTable = table;
+			}
+			return table;
+		}
+	}
+
+	/**
+	 * Invalidates the cached table, such that the modules are enumerated again
+	 * on next use.
+	 */
+	public void invalidate() {
+		this.mTable = null;
+	}
+
+	/**
+	 * Whether the table is currently cached or not.
+	 * 
+	 * @return <tt>True</tt> if the table is cached, <tt>false</tt> if the
+	 *         modules get enumerated on next use
+	 */
+	public boolean isCached() {
+		return this.mTable != null;
+	}
+}
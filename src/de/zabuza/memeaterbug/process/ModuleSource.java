@@ -0,0 +1,16 @@
+package de.zabuza.memeaterbug.process;
+
+/**
+ * Source that enumerates the modules loaded into a process.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface ModuleSource {
+	/**
+	 * Enumerates the modules that are currently loaded into the process.
+	 * 
+	 * @return A new table holding the modules of the process
+	 */
+	public ModuleTable readModules();
+}
@@ -0,0 +1,217 @@
+package de.zabuza.memeaterbug.process;
+
+import java.io.File;
+import java.util.Arrays;
+
+import de.zabuza.memeaterbug.util.IndexSort;
+
+/**
+ * Table of the modules that are loaded into a process. The modules are stored
+ * in a primitive array layout, one array per property, that grows as modules
+ * are added. The order of the modules is the order in which they were added,
+ * for lookups by address the modules are additionally indexed by their base
+ * address.<br/>
+ * <br/>
+ * A table is filled by a {@link ModuleSource} and must not be modified after
+ * it was published.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ModuleTable {
+	/**
+	 * Default initial capacity of a table.
+	 */
+	public static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * Amount of modules in the table.
+	 */
+	private int mAmount;
+	/**
+	 * Base addresses of the modules.
+	 */
+	private long[] mBases;
+	/**
+	 * Indices of the modules sorted by their base address, if already built,
+	 * <tt>null</tt> else.
+	 */
+	private volatile int[] mOrderByBase;
+	/**
+	 * Paths of the files of the modules.
+	 */
+	private String[] mPaths;
+	/**
+	 * Sizes of the modules, in bytes.
+	 */
+	private long[] mSizes;
+
+	/**
+	 * Creates a new empty table with the default capacity.
+	 */
+	public ModuleTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new empty table.
+	 * 
+	 * @param capacity
+	 *            Initial capacity of the table, it grows if exceeded
+	 */
+	public ModuleTable(final int capacity) {
+		final int initialCapacity = Math.max(capacity, 1);
+		this.mBases = new long[initialCapacity];
+		this.mSizes = new long[initialCapacity];
+		this.mPaths = new String[initialCapacity];
+		this.mAmount = 0;
+		this.mOrderByBase = null;
+	}
+
+	/**
+	 * Adds the given module to the table.
+	 * 
+	 * @param base
+	 *            Base address of the module
+	 * @param size
+	 *            Size of the module, in bytes
+	 * @param path
+	 *            Path of the file of the module
+	 * @return The index of the added module
+	 */
+	public int add(final long base, final long size, final String path) {
+		if (this.mAmount == this.mBases.length) {
+			final int capacity = this.mBases.length * 2;
+			this.mBases = Arrays.copyOf(this.mBases, capacity);
+			this.mSizes = Arrays.copyOf(this.mSizes, capacity);
+			this.mPaths = Arrays.copyOf(this.mPaths, capacity);
+		}
+		final int index = this.mAmount;
+		this.mBases[index] = base;
+		this.mSizes[index] = size;
+		this.mPaths[index] = path;
+		this.mAmount++;
+		this.mOrderByBase = null;
+		return index;
+	}
+
+	/**
+	 * Gets the amount of modules in the table.
+	 * 
+	 * @return The amount of modules
+	 */
+	public int getAmount() {
+		return this.mAmount;
+	}
+
+	/**
+	 * Gets the base address of the given module.
+	 * 
+	 * @param index
+	 *            Index of the module
+	 * @return The base address of the module
+	 */
+	public long getBase(final int index) {
+		return this.mBases[index];
+	}
+
+	/**
+	 * Gets the name of the file of the given module, without its directory.
+	 * 
+	 * @param index
+	 *            Index of the module
+	 * @return The name of the file of the module
+	 */
+	public String getName(final int index) {
+		final String path = this.mPaths[index];
+		final int separator = Math.max(path.lastIndexOf(File.separatorChar), path.lastIndexOf('/'));
+		return path.substring(separator + 1);
+	}
+
+	/**
+	 * Gets the path of the file of the given module.
+	 * 
+	 * @param index
+	 *            Index of the module
+	 * @return The path of the file of the module
+	 */
+	public String getPath(final int index) {
+		return this.mPaths[index];
+	}
+
+	/**
+	 * Gets the size of the given module.
+	 * 
+	 * @param index
+	 *            Index of the module
+	 * @return The size of the module, in bytes
+	 */
+	public long getSize(final int index) {
+		return this.mSizes[index];
+	}
+
+	/**
+	 * Gets the index of the module that contains the given address, using a
+	 * binary search over the modules sorted by their base address.
+	 * 
+	 * @param address
+	 *            The address in question
+	 * @return The index of the module that contains the address or
+	 *         <tt>-1</tt> if no module contains it
+	 */
+	public int indexOf(final long address) {
+		final int[] order = getOrderByBase();
+		int low = 0;
+		int high = this.mAmount - 1;
+		int candidate = -1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			if (this.mBases[order[middle]] <= address) {
+				candidate = order[middle];
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		if (candidate != -1 && address - this.mBases[candidate] < this.mSizes[candidate]) {
+			return candidate;
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the index of the first module whose file has the given name,
+	 * ignoring the case.
+	 * 
+	 * @param name
+	 *            The name of the file, without its directory
+	 * @return The index of the module or <tt>-1</tt> if no module has the name
+	 */
+	public int indexOfName(final String name) {
+		for (int i = 0; i < this.mAmount; i++) {
+			if (getName(i).equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the indices of the modules sorted by their base address. Builds
+	 * the index if not built yet.
+	 * 
+	 * @return The indices of the modules sorted by their base address
+	 */
+	private int[] getOrderByBase() {
+		int[] order = this.mOrderByBase;
+		if (order == null) {
+			order = new int[this.mAmount];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			IndexSort.sortByKey(order, this.mBases, 0, order.length - 1);
+			this.mOrderByBase = order;
+		}
+		return order;
+	}
+}
@@ -0,0 +1,138 @@
+package de.zabuza.memeaterbug.process;
+
+/**
+ * Immutable information about a process of the system, as collected by a
+ * {@link ProcessSource}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ProcessInfo {
+	/**
+	 * Value used for numbers that are not provided by the source.
+	 */
+	public static final int UNKNOWN = -1;
+
+	/**
+	 * The name of the executable file of the process.
+	 */
+	private final String mExeName;
+	/**
+	 * The identifier of the process that created this process.
+	 */
+	private final int mParentPid;
+	/**
+	 * The process identifier.
+	 */
+	private final int mPid;
+	/**
+	 * The base priority of the threads of the process.
+	 */
+	private final int mPriorityBase;
+	/**
+	 * The start time of the process, in a unit specific to the source.
+	 */
+	private final long mStartTime;
+	/**
+	 * The number of execution threads of the process.
+	 */
+	private final int mThreadAmount;
+
+	/**
+	 * Creates new information about a process.
+	 * 
+	 * @param pid
+	 *            The process identifier
+	 * @param parentPid
+	 *            The identifier of the process that created this process
+	 * @param exeName
+	 *            The name of the executable file of the process
+	 * @param threadAmount
+	 *            The number of execution threads of the process or
+	 *            {@link #UNKNOWN}
+	 * @param priorityBase
+	 *            The base priority of the threads of the process or
+	 *            {@link #UNKNOWN}
+	 * @param startTime
+	 *            The start time of the process, in a unit specific to the
+	 *            source, or {@link #UNKNOWN}
+	 */
+	public ProcessInfo(final int pid, final int parentPid, final String exeName, final int threadAmount,
+			final int priorityBase, final long startTime) {
+		this.mPid = pid;
+		this.mParentPid = parentPid;
+		this.mExeName = exeName;
+		this.mThreadAmount = threadAmount;
+		this.mPriorityBase = priorityBase;
+		this.mStartTime = startTime;
+	}
+
+	/**
+	 * Gets the name of the executable file of the process.
+	 * 
+	 * @return The name of the executable file of the process
+	 */
+	public String getExeName() {
+		return this.mExeName;
+	}
+
+	/**
+	 * Gets the identifier of the process that created this process.
+	 * 
+	 * @return The identifier of the parent process
+	 */
+	public int getParentPid() {
+		return this.mParentPid;
+	}
+
+	/**
+	 * Gets the process identifier.
+	 * 
+	 * @return The process identifier
+	 */
+	public int getPid() {
+		return this.mPid;
+	}
+
+	/**
+	 * Gets the base priority of the threads of the process.
+	 * 
+	 * @return The base priority or {@link #UNKNOWN}
+	 */
+	public int getPriorityBase() {
+		return this.mPriorityBase;
+	}
+
+	/**
+	 * Gets the start time of the process. Together with the process
+	 * identifier it identifies a process, since identifiers get reused once a
+	 * process has terminated. Start times are only comparable between
+	 * information of the same source.
+	 * 
+	 * @return The start time, in a unit specific to the source, or
+	 *         {@link #UNKNOWN}
+	 */
+	public long getStartTime() {
+		return this.mStartTime;
+	}
+
+	/**
+	 * Gets the number of execution threads of the process, at the time it was
+	 * collected.
+	 * 
+	 * @return The number of execution threads or {@link #UNKNOWN}
+	 */
+	public int getThreadAmount() {
+		return this.mThreadAmount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.mExeName + " [pid=" + this.mPid + ", parent=" + this.mParentPid + "]";
+	}
+}
@@ -0,0 +1,435 @@
+package de.zabuza.memeaterbug.process;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.zabuza.memeaterbug.util.Masks;
+import de.zabuza.memeaterbug.util.SystemProperties;
+
+/**
+ * Registry of the processes of the system that is refreshed incrementally.
+ * Processes are indexed by their id, the name of their executable file and
+ * the id of their parent, such that lookups do not need to enumerate the
+ * processes.<br/>
+ * <br/>
+ * A {@link #refresh()} enumerates the processes by a {@link ProcessSource},
+ * but only collects details of processes that are new since the last refresh.
+ * Thus the work besides the plain enumeration is proportional to the amount
+ * of processes that started or terminated in the meantime.<br/>
+ * <br/>
+ * Lookups may be used concurrently to a refresh. They return the state of the
+ * last refresh, which may be outdated.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ProcessRegistry {
+	/**
+	 * A registered process.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class Entry {
+		/**
+		 * The information about the process.
+		 */
+		private final ProcessInfo mInfo;
+		/**
+		 * Generation of the last refresh that has seen the process.
+		 */
+		private long mSeenGeneration;
+
+		/**
+		 * Creates a new entry.
+		 * 
+		 * @param info
+		 *            The information about the process
+		 * @param generation
+		 *            Generation of the refresh that has seen the process
+		 */
+		public Entry(final ProcessInfo info, final long generation) {
+			this.mInfo = info;
+			this.mSeenGeneration = generation;
+		}
+	}
+
+	/**
+	 * Visitor that updates the registry during a refresh.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private final class RefreshVisitor implements ProcessVisitor {
+		/**
+		 * Amount of processes that were added or replaced.
+		 */
+		private int mChanges;
+
+		/**
+		 * Creates a new visitor.
+		 */
+		public RefreshVisitor() {
+			this.mChanges = 0;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * de.zabuza.memeaterbug.process.ProcessVisitor#update(de.zabuza.
+		 * memeaterbug.process.ProcessInfo)
+		 */
+		@Override
+		public void update(final ProcessInfo info) {
+			final Entry previous = ProcessRegistry.this.mByPid.put(Integer.valueOf(info.getPid()),
+					new Entry(info, ProcessRegistry.this.mGeneration));
+			if (previous != null) {
+				unindex(previous.mInfo);
+			}
+			index(info);
+			this.mChanges++;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see de.zabuza.memeaterbug.process.ProcessVisitor#visit(int, int,
+		 * long)
+		 */
+		@Override
+		public boolean visit(final int pid, final int parentPid, final long startTime) {
+			final Entry entry = ProcessRegistry.this.mByPid.get(Integer.valueOf(pid));
+			if (entry == null) {
+				return true;
+			}
+			if (parentPid != ProcessInfo.UNKNOWN && parentPid != entry.mInfo.getParentPid()) {
+				// The id was reused by another process
+				return true;
+			}
+			if (startTime != ProcessInfo.UNKNOWN && startTime != entry.mInfo.getStartTime()) {
+				// The id was reused by another process of the same parent
+				return true;
+			}
+			entry.mSeenGeneration = ProcessRegistry.this.mGeneration;
+			return false;
+		}
+	}
+
+	/**
+	 * Holder of the registry of the system, created on first use.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class SystemRegistryHolder {
+		/**
+		 * The registry of the system.
+		 */
+		private static final ProcessRegistry INSTANCE = new ProcessRegistry();
+	}
+
+	/**
+	 * Creates the source for the current operating system.
+	 * 
+	 * @return A toolhelp source on Windows systems, a <tt>/proc</tt> source
+	 *         else
+	 */
+	public static ProcessSource createDefaultSource() {
+		final String osName = System.getProperty(SystemProperties.OS_NAME);
+		if (osName != null && osName.toLowerCase().contains(Masks.OS_NAME_WINDOWS)) {
+			return new ToolhelpProcessSource();
+		}
+		return new ProcfsProcessSource();
+	}
+
+	/**
+	 * Gets the shared registry of the system, which uses the source created by
+	 * {@link #createDefaultSource()}.
+	 * 
+	 * @return The shared registry of the system
+	 */
+	public static ProcessRegistry getSystemRegistry() {
+		return SystemRegistryHolder.INSTANCE;
+	}
+
+	/**
+	 * Normalizes the given name of an executable file for the index. Names
+	 * are compared ignoring their case.
+	 * 
+	 * @param exeName
+	 *            The name to normalize
+	 * @return The normalized name
+	 */
+	private static String normalizeExeName(final String exeName) {
+		return exeName.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Ids of processes by the normalized name of their executable file.
+	 */
+	private final Map<String, Set<Integer>> mByExeName;
+	/**
+	 * Ids of processes by the id of their parent.
+	 */
+	private final Map<Integer, Set<Integer>> mByParentPid;
+	/**
+	 * Registered processes by their id.
+	 */
+	private final Map<Integer, Entry> mByPid;
+	/**
+	 * Generation of the current refresh, incremented for every refresh.
+	 */
+	private volatile long mGeneration;
+	/**
+	 * Source that enumerates the processes.
+	 */
+	private final ProcessSource mSource;
+
+	/**
+	 * Creates a new empty registry that uses the source created by
+	 * {@link #createDefaultSource()}. It must be filled by {@link #refresh()}.
+	 */
+	public ProcessRegistry() {
+		this(createDefaultSource());
+	}
+
+	/**
+	 * Creates a new empty registry. It must be filled by {@link #refresh()}.
+	 * 
+	 * @param source
+	 *            Source that enumerates the processes
+	 */
+	public ProcessRegistry(final ProcessSource source) {
+		this.mSource = source;
+		this.mByPid = new ConcurrentHashMap<>();
+		this.mByExeName = new ConcurrentHashMap<>();
+		this.mByParentPid = new ConcurrentHashMap<>();
+		this.mGeneration = 0;
+	}
+
+	/**
+	 * Gets the process with the given id.
+	 * 
+	 * @param pid
+	 *            The id of the process
+	 * @return The process or <tt>null</tt> if not registered
+	 */
+	public ProcessInfo get(final int pid) {
+		final Entry entry = this.mByPid.get(Integer.valueOf(pid));
+		if (entry == null) {
+			return null;
+		}
+		return entry.mInfo;
+	}
+
+	/**
+	 * Gets all registered processes.
+	 * 
+	 * @return All registered processes, in no particular order
+	 */
+	public List<ProcessInfo> getAll() {
+		final List<ProcessInfo> processes = new ArrayList<>(this.mByPid.size());
+		for (final Entry entry : this.mByPid.values()) {
+			processes.add(entry.mInfo);
+		}
+		return processes;
+	}
+
+	/**
+	 * Gets all processes whose executable file has the given name, ignoring
+	 * the case.
+	 * 
+	 * @param exeName
+	 *            The name of the executable file
+	 * @return All processes with the given name, in no particular order
+	 */
+	public List<ProcessInfo> getByExeName(final String exeName) {
+		return resolve(this.mByExeName.get(normalizeExeName(exeName)));
+	}
+
+	/**
+	 * Gets all processes that were created by the given process.
+	 * 
+	 * @param parentPid
+	 *            The id of the parent process
+	 * @return All children of the given process, in no particular order
+	 */
+	public List<ProcessInfo> getChildren(final int parentPid) {
+		return resolve(this.mByParentPid.get(Integer.valueOf(parentPid)));
+	}
+
+	/**
+	 * Gets the generation of the registry, which is incremented by every
+	 * refresh.
+	 * 
+	 * @return The generation of the registry
+	 */
+	public long getGeneration() {
+		return this.mGeneration;
+	}
+
+	/**
+	 * Gets the id of a process whose executable file has the given name,
+	 * ignoring the case. If several processes have this name, the newest one
+	 * is chosen, that is the one with the latest start time. Processes with an
+	 * unknown start time count as older than all others, ties are broken by
+	 * choosing the higher id.
+	 * 
+	 * @param exeName
+	 *            The name of the executable file
+	 * @return The id of the newest such process or <tt>0</tt> (zero) if not
+	 *         registered
+	 */
+	public int getPidByExeName(final String exeName) {
+		final Set<Integer> pids = this.mByExeName.get(normalizeExeName(exeName));
+		if (pids == null) {
+			return 0;
+		}
+		ProcessInfo newest = null;
+		for (final Integer pid : pids) {
+			final Entry entry = this.mByPid.get(pid);
+			if (entry == null) {
+				continue;
+			}
+			final ProcessInfo info = entry.mInfo;
+			if (newest == null || info.getStartTime() > newest.getStartTime()
+					|| (info.getStartTime() == newest.getStartTime() && info.getPid() > newest.getPid())) {
+				newest = info;
+			}
+		}
+		if (newest == null) {
+			return 0;
+		}
+		return newest.getPid();
+	}
+
+	/**
+	 * Whether the given process is still running, according to the source of
+	 * the registry. Unlike the lookups this does not use the state of the last
+	 * refresh but asks the system.
+	 * 
+	 * @param info
+	 *            The process to check, as returned by the registry
+	 * @return <tt>True</tt> if the process is still running and its id was not
+	 *         reused, <tt>false</tt> otherwise
+	 */
+	public boolean isAlive(final ProcessInfo info) {
+		return this.mSource.isAlive(info);
+	}
+
+	/**
+	 * Enumerates the processes of the system and updates the registry. Only
+	 * details of new processes are collected, processes that have terminated
+	 * are removed.
+	 * 
+	 * @return The amount of processes that were added, replaced or removed
+	 */
+	public synchronized int refresh() {
+		final long generation = this.mGeneration + 1;
+		this.mGeneration = generation;
+
+		final RefreshVisitor visitor = new RefreshVisitor();
+		this.mSource.scan(visitor);
+
+		int changes = visitor.mChanges;
+		final Iterator<Entry> entries = this.mByPid.values().iterator();
+		while (entries.hasNext()) {
+			final Entry entry = entries.next();
+			if (entry.mSeenGeneration != generation) {
+				entries.remove();
+				unindex(entry.mInfo);
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Gets the amount of registered processes.
+	 * 
+	 * @return The amount of registered processes
+	 */
+	public int size() {
+		return this.mByPid.size();
+	}
+
+	/**
+	 * Adds the given process to the secondary indices.
+	 * 
+	 * @param info
+	 *            The process to add
+	 */
+	private void index(final ProcessInfo info) {
+		final Integer pid = Integer.valueOf(info.getPid());
+		final String exeName = normalizeExeName(info.getExeName());
+		Set<Integer> byExeName = this.mByExeName.get(exeName);
+		if (byExeName == null) {
+			byExeName = ConcurrentHashMap.newKeySet();
+			this.mByExeName.put(exeName, byExeName);
+		}
+		byExeName.add(pid);
+
+		final Integer parentPid = Integer.valueOf(info.getParentPid());
+		Set<Integer> byParentPid = this.mByParentPid.get(parentPid);
+		if (byParentPid == null) {
+			byParentPid = ConcurrentHashMap.newKeySet();
+			this.mByParentPid.put(parentPid, byParentPid);
+		}
+		byParentPid.add(pid);
+	}
+
+	/**
+	 * Resolves the given process ids.
+	 * 
+	 * @param pids
+	 *            The ids to resolve, may be <tt>null</tt>
+	 * @return The registered processes with the given ids
+	 */
+	private List<ProcessInfo> resolve(final Set<Integer> pids) {
+		if (pids == null) {
+			return Collections.emptyList();
+		}
+		final List<ProcessInfo> processes = new ArrayList<>(pids.size());
+		for (final Integer pid : pids) {
+			final Entry entry = this.mByPid.get(pid);
+			if (entry != null) {
+				processes.add(entry.mInfo);
+			}
+		}
+		return processes;
+	}
+
+	/**
+	 * Removes the given process from the secondary indices.
+	 * 
+	 * @param info
+	 *            The process to remove
+	 */
+	private void unindex(final ProcessInfo info) {
+		final Integer pid = Integer.valueOf(info.getPid());
+		final String exeName = normalizeExeName(info.getExeName());
+		final Set<Integer> byExeName = this.mByExeName.get(exeName);
+		if (byExeName != null) {
+			byExeName.remove(pid);
+			if (byExeName.isEmpty()) {
+				this.mByExeName.remove(exeName, byExeName);
+			}
+		}
+
+		final Integer parentPid = Integer.valueOf(info.getParentPid());
+		final Set<Integer> byParentPid = this.mByParentPid.get(parentPid);
+		if (byParentPid != null) {
+			byParentPid.remove(pid);
+			if (byParentPid.isEmpty()) {
+				this.mByParentPid.remove(parentPid, byParentPid);
+			}
+		}
+	}
+}
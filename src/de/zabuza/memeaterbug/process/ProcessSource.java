@@ -0,0 +1,32 @@
+package de.zabuza.memeaterbug.process;
+
+/**
+ * Source that enumerates the processes of the system.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface ProcessSource {
+	/**
+	 * Whether the given process is still running. The process must not have
+	 * terminated and, if its start time is known, its identifier must not
+	 * have been reused by another process.
+	 * 
+	 * @param info
+	 *            The process to check, as reported by this source
+	 * @return <tt>True</tt> if the process is still running, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isAlive(final ProcessInfo info);
+
+	/**
+	 * Enumerates all processes of the system. Every process must be reported
+	 * by {@link ProcessVisitor#visit(int, int, long)}, details only when the visitor
+	 * requests them. Processes that vanish during the enumeration may be
+	 * omitted.
+	 * 
+	 * @param visitor
+	 *            The visitor that receives the processes
+	 */
+	public void scan(final ProcessVisitor visitor);
+}
@@ -0,0 +1,38 @@
+package de.zabuza.memeaterbug.process;
+
+/**
+ * Receives the processes enumerated by a {@link ProcessSource}. Allows the
+ * source to skip collecting details of processes that are already known.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface ProcessVisitor {
+	/**
+	 * Reports that the given process exists.
+	 * 
+	 * @param pid
+	 *            The process identifier
+	 * @param parentPid
+	 *            The identifier of the parent process, if cheaply available,
+	 *            {@link ProcessInfo#UNKNOWN} else. Used to detect reused
+	 *            process identifiers.
+	 * @param startTime
+	 *            The start time of the process, if cheaply available,
+	 *            {@link ProcessInfo#UNKNOWN} else. Used to detect reused
+	 *            process identifiers.
+	 * @return <tt>True</tt> if the process is not known yet and its details
+	 *         must be reported by {@link #update(ProcessInfo)},
+	 *         <tt>false</tt> if it is unchanged
+	 */
+	public boolean visit(final int pid, final int parentPid, final long startTime);
+
+	/**
+	 * Reports the details of a process that was requested by
+	 * {@link #visit(int, int, long)}.
+	 * 
+	 * @param info
+	 *            The details of the process
+	 */
+	public void update(final ProcessInfo info);
+}
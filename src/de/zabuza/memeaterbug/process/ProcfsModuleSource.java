@@ -0,0 +1,144 @@
+package de.zabuza.memeaterbug.process;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.zabuza.memeaterbug.jfr.Events;
+import de.zabuza.memeaterbug.jfr.ModuleEnumerationEvent;
+
+/**
+ * Source that derives the modules of a Linux process from its file-backed
+ * memory mappings, as listed in <tt>/proc/pid/maps</tt>. All mappings of the
+ * same file are merged into one module that spans from the lowest to the
+ * highest mapped address.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ProcfsModuleSource implements ModuleSource {
+	/**
+	 * Index of the inode in the fields of a mapping.
+	 */
+	private static final int FIELD_INODE = 4;
+	/**
+	 * Index of the path in the fields of a mapping.
+	 */
+	private static final int FIELD_PATH = 5;
+	/**
+	 * Name of the file that lists the mappings of a process.
+	 */
+	private static final String MAPS_FILE = "maps";
+	/**
+	 * Path to the root of the process file system.
+	 */
+	private static final String PROC_ROOT = "/proc";
+
+	/**
+	 * Id of the process.
+	 */
+	private final int mPid;
+	/**
+	 * Root of the process file system.
+	 */
+	private final File mRoot;
+
+	/**
+	 * Creates a new source for the given process, using <tt>/proc</tt>.
+	 * 
+	 * @param pid
+	 *            Id of the process
+	 */
+	public ProcfsModuleSource(final int pid) {
+		this(new File(PROC_ROOT), pid);
+	}
+
+	/**
+	 * Creates a new source for the given process.
+	 * 
+	 * @param root
+	 *            Root of the process file system
+	 * @param pid
+	 *            Id of the process
+	 */
+	public ProcfsModuleSource(final File root, final int pid) {
+		this.mRoot = root;
+		this.mPid = pid;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.process.ModuleSource#readModules()
+	 */
+	@Override
+	public ModuleTable readModules() throws UncheckedIOException {
+		ModuleEnumerationEvent event = null;
+		if (Events.isEnabled()) {
+			event = new ModuleEnumerationEvent();
+			event.begin();
+		}
+		int moduleAmount = -1;
+		try {
+			final ModuleTable table = enumerateModules();
+			moduleAmount = table.getAmount();
+			return table;
+		} finally {
+			if (event != null) {
+				event.finish("procfs", moduleAmount);
+			}
+		}
+	}
+
+	/**
+	 * Enumerates the modules of the process by its file backed mappings.
+	 * 
+	 * @return A new table holding the modules of the process
+	 * @throws UncheckedIOException
+	 *             If the mappings could not be read
+	 */
+	private ModuleTable enumerateModules() throws UncheckedIOException {
+		// Start and end address by path, in the order of first appearance
+		final Map<String, long[]> ranges = new LinkedHashMap<>();
+		try (final BufferedReader reader = Files.newBufferedReader(
+				Paths.get(this.mRoot.getPath(), Integer.toString(this.mPid), MAPS_FILE), StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			while (line != null) {
+				final String[] fields = line.trim().split("\\s+", FIELD_PATH + 1);
+				line = reader.readLine();
+				if (fields.length <= FIELD_PATH || "0".equals(fields[FIELD_INODE])
+						|| !fields[FIELD_PATH].startsWith("/")) {
+					// Anonymous or special mapping, like the heap or the stack
+					continue;
+				}
+
+				final String addresses = fields[0];
+				final int separator = addresses.indexOf('-');
+				final long start = Long.parseUnsignedLong(addresses.substring(0, separator), 16);
+				final long end = Long.parseUnsignedLong(addresses.substring(separator + 1), 16);
+				final long[] range = ranges.get(fields[FIELD_PATH]);
+				if (range == null) {
+					ranges.put(fields[FIELD_PATH], new long[] { start, end });
+				} else {
+					range[0] = Math.min(range[0], start);
+					range[1] = Math.max(range[1], end);
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		final ModuleTable table = new ModuleTable(ranges.size());
+		for (final Map.Entry<String, long[]> entry : ranges.entrySet()) {
+			final long[] range = entry.getValue();
+			table.add(range[0], range[1] - range[0], entry.getKey());
+		}
+		return table;
+	}
+}
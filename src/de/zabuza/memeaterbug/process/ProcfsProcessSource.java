@@ -0,0 +1,236 @@
+package de.zabuza.memeaterbug.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Source that enumerates the processes of a Linux system by walking the
+ * <tt>/proc</tt> directory. The status file of every process is read, such
+ * that reused process ids are detected by the start time of the process. The
+ * link to the executable file is only resolved for processes that are not
+ * known yet.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ProcfsProcessSource implements ProcessSource {
+	/**
+	 * Name of the link to the executable file of a process.
+	 */
+	private static final String EXE_FILE = "exe";
+	/**
+	 * Index of the parent process id in the fields of the status file that
+	 * follow the command name.
+	 */
+	private static final int FIELD_PARENT_PID = 1;
+	/**
+	 * Index of the priority in the fields of the status file that follow the
+	 * command name.
+	 */
+	private static final int FIELD_PRIORITY = 15;
+	/**
+	 * Index of the start time, in clock ticks after the system boot, in the
+	 * fields of the status file that follow the command name.
+	 */
+	private static final int FIELD_START_TIME = 19;
+	/**
+	 * Index of the number of threads in the fields of the status file that
+	 * follow the command name.
+	 */
+	private static final int FIELD_THREAD_AMOUNT = 17;
+	/**
+	 * Path to the root of the process file system.
+	 */
+	private static final String PROC_ROOT = "/proc";
+	/**
+	 * Name of the status file of a process.
+	 */
+	private static final String STAT_FILE = "stat";
+
+	/**
+	 * Parses the given directory name as process id.
+	 * 
+	 * @param name
+	 *            The name of the directory
+	 * @return The process id or {@link ProcessInfo#UNKNOWN} if the name is no
+	 *         process id
+	 */
+	private static int parsePid(final String name) {
+		final int length = name.length();
+		if (length == 0 || length > 9) {
+			return ProcessInfo.UNKNOWN;
+		}
+		int pid = 0;
+		for (int i = 0; i < length; i++) {
+			final char digit = name.charAt(i);
+			if (digit < '0' || digit > '9') {
+				return ProcessInfo.UNKNOWN;
+			}
+			pid = pid * 10 + (digit - '0');
+		}
+		return pid;
+	}
+
+	/**
+	 * Reads the name of the executable file of the given process. If the link
+	 * to the executable file can not be read, the command name of the status
+	 * file is used, which may be truncated.
+	 * 
+	 * @param directory
+	 *            The directory of the process
+	 * @param stat
+	 *            The content of the status file of the process
+	 * @return The name of the executable file
+	 */
+	private static String readExeName(final Path directory, final String stat) {
+		try {
+			final Path exeFile = Files.readSymbolicLink(directory.resolve(EXE_FILE)).getFileName();
+			if (exeFile != null) {
+				return exeFile.toString();
+			}
+		} catch (final IOException | UnsupportedOperationException | SecurityException e) {
+			// Not permitted or a kernel thread, the truncated command name is
+			// used instead
+		}
+		return stat.substring(stat.indexOf('(') + 1, stat.lastIndexOf(')'));
+	}
+
+	/**
+	 * Reads the status file of the given process.
+	 * 
+	 * @param directory
+	 *            The directory of the process
+	 * @return The content of the status file or <tt>null</tt> if the process
+	 *         has terminated
+	 */
+	private static String readStat(final Path directory) {
+		try {
+			return new String(Files.readAllBytes(directory.resolve(STAT_FILE)), StandardCharsets.UTF_8);
+		} catch (final IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Splits the given content of a status file into the fields that follow
+	 * the command name.
+	 * 
+	 * @param stat
+	 *            The content of the status file
+	 * @return The fields that follow the command name or <tt>null</tt> if the
+	 *         content is malformed
+	 */
+	private static String[] splitStat(final String stat) {
+		// The command name is enclosed in parentheses and may contain any
+		// character, including spaces and parentheses
+		final int commandStart = stat.indexOf('(');
+		final int commandEnd = stat.lastIndexOf(')');
+		if (commandStart < 0 || commandEnd < commandStart || commandEnd + 2 > stat.length()) {
+			return null;
+		}
+		final String[] fields = stat.substring(commandEnd + 2).split(" ");
+		if (fields.length <= FIELD_START_TIME) {
+			return null;
+		}
+		return fields;
+	}
+
+	/**
+	 * Root of the process file system.
+	 */
+	private final File mRoot;
+
+	/**
+	 * Creates a new source that walks <tt>/proc</tt>.
+	 */
+	public ProcfsProcessSource() {
+		this(new File(PROC_ROOT));
+	}
+
+	/**
+	 * Creates a new source that walks the given process file system.
+	 * 
+	 * @param root
+	 *            Root of the process file system
+	 */
+	public ProcfsProcessSource(final File root) {
+		this.mRoot = root;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.process.ProcessSource#isAlive(de.zabuza.
+	 * memeaterbug.process.ProcessInfo)
+	 */
+	@Override
+	public boolean isAlive(final ProcessInfo info) {
+		final String stat = readStat(Paths.get(this.mRoot.getPath(), Integer.toString(info.getPid())));
+		if (stat == null) {
+			return false;
+		}
+		if (info.getStartTime() == ProcessInfo.UNKNOWN) {
+			return true;
+		}
+		final String[] fields = splitStat(stat);
+		if (fields == null) {
+			return false;
+		}
+		try {
+			return Long.parseLong(fields[FIELD_START_TIME]) == info.getStartTime();
+		} catch (final NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.process.ProcessSource#scan(de.zabuza.memeaterbug.
+	 * process.ProcessVisitor)
+	 */
+	@Override
+	public void scan(final ProcessVisitor visitor) {
+		final String[] names = this.mRoot.list();
+		if (names == null) {
+			return;
+		}
+		for (final String name : names) {
+			final int pid = parsePid(name);
+			if (pid <= 0) {
+				continue;
+			}
+			final Path directory = Paths.get(this.mRoot.getPath(), name);
+			final String stat = readStat(directory);
+			if (stat == null) {
+				// The process has terminated in the meantime
+				continue;
+			}
+			final String[] fields = splitStat(stat);
+			if (fields == null) {
+				continue;
+			}
+
+			final ProcessInfo info;
+			try {
+				final int parentPid = Integer.parseInt(fields[FIELD_PARENT_PID]);
+				final long startTime = Long.parseLong(fields[FIELD_START_TIME]);
+				if (!visitor.visit(pid, parentPid, startTime)) {
+					continue;
+				}
+				info = new ProcessInfo(pid, parentPid, readExeName(directory, stat),
+						Integer.parseInt(fields[FIELD_THREAD_AMOUNT]), Integer.parseInt(fields[FIELD_PRIORITY]),
+						startTime);
+			} catch (final NumberFormatException e) {
+				continue;
+			}
+			visitor.update(info);
+		}
+	}
+}
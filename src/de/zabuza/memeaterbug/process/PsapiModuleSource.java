@@ -0,0 +1,87 @@
+package de.zabuza.memeaterbug.process;
+
+import java.util.List;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.Win32Exception;
+import com.sun.jna.platform.win32.WinDef.HMODULE;
+import com.sun.jna.platform.win32.WinNT.HANDLE;
+
+import de.zabuza.memeaterbug.jfr.Events;
+import de.zabuza.memeaterbug.jfr.ModuleEnumerationEvent;
+import de.zabuza.memeaterbug.winapi.jna.Psapi.LPMODULEINFO;
+import de.zabuza.memeaterbug.winapi.jna.util.PsapiUtil;
+
+/**
+ * Source that enumerates the modules of a Windows process using the process
+ * status API.
+ * 
+ * @see <a href=
+ *      "https://msdn.microsoft.com/en-us/library/ms682631(v=vs.85).aspx"> MSDN
+ *      webpage#EnumProcessModules function</a>
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class PsapiModuleSource implements ModuleSource {
+	/**
+	 * Handle to the process.
+	 */
+	private final HANDLE mHProcess;
+
+	/**
+	 * Creates a new source for the given process.
+	 * 
+	 * @param hProcess
+	 *            Handle to the process, must have the
+	 *            {@link de.zabuza.memeaterbug.winapi.Process#PROCESS_QUERY_INFORMATION
+	 *            PROCESS_QUERY_INFORMATION} and
+	 *            {@link de.zabuza.memeaterbug.winapi.Process#PROCESS_VM_READ
+	 *            PROCESS_VM_READ} access rights
+	 */
+	public PsapiModuleSource(final HANDLE hProcess) {
+		this.mHProcess = hProcess;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.process.ModuleSource#readModules()
+	 */
+	@Override
+	public ModuleTable readModules() throws Win32Exception {
+		ModuleEnumerationEvent event = null;
+		if (Events.isEnabled()) {
+			event = new ModuleEnumerationEvent();
+			event.begin();
+		}
+		int moduleAmount = -1;
+		try {
+			final ModuleTable table = enumerateModules();
+			moduleAmount = table.getAmount();
+			return table;
+		} finally {
+			if (event != null) {
+				event.finish("psapi", moduleAmount);
+			}
+		}
+	}
+
+	/**
+	 * Enumerates the modules of the process by their handles.
+	 * 
+	 * @return A new table holding the modules of the process
+	 * @throws Win32Exception
+	 *             If the modules could not be enumerated
+	 */
+	private ModuleTable enumerateModules() throws Win32Exception {
+		final List<HMODULE> hModules = PsapiUtil.enumProcessModules(this.mHProcess);
+		final ModuleTable table = new ModuleTable(hModules.size());
+		for (final HMODULE hModule : hModules) {
+			final LPMODULEINFO info = PsapiUtil.getModuleInformation(this.mHProcess, hModule);
+			table.add(Pointer.nativeValue(info.lpBaseOfDll), info.SizeOfImage & 0xFFFFFFFFL,
+					PsapiUtil.getModuleFileNameEx(this.mHProcess, hModule));
+		}
+		return table;
+	}
+}
@@ -0,0 +1,135 @@
+package de.zabuza.memeaterbug.process;
+
+import com.sun.jna.Native;
+import com.sun.jna.platform.win32.Tlhelp32;
+import com.sun.jna.platform.win32.Tlhelp32.PROCESSENTRY32;
+import com.sun.jna.platform.win32.Win32Exception;
+import com.sun.jna.platform.win32.WinBase;
+import com.sun.jna.platform.win32.WinBase.FILETIME;
+import com.sun.jna.platform.win32.WinDef.DWORD;
+import com.sun.jna.platform.win32.WinError;
+import com.sun.jna.platform.win32.WinNT;
+import com.sun.jna.platform.win32.WinNT.HANDLE;
+import com.sun.jna.ptr.IntByReference;
+
+import de.zabuza.memeaterbug.winapi.jna.Kernel32;
+
+/**
+ * Source that enumerates the processes of a Windows system using a toolhelp
+ * snapshot. A single PROCESSENTRY32 structure is reused for all entries and
+ * the name of the executable file and the creation time are only collected
+ * for processes that are not known yet.
+ * 
+ * @see <a href=
+ *      "https://msdn.microsoft.com/en-us/library/ms682489(v=vs.85).aspx"> MSDN
+ *      webpage#CreateToolhelp32Snapshot function</a>
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ToolhelpProcessSource implements ProcessSource {
+	/**
+	 * Gets the creation time of the given process.
+	 * 
+	 * @param hProcess
+	 *            Handle to the process with the
+	 *            {@link WinNT#PROCESS_QUERY_LIMITED_INFORMATION} access right
+	 * @return The creation time of the process, in milliseconds since the
+	 *         epoch, or {@link ProcessInfo#UNKNOWN} if it could not be
+	 *         retrieved
+	 */
+	private static long getCreationTime(final HANDLE hProcess) {
+		final FILETIME creationTime = new FILETIME();
+		if (!Kernel32.INSTANCE.GetProcessTimes(hProcess, creationTime, new FILETIME(), new FILETIME(),
+				new FILETIME())) {
+			return ProcessInfo.UNKNOWN;
+		}
+		return creationTime.toLong();
+	}
+
+	/**
+	 * Gets the creation time of the process with the given id.
+	 * 
+	 * @param pid
+	 *            The id of the process
+	 * @return The creation time of the process, in milliseconds since the
+	 *         epoch, or {@link ProcessInfo#UNKNOWN} if it could not be
+	 *         retrieved, for example since access was denied
+	 */
+	private static long getCreationTime(final int pid) {
+		final HANDLE hProcess = Kernel32.INSTANCE.OpenProcess(WinNT.PROCESS_QUERY_LIMITED_INFORMATION, false, pid);
+		if (hProcess == null) {
+			return ProcessInfo.UNKNOWN;
+		}
+		try {
+			return getCreationTime(hProcess);
+		} finally {
+			Kernel32.INSTANCE.CloseHandle(hProcess);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.process.ProcessSource#isAlive(de.zabuza.
+	 * memeaterbug.process.ProcessInfo)
+	 */
+	@Override
+	public boolean isAlive(final ProcessInfo info) {
+		final HANDLE hProcess = Kernel32.INSTANCE.OpenProcess(WinNT.PROCESS_QUERY_LIMITED_INFORMATION, false,
+				info.getPid());
+		if (hProcess == null) {
+			// Protected processes deny access but still exist
+			return Native.getLastError() == WinError.ERROR_ACCESS_DENIED;
+		}
+		try {
+			final IntByReference exitCode = new IntByReference();
+			if (Kernel32.INSTANCE.GetExitCodeProcess(hProcess, exitCode)
+					&& exitCode.getValue() != WinBase.STILL_ACTIVE) {
+				return false;
+			}
+			if (info.getStartTime() == ProcessInfo.UNKNOWN) {
+				return true;
+			}
+			// A different creation time means the id was reused
+			final long creationTime = getCreationTime(hProcess);
+			return creationTime == ProcessInfo.UNKNOWN || creationTime == info.getStartTime();
+		} finally {
+			Kernel32.INSTANCE.CloseHandle(hProcess);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.memeaterbug.process.ProcessSource#scan(de.zabuza.memeaterbug.
+	 * process.ProcessVisitor)
+	 */
+	@Override
+	public void scan(final ProcessVisitor visitor) throws Win32Exception {
+		final HANDLE hProcessSnap = Kernel32.INSTANCE.CreateToolhelp32Snapshot(Tlhelp32.TH32CS_SNAPPROCESS,
+				new DWORD(0));
+		try {
+			final PROCESSENTRY32 pe32 = new PROCESSENTRY32();
+			if (!Kernel32.INSTANCE.Process32First(hProcessSnap, pe32)) {
+				throw new Win32Exception(Native.getLastError());
+			}
+
+			do {
+				final int pid = pe32.th32ProcessID.intValue();
+				if (pid == 0) {
+					continue;
+				}
+				final int parentPid = pe32.th32ParentProcessID.intValue();
+				if (visitor.visit(pid, parentPid, ProcessInfo.UNKNOWN)) {
+					visitor.update(new ProcessInfo(pid, parentPid, Native.toString(pe32.szExeFile),
+							pe32.cntThreads.intValue(), pe32.pcPriClassBase.intValue(), getCreationTime(pid)));
+				}
+			} while (Kernel32.INSTANCE.Process32Next(hProcessSnap, pe32));
+		} finally {
+			Kernel32.INSTANCE.CloseHandle(hProcessSnap);
+		}
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains classes for enumerating and looking up the processes
+ * of the system.
+ */
+package de.zabuza.memeaterbug.process;
@@ -0,0 +1,372 @@
+package de.zabuza.memeaterbug.session;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.zabuza.memeaterbug.MemEaterBug;
+import de.zabuza.memeaterbug.exceptions.NotHookedException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.memory.MemManipulator;
+import de.zabuza.memeaterbug.memory.PointerChain;
+import de.zabuza.memeaterbug.memory.watch.ValuePublisher;
+import de.zabuza.memeaterbug.memory.watch.Watch;
+import de.zabuza.memeaterbug.memory.watch.WatchListener;
+import de.zabuza.memeaterbug.memory.watch.WatchService;
+
+/**
+ * Session with one hooked process, managed by a {@link SessionManager}. Tracks
+ * the throughput and latency of all tasks that were executed for the
+ * process.<br/>
+ * <br/>
+ * Watches and publishers created by the session use the shared
+ * {@link WatchService} of the manager and are cancelled before the process
+ * gets unhooked.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class Session {
+	/**
+	 * Whether the watches of the session were cancelled since the process
+	 * gets unhooked. Guarded by the session.
+	 */
+	private boolean mClosed;
+	/**
+	 * Amount of tasks that failed.
+	 */
+	private final AtomicLong mFailures;
+	/**
+	 * Time the process was hooked at, as value of {@link System#nanoTime()}.
+	 */
+	private final long mHookTime;
+	/**
+	 * Maximal latency of a task, in nanoseconds.
+	 */
+	private final AtomicLong mMaxLatency;
+	/**
+	 * The Mem-Eater-Bug that is hooked to the process.
+	 */
+	private final MemEaterBug mMemEaterBug;
+	/**
+	 * Amount of executed tasks.
+	 */
+	private final AtomicLong mOperations;
+	/**
+	 * Id of the process.
+	 */
+	private final int mProcessId;
+	/**
+	 * Publishers created by the session. Guarded by the session.
+	 */
+	private final List<ValuePublisher> mPublishers;
+	/**
+	 * Sum of the latencies of all tasks, in nanoseconds.
+	 */
+	private final AtomicLong mTotalLatency;
+	/**
+	 * Watches created by the session. Guarded by the session.
+	 */
+	private final List<Watch> mWatches;
+	/**
+	 * Shared service for polling values of all processes.
+	 */
+	private final WatchService mWatchService;
+
+	/**
+	 * Creates a new session for the given hooked Mem-Eater-Bug.
+	 * 
+	 * @param processId
+	 *            Id of the process
+	 * @param memEaterBug
+	 *            The Mem-Eater-Bug that is hooked to the process
+	 * @param watchService
+	 *            Shared service for polling values of all processes
+	 */
+	Session(final int processId, final MemEaterBug memEaterBug, final WatchService watchService) {
+		this.mProcessId = processId;
+		this.mMemEaterBug = memEaterBug;
+		this.mWatchService = watchService;
+		this.mHookTime = System.nanoTime();
+		this.mWatches = new ArrayList<>();
+		this.mPublishers = new ArrayList<>();
+		this.mClosed = false;
+
+		this.mOperations = new AtomicLong();
+		this.mFailures = new AtomicLong();
+		this.mTotalLatency = new AtomicLong();
+		this.mMaxLatency = new AtomicLong();
+	}
+
+	/**
+	 * Gets the average latency of the tasks executed for this session.
+	 * 
+	 * @return The average latency, in nanoseconds
+	 */
+	public long getAverageLatency() {
+		final long operations = this.mOperations.get();
+		if (operations == 0) {
+			return 0;
+		}
+		return this.mTotalLatency.get() / operations;
+	}
+
+	/**
+	 * Gets the amount of tasks that failed.
+	 * 
+	 * @return The amount of tasks that failed
+	 */
+	public long getFailureAmount() {
+		return this.mFailures.get();
+	}
+
+	/**
+	 * Gets the maximal latency of the tasks executed for this session.
+	 * 
+	 * @return The maximal latency, in nanoseconds
+	 */
+	public long getMaxLatency() {
+		return this.mMaxLatency.get();
+	}
+
+	/**
+	 * Gets the Mem-Eater-Bug that is hooked to the process.
+	 * 
+	 * @return The Mem-Eater-Bug that is hooked to the process
+	 */
+	public MemEaterBug getMemEaterBug() {
+		return this.mMemEaterBug;
+	}
+
+	/**
+	 * Gets an object for memory manipulation of the hooked process.
+	 * 
+	 * @return An object for memory manipulation of the hooked process
+	 */
+	public MemManipulator getMemManipulator() {
+		return this.mMemEaterBug.getMemManipulator();
+	}
+
+	/**
+	 * Gets the amount of tasks executed for this session.
+	 * 
+	 * @return The amount of executed tasks
+	 */
+	public long getOperationAmount() {
+		return this.mOperations.get();
+	}
+
+	/**
+	 * Gets the id of the process.
+	 * 
+	 * @return The id of the process
+	 */
+	public int getProcessId() {
+		return this.mProcessId;
+	}
+
+	/**
+	 * Gets the throughput of this session since the process was hooked.
+	 * 
+	 * @return The amount of executed tasks per second
+	 */
+	public double getThroughput() {
+		final long elapsed = System.nanoTime() - this.mHookTime;
+		if (elapsed <= 0) {
+			return 0;
+		}
+		return this.mOperations.get() / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+	}
+
+	/**
+	 * Gets the sum of the latencies of all tasks executed for this session.
+	 * 
+	 * @return The sum of the latencies, in nanoseconds
+	 */
+	public long getTotalLatency() {
+		return this.mTotalLatency.get();
+	}
+
+	/**
+	 * Creates a publisher for the value at the given address of the process.
+	 * It gets closed before the process is unhooked.
+	 * 
+	 * @param address
+	 *            The address of the value
+	 * @param size
+	 *            Size of the value, in bytes
+	 * @param interval
+	 *            Interval in which the value is read while polling, in
+	 *            milliseconds
+	 * @return The created publisher
+	 * @throws NotHookedException
+	 *             If the process is getting unhooked
+	 */
+	public ValuePublisher publish(final long address, final int size, final long interval)
+			throws NotHookedException {
+		return addPublisher(new ValuePublisher(this.mWatchService, getMemManipulator(), address, size, interval));
+	}
+
+	/**
+	 * Creates a publisher for the value at the address the given chain leads
+	 * to. It gets closed before the process is unhooked.
+	 * 
+	 * @param chain
+	 *            Chain that leads to the address of the value
+	 * @param size
+	 *            Size of the value, in bytes
+	 * @param interval
+	 *            Interval in which the value is read while polling, in
+	 *            milliseconds
+	 * @return The created publisher
+	 * @throws NotHookedException
+	 *             If the process is getting unhooked
+	 */
+	public ValuePublisher publish(final PointerChain chain, final int size, final long interval)
+			throws NotHookedException {
+		return addPublisher(new ValuePublisher(this.mWatchService, getMemManipulator(), chain, size, interval));
+	}
+
+	/**
+	 * Watches the given address of the process at the shared watch service.
+	 * The watch gets cancelled before the process is unhooked.
+	 * 
+	 * @param address
+	 *            The address to watch
+	 * @param size
+	 *            Size of the value to watch, in bytes
+	 * @param interval
+	 *            Interval in which the address is read, in milliseconds
+	 * @param listener
+	 *            Listener to notify on changes
+	 * @return The created watch, can be used to cancel it
+	 * @throws NotHookedException
+	 *             If the process is getting unhooked
+	 */
+	public synchronized Watch watch(final long address, final int size, final long interval,
+			final WatchListener listener) throws NotHookedException {
+		ensureOpen();
+		return addWatch(this.mWatchService.watch(getMemManipulator(), address, size, interval, listener));
+	}
+
+	/**
+	 * Watches the address the given chain leads to at the shared watch
+	 * service. The watch gets cancelled before the process is unhooked.
+	 * 
+	 * @param chain
+	 *            Chain that leads to the address to watch
+	 * @param size
+	 *            Size of the value to watch, in bytes
+	 * @param interval
+	 *            Interval in which the address is read, in milliseconds
+	 * @param listener
+	 *            Listener to notify on changes
+	 * @return The created watch, can be used to cancel it
+	 * @throws NotHookedException
+	 *             If the process is getting unhooked
+	 */
+	public synchronized Watch watch(final PointerChain chain, final int size, final long interval,
+			final WatchListener listener) throws NotHookedException {
+		ensureOpen();
+		return addWatch(this.mWatchService.watch(getMemManipulator(), chain, size, interval, listener));
+	}
+
+	/**
+	 * Cancels all watches and closes all publishers of the session. Watches
+	 * and publishers can not be created anymore afterwards.
+	 */
+	void cancelWatches() {
+		final List<Watch> watches;
+		final List<ValuePublisher> publishers;
+		synchronized (this) {
+			this.mClosed = true;
+			watches = new ArrayList<>(this.mWatches);
+			publishers = new ArrayList<>(this.mPublishers);
+			this.mWatches.clear();
+			this.mPublishers.clear();
+		}
+		for (final ValuePublisher publisher : publishers) {
+			publisher.close();
+		}
+		for (final Watch watch : watches) {
+			watch.cancel();
+		}
+	}
+
+	/**
+	 * Records the execution of a task.
+	 * 
+	 * @param latency
+	 *            Latency of the task, in nanoseconds
+	 * @param successful
+	 *            Whether the task was successful
+	 */
+	void recordOperation(final long latency, final boolean successful) {
+		this.mOperations.incrementAndGet();
+		if (!successful) {
+			this.mFailures.incrementAndGet();
+		}
+		this.mTotalLatency.addAndGet(latency);
+		long currentMax = this.mMaxLatency.get();
+		while (latency > currentMax && !this.mMaxLatency.compareAndSet(currentMax, latency)) {
+			currentMax = this.mMaxLatency.get();
+		}
+	}
+
+	/**
+	 * Tracks the given publisher, such that it gets closed before the process
+	 * is unhooked.
+	 * 
+	 * @param publisher
+	 *            The publisher to track
+	 * @return The given publisher
+	 * @throws NotHookedException
+	 *             If the process is getting unhooked, the publisher gets
+	 *             closed then
+	 */
+	private ValuePublisher addPublisher(final ValuePublisher publisher) throws NotHookedException {
+		synchronized (this) {
+			if (!this.mClosed) {
+				this.mPublishers.add(publisher);
+				return publisher;
+			}
+		}
+		publisher.close();
+		throw new NotHookedException(ErrorMessages.UNABLE_SINCE_NOT_HOOKED);
+	}
+
+	/**
+	 * Tracks the given watch, such that it gets cancelled before the process
+	 * is unhooked. Watches that were cancelled already are not tracked
+	 * anymore. Must be called while holding the lock of the session.
+	 * 
+	 * @param watch
+	 *            The watch to track
+	 * @return The given watch
+	 */
+	private Watch addWatch(final Watch watch) {
+		final Iterator<Watch> watches = this.mWatches.iterator();
+		while (watches.hasNext()) {
+			if (watches.next().isCancelled()) {
+				watches.remove();
+			}
+		}
+		this.mWatches.add(watch);
+		return watch;
+	}
+
+	/**
+	 * Ensures that the process is not getting unhooked. Must be called while
+	 * holding the lock of the session.
+	 * 
+	 * @throws NotHookedException
+	 *             If the process is getting unhooked
+	 */
+	private void ensureOpen() throws NotHookedException {
+		if (this.mClosed) {
+			throw new NotHookedException(ErrorMessages.UNABLE_SINCE_NOT_HOOKED);
+		}
+	}
+}
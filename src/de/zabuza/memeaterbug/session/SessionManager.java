@@ -0,0 +1,413 @@
+package de.zabuza.memeaterbug.session;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import de.zabuza.memeaterbug.MemEaterBug;
+import de.zabuza.memeaterbug.exceptions.NotHookedException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.memory.watch.WatchService;
+
+/**
+ * Manages sessions with many hooked processes concurrently. Each process is
+ * hooked by its own {@link MemEaterBug}, all work for the processes is
+ * executed asynchronously and the results are provided as
+ * {@link CompletableFuture}.<br/>
+ * <br/>
+ * Work is executed on virtual threads if the runtime supports them, else on a
+ * pool of daemon threads. Since every task may issue native calls, the amount
+ * of concurrently executed tasks is bounded by a semaphore, regardless of the
+ * amount of threads. Hooking and unhooking are bounded by a separate
+ * semaphore, such that long running tasks can not keep processes from being
+ * hooked or unhooked. Polling of values should use the shared
+ * {@link WatchService} of the manager instead of one loop per process, by
+ * the watches and publishers of the {@link Session}, which get cancelled
+ * before their process is unhooked.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SessionManager {
+	/**
+	 * Default maximal amount of concurrently executed tasks.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_CALLS = 64;
+	/**
+	 * Name of the factory method for executors that start a new virtual thread
+	 * for each task.
+	 */
+	private static final String VIRTUAL_THREAD_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+	/**
+	 * Prefix of the names of the worker threads, if virtual threads are not
+	 * supported.
+	 */
+	private static final String WORKER_THREAD_NAME = "MemEaterBug-SessionManager-Worker-";
+
+	/**
+	 * Creates the executor for the tasks. Uses virtual threads if the runtime
+	 * supports them, else a cached pool of daemon threads.
+	 * 
+	 * @return The executor for the tasks
+	 */
+	private static ExecutorService createExecutor() {
+		try {
+			final Method factory = Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY);
+			return (ExecutorService) factory.invoke(null);
+		} catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			// Virtual threads are not supported by the runtime
+			final AtomicInteger threadCounter = new AtomicInteger();
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, WORKER_THREAD_NAME + threadCounter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Executor that runs all tasks.
+	 */
+	private final ExecutorService mExecutor;
+	/**
+	 * Semaphore that bounds the amount of concurrently hooked and unhooked
+	 * processes.
+	 */
+	private final Semaphore mHookPermits;
+	/**
+	 * Sessions by the id of their process. A session is added as soon as
+	 * hooking starts, such that every process is hooked only once.
+	 */
+	private final ConcurrentMap<Integer, CompletableFuture<Session>> mSessions;
+	/**
+	 * Semaphore that bounds the amount of concurrently executed tasks.
+	 */
+	private final Semaphore mTaskPermits;
+	/**
+	 * Shared service for polling values of all processes.
+	 */
+	private final WatchService mWatchService;
+
+	/**
+	 * Creates a new manager that executes at most
+	 * {@link #DEFAULT_MAX_CONCURRENT_CALLS} tasks concurrently.
+	 */
+	public SessionManager() {
+		this(DEFAULT_MAX_CONCURRENT_CALLS);
+	}
+
+	/**
+	 * Creates a new manager.
+	 * 
+	 * @param maxConcurrentCalls
+	 *            Maximal amount of concurrently executed tasks and, separately,
+	 *            of concurrently hooked and unhooked processes. Must be greater
+	 *            than zero.
+	 */
+	public SessionManager(final int maxConcurrentCalls) {
+		if (maxConcurrentCalls <= 0) {
+			throw new IllegalArgumentException(ErrorMessages.CONCURRENT_CALLS_INVALID + maxConcurrentCalls);
+		}
+		this.mTaskPermits = new Semaphore(maxConcurrentCalls);
+		this.mHookPermits = new Semaphore(maxConcurrentCalls);
+		this.mExecutor = createExecutor();
+		this.mSessions = new ConcurrentHashMap<>();
+		this.mWatchService = new WatchService();
+		this.mWatchService.start();
+	}
+
+	/**
+	 * Gets the average latency of all tasks executed by this manager.
+	 * 
+	 * @return The average latency, in nanoseconds
+	 */
+	public long getAverageLatency() {
+		long operations = 0;
+		long totalLatency = 0;
+		for (final Session session : getSessions()) {
+			operations += session.getOperationAmount();
+			totalLatency += session.getTotalLatency();
+		}
+		if (operations == 0) {
+			return 0;
+		}
+		return totalLatency / operations;
+	}
+
+	/**
+	 * Gets the session of the given process.
+	 * 
+	 * @param processId
+	 *            Id of the process
+	 * @return The session of the process or <tt>null</tt> if the process is
+	 *         not hooked or hooking has not finished yet
+	 */
+	public Session getSession(final int processId) {
+		final CompletableFuture<Session> session = this.mSessions.get(Integer.valueOf(processId));
+		if (session == null || !session.isDone() || session.isCompletedExceptionally()) {
+			return null;
+		}
+		return session.join();
+	}
+
+	/**
+	 * Gets all sessions whose process is hooked.
+	 * 
+	 * @return All sessions whose process is hooked
+	 */
+	public List<Session> getSessions() {
+		final List<Session> sessions = new ArrayList<>();
+		for (final CompletableFuture<Session> session : this.mSessions.values()) {
+			if (session.isDone() && !session.isCompletedExceptionally()) {
+				sessions.add(session.join());
+			}
+		}
+		return sessions;
+	}
+
+	/**
+	 * Gets the aggregated throughput of all sessions.
+	 * 
+	 * @return The amount of executed tasks per second, summed over all
+	 *         sessions
+	 */
+	public double getThroughput() {
+		double throughput = 0;
+		for (final Session session : getSessions()) {
+			throughput += session.getThroughput();
+		}
+		return throughput;
+	}
+
+	/**
+	 * Gets the amount of tasks executed by this manager.
+	 * 
+	 * @return The amount of executed tasks
+	 */
+	public long getOperationAmount() {
+		long operations = 0;
+		for (final Session session : getSessions()) {
+			operations += session.getOperationAmount();
+		}
+		return operations;
+	}
+
+	/**
+	 * Gets the shared service for polling values of all processes.
+	 * 
+	 * @return The shared service for polling values
+	 */
+	public WatchService getWatchService() {
+		return this.mWatchService;
+	}
+
+	/**
+	 * Hooks the given process asynchronously. Hooking a process that is
+	 * already hooked, or currently being hooked, returns the existing session.
+	 * 
+	 * @param processId
+	 *            Id of the process to hook
+	 * @return Future that completes with the session once the process is
+	 *         hooked, or exceptionally if it could not be hooked
+	 */
+	public CompletableFuture<Session> hook(final int processId) {
+		final Integer key = Integer.valueOf(processId);
+		final CompletableFuture<Session> session = new CompletableFuture<>();
+		final CompletableFuture<Session> existingSession = this.mSessions.putIfAbsent(key, session);
+		if (existingSession != null) {
+			return existingSession;
+		}
+
+		this.mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					SessionManager.this.mHookPermits.acquire();
+					try {
+						final MemEaterBug memEaterBug = new MemEaterBug(processId);
+						memEaterBug.hookProcess();
+						session.complete(new Session(processId, memEaterBug, SessionManager.this.mWatchService));
+					} finally {
+						SessionManager.this.mHookPermits.release();
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					failHook(key, session, e);
+				} catch (final RuntimeException e) {
+					failHook(key, session, e);
+				}
+			}
+		});
+		return session;
+	}
+
+	/**
+	 * Hooks all given processes concurrently.
+	 * 
+	 * @param processIds
+	 *            Ids of the processes to hook
+	 * @return Futures of the sessions, in the order of the given ids
+	 */
+	public List<CompletableFuture<Session>> hookAll(final int[] processIds) {
+		final List<CompletableFuture<Session>> sessions = new ArrayList<>(processIds.length);
+		for (final int processId : processIds) {
+			sessions.add(hook(processId));
+		}
+		return sessions;
+	}
+
+	/**
+	 * Unhooks all processes and stops the manager. Tasks that are currently
+	 * executed are completed, the shared watch service is shut down.
+	 * 
+	 * @return Future that completes once all processes are unhooked
+	 */
+	public CompletableFuture<Void> shutdown() {
+		final CompletableFuture<Void> unhooked = unhookAll();
+		return unhooked.whenComplete(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(final Void result, final Throwable throwable) {
+				SessionManager.this.mWatchService.shutdown();
+				SessionManager.this.mExecutor.shutdown();
+			}
+		});
+	}
+
+	/**
+	 * Executes the given task for the session of the given process
+	 * asynchronously. The latency of the task is recorded in the session.
+	 * 
+	 * @param processId
+	 *            Id of the process
+	 * @param task
+	 *            The task to execute
+	 * @param <T>
+	 *            Type of the result of the task
+	 * @return Future that completes with the result of the task, or
+	 *         exceptionally if the task failed
+	 * @throws NotHookedException
+	 *             If the process is not hooked
+	 */
+	public <T> CompletableFuture<T> submit(final int processId, final SessionTask<T> task)
+			throws NotHookedException {
+		final Session session = getSession(processId);
+		if (session == null) {
+			throw new NotHookedException(ErrorMessages.UNABLE_SINCE_NOT_HOOKED);
+		}
+
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		this.mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					SessionManager.this.mTaskPermits.acquire();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					result.completeExceptionally(e);
+					return;
+				}
+				final long start = System.nanoTime();
+				try {
+					final T value = task.execute(session);
+					session.recordOperation(System.nanoTime() - start, true);
+					result.complete(value);
+				} catch (final Exception e) {
+					session.recordOperation(System.nanoTime() - start, false);
+					result.completeExceptionally(e);
+				} finally {
+					SessionManager.this.mTaskPermits.release();
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Unhooks the given process asynchronously. The watches and publishers of
+	 * its session are cancelled before. Watches that were registered directly
+	 * at the shared watch service get cancelled by the service once it
+	 * notices that the process is not hooked anymore.
+	 * 
+	 * @param processId
+	 *            Id of the process to unhook
+	 * @return Future that completes once the process is unhooked. Completes
+	 *         immediately if the process is not hooked.
+	 */
+	public CompletableFuture<Void> unhook(final int processId) {
+		final CompletableFuture<Session> session = this.mSessions.remove(Integer.valueOf(processId));
+		final CompletableFuture<Void> unhooked = new CompletableFuture<>();
+		if (session == null) {
+			unhooked.complete(null);
+			return unhooked;
+		}
+
+		session.whenCompleteAsync(new BiConsumer<Session, Throwable>() {
+			@Override
+			public void accept(final Session hookedSession, final Throwable throwable) {
+				if (throwable != null) {
+					// The process was never hooked
+					unhooked.complete(null);
+					return;
+				}
+				try {
+					hookedSession.cancelWatches();
+					SessionManager.this.mHookPermits.acquire();
+					try {
+						hookedSession.getMemEaterBug().unhookProcess();
+					} finally {
+						SessionManager.this.mHookPermits.release();
+					}
+					unhooked.complete(null);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					unhooked.completeExceptionally(e);
+				} catch (final RuntimeException e) {
+					unhooked.completeExceptionally(e);
+				}
+			}
+		}, this.mExecutor);
+		return unhooked;
+	}
+
+	/**
+	 * Unhooks all processes concurrently.
+	 * 
+	 * @return Future that completes once all processes are unhooked
+	 */
+	public CompletableFuture<Void> unhookAll() {
+		final List<CompletableFuture<Void>> unhooked = new ArrayList<>();
+		for (final Integer processId : new ArrayList<>(this.mSessions.keySet())) {
+			unhooked.add(unhook(processId.intValue()));
+		}
+		return CompletableFuture.allOf(unhooked.toArray(new CompletableFuture<?>[unhooked.size()]));
+	}
+
+	/**
+	 * Marks the hooking of the given process as failed.
+	 * 
+	 * @param key
+	 *            Id of the process
+	 * @param session
+	 *            Future of the session to complete
+	 * @param cause
+	 *            Cause of the failure
+	 */
+	private void failHook(final Integer key, final CompletableFuture<Session> session, final Throwable cause) {
+		this.mSessions.remove(key, session);
+		session.completeExceptionally(new CompletionException(cause));
+	}
+}
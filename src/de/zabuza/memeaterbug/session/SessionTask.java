@@ -0,0 +1,23 @@
+package de.zabuza.memeaterbug.session;
+
+/**
+ * Task that gets executed for a {@link Session} by a {@link SessionManager}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ * @param <T>
+ *            Type of the result of the task
+ */
+public interface SessionTask<T> {
+	/**
+	 * Executes the task for the given session. The session is hooked while the
+	 * task is executed.
+	 * 
+	 * @param session
+	 *            The session to execute the task for
+	 * @return The result of the task
+	 * @throws Exception
+	 *             If the task could not be executed
+	 */
+	public T execute(final Session session) throws Exception;
+}
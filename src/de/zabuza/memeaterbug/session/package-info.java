@@ -0,0 +1,5 @@
+/**
+ * This package contains classes for managing sessions with many hooked
+ * processes concurrently.
+ */
+package de.zabuza.memeaterbug.session;
@@ -0,0 +1,21 @@
+package de.zabuza.memeaterbug.simulation;
+
+/**
+ * Scripted change of the memory of a {@link SimulatedProcess}, that gets
+ * applied whenever the process advances by one tick, see
+ * {@link SimulatedProcess#tick()}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface Mutation {
+	/**
+	 * Applies the mutation to the given process.
+	 * 
+	 * @param process
+	 *            The process to mutate
+	 * @param tick
+	 *            The tick the process advanced to, starting with <tt>1</tt>
+	 */
+	public void mutate(final SimulatedProcess process, final long tick);
+}
@@ -0,0 +1,444 @@
+package de.zabuza.memeaterbug.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.jna.Memory;
+
+import de.zabuza.memeaterbug.exceptions.MemAccessException;
+import de.zabuza.memeaterbug.locale.ErrorMessages;
+import de.zabuza.memeaterbug.memory.MemAccess;
+import de.zabuza.memeaterbug.process.ModuleSource;
+import de.zabuza.memeaterbug.process.ModuleTable;
+
+/**
+ * Simulated target process with a sparse, page backed address space. It
+ * serves the same memory access surface as the
+ * {@link de.zabuza.memeaterbug.memory.MemManipulator MemManipulator}, such
+ * that batches, pointer chains, watches and benchmarks can be run
+ * reproducibly and on any operating system.<br/>
+ * <br/>
+ * Memory is organized in {@link SimulatedRegion regions} with protections,
+ * accesses outside of mapped regions or against their protection throw a
+ * {@link MemAccessException}. Fake modules can be added, which the process
+ * reports as {@link ModuleSource}. Every call can be delayed by a configurable
+ * latency, to mimic the cost of a system call, and the memory can be changed
+ * over time by scripted {@link Mutation mutations}.<br/>
+ * <br/>
+ * The process may be used by many threads at once.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SimulatedProcess implements MemAccess, ModuleSource {
+	/**
+	 * Size of an integer, in bytes.
+	 */
+	private static final int INT_SIZE = 4;
+
+	/**
+	 * Amount of memory accesses that were served.
+	 */
+	private final AtomicLong mCalls;
+	/**
+	 * Latency every memory access gets delayed by, in nanoseconds.
+	 */
+	private volatile long mLatency;
+	/**
+	 * Fake modules of the process.
+	 */
+	private final ModuleTable mModules;
+	/**
+	 * Mutations applied on every tick.
+	 */
+	private final List<Mutation> mMutations;
+	/**
+	 * Mapped regions, sorted by their start address. The array is replaced,
+	 * never changed, whenever regions get mapped or unmapped.
+	 */
+	private volatile SimulatedRegion[] mRegions;
+	/**
+	 * Current tick of the process.
+	 */
+	private final AtomicLong mTick;
+
+	/**
+	 * Creates a new process with an empty address space and no latency.
+	 */
+	public SimulatedProcess() {
+		this.mCalls = new AtomicLong();
+		this.mLatency = 0;
+		this.mModules = new ModuleTable();
+		this.mMutations = new CopyOnWriteArrayList<>();
+		this.mRegions = new SimulatedRegion[0];
+		this.mTick = new AtomicLong();
+	}
+
+	/**
+	 * Adds a fake module to the process. A readable, writable and executable
+	 * region gets mapped for it. The first added module is the main module.
+	 * 
+	 * @param path
+	 *            Path of the file of the module
+	 * @param base
+	 *            Load address of the module
+	 * @param size
+	 *            Size of the module, in bytes
+	 * @return The region of the module
+	 * @throws IllegalArgumentException
+	 *             If the region of the module overlaps a mapped region
+	 */
+	public synchronized SimulatedRegion addModule(final String path, final long base, final long size)
+			throws IllegalArgumentException {
+		final SimulatedRegion region = map(base, size, SimulatedRegion.PROTECTION_READ
+				| SimulatedRegion.PROTECTION_WRITE | SimulatedRegion.PROTECTION_EXECUTE);
+		this.mModules.add(base, size, path);
+		return region;
+	}
+
+	/**
+	 * Adds a mutation that gets applied on every tick.
+	 * 
+	 * @param mutation
+	 *            The mutation to add
+	 */
+	public void addMutation(final Mutation mutation) {
+		this.mMutations.add(mutation);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#getBaseAddress()
+	 */
+	@Override
+	public synchronized long getBaseAddress() {
+		if (this.mModules.getAmount() == 0) {
+			return 0;
+		}
+		return this.mModules.getBase(0);
+	}
+
+	/**
+	 * Gets the amount of memory accesses that were served.
+	 * 
+	 * @return The amount of served memory accesses
+	 */
+	public long getCallAmount() {
+		return this.mCalls.get();
+	}
+
+	/**
+	 * Gets the latency every memory access gets delayed by.
+	 * 
+	 * @return The latency, in nanoseconds
+	 */
+	public long getLatency() {
+		return this.mLatency;
+	}
+
+	/**
+	 * Gets the region that contains the given address.
+	 * 
+	 * @param address
+	 *            The address in question
+	 * @return The region that contains the address or <tt>null</tt> if the
+	 *         address is not mapped
+	 */
+	public SimulatedRegion getRegion(final long address) {
+		final SimulatedRegion[] regions = this.mRegions;
+		int low = 0;
+		int high = regions.length - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final SimulatedRegion region = regions[middle];
+			if (address < region.getBase()) {
+				high = middle - 1;
+			} else if (address >= region.getEnd()) {
+				low = middle + 1;
+			} else {
+				return region;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets all mapped regions.
+	 * 
+	 * @return The mapped regions, sorted by their start address
+	 */
+	public List<SimulatedRegion> getRegions() {
+		return Arrays.asList(this.mRegions.clone());
+	}
+
+	/**
+	 * Gets the current tick of the process.
+	 * 
+	 * @return The current tick, <tt>0</tt> if it never advanced
+	 */
+	public long getTick() {
+		return this.mTick.get();
+	}
+
+	/**
+	 * Maps a new region into the address space.
+	 * 
+	 * @param base
+	 *            Start address of the region
+	 * @param size
+	 *            Size of the region, in bytes. Must be greater than zero.
+	 * @param protection
+	 *            Protection of the region, as combination of the protection
+	 *            flags of {@link SimulatedRegion}
+	 * @return The mapped region
+	 * @throws IllegalArgumentException
+	 *             If the size is not greater than zero or the region overlaps
+	 *             a mapped region
+	 */
+	public synchronized SimulatedRegion map(final long base, final long size, final int protection)
+			throws IllegalArgumentException {
+		if (size <= 0) {
+			throw new IllegalArgumentException(ErrorMessages.SIZE_INVALID + size);
+		}
+		final SimulatedRegion[] regions = this.mRegions;
+		int insertion = 0;
+		while (insertion < regions.length && regions[insertion].getBase() < base) {
+			insertion++;
+		}
+		if ((insertion > 0 && regions[insertion - 1].getEnd() > base)
+				|| (insertion < regions.length && regions[insertion].getBase() < base + size)) {
+			throw new IllegalArgumentException(ErrorMessages.REGION_OVERLAPS + Long.toHexString(base));
+		}
+
+		final SimulatedRegion region = new SimulatedRegion(base, size, protection);
+		final SimulatedRegion[] nextRegions = new SimulatedRegion[regions.length + 1];
+		System.arraycopy(regions, 0, nextRegions, 0, insertion);
+		nextRegions[insertion] = region;
+		System.arraycopy(regions, insertion, nextRegions, insertion + 1, regions.length - insertion);
+		this.mRegions = nextRegions;
+		return region;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#readInt(long)
+	 */
+	@Override
+	public int readInt(final long address) {
+		final byte[] value = new byte[INT_SIZE];
+		readMemory(address, value, 0, INT_SIZE);
+		return (value[0] & 0xFF) | (value[1] & 0xFF) << 8 | (value[2] & 0xFF) << 16 | (value[3] & 0xFF) << 24;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#readMemory(long, byte[], int,
+	 * int)
+	 */
+	@Override
+	public void readMemory(final long address, final byte[] buffer, final int offset, final int bytesToRead) {
+		access(address, buffer, offset, bytesToRead, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#readMemory(long, int)
+	 */
+	@Override
+	public Memory readMemory(final long address, final int bytesToRead) {
+		final byte[] bytes = new byte[bytesToRead];
+		readMemory(address, bytes, 0, bytesToRead);
+		final Memory memory = new Memory(bytesToRead);
+		memory.write(0, bytes, 0, bytesToRead);
+		return memory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.process.ModuleSource#readModules()
+	 */
+	@Override
+	public synchronized ModuleTable readModules() {
+		final ModuleTable modules = new ModuleTable(Math.max(this.mModules.getAmount(), 1));
+		for (int i = 0; i < this.mModules.getAmount(); i++) {
+			modules.add(this.mModules.getBase(i), this.mModules.getSize(i), this.mModules.getPath(i));
+		}
+		return modules;
+	}
+
+	/**
+	 * Removes a mutation.
+	 * 
+	 * @param mutation
+	 *            The mutation to remove
+	 */
+	public void removeMutation(final Mutation mutation) {
+		this.mMutations.remove(mutation);
+	}
+
+	/**
+	 * Sets the latency every memory access gets delayed by. The delay is spent
+	 * busy waiting, to be precise also for latencies of a few microseconds.
+	 * 
+	 * @param latency
+	 *            The latency to set, in nanoseconds. Use <tt>0</tt> for no
+	 *            latency.
+	 */
+	public void setLatency(final long latency) {
+		this.mLatency = latency;
+	}
+
+	/**
+	 * Advances the process by one tick, applying all mutations in the order
+	 * they were added.
+	 * 
+	 * @return The tick the process advanced to
+	 */
+	public long tick() {
+		final long tick = this.mTick.incrementAndGet();
+		for (final Mutation mutation : this.mMutations) {
+			mutation.mutate(this, tick);
+		}
+		return tick;
+	}
+
+	/**
+	 * Unmaps the given region from the address space. The region must not be
+	 * the region of a module.
+	 * 
+	 * @param region
+	 *            The region to unmap
+	 */
+	public synchronized void unmap(final SimulatedRegion region) {
+		final SimulatedRegion[] regions = this.mRegions;
+		for (int i = 0; i < regions.length; i++) {
+			if (regions[i] == region) {
+				final SimulatedRegion[] nextRegions = new SimulatedRegion[regions.length - 1];
+				System.arraycopy(regions, 0, nextRegions, 0, i);
+				System.arraycopy(regions, i + 1, nextRegions, i, regions.length - i - 1);
+				this.mRegions = nextRegions;
+				return;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#writeInt(long, int)
+	 */
+	@Override
+	public void writeInt(final long address, final int valueToWrite) {
+		final byte[] value = { (byte) valueToWrite, (byte) (valueToWrite >>> 8), (byte) (valueToWrite >>> 16),
+				(byte) (valueToWrite >>> 24) };
+		writeMemory(address, value, 0, INT_SIZE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#writeMemory(long, byte[])
+	 */
+	@Override
+	public void writeMemory(final long address, final byte[] bytesToWrite) {
+		writeMemory(address, bytesToWrite, 0, bytesToWrite.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.memeaterbug.memory.MemAccess#writeMemory(long, byte[],
+	 * int, int)
+	 */
+	@Override
+	public void writeMemory(final long address, final byte[] bytesToWrite, final int offset, final int length) {
+		access(address, bytesToWrite, offset, length, true);
+	}
+
+	/**
+	 * Accesses the given range of memory. Like a real process, the access
+	 * fails as a whole if any part of the range is not accessible, also if the
+	 * range spans several adjacent regions.
+	 * 
+	 * @param address
+	 *            Start address of the range
+	 * @param buffer
+	 *            Buffer that receives the read bytes or holds the bytes to
+	 *            write
+	 * @param offset
+	 *            Index in the buffer of the first byte
+	 * @param length
+	 *            Amount of bytes to access
+	 * @param isWrite
+	 *            Whether the bytes get written or read
+	 * @throws MemAccessException
+	 *             If a part of the range is not mapped or its protection does
+	 *             not allow the access
+	 */
+	private void access(final long address, final byte[] buffer, final int offset, final int length,
+			final boolean isWrite) throws MemAccessException {
+		delay();
+		this.mCalls.incrementAndGet();
+		final int protection;
+		if (isWrite) {
+			protection = SimulatedRegion.PROTECTION_WRITE;
+		} else {
+			protection = SimulatedRegion.PROTECTION_READ;
+		}
+
+		// Validate the whole range first, such that a failing access has no
+		// partial effect
+		long position = address;
+		final long end = address + length;
+		SimulatedRegion region = getRegion(position);
+		final SimulatedRegion firstRegion = region;
+		while (true) {
+			if (region == null || !region.isAllowed(protection)) {
+				throw new MemAccessException(ErrorMessages.MEMORY_NOT_ACCESSIBLE + Long.toHexString(position));
+			}
+			if (region.getEnd() >= end) {
+				break;
+			}
+			position = region.getEnd();
+			region = getRegion(position);
+		}
+
+		position = address;
+		region = firstRegion;
+		int done = 0;
+		while (done < length) {
+			final int amount = (int) Math.min(length - done, region.getEnd() - position);
+			if (isWrite) {
+				region.write(position - region.getBase(), buffer, offset + done, amount);
+			} else {
+				region.read(position - region.getBase(), buffer, offset + done, amount);
+			}
+			done += amount;
+			position += amount;
+			if (done < length) {
+				region = getRegion(position);
+			}
+		}
+	}
+
+	/**
+	 * Delays the current thread by the configured latency.
+	 */
+	private void delay() {
+		final long latency = this.mLatency;
+		if (latency <= 0) {
+			return;
+		}
+		final long start = System.nanoTime();
+		while (System.nanoTime() - start < latency) {
+			// Busy wait, sleeping is too coarse for system call latencies
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package de.zabuza.memeaterbug.simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Mapped region of the address space of a {@link SimulatedProcess}. The
+ * region is backed sparsely by pages of {@link #PAGE_SIZE} bytes, which are
+ * only allocated once they get written. Pages that were never written read as
+ * zero, such that regions of several gigabytes only cost memory for the
+ * touched parts.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SimulatedRegion {
+	/**
+	 * Size of one page, in bytes.
+	 */
+	public static final int PAGE_SIZE = 4 * 1024;
+	/**
+	 * Protection flag that allows execution.
+	 */
+	public static final int PROTECTION_EXECUTE = 0x4;
+	/**
+	 * Protection flag that allows reading.
+	 */
+	public static final int PROTECTION_READ = 0x1;
+	/**
+	 * Protection flag that allows writing.
+	 */
+	public static final int PROTECTION_WRITE = 0x2;
+	/**
+	 * Amount of bits to shift an offset by, to get the index of its page.
+	 */
+	private static final int PAGE_SHIFT = 12;
+
+	/**
+	 * Start address of the region.
+	 */
+	private final long mBase;
+	/**
+	 * Pages of the region, <tt>null</tt> for pages that were never written.
+	 */
+	private final AtomicReferenceArray<byte[]> mPages;
+	/**
+	 * Protection of the region, as combination of the protection flags.
+	 */
+	private volatile int mProtection;
+	/**
+	 * Size of the region, in bytes.
+	 */
+	private final long mSize;
+
+	/**
+	 * Creates a new region with no allocated pages.
+	 * 
+	 * @param base
+	 *            Start address of the region
+	 * @param size
+	 *            Size of the region, in bytes
+	 * @param protection
+	 *            Protection of the region, as combination of the protection
+	 *            flags
+	 */
+	SimulatedRegion(final long base, final long size, final int protection) {
+		this.mBase = base;
+		this.mSize = size;
+		this.mProtection = protection;
+		this.mPages = new AtomicReferenceArray<>((int) ((size + PAGE_SIZE - 1) >>> PAGE_SHIFT));
+	}
+
+	/**
+	 * Whether the region contains the given address.
+	 * 
+	 * @param address
+	 *            The address in question
+	 * @return <tt>True</tt> if the region contains the address, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean contains(final long address) {
+		return address >= this.mBase && address - this.mBase < this.mSize;
+	}
+
+	/**
+	 * Gets the start address of the region.
+	 * 
+	 * @return The start address of the region
+	 */
+	public long getBase() {
+		return this.mBase;
+	}
+
+	/**
+	 * Gets the amount of pages that were allocated since they got written.
+	 * 
+	 * @return The amount of allocated pages
+	 */
+	public int getCommittedPages() {
+		int committed = 0;
+		for (int i = 0; i < this.mPages.length(); i++) {
+			if (this.mPages.get(i) != null) {
+				committed++;
+			}
+		}
+		return committed;
+	}
+
+	/**
+	 * Gets the end address of the region.
+	 * 
+	 * @return The first address after the region
+	 */
+	public long getEnd() {
+		return this.mBase + this.mSize;
+	}
+
+	/**
+	 * Gets the protection of the region.
+	 * 
+	 * @return The protection of the region, as combination of the protection
+	 *         flags
+	 */
+	public int getProtection() {
+		return this.mProtection;
+	}
+
+	/**
+	 * Gets the size of the region.
+	 * 
+	 * @return The size of the region, in bytes
+	 */
+	public long getSize() {
+		return this.mSize;
+	}
+
+	/**
+	 * Whether the protection of the region allows the given access.
+	 * 
+	 * @param protection
+	 *            The protection flags of the access
+	 * @return <tt>True</tt> if all given flags are set, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isAllowed(final int protection) {
+		return (this.mProtection & protection) == protection;
+	}
+
+	/**
+	 * Sets the protection of the region.
+	 * 
+	 * @param protection
+	 *            The protection to set, as combination of the protection flags
+	 */
+	public void setProtection(final int protection) {
+		this.mProtection = protection;
+	}
+
+	/**
+	 * Copies bytes out of the region. The range must lie within the region.
+	 * 
+	 * @param offset
+	 *            Offset into the region of the first byte
+	 * @param buffer
+	 *            Buffer that receives the bytes
+	 * @param bufferOffset
+	 *            Index in the buffer where the first byte gets stored
+	 * @param length
+	 *            Amount of bytes to copy
+	 */
+	void read(final long offset, final byte[] buffer, final int bufferOffset, final int length) {
+		long position = offset;
+		int copied = 0;
+		while (copied < length) {
+			final int pageOffset = (int) (position & (PAGE_SIZE - 1));
+			final int amount = Math.min(PAGE_SIZE - pageOffset, length - copied);
+			final byte[] page = this.mPages.get((int) (position >>> PAGE_SHIFT));
+			if (page == null) {
+				Arrays.fill(buffer, bufferOffset + copied, bufferOffset + copied + amount, (byte) 0);
+			} else {
+				System.arraycopy(page, pageOffset, buffer, bufferOffset + copied, amount);
+			}
+			position += amount;
+			copied += amount;
+		}
+	}
+
+	/**
+	 * Copies bytes into the region, allocating pages as needed. The range must
+	 * lie within the region.
+	 * 
+	 * @param offset
+	 *            Offset into the region of the first byte
+	 * @param buffer
+	 *            Buffer that holds the bytes
+	 * @param bufferOffset
+	 *            Index in the buffer of the first byte
+	 * @param length
+	 *            Amount of bytes to copy
+	 */
+	void write(final long offset, final byte[] buffer, final int bufferOffset, final int length) {
+		long position = offset;
+		int copied = 0;
+		while (copied < length) {
+			final int pageOffset = (int) (position & (PAGE_SIZE - 1));
+			final int amount = Math.min(PAGE_SIZE - pageOffset, length - copied);
+			final int pageIndex = (int) (position >>> PAGE_SHIFT);
+			byte[] page = this.mPages.get(pageIndex);
+			if (page == null) {
+				this.mPages.compareAndSet(pageIndex, null, new byte[PAGE_SIZE]);
+				page = this.mPages.get(pageIndex);
+			}
+			System.arraycopy(buffer, bufferOffset + copied, page, pageOffset, amount);
+			position += amount;
+			copied += amount;
+		}
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * This package contains a simulated target process, that serves the memory
+ * access surface of the Mem-Eater-Bug without a real process. It is used for
+ * deterministic benchmarks on any operating system.
+ */
+package de.zabuza.memeaterbug.simulation;
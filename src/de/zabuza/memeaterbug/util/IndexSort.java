@@ -0,0 +1,80 @@
+package de.zabuza.memeaterbug.util;
+
+/**
+ * Utility class that sorts indices by the primitive keys they refer to,
+ * without boxing. Used to order entries that are stored as parallel arrays,
+ * like addresses with their sizes and names.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class IndexSort {
+	/**
+	 * Size up to which partitions get sorted by insertion sort.
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	/**
+	 * Sorts the given range of indices ascending by the keys they refer to,
+	 * using quicksort and insertion sort for small partitions. The sort is not
+	 * stable.
+	 * 
+	 * @param order
+	 *            Indices to sort
+	 * @param keys
+	 *            Keys the indices refer to
+	 * @param from
+	 *            First index of the range to sort, inclusive
+	 * @param to
+	 *            Last index of the range to sort, inclusive
+	 */
+	public static void sortByKey(final int[] order, final long[] keys, final int from, final int to) {
+		int low = from;
+		int high = to;
+		while (high - low > INSERTION_SORT_THRESHOLD) {
+			final long pivot = keys[order[(low + high) >>> 1]];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (keys[order[i]] < pivot) {
+					i++;
+				}
+				while (keys[order[j]] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					final int temp = order[i];
+					order[i] = order[j];
+					order[j] = temp;
+					i++;
+					j--;
+				}
+			}
+			// Recurse into the smaller partition to bound the stack depth
+			if (j - low < high - i) {
+				sortByKey(order, keys, low, j);
+				low = i;
+			} else {
+				sortByKey(order, keys, i, high);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; i++) {
+			final int current = order[i];
+			final long key = keys[current];
+			int j = i - 1;
+			while (j >= low && keys[order[j]] > key) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = current;
+		}
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private IndexSort() {
+
+	}
+}
@@ -8,6 +8,10 @@ package de.zabuza.memeaterbug.util;
  *
  */
 public final class SystemProperties {
+	/**
+	 * Property key for whether the metrics of the Mem-Eater-Bug are enabled.
+	 */
+	public static final String METRICS_ENABLED = "de.zabuza.memeaterbug.metrics";
 	/**
 	 * Property key for the name of the operating system.
 	 */
@@ -0,0 +1,323 @@
+package de.zabuza.memeaterbug.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashed timing wheel that executes tasks once their deadline has passed. The
+ * wheel is divided into buckets which each cover one tick. A task is hashed
+ * into the bucket of its deadline and remembers how many full rotations are
+ * remaining, thus scheduling and expiring are constant time operations,
+ * independent of the amount of scheduled tasks.<br/>
+ * <br/>
+ * Tasks are executed on the thread of the wheel and must therefore return
+ * quickly, long running work should be handed over to an executor. Tasks may
+ * schedule new tasks, also from other threads.
+ *
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class TimingWheel {
+	/**
+	 * A task scheduled on the wheel.
+	 *
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class Timeout {
+		/**
+		 * Deadline of the task, as value of {@link System#nanoTime()}.
+		 */
+		private final long mDeadline;
+		/**
+		 * Amount of full rotations of the wheel remaining before the task
+		 * expires.
+		 */
+		private long mRemainingRounds;
+		/**
+		 * The task to execute.
+		 */
+		private final Runnable mTask;
+
+		/**
+		 * Creates a new timeout for the given task.
+		 *
+		 * @param task
+		 *            The task to execute
+		 * @param deadline
+		 *            Deadline of the task, as value of
+		 *            {@link System#nanoTime()}
+		 */
+		public Timeout(final Runnable task, final long deadline) {
+			this.mTask = task;
+			this.mDeadline = deadline;
+			this.mRemainingRounds = 0;
+		}
+	}
+
+	/**
+	 * Default amount of buckets of the wheel.
+	 */
+	public static final int DEFAULT_BUCKET_AMOUNT = 512;
+	/**
+	 * Default duration of one tick, in milliseconds.
+	 */
+	public static final long DEFAULT_TICK_DURATION = 10;
+
+	/**
+	 * Buckets of the wheel, each holding the tasks that expire in the
+	 * corresponding tick modulo the amount of buckets.
+	 */
+	private final List<LinkedList<Timeout>> mBuckets;
+	/**
+	 * Amount of tasks that threw an exception.
+	 */
+	private final AtomicLong mFailures;
+	/**
+	 * Mask used to map ticks to bucket indices.
+	 */
+	private final int mMask;
+	/**
+	 * Name of the thread that drives the wheel.
+	 */
+	private final String mName;
+	/**
+	 * Tasks that were scheduled but not yet moved into their bucket.
+	 */
+	private final Queue<Timeout> mPending;
+	/**
+	 * Whether the wheel is running.
+	 */
+	private volatile boolean mRunning;
+	/**
+	 * Start time of the wheel, as value of {@link System#nanoTime()}.
+	 */
+	private long mStartTime;
+	/**
+	 * Thread that drives the wheel, if started, <tt>null</tt> else.
+	 */
+	private Thread mThread;
+	/**
+	 * Duration of one tick, in nanoseconds.
+	 */
+	private final long mTickDuration;
+
+	/**
+	 * Creates a new wheel with {@link #DEFAULT_BUCKET_AMOUNT} buckets and a
+	 * tick duration of {@link #DEFAULT_TICK_DURATION}. It must be started with
+	 * {@link #start()} before tasks get executed.
+	 *
+	 * @param name
+	 *            Name of the thread that drives the wheel
+	 */
+	public TimingWheel(final String name) {
+		this(name, DEFAULT_TICK_DURATION, DEFAULT_BUCKET_AMOUNT);
+	}
+
+	/**
+	 * Creates a new wheel. It must be started with {@link #start()} before
+	 * tasks get executed.
+	 *
+	 * @param name
+	 *            Name of the thread that drives the wheel
+	 * @param tickDuration
+	 *            Duration of one tick, in milliseconds. Must be greater than
+	 *            zero. Deadlines are rounded up to the next tick.
+	 * @param bucketAmount
+	 *            Amount of buckets of the wheel, gets rounded up to the next
+	 *            power of two
+	 */
+	public TimingWheel(final String name, final long tickDuration, final int bucketAmount) {
+		if (tickDuration <= 0 || bucketAmount <= 0) {
+			throw new IllegalArgumentException();
+		}
+		int normalizedBucketAmount = 1;
+		while (normalizedBucketAmount < bucketAmount) {
+			normalizedBucketAmount <<= 1;
+		}
+
+		this.mName = name;
+		this.mTickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+		this.mBuckets = new ArrayList<>(normalizedBucketAmount);
+		for (int i = 0; i < normalizedBucketAmount; i++) {
+			this.mBuckets.add(new LinkedList<Timeout>());
+		}
+		this.mFailures = new AtomicLong();
+		this.mMask = normalizedBucketAmount - 1;
+		this.mPending = new ConcurrentLinkedQueue<>();
+		this.mRunning = false;
+		this.mThread = null;
+	}
+
+	/**
+	 * Gets the amount of tasks that threw an exception. Such exceptions do
+	 * not stop the wheel, they are passed to the uncaught exception handler
+	 * of its thread instead.
+	 *
+	 * @return The amount of tasks that threw an exception
+	 */
+	public long getFailureAmount() {
+		return this.mFailures.get();
+	}
+
+	/**
+	 * Gets the duration of one tick, in nanoseconds.
+	 *
+	 * @return The duration of one tick, in nanoseconds
+	 */
+	public long getTickDuration() {
+		return this.mTickDuration;
+	}
+
+	/**
+	 * Whether the wheel is running or not.
+	 *
+	 * @return <tt>True</tt> if the wheel is running, <tt>false</tt> otherwise
+	 */
+	public boolean isRunning() {
+		return this.mRunning;
+	}
+
+	/**
+	 * Schedules the given task for execution once the given deadline has
+	 * passed.
+	 *
+	 * @param task
+	 *            The task to execute, on the thread of the wheel
+	 * @param deadline
+	 *            Deadline of the task, as value of {@link System#nanoTime()}.
+	 *            Deadlines in the past expire with the next tick.
+	 */
+	public void schedule(final Runnable task, final long deadline) {
+		this.mPending.add(new Timeout(task, deadline));
+	}
+
+	/**
+	 * Stops the wheel. Scheduled tasks are discarded. Blocks until the thread
+	 * of the wheel has terminated, unless called from that thread.
+	 *
+	 * @throws IllegalStateException
+	 *             If the wheel is not running
+	 */
+	public synchronized void shutdown() throws IllegalStateException {
+		if (!this.mRunning) {
+			throw new IllegalStateException();
+		}
+		this.mRunning = false;
+		final Thread thread = this.mThread;
+		this.mThread = null;
+		thread.interrupt();
+		if (Thread.currentThread() != thread) {
+			try {
+				thread.join();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for (final LinkedList<Timeout> bucket : this.mBuckets) {
+			bucket.clear();
+		}
+		this.mPending.clear();
+	}
+
+	/**
+	 * Starts the wheel in a new daemon thread.
+	 *
+	 * @throws IllegalStateException
+	 *             If the wheel is already running
+	 */
+	public synchronized void start() throws IllegalStateException {
+		if (this.mRunning) {
+			throw new IllegalStateException();
+		}
+		this.mRunning = true;
+		this.mStartTime = System.nanoTime();
+		this.mThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				work();
+			}
+		}, this.mName);
+		this.mThread.setDaemon(true);
+		this.mThread.start();
+	}
+
+	/**
+	 * Executes all tasks of the given bucket whose deadline has passed and
+	 * decrements the remaining rounds of all others.
+	 *
+	 * @param bucket
+	 *            The bucket to expire
+	 * @param tickDeadline
+	 *            The deadline of the current tick, as value of
+	 *            {@link System#nanoTime()}
+	 */
+	private void expire(final LinkedList<Timeout> bucket, final long tickDeadline) {
+		final Iterator<Timeout> timeouts = bucket.iterator();
+		while (timeouts.hasNext()) {
+			final Timeout timeout = timeouts.next();
+			if (timeout.mRemainingRounds <= 0 && timeout.mDeadline <= tickDeadline) {
+				timeouts.remove();
+				try {
+					timeout.mTask.run();
+				} catch (final RuntimeException e) {
+					// A failing task must not stop the wheel
+					this.mFailures.incrementAndGet();
+					final Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				}
+			} else {
+				timeout.mRemainingRounds--;
+			}
+		}
+	}
+
+	/**
+	 * Moves the pending tasks into their buckets.
+	 *
+	 * @param tick
+	 *            The current tick
+	 */
+	private void transferPending(final long tick) {
+		Timeout timeout = this.mPending.poll();
+		while (timeout != null) {
+			final long deadlineTick = Math.max((timeout.mDeadline - this.mStartTime + this.mTickDuration - 1)
+					/ this.mTickDuration, tick);
+			timeout.mRemainingRounds = (deadlineTick - tick) / this.mBuckets.size();
+			this.mBuckets.get((int) (deadlineTick & this.mMask)).add(timeout);
+
+			timeout = this.mPending.poll();
+		}
+	}
+
+	/**
+	 * Drives the wheel until it gets shut down.
+	 */
+	private void work() {
+		long tick = 0;
+		while (this.mRunning) {
+			final long tickDeadline = this.mStartTime + tick * this.mTickDuration;
+			long sleepTime = tickDeadline - System.nanoTime();
+			while (sleepTime > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleepTime);
+				} catch (final InterruptedException e) {
+					if (!this.mRunning) {
+						return;
+					}
+				}
+				sleepTime = tickDeadline - System.nanoTime();
+			}
+
+			transferPending(tick);
+			expire(this.mBuckets.get((int) (tick & this.mMask)), tickDeadline);
+			tick++;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package de.zabuza.memeaterbug.winapi;
 
-import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -9,12 +10,17 @@ import javax.swing.ImageIcon;
 import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import com.sun.jna.platform.win32.Tlhelp32.PROCESSENTRY32;
+import com.sun.jna.platform.win32.Win32Exception;
 import com.sun.jna.platform.win32.WinDef.HICON;
 import com.sun.jna.platform.win32.WinDef.HMODULE;
 import com.sun.jna.platform.win32.WinDef.HWND;
 import com.sun.jna.platform.win32.WinNT.HANDLE;
 import com.sun.jna.ptr.IntByReference;
 
+import de.zabuza.memeaterbug.process.ModuleCache;
+import de.zabuza.memeaterbug.process.ModuleTable;
+import de.zabuza.memeaterbug.process.ProcessInfo;
+import de.zabuza.memeaterbug.process.PsapiModuleSource;
 import de.zabuza.memeaterbug.util.Formats;
 import de.zabuza.memeaterbug.winapi.jna.User32;
 import de.zabuza.memeaterbug.winapi.jna.util.Kernel32Util;
@@ -91,6 +97,25 @@ public final class Process {
 	 */
 	private static int PROCESS_MODULE_INDEX = 0;
 
+	/**
+	 * Creates a module handle for the module loaded at the given base address.
+	 * 
+	 * @param base
+	 *            Base address of the module
+	 * @return The handle of the module
+	 */
+	private static HMODULE toHModule(final long base) {
+		final HMODULE hModule = new HMODULE();
+		hModule.setPointer(new Pointer(base));
+		return hModule;
+	}
+
+	/**
+	 * Windows that were added by {@link #addHwnd(HWND)} before the windows of
+	 * the process were looked up, as window handles. They get merged into
+	 * {@link #mHWindowsCache} once it is created.
+	 */
+	private List<HWND> mAddedHWindows;
 	/**
 	 * The number of execution threads started by the process.
 	 * 
@@ -109,14 +134,15 @@ public final class Process {
 	 */
 	private HANDLE mHandleCache;
 	/**
-	 * List of windows the process has, as window handles. Can be added using
-	 * {@link #addHwnd(HWND)}.
+	 * Cached list of windows the process has, as window handles. Updated by
+	 * {@link #getHwnds()} and invalidated by {@link #invalidateHwnds()}. Can
+	 * be added using {@link #addHwnd(HWND)}.
 	 * 
 	 * @see <a href=
 	 *      "https://msdn.microsoft.com/en-us/library/ms633515(v=vs.85).aspx">
 	 *      MSDN webpage#GetWindow function</a>
 	 */
-	private final List<HWND> mHWindows;
+	private List<HWND> mHWindowsCache;
 	/**
 	 * A cached icon of this process. Updated by {@link #getIcon()}.
 	 * 
@@ -134,6 +160,21 @@ public final class Process {
 	 *      MSDN webpage#MODULEINFO structure</a>
 	 */
 	private Module mModuleCache;
+	/**
+	 * Cached modules of this process, built by {@link #getModules()} from the
+	 * module table {@link #mModulesTable}.
+	 */
+	private List<Module> mModulesCache;
+	/**
+	 * The module table the cached modules {@link #mModulesCache} were built
+	 * from. If the cache returns another table, the modules get built again.
+	 */
+	private ModuleTable mModulesTable;
+	/**
+	 * Cache of the module table of this process, created on first use by
+	 * {@link #getModuleTable()}.
+	 */
+	private ModuleCache mModuleTableCache;
 	/**
 	 * The base priority of any threads created by this process.
 	 * 
@@ -189,11 +230,42 @@ public final class Process {
 		this.mHandleCache = null;
 		this.mIconCache = null;
 		this.mModuleCache = null;
-		this.mHWindows = new LinkedList<>();
+		this.mModulesCache = null;
+		this.mModulesTable = null;
+		this.mModuleTableCache = null;
+		this.mHWindowsCache = null;
+		this.mAddedHWindows = null;
 	}
 
 	/**
-	 * Adds the handle to a a window the process has.
+	 * Creates a new process wrapper that is able to read information from the
+	 * process, given by its registered information.
+	 * 
+	 * @param info
+	 *            Information about the process to wrap around, as provided by
+	 *            a {@link de.zabuza.memeaterbug.process.ProcessRegistry
+	 *            ProcessRegistry}
+	 */
+	public Process(final ProcessInfo info) {
+		this.mPid = info.getPid();
+		this.mSzExeFile = info.getExeName();
+		this.mCntThreads = info.getThreadAmount();
+		this.mPcPriClassBase = info.getPriorityBase();
+		this.mTh32ParentProcessID = info.getParentPid();
+
+		this.mHandleCache = null;
+		this.mIconCache = null;
+		this.mModuleCache = null;
+		this.mModulesCache = null;
+		this.mModulesTable = null;
+		this.mModuleTableCache = null;
+		this.mHWindowsCache = null;
+		this.mAddedHWindows = null;
+	}
+
+	/**
+	 * Adds the handle to a a window the process has. Does not look up the
+	 * windows of the process if they are not cached yet.
 	 * 
 	 * @see <a href=
 	 *      "https://msdn.microsoft.com/en-us/library/ms633515(v=vs.85).aspx">
@@ -203,7 +275,14 @@ public final class Process {
 	 *            Window handle to add
 	 */
 	public void addHwnd(final HWND hWnd) {
-		this.mHWindows.add(hWnd);
+		if (this.mHWindowsCache != null) {
+			this.mHWindowsCache.add(hWnd);
+			return;
+		}
+		if (this.mAddedHWindows == null) {
+			this.mAddedHWindows = new LinkedList<>();
+		}
+		this.mAddedHWindows.add(hWnd);
 	}
 
 	/*
@@ -279,7 +358,9 @@ public final class Process {
 
 	/**
 	 * Gets a list of windows the process has, as window handles. Can be added
-	 * using {@link #addHwnd(HWND)}.
+	 * using {@link #addHwnd(HWND)}. The windows are looked up in the shared
+	 * {@link WindowIndex} on first use and cached for further method calls,
+	 * until {@link #invalidateHwnds()} is used.
 	 * 
 	 * @see <a href=
 	 *      "https://msdn.microsoft.com/en-us/library/ms633515(v=vs.85).aspx">
@@ -288,7 +369,14 @@ public final class Process {
 	 * @return A list of windows the process has, as window handles
 	 */
 	public List<HWND> getHwnds() {
-		return this.mHWindows;
+		if (this.mHWindowsCache == null) {
+			this.mHWindowsCache = new LinkedList<>(WindowIndex.getInstance().getWindows(this.mPid));
+			if (this.mAddedHWindows != null) {
+				this.mHWindowsCache.addAll(this.mAddedHWindows);
+				this.mAddedHWindows = null;
+			}
+		}
+		return this.mHWindowsCache;
 	}
 
 	/**
@@ -321,8 +409,9 @@ public final class Process {
 		}
 
 		if (hIcon == null) {
-			if (this.mHWindows.size() > 0) {
-				hIcon = User32Util.getHIcon(User32.INSTANCE.GetAncestor(this.mHWindows.get(0), User32.GA_ROOTOWNER));
+			final List<HWND> hWindows = getHwnds();
+			if (hWindows.size() > 0) {
+				hIcon = User32Util.getHIcon(User32.INSTANCE.GetAncestor(hWindows.get(0), User32.GA_ROOTOWNER));
 			}
 		}
 
@@ -349,9 +438,13 @@ public final class Process {
 		if (this.mModuleCache != null) {
 			return this.mModuleCache;
 		}
-		final List<Module> modules = getModules();
-		if (modules != null && modules.size() > PROCESS_MODULE_INDEX) {
-			this.mModuleCache = modules.get(PROCESS_MODULE_INDEX);
+		try {
+			final ModuleTable table = getModuleTable();
+			if (table.getAmount() > PROCESS_MODULE_INDEX) {
+				this.mModuleCache = new Module(getHandle(), toHModule(table.getBase(PROCESS_MODULE_INDEX)));
+			}
+		} catch (final Win32Exception e) {
+			// Just catch the exception and return no module
 		}
 		return this.mModuleCache;
 	}
@@ -376,25 +469,50 @@ public final class Process {
 	}
 
 	/**
-	 * Gets the list of modules that belong to this process.
+	 * Gets the list of modules that belong to this process. The modules are
+	 * built from the cached {@link #getModuleTable() module table} and cached
+	 * themselves, until the module table changes.
 	 * 
 	 * @see <a href=
 	 *      "https://msdn.microsoft.com/en-us/library/ms682631(v=vs.85).aspx">
 	 *      MSDN webpage#EnumProcessModules function</a>
 	 * 
-	 * @return The list of modules that belong to this process
+	 * @return An unmodifiable list of the modules that belong to this process
+	 * @throws Win32Exception
+	 *             If the modules could not be enumerated
 	 */
-	public List<Module> getModules() {
-		try {
-			final List<HMODULE> pointers = PsapiUtil.enumProcessModules(getHandle());
-			final List<Module> modules = new LinkedList<>();
-			for (final HMODULE hModule : pointers) {
-				modules.add(new Module(getHandle(), hModule));
+	public List<Module> getModules() throws Win32Exception {
+		final ModuleTable table = getModuleTable();
+		if (this.mModulesCache == null || this.mModulesTable != table) {
+			final List<Module> modules = new ArrayList<>(table.getAmount());
+			for (int i = 0; i < table.getAmount(); i++) {
+				modules.add(new Module(getHandle(), toHModule(table.getBase(i))));
 			}
-			return modules;
-		} catch (final Exception e) {
-			return null;
+			this.mModulesCache = Collections.unmodifiableList(modules);
+			this.mModulesTable = table;
 		}
+		return this.mModulesCache;
+	}
+
+	/**
+	 * Gets the table of modules that belong to this process, holding their
+	 * base address, size and path. The modules are enumerated on first use and
+	 * cached for further method calls, until {@link #invalidateModules()} is
+	 * used.
+	 * 
+	 * @see <a href=
+	 *      "https://msdn.microsoft.com/en-us/library/ms682631(v=vs.85).aspx">
+	 *      MSDN webpage#EnumProcessModules function</a>
+	 * 
+	 * @return The table of modules that belong to this process
+	 * @throws Win32Exception
+	 *             If the modules could not be enumerated
+	 */
+	public ModuleTable getModuleTable() throws Win32Exception {
+		if (this.mModuleTableCache == null) {
+			this.mModuleTableCache = new ModuleCache(new PsapiModuleSource(getHandle()));
+		}
+		return this.mModuleTableCache.get();
 	}
 
 	/**
@@ -459,7 +577,9 @@ public final class Process {
 
 	/**
 	 * Gets the name of the module the given address belongs to and the address
-	 * offset from the beginning of the module as 8 placed hexadecimal.
+	 * offset from the beginning of the module as 8 placed hexadecimal. The
+	 * module is looked up in the cached {@link #getModuleTable() module
+	 * table}, which does not need any further native calls.
 	 * 
 	 * @param address
 	 *            Address of interest
@@ -472,18 +592,13 @@ public final class Process {
 			return null;
 		}
 		final long adressAsValue = address.longValue();
-		final List<Module> modules = getModules();
-		long begin;
-		long end;
-		for (final Module module : modules) {
-			begin = Pointer.nativeValue(module.getLpBaseOfDll());
-			end = begin + module.getSizeOfImage();
-			if (begin <= adressAsValue && adressAsValue <= end) {
-				final File f = new File(module.getFileName());
-				return f.getName() + "+" + String.format(Formats.EIGHT_HEX_NUMBER, Long.valueOf(adressAsValue - begin));
-			}
+		final ModuleTable table = getModuleTable();
+		final int index = table.indexOf(adressAsValue);
+		if (index == -1) {
+			return null;
 		}
-		return null;
+		return table.getName(index) + "+"
+				+ String.format(Formats.EIGHT_HEX_NUMBER, Long.valueOf(adressAsValue - table.getBase(index)));
 	}
 
 	/**
@@ -527,6 +642,31 @@ public final class Process {
 		return result;
 	}
 
+	/**
+	 * Invalidates the cached windows of this process, such that they are
+	 * looked up again on next use. The shared {@link WindowIndex} enumerates
+	 * the windows again once the system registry was refreshed or the index
+	 * was invalidated.
+	 */
+	public void invalidateHwnds() {
+		this.mHWindowsCache = null;
+		this.mAddedHWindows = null;
+	}
+
+	/**
+	 * Invalidates the cached modules of this process, such that they are
+	 * enumerated again on next use. Should be used after the process has
+	 * loaded or unloaded a library.
+	 */
+	public void invalidateModules() {
+		if (this.mModuleTableCache != null) {
+			this.mModuleTableCache.invalidate();
+		}
+		this.mModuleCache = null;
+		this.mModulesCache = null;
+		this.mModulesTable = null;
+	}
+
 	/**
 	 * Reads data from an area of memory in this process. The entire area to be
 	 * read must be accessible or the operation fails.
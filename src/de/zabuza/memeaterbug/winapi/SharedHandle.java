@@ -0,0 +1,130 @@
+package de.zabuza.memeaterbug.winapi;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.jna.platform.win32.WinNT.HANDLE;
+
+import de.zabuza.memeaterbug.winapi.jna.util.Kernel32Util;
+
+/**
+ * Reference-counted process handle that can be used by many threads at once
+ * without locking. Every operation that uses the handle must
+ * {@link #acquire()} it before and {@link #release()} it afterwards.<br/>
+ * <br/>
+ * Closing the handle by {@link #close()} rejects new acquisitions, but does
+ * not pull the handle from under operations that are in flight. The
+ * underlying handle is closed by whoever finishes last, either the call to
+ * {@link #close()} or the last {@link #release()}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SharedHandle {
+	/**
+	 * Bit of the state that indicates that the handle is closed. The remaining
+	 * bits hold the amount of acquisitions.
+	 */
+	private static final int CLOSED = Integer.MIN_VALUE;
+
+	/**
+	 * The underlying handle.
+	 */
+	private final HANDLE mHandle;
+	/**
+	 * State of the handle, consisting of the {@link #CLOSED} bit and the
+	 * amount of acquisitions.
+	 */
+	private final AtomicInteger mState;
+
+	/**
+	 * Creates a new shared handle that takes ownership of the given handle.
+	 * 
+	 * @param handle
+	 *            The handle to share, gets closed once the shared handle is
+	 *            closed and drained
+	 */
+	public SharedHandle(final HANDLE handle) {
+		this.mHandle = handle;
+		this.mState = new AtomicInteger(0);
+	}
+
+	/**
+	 * Acquires the handle for an operation. If successful, the handle is
+	 * guaranteed to stay open until {@link #release()} is called.
+	 * 
+	 * @return <tt>True</tt> if the handle was acquired, <tt>false</tt> if it
+	 *         is already closed
+	 */
+	public boolean acquire() {
+		while (true) {
+			final int state = this.mState.get();
+			if ((state & CLOSED) != 0) {
+				return false;
+			}
+			if (this.mState.compareAndSet(state, state + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Closes the handle. New acquisitions get rejected, the underlying handle
+	 * is closed once all operations in flight have released it.
+	 * 
+	 * @return <tt>True</tt> if this call closed the handle, <tt>false</tt> if
+	 *         it was already closed
+	 */
+	public boolean close() {
+		while (true) {
+			final int state = this.mState.get();
+			if ((state & CLOSED) != 0) {
+				return false;
+			}
+			if (this.mState.compareAndSet(state, state | CLOSED)) {
+				if (state == 0) {
+					Kernel32Util.closeHandle(this.mHandle);
+				}
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Gets the underlying handle. It must only be used between
+	 * {@link #acquire()} and {@link #release()}.
+	 * 
+	 * @return The underlying handle
+	 */
+	public HANDLE getHandle() {
+		return this.mHandle;
+	}
+
+	/**
+	 * Gets the amount of operations that currently hold the handle.
+	 * 
+	 * @return The amount of operations that currently hold the handle
+	 */
+	public int getReferenceAmount() {
+		return this.mState.get() & ~CLOSED;
+	}
+
+	/**
+	 * Whether the handle is closed or not. A closed handle may still be held
+	 * by operations in flight.
+	 * 
+	 * @return <tt>True</tt> if the handle is closed, <tt>false</tt> otherwise
+	 */
+	public boolean isClosed() {
+		return (this.mState.get() & CLOSED) != 0;
+	}
+
+	/**
+	 * Releases the handle after an operation. Closes the underlying handle if
+	 * the shared handle was closed and this was the last operation holding it.
+	 */
+	public void release() {
+		if (this.mState.decrementAndGet() == CLOSED) {
+			Kernel32Util.closeHandle(this.mHandle);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package de.zabuza.memeaterbug.winapi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.jna.platform.DesktopWindow;
+import com.sun.jna.platform.WindowUtils;
+import com.sun.jna.platform.win32.WinDef.HWND;
+import com.sun.jna.ptr.IntByReference;
+
+import de.zabuza.memeaterbug.process.ProcessRegistry;
+import de.zabuza.memeaterbug.winapi.jna.User32;
+
+/**
+ * Index of the desktop windows by the id of the process they belong to. The
+ * windows are enumerated only once on first use and cached until the index
+ * gets invalidated by {@link #invalidate()} or the {@link ProcessRegistry}
+ * the index belongs to gets refreshed. Thus every refresh of the processes,
+ * for example by
+ * {@link de.zabuza.memeaterbug.winapi.jna.util.Kernel32Util#getProcessList()
+ * Kernel32Util#getProcessList()}, also refreshes the windows on their next
+ * use.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class WindowIndex {
+	/**
+	 * Windows of an enumeration together with the generation of the registry
+	 * at the time of the enumeration.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class Snapshot {
+		/**
+		 * Generation of the registry at the time of the enumeration.
+		 */
+		private final long mGeneration;
+		/**
+		 * The windows by the id of their process.
+		 */
+		private final Map<Integer, List<HWND>> mWindowsByPid;
+
+		/**
+		 * Creates a new snapshot.
+		 * 
+		 * @param generation
+		 *            Generation of the registry at the time of the enumeration
+		 * @param windowsByPid
+		 *            The windows by the id of their process
+		 */
+		public Snapshot(final long generation, final Map<Integer, List<HWND>> windowsByPid) {
+			this.mGeneration = generation;
+			this.mWindowsByPid = windowsByPid;
+		}
+	}
+
+	/**
+	 * The shared index of the system, which belongs to the
+	 * {@link ProcessRegistry#getSystemRegistry() system registry}.
+	 */
+	private static final WindowIndex INSTANCE = new WindowIndex(ProcessRegistry.getSystemRegistry());
+
+	/**
+	 * Enumerates all desktop windows and groups them by the id of their
+	 * process.
+	 * 
+	 * @return The windows by the id of their process
+	 */
+	private static Map<Integer, List<HWND>> enumerateWindows() {
+		final Map<Integer, List<HWND>> windowsByPid = new HashMap<>();
+		final IntByReference lpdwProcessId = new IntByReference();
+		for (final DesktopWindow window : WindowUtils.getAllWindows(false)) {
+			User32.INSTANCE.GetWindowThreadProcessId(window.getHWND(), lpdwProcessId);
+			final Integer pid = Integer.valueOf(lpdwProcessId.getValue());
+			List<HWND> windows = windowsByPid.get(pid);
+			if (windows == null) {
+				windows = new ArrayList<>();
+				windowsByPid.put(pid, windows);
+			}
+			windows.add(window.getHWND());
+		}
+		for (final Map.Entry<Integer, List<HWND>> entry : windowsByPid.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		return windowsByPid;
+	}
+
+	/**
+	 * Gets the shared index of the system.
+	 * 
+	 * @return The shared index of the system
+	 */
+	public static WindowIndex getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * The registry whose refreshes invalidate the index.
+	 */
+	private final ProcessRegistry mRegistry;
+	/**
+	 * Cached windows, if already enumerated, <tt>null</tt> else.
+	 */
+	private volatile Snapshot mSnapshot;
+
+	/**
+	 * Creates a new empty index. The windows are enumerated on first use.
+	 * 
+	 * @param registry
+	 *            The registry whose refreshes invalidate the index
+	 */
+	public WindowIndex(final ProcessRegistry registry) {
+		this.mRegistry = registry;
+		this.mSnapshot = null;
+	}
+
+	/**
+	 * Gets the windows of the given process. Enumerates all windows if the
+	 * index is not cached or the registry was refreshed since the last
+	 * enumeration.
+	 * 
+	 * @param pid
+	 *            The id of the process
+	 * @return An unmodifiable list of the windows of the process, as window
+	 *         handles
+	 */
+	public List<HWND> getWindows(final int pid) {
+		final List<HWND> windows = getWindowsByPid().get(Integer.valueOf(pid));
+		if (windows == null) {
+			return Collections.emptyList();
+		}
+		return windows;
+	}
+
+	/**
+	 * Invalidates the cached windows, such that they are enumerated again on
+	 * next use.
+	 */
+	public void invalidate() {
+		this.mSnapshot = null;
+	}
+
+	/**
+	 * Whether the windows are currently cached or not.
+	 * 
+	 * @return <tt>True</tt> if the windows are cached, <tt>false</tt> if they
+	 *         get enumerated on next use
+	 */
+	public boolean isCached() {
+		final Snapshot snapshot = this.mSnapshot;
+		return snapshot != null && snapshot.mGeneration == this.mRegistry.getGeneration();
+	}
+
+	/**
+	 * Gets the cached windows by the id of their process. Enumerates all
+	 * windows if not cached or outdated.
+	 * 
+	 * @return The windows by the id of their process
+	 */
+	private Map<Integer, List<HWND>> getWindowsByPid() {
+		final long generation = this.mRegistry.getGeneration();
+		Snapshot snapshot = this.mSnapshot;
+		if (snapshot != null && snapshot.mGeneration == generation) {
+			return snapshot.mWindowsByPid;
+		}
+		synchronized (this) {
+			snapshot = this.mSnapshot;
+			if (snapshot == null || snapshot.mGeneration != generation) {
+				snapshot = new Snapshot(generation, enumerateWindows());
+				this.mSnapshot = snapshot;
+			}
+			return snapshot.mWindowsByPid;
+		}
+	}
+}
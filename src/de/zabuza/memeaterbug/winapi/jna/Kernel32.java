@@ -19,6 +19,41 @@ public interface Kernel32 extends com.sun.jna.platform.win32.Kernel32 {
 	 */
 	public Kernel32 INSTANCE = (Kernel32) Native.loadLibrary("kernel32", Kernel32.class, W32APIOptions.DEFAULT_OPTIONS);
 
+	/**
+	 * Retrieves timing information for the specified process.
+	 * 
+	 * @see <a href=
+	 *      "https://msdn.microsoft.com/en-us/library/ms683223(v=vs.85).aspx">
+	 *      MSDN webpage#GetProcessTimes function</a>
+	 * 
+	 * @param hProcess
+	 *            A handle to the process whose timing information is sought.
+	 *            The handle must have the
+	 *            {@link de.zabuza.memeaterbug.winapi.Process#PROCESS_QUERY_INFORMATION
+	 *            PROCESS_QUERY_INFORMATION} or
+	 *            {@link de.zabuza.memeaterbug.winapi.Process#PROCESS_QUERY_LIMITED_INFORMATION
+	 *            PROCESS_QUERY_LIMITED_INFORMATION} access right.
+	 * @param lpCreationTime
+	 *            A pointer to a structure that receives the creation time of
+	 *            the process.
+	 * @param lpExitTime
+	 *            A pointer to a structure that receives the exit time of the
+	 *            process. If the process has not exited, the content of this
+	 *            structure is undefined.
+	 * @param lpKernelTime
+	 *            A pointer to a structure that receives the amount of time that
+	 *            the process has executed in kernel mode.
+	 * @param lpUserTime
+	 *            A pointer to a structure that receives the amount of time that
+	 *            the process has executed in user mode.
+	 * @return If the function succeeds, the return value is nonzero.<br/>
+	 *         <br/>
+	 *         If the function fails, the return value is 0 (zero). To get
+	 *         extended error information, call {@link #Native.GetLastError()}.
+	 */
+	public boolean GetProcessTimes(final HANDLE hProcess, final FILETIME lpCreationTime, final FILETIME lpExitTime,
+			final FILETIME lpKernelTime, final FILETIME lpUserTime);
+
 	/**
 	 * Reads data from an area of memory in a specified process. The entire area
 	 * to be read must be accessible or the operation fails.
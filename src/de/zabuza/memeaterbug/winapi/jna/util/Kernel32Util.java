@@ -1,29 +1,27 @@
 package de.zabuza.memeaterbug.winapi.jna.util;
 
-import java.util.LinkedList;
-import java.util.List;
-
 import com.sun.jna.Memory;
 import com.sun.jna.Native;
 import com.sun.jna.Pointer;
-import com.sun.jna.platform.DesktopWindow;
-import com.sun.jna.platform.WindowUtils;
 import com.sun.jna.platform.win32.BaseTSD.SIZE_T;
-import com.sun.jna.platform.win32.Tlhelp32;
-import com.sun.jna.platform.win32.Tlhelp32.PROCESSENTRY32;
 import com.sun.jna.platform.win32.Win32Exception;
-import com.sun.jna.platform.win32.WinDef.DWORD;
 import com.sun.jna.platform.win32.WinNT;
 import com.sun.jna.platform.win32.WinNT.HANDLE;
 import com.sun.jna.platform.win32.WinNT.MEMORY_BASIC_INFORMATION;
 import com.sun.jna.ptr.IntByReference;
 
+import de.zabuza.memeaterbug.jfr.Events;
+import de.zabuza.memeaterbug.jfr.MemoryReadEvent;
+import de.zabuza.memeaterbug.jfr.MemoryWriteEvent;
+import de.zabuza.memeaterbug.metrics.Metrics;
+import de.zabuza.memeaterbug.metrics.Operation;
+import de.zabuza.memeaterbug.process.ProcessInfo;
+import de.zabuza.memeaterbug.process.ProcessRegistry;
 import de.zabuza.memeaterbug.util.Masks;
 import de.zabuza.memeaterbug.util.SystemProperties;
 import de.zabuza.memeaterbug.winapi.Process;
 import de.zabuza.memeaterbug.winapi.ProcessList;
 import de.zabuza.memeaterbug.winapi.jna.Kernel32;
-import de.zabuza.memeaterbug.winapi.jna.User32;
 
 /**
  * Provides various utility methods that use the JNA interface for Windows
@@ -94,6 +92,20 @@ public final class Kernel32Util {
 			| WinNT.PROCESS_VM_WRITE | WinNT.DELETE | WinNT.READ_CONTROL | WinNT.WRITE_DAC | WinNT.WRITE_OWNER
 			| WinNT.SYNCHRONIZE;
 
+	/**
+	 * Maximal size of the native buffer that is kept per thread for reads
+	 * and writes of arrays, in bytes. Larger transfers allocate their own
+	 * buffer.
+	 */
+	private static final int MAX_SCRATCH_SIZE = 1024 * 1024;
+
+	/**
+	 * Native buffer of every thread that transfers arrays from and to the
+	 * memory of a process. It grows to the largest transfer, such that the
+	 * spans of a batch and repeated executions of it do not allocate.
+	 */
+	private static final ThreadLocal<Memory> sScratchBuffers = new ThreadLocal<>();
+
 	/**
 	 * Closes an open object handle.
 	 * 
@@ -113,7 +125,11 @@ public final class Kernel32Util {
 	}
 
 	/**
-	 * Gets a list of currently active processes by creating a snapshot.
+	 * Gets a list of currently active processes. Refreshes the
+	 * {@link ProcessRegistry#getSystemRegistry() system registry}, which only
+	 * collects processes that have changed since its last refresh. The windows
+	 * of the processes are associated lazily, see
+	 * {@link Process#getHwnds()}.
 	 * 
 	 * @return List of currently active processes
 	 * @throws Win32Exception
@@ -122,36 +138,10 @@ public final class Kernel32Util {
 	public static ProcessList getProcessList() throws Win32Exception {
 		final ProcessList plist = new ProcessList();
 
-		final List<PROCESSENTRY32> list = new LinkedList<>();
-
-		final HANDLE hProcessSnap = Kernel32.INSTANCE.CreateToolhelp32Snapshot(Tlhelp32.TH32CS_SNAPPROCESS,
-				new DWORD(0));
-
-		PROCESSENTRY32 pe32 = new PROCESSENTRY32();
-		if (!Kernel32.INSTANCE.Process32First(hProcessSnap, pe32)) {
-			throw new Win32Exception(Native.getLastError());
-		}
-
-		do {
-			if (pe32.th32ProcessID.intValue() != 0) {
-				list.add(pe32);
-			}
-			pe32 = new PROCESSENTRY32();
-		} while (Kernel32.INSTANCE.Process32Next(hProcessSnap, pe32));
-
-		for (final PROCESSENTRY32 pe : list) {
-			plist.add(new Process(pe));
-		}
-
-		Kernel32.INSTANCE.CloseHandle(hProcessSnap);
-
-		final List<DesktopWindow> windows = WindowUtils.getAllWindows(false);
-		final IntByReference lpdwProcessId = new IntByReference();
-		int pid = 0;
-		for (final DesktopWindow window : windows) {
-			User32.INSTANCE.GetWindowThreadProcessId(window.getHWND(), lpdwProcessId);
-			pid = lpdwProcessId.getValue();
-			plist.add(pid, window.getHWND());
+		final ProcessRegistry registry = ProcessRegistry.getSystemRegistry();
+		registry.refresh();
+		for (final ProcessInfo info : registry.getAll()) {
+			plist.add(new Process(info));
 		}
 		return plist;
 	}
@@ -212,7 +202,9 @@ public final class Kernel32Util {
 	 */
 	public static HANDLE openProcess(final int dwDesiredAccess,
 			@SuppressWarnings("unused") final boolean bInheritHandle, final int dwProcessId) throws Win32Exception {
+		final long start = Metrics.start();
 		final HANDLE process = Kernel32.INSTANCE.OpenProcess(dwDesiredAccess, false, dwProcessId);
+		Metrics.record(Operation.OPEN_PROCESS, start, 0, process != null);
 		if (process == null) {
 			throw new Win32Exception(Native.getLastError());
 		}
@@ -246,6 +238,35 @@ public final class Kernel32Util {
 		return output;
 	}
 
+	/**
+	 * Reads a number of bytes starting at a given address from the memory space
+	 * of a given process into the given buffer.
+	 * 
+	 * @see <a href=
+	 *      "https://msdn.microsoft.com/en-us/library/ms680553(v=vs.85).aspx">
+	 *      MSDN webpage#ReadProcessMemory function</a>
+	 * @param process
+	 *            Handle of the process to read from
+	 * @param address
+	 *            Starting address in the memory space of the given process to
+	 *            start reading from
+	 * @param buffer
+	 *            Buffer that receives the read data
+	 * @param offset
+	 *            Index in the buffer where the first read byte gets stored
+	 * @param bytesToRead
+	 *            Number of bytes to read from the starting address
+	 * @throws Win32Exception
+	 *             If the operation was not successful
+	 */
+	public static void readMemory(final HANDLE process, final long address, final byte[] buffer, final int offset,
+			final int bytesToRead) throws Win32Exception {
+		final Memory output = Kernel32Util.getScratchBuffer(bytesToRead);
+
+		Kernel32Util.readProcessMemory(process, address, output, bytesToRead, null);
+		output.read(0, buffer, offset, bytesToRead);
+	}
+
 	/**
 	 * Reads data from an area of memory in a specified process. The entire area
 	 * to be read must be accessible or the operation fails.
@@ -278,8 +299,18 @@ public final class Kernel32Util {
 	 */
 	public static void readProcessMemory(final HANDLE hProcess, final long pAddress, final Pointer outputBuffer,
 			final int nSize, final IntByReference outNumberOfBytesRead) throws Win32Exception {
+		MemoryReadEvent event = null;
+		if (Events.isEnabled()) {
+			event = new MemoryReadEvent();
+			event.begin();
+		}
+		final long start = Metrics.start();
 		final boolean success = Kernel32.INSTANCE.ReadProcessMemory(hProcess, pAddress, outputBuffer, nSize,
 				outNumberOfBytesRead);
+		Metrics.record(Operation.READ, start, nSize, success);
+		if (event != null) {
+			event.finish(pAddress, nSize, success);
+		}
 		if (!success) {
 			throw new Win32Exception(Native.getLastError());
 		}
@@ -356,6 +387,43 @@ public final class Kernel32Util {
 		Kernel32Util.writeProcessMemory(process, address, toWrite, size, null);
 	}
 
+	/**
+	 * Writes a part of the given data to an area of memory in a specified
+	 * process. The entire area to be written to must be accessible or the
+	 * operation fails.
+	 * 
+	 * @see <a href=
+	 *      "https://msdn.microsoft.com/en-us/library/ms681674(v=vs.85).aspx">
+	 *      MSDN webpage#WriteProcessMemory function</a>
+	 * @param process
+	 *            A handle to the process memory to be modified. The handle must
+	 *            have
+	 *            {@link de.zabuza.memeaterbug.winapi.Process#PROCESS_VM_WRITE
+	 *            PROCESS_VM_WRITE} and
+	 *            {@link de.zabuza.memeaterbug.winapi.Process#PROCESS_VM_OPERATION
+	 *            PROCESS_VM_OPERATION} access to the process.
+	 * @param address
+	 *            A pointer to the base address in the specified process to
+	 *            which data is written.
+	 * @param data
+	 *            A buffer that contains data to be written in the address space
+	 *            of the specified process. Read from left to right, i.e. from
+	 *            the lower to the higher indices.
+	 * @param offset
+	 *            Index of the first byte in the buffer to write
+	 * @param length
+	 *            Number of bytes to write
+	 * @throws Win32Exception
+	 *             If the operation was not successful
+	 */
+	public static void writeMemory(final HANDLE process, final long address, final byte[] data, final int offset,
+			final int length) throws Win32Exception {
+		final Memory toWrite = Kernel32Util.getScratchBuffer(length);
+		toWrite.write(0, data, offset, length);
+
+		Kernel32Util.writeProcessMemory(process, address, toWrite, length, null);
+	}
+
 	/**
 	 * Writes data reversely to an area of memory in a specified process. The
 	 * entire area to be written to must be accessible or the operation fails.
@@ -432,13 +500,44 @@ public final class Kernel32Util {
 	 */
 	public static void writeProcessMemory(final HANDLE hProcess, final long lpBaseAddress, final Pointer lpBuffer,
 			final int nSize, final IntByReference lpNumberOfBytesWritten) throws Win32Exception {
+		MemoryWriteEvent event = null;
+		if (Events.isEnabled()) {
+			event = new MemoryWriteEvent();
+			event.begin();
+		}
+		final long start = Metrics.start();
 		final boolean success = Kernel32.INSTANCE.WriteProcessMemory(hProcess, lpBaseAddress, lpBuffer, nSize,
 				lpNumberOfBytesWritten);
+		Metrics.record(Operation.WRITE, start, nSize, success);
+		if (event != null) {
+			event.finish(lpBaseAddress, nSize, success);
+		}
 		if (!success) {
 			throw new Win32Exception(Native.getLastError());
 		}
 	}
 
+	/**
+	 * Gets a native buffer of at least the given size. Buffers up to
+	 * {@link #MAX_SCRATCH_SIZE} are reused by the calling thread, the content
+	 * is thus only valid until the next call of the same thread.
+	 * 
+	 * @param size
+	 *            Minimal size of the buffer, in bytes
+	 * @return A native buffer of at least the given size
+	 */
+	private static Memory getScratchBuffer(final int size) {
+		if (size > MAX_SCRATCH_SIZE) {
+			return new Memory(size);
+		}
+		Memory buffer = sScratchBuffers.get();
+		if (buffer == null || buffer.size() < size) {
+			buffer = new Memory(Math.max(size, 8));
+			sScratchBuffers.set(buffer);
+		}
+		return buffer;
+	}
+
 	/**
 	 * Utility class. No implementation.
 	 */
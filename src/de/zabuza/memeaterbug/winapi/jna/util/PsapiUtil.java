@@ -1,17 +1,18 @@
 package de.zabuza.memeaterbug.winapi.jna.util;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.sun.jna.Memory;
 import com.sun.jna.Native;
+import com.sun.jna.Pointer;
 import com.sun.jna.platform.win32.Win32Exception;
 import com.sun.jna.platform.win32.WinDef.HMODULE;
 import com.sun.jna.platform.win32.WinNT.HANDLE;
 import com.sun.jna.ptr.IntByReference;
 
-import de.zabuza.memeaterbug.memory.MemSize;
+import de.zabuza.memeaterbug.process.ProcessInfo;
+import de.zabuza.memeaterbug.process.ProcessRegistry;
 import de.zabuza.memeaterbug.winapi.Process;
 import de.zabuza.memeaterbug.winapi.jna.Psapi;
 import de.zabuza.memeaterbug.winapi.jna.Psapi.LPMODULEINFO;
@@ -27,9 +28,10 @@ import de.zabuza.memeaterbug.winapi.jna.Psapi.LPMODULEINFO;
  */
 public final class PsapiUtil {
 	/**
-	 * Amount of module handles a module buffer should store.
+	 * Amount of module handles a module buffer initially stores. The buffer
+	 * grows if the process has more modules.
 	 */
-	private static int MODULE_BUFFER_AMOUNT = 100;
+	private static int MODULE_BUFFER_AMOUNT = 256;
 
 	/**
 	 * Retrieves a list of handles for each module in the specified process.
@@ -49,7 +51,9 @@ public final class PsapiUtil {
 
 	/**
 	 * Retrieves a list of handles for each module in the specified process,
-	 * that meets the filter criteria specified by the list flag.
+	 * that meets the filter criteria specified by the list flag. The buffer
+	 * for the handles is sized by the amount of bytes the function reports as
+	 * needed, the call is repeated until all handles fit.
 	 * 
 	 * @see <a href=
 	 *      "https://msdn.microsoft.com/en-us/library/ms682631(v=vs.85).aspx">
@@ -80,28 +84,36 @@ public final class PsapiUtil {
 	 */
 	public static List<HMODULE> enumProcessModulesEx(final HANDLE hProcess, final Integer listFlag)
 			throws Win32Exception {
-		final int moduleSize = MemSize.getSizeOfModule(hProcess);
-		final List<HMODULE> list = new LinkedList<>();
-
-		final HMODULE[] lphModule = new HMODULE[MODULE_BUFFER_AMOUNT * moduleSize];
+		// The handles are marshalled as pointers of this process
+		final int moduleSize = Pointer.SIZE;
+		HMODULE[] lphModule = new HMODULE[MODULE_BUFFER_AMOUNT];
 		final IntByReference lpcbNeededs = new IntByReference();
 
-		if (listFlag == null) {
-			if (!Psapi.INSTANCE.EnumProcessModules(hProcess, lphModule, lphModule.length, lpcbNeededs)) {
-				throw new Win32Exception(Native.getLastError());
+		while (true) {
+			final int cb = lphModule.length * moduleSize;
+			if (listFlag == null) {
+				if (!Psapi.INSTANCE.EnumProcessModules(hProcess, lphModule, cb, lpcbNeededs)) {
+					throw new Win32Exception(Native.getLastError());
+				}
+			} else {
+				if (!Psapi.INSTANCE.EnumProcessModulesEx(hProcess, lphModule, cb, lpcbNeededs,
+						listFlag.intValue())) {
+					throw new Win32Exception(Native.getLastError());
+				}
 			}
-		} else {
-			if (!Psapi.INSTANCE.EnumProcessModulesEx(hProcess, lphModule, lphModule.length, lpcbNeededs,
-					listFlag.intValue())) {
-				throw new Win32Exception(Native.getLastError());
+
+			final int neededAmount = lpcbNeededs.getValue() / moduleSize;
+			if (neededAmount <= lphModule.length) {
+				final List<HMODULE> list = new ArrayList<>(neededAmount);
+				for (int i = 0; i < neededAmount; i++) {
+					list.add(lphModule[i]);
+				}
+				return list;
 			}
-		}
 
-		for (int i = 0; i < lpcbNeededs.getValue() / moduleSize; i++) {
-			list.add(lphModule[i]);
+			// Leave room for modules that get loaded until the next call
+			lphModule = new HMODULE[neededAmount + neededAmount / 4];
 		}
-
-		return list;
 	}
 
 	/**
@@ -202,7 +214,10 @@ public final class PsapiUtil {
 	}
 
 	/**
-	 * Gets a process wrapper for the process given by its id.
+	 * Gets a process wrapper for the process given by its id. The process is
+	 * looked up in the {@link ProcessRegistry#getSystemRegistry() system
+	 * registry}, which gets refreshed if the process is not registered yet or
+	 * the registered process has terminated in the meantime.
 	 * 
 	 * @param processId
 	 *            Id of the process to get the wrapper for
@@ -210,18 +225,27 @@ public final class PsapiUtil {
 	 *         if not found
 	 */
 	public static Process getProcessById(final int processId) {
-		final Iterator<Process> processes = Kernel32Util.getProcessList().iterator();
-		while (processes.hasNext()) {
-			final Process process = processes.next();
-			if (process.getPid() == processId) {
-				return process;
-			}
+		final ProcessRegistry registry = ProcessRegistry.getSystemRegistry();
+		final ProcessInfo info = registry.get(processId);
+		if (info != null && registry.isAlive(info)) {
+			return new Process(info);
 		}
-		return null;
+
+		registry.refresh();
+		final ProcessInfo refreshedInfo = registry.get(processId);
+		if (refreshedInfo == null) {
+			return null;
+		}
+		return new Process(refreshedInfo);
 	}
 
 	/**
 	 * Retrieves the id of the process that belongs to the given exe-file name.
+	 * If several processes belong to the name, the newest one is chosen, see
+	 * {@link ProcessRegistry#getPidByExeName(String)}. The
+	 * {@link ProcessRegistry#getSystemRegistry() system registry} gets
+	 * refreshed if no such process is registered yet or the registered process
+	 * has terminated in the meantime.
 	 * 
 	 * @param szExeFile
 	 *            Name of the exe-File.
@@ -229,19 +253,22 @@ public final class PsapiUtil {
 	 *         <tt>0</tt> (zero) if not found.
 	 */
 	public static int getProcessIdBySzExeFile(final String szExeFile) {
-		try {
-			final Iterator<Process> processes = Kernel32Util.getProcessList().iterator();
-			while (processes.hasNext()) {
-				final Process process = processes.next();
-				if (process.getSzExeFile().equalsIgnoreCase(szExeFile)) {
-					return process.getPid();
-				}
+		final ProcessRegistry registry = ProcessRegistry.getSystemRegistry();
+		final int processId = registry.getPidByExeName(szExeFile);
+		if (processId != 0) {
+			final ProcessInfo info = registry.get(processId);
+			if (info != null && registry.isAlive(info)) {
+				return processId;
 			}
+		}
+
+		try {
+			registry.refresh();
 		} catch (final Win32Exception e) {
 			// Just catch the exception and return an error code
+			return 0;
 		}
-
-		return 0;
+		return registry.getPidByExeName(szExeFile);
 	}
 
 	/**